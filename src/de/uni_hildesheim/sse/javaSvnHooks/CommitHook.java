@@ -1,10 +1,23 @@
 package de.uni_hildesheim.sse.javaSvnHooks;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FileUtils;
 
@@ -12,6 +25,7 @@ import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.Test;
 import de.uni_hildesheim.sse.javaSvnHooks.util.ExitCodes;
 import de.uni_hildesheim.sse.javaSvnHooks.util.ResultOutputStream;
+import de.uni_hildesheim.sse.javaSvnHooks.util.ThreadContext;
 
 /**
  * Abstract superclass for all commit hooks.
@@ -20,6 +34,24 @@ import de.uni_hildesheim.sse.javaSvnHooks.util.ResultOutputStream;
  */
 public abstract class CommitHook {
 
+    /**
+     * The hook property specifying the maximum number of tests to be executed in parallel, 1 (sequential)
+     * by default.
+     */
+    private static final String TEST_THREADS_PROPERTY = "testThreads";
+
+    /**
+     * The hook property specifying the maximum number of groups (folders of a changed path
+     * configuration) to be tested in parallel.
+     */
+    private static final String GROUP_THREADS_PROPERTY = "groupThreads";
+
+    /**
+     * The hook property enabling the change-scoped mode, i.e., only the groups containing
+     * changed files are checked out and tested.
+     */
+    private static final String CHANGE_SCOPED_PROPERTY = "changeScopedGroups";
+
     /**
      * Checks or creates tmpDir and checkoutDir according to the configuration.
      * 
@@ -28,6 +60,19 @@ public abstract class CommitHook {
      * @return EXIT_SUCCESS or EXIT_ERROR.
      */
     protected int createDirecotries(Configuration configuration) {
+        return createDirecotries(configuration, false);
+    }
+    
+    /**
+     * Checks or creates tmpDir and checkoutDir according to the configuration.
+     * 
+     * @param configuration The configuration that specifies checkout and tmpDir.
+     * @param reuseCheckoutDir Whether an existing checkoutDir shall be used, e.g., as it is kept across
+     *     invocations, or considered as an error.
+     * 
+     * @return EXIT_SUCCESS or EXIT_ERROR.
+     */
+    protected int createDirecotries(Configuration configuration, boolean reuseCheckoutDir) {
         int exitCode = ExitCodes.EXIT_SUCCESS;
         
         // Create tempDir if it's not a directory
@@ -51,6 +96,8 @@ public abstract class CommitHook {
                 } else {
                     Logger.INSTANCE.log("checkoutDir is " + configuration.getCheckoutDir());
                 }
+            } else if (reuseCheckoutDir) {
+                Logger.INSTANCE.log("checkoutDir is " + configuration.getCheckoutDir() + " (reused)");
             } else {
                 Logger.INSTANCE.log("checkoutDir (" + configuration.getCheckoutDir()
                         + ") already exists in tempDir");
@@ -84,70 +131,169 @@ public abstract class CommitHook {
     protected abstract boolean isTestEnabled(PathConfiguration pathConfiguration, Test test);
     
     /**
-     * Calls the {@link Test#execute(PathConfiguration)} method for all tests.
+     * Calls the {@link Test#execute(PathConfiguration)} method for all enabled tests. Each call
+     * works on fresh test instances, as tests may keep state during their execution and the
+     * same test may run for multiple groups concurrently.
      * 
      * @param pathConfiguration The {@link PathConfiguration} to pass to the tests.
+     * @param scheduler The scheduler executing the tests along their dependencies.
      * 
      * @return {@link ExitCodes#EXIT_SUCCESS} when all tests succeed;
      *  {@link ExitCodes#EXIT_FAIL} when one or more tests fail.
      */
-    private int runTests(PathConfiguration pathConfiguration) {
-        int exitCode = ExitCodes.EXIT_SUCCESS;
-        
-        Set<Test> tests = new HashSet<Test>(Test.getAllTests());
-        Set<Test> missingDependencyTests = new HashSet<Test>();
-        Set<Class<? extends Test>> executedTests = new HashSet<Class<? extends Test>>();
-        
-        int lastSize;
-        
-        do {
-            lastSize = tests.size();
-            
-            Iterator<Test> iter = tests.iterator();
-            Configuration.Stage stage = pathConfiguration.getGlobalConfiguration().getStage();
-            while (iter.hasNext()) {
-                Test test = iter.next();
-                
-                boolean dependencySatisfied = true;
-                Class<? extends Test> dep = test.dependsOn(stage);
-                if (dep != null) {
-                    dependencySatisfied = executedTests.contains(dep);
-                }
-                
-                boolean enabled = isTestEnabled(pathConfiguration, test);
-                //Logger.INSTANCE.log("Test " + test.getName() + " dependencies " 
-                //    + dependencySatisfied + " enabled " + enabled);
-                if (dependencySatisfied && enabled) {
-                    //Christopher(?): exitCode = ExitCodes.EXIT_FAIL;
-                    missingDependencyTests.remove(test);
-                    iter.remove();
-                    int result = test.execute(pathConfiguration);
-                    if (result != 0) {
-                        exitCode = ExitCodes.EXIT_FAIL;
-                    } else {
-                        executedTests.add(test.getClass());
+    private int runTests(PathConfiguration pathConfiguration, TestScheduler scheduler) {
+        List<Test> tests = new ArrayList<Test>();
+        for (Test test : Test.getAllTests()) {
+            if (isTestEnabled(pathConfiguration, test)) {
+                tests.add(newInstance(test));
+            }
+        }
+        return scheduler.runTests(pathConfiguration, tests);
+    }
+    
+    /**
+     * Creates a new instance of a registered test.
+     * 
+     * @param test The registered test.
+     * @return The new instance, <code>test</code> if no instance can be created.
+     */
+    private static Test newInstance(Test test) {
+        Test result = test;
+        try {
+            result = test.getClass().getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            Logger.INSTANCE.logException(e, false);
+        }
+        return result;
+    }
+    
+    /**
+     * Determines the {@link PathConfiguration}s containing the given changed files and stores them
+     * in the {@link Configuration}. In change-scoped mode, also the groups (the top-level folders
+     * of a {@link PathConfiguration}) containing the changed files are determined and stored.
+     * 
+     * @param configuration The {@link Configuration} object.
+     * @param changedFiles The files changed by the current transaction (full path in the repository).
+     * @return The changed {@link PathConfiguration}s.
+     */
+    protected Set<PathConfiguration> determineChangedPathConfigurations(Configuration configuration,
+        List<String> changedFiles) {
+        boolean changeScoped = isChangeScoped(configuration);
+        Set<PathConfiguration> changedPCs = new HashSet<PathConfiguration>();
+        Iterator<PathConfiguration> pathConfigs = configuration.pathConfigurations();
+        while (pathConfigs.hasNext()) {
+            PathConfiguration pathConfig = pathConfigs.next();
+            SortedSet<String> groups = new TreeSet<String>();
+            String groupPrefix = stripSlashes(pathConfig.getPath());
+            if (groupPrefix.length() > 0) {
+                groupPrefix += "/";
+            }
+            for (String path : changedFiles) {
+                if (path.startsWith(pathConfig.getPath())) {
+                    changedPCs.add(pathConfig);
+                    String relPath = stripSlashes(path);
+                    int pos = relPath.indexOf('/', groupPrefix.length());
+                    if (relPath.startsWith(groupPrefix) && pos > 0) {
+                        groups.add(relPath.substring(0, pos));
                     }
-                    Logger.INSTANCE.log("Result from \"" + test.getName() + "\": " + result);
-                } else if (enabled && !dependencySatisfied) {
-                    missingDependencyTests.add(test);
                 }
             }
-            
-        } while (tests.size() != lastSize);
-        
-        if (missingDependencyTests.size() > 0) {
-            StringBuilder message = new StringBuilder("Couldn't run following tests due to not "
-                + "fulfilled test dependencies: ");
-            for (Iterator<Test> iter = missingDependencyTests.iterator(); iter.hasNext();) {
-                message.append(iter.next().getName());
-                if (iter.hasNext()) {
-                    message.append(", ");
+            if (changeScoped && changedPCs.contains(pathConfig)) {
+                configuration.setChangedGroups(pathConfig, groups);
+            }
+        }
+        configuration.setChangedPathConfigurations(changedPCs);
+        return changedPCs;
+    }
+    
+    /**
+     * Returns whether the change-scoped mode is enabled, i.e., whether only the groups containing changed
+     * files are checked out and tested.
+     * 
+     * @param configuration The {@link Configuration} object.
+     * @return <code>true</code> in change-scoped mode.
+     */
+    protected boolean isChangeScoped(Configuration configuration) {
+        return configuration.getBooleanProperty(CHANGE_SCOPED_PROPERTY, false);
+    }
+    
+    /**
+     * Defines the groups of a changed {@link PathConfiguration} to be checked out and tested, e.g., if they
+     * are not determined by the folders in the checkout directory.
+     * 
+     * @param configuration The {@link Configuration} object.
+     * @param pathConfiguration The changed {@link PathConfiguration}.
+     * @param groups The repository paths of the groups (without leading /).
+     */
+    protected void setGroupPaths(Configuration configuration, PathConfiguration pathConfiguration,
+        SortedSet<String> groups) {
+        configuration.setChangedGroups(pathConfiguration, groups);
+    }
+    
+    /**
+     * Removes leading and trailing slashes from a repository path.
+     * 
+     * @param path The repository path.
+     * @return The path without leading and trailing slashes.
+     */
+    protected static String stripSlashes(String path) {
+        int start = 0;
+        int end = path.length();
+        while (start < end && path.charAt(start) == '/') {
+            start++;
+        }
+        while (end > start && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return path.substring(start, end);
+    }
+    
+    /**
+     * Returns the groups of a changed {@link PathConfiguration} to be checked out and tested. In
+     * change-scoped mode, these are the groups containing changed files, else all folders of the
+     * {@link PathConfiguration} in the checkout directory.
+     * 
+     * @param configuration The {@link Configuration} object.
+     * @param pathConfiguration The changed {@link PathConfiguration}.
+     * @return The repository paths of the groups (relative to the checkout directory), sorted.
+     */
+    protected List<String> getGroupPaths(Configuration configuration, PathConfiguration pathConfiguration) {
+        List<String> result;
+        SortedSet<String> changedGroups = configuration.getChangedGroups(pathConfiguration);
+        if (null != changedGroups) {
+            result = new ArrayList<String>(changedGroups);
+        } else {
+            result = new ArrayList<String>();
+            Path checkoutDirPath = configuration.getCheckoutDir().toPath();
+            File[] files = new File(configuration.getCheckoutDir(), pathConfiguration.getPath()).listFiles();
+            if (null != files) {
+                Arrays.sort(files);
+                for (File f : files) {
+                    if (f.isDirectory()) {
+                        result.add(checkoutDirPath.relativize(f.toPath()).toString());
+                    }
                 }
             }
-            Logger.INSTANCE.log(message.toString());
         }
-        
-        return exitCode;
+        return result;
+    }
+    
+    /**
+     * Creates the group configurations, i.e., one for each group of the changed
+     * {@link PathConfiguration}s.
+     * 
+     * @param configuration The {@link Configuration} object.
+     * @return The group configurations.
+     */
+    private List<PathConfiguration> getGroupConfigurations(Configuration configuration) {
+        List<PathConfiguration> result = new ArrayList<PathConfiguration>();
+        for (PathConfiguration pathConfiguration : configuration.getChangedPathConfigurations()) {
+            for (String group : getGroupPaths(configuration, pathConfiguration)) {
+                result.add(pathConfiguration.createGroupConfiguration(
+                    new File(configuration.getCheckoutDir(), group)));
+            }
+        }
+        return result;
     }
     
     /**
@@ -163,13 +309,32 @@ public abstract class CommitHook {
         
         int exitCode = ExitCodes.EXIT_SUCCESS;
         
-        for (PathConfiguration pathConfiguration : configuration.getChangedPathConfigurations()) {
-            for (File f : new File(configuration.getCheckoutDir(), pathConfiguration.getPath()).listFiles()) {
-                pathConfiguration.setWorkingDir(f);
-                if (runTests(pathConfiguration) == ExitCodes.EXIT_FAIL) {
+        List<PathConfiguration> groups = getGroupConfigurations(configuration);
+        TestScheduler scheduler = new TestScheduler(configuration.getIntProperty(TEST_THREADS_PROPERTY, 1));
+        int groupThreads = Math.min(configuration.getIntProperty(GROUP_THREADS_PROPERTY, 1), groups.size());
+        ExecutorService groupExecutor = groupThreads > 1 ? Executors.newFixedThreadPool(groupThreads) : null;
+        try {
+            List<GroupTask> tasks = new ArrayList<GroupTask>();
+            for (PathConfiguration group : groups) {
+                GroupTask task = new GroupTask(group, scheduler);
+                if (null != groupExecutor) {
+                    task.future = groupExecutor.submit(ThreadContext.wrap(task));
+                }
+                tasks.add(task);
+            }
+            // merge in group order, i.e., independent of the actual completion order
+            PrintStream out = configuration.getTestOutputStream();
+            for (GroupTask task : tasks) {
+                if (task.awaitResult() == ExitCodes.EXIT_FAIL) {
                     exitCode = ExitCodes.EXIT_FAIL;
                 }
+                out.print(task.output.toString());
+            }
+        } finally {
+            if (null != groupExecutor) {
+                groupExecutor.shutdown();
             }
+            scheduler.shutdown();
         }
         
         ResultOutputStream.addLeadOut(configuration);
@@ -177,4 +342,64 @@ public abstract class CommitHook {
         return exitCode;
     }
     
+    /**
+     * Tests a single group and buffers the test output.
+     */
+    private class GroupTask implements Callable<Integer> {
+        
+        private PathConfiguration group;
+        private TestScheduler scheduler;
+        private ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private Future<Integer> future;
+        
+        /**
+         * Creates a group task.
+         * 
+         * @param group The configuration of the group to be tested.
+         * @param scheduler The scheduler executing the tests.
+         */
+        private GroupTask(PathConfiguration group, TestScheduler scheduler) {
+            this.group = group;
+            this.scheduler = scheduler;
+        }
+        
+        @Override
+        public Integer call() {
+            Configuration configuration = group.getGlobalConfiguration();
+            PrintStream out = new PrintStream(output);
+            PrintStream previous = configuration.bindTestOutputStream(out);
+            try {
+                return runTests(group, scheduler);
+            } finally {
+                configuration.bindTestOutputStream(previous);
+                out.flush();
+            }
+        }
+        
+        /**
+         * Returns the result of this task, executes the task on the calling thread if it was not submitted.
+         * 
+         * @return The result of {@link CommitHook#runTests(PathConfiguration, TestScheduler)}.
+         */
+        private int awaitResult() {
+            int result;
+            if (null == future) {
+                result = call();
+            } else {
+                try {
+                    result = future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    Logger.INSTANCE.logException(e, false);
+                    result = ExitCodes.EXIT_FAIL;
+                } catch (ExecutionException e) {
+                    Logger.INSTANCE.logException(e.getCause(), false);
+                    result = ExitCodes.EXIT_FAIL;
+                }
+            }
+            return result;
+        }
+        
+    }
+    
 }
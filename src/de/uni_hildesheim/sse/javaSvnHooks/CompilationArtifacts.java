@@ -0,0 +1,118 @@
+package de.uni_hildesheim.sse.javaSvnHooks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes the result of a successful compilation of the Java sources of a group, i.e., where the classes
+ * were written to and for which sources and compiler options. Registered at the {@link PathConfiguration}
+ * of the group by the compiling test so that subsequent tests may use the classes instead of compiling
+ * the sources again.
+ */
+public class CompilationArtifacts {
+
+    private File outputDir;
+    private List<String> classpath;
+    private String fingerprint;
+    private List<File> classFiles;
+
+    /**
+     * Creates a description of a compilation.
+     *
+     * @param outputDir The directory the classes were written to.
+     * @param classpath The class path used for compiling.
+     * @param fingerprint The fingerprint of the sources and options, see {@link #fingerprint(List, Collection)}.
+     * @param classFiles The class files created by the compilation.
+     */
+    public CompilationArtifacts(File outputDir, List<String> classpath, String fingerprint,
+        List<File> classFiles) {
+        this.outputDir = outputDir;
+        this.classpath = Collections.unmodifiableList(new ArrayList<String>(classpath));
+        this.fingerprint = fingerprint;
+        this.classFiles = Collections.unmodifiableList(new ArrayList<File>(classFiles));
+    }
+
+    /**
+     * Returns the directory the classes were written to.
+     *
+     * @return The output directory.
+     */
+    public File getOutputDir() {
+        return outputDir;
+    }
+
+    /**
+     * Returns the class path used for compiling.
+     *
+     * @return The class path entries, unmodifiable.
+     */
+    public List<String> getClasspath() {
+        return classpath;
+    }
+
+    /**
+     * Returns the class files created by the compilation.
+     *
+     * @return The class files, unmodifiable.
+     */
+    public List<File> getClassFiles() {
+        return classFiles;
+    }
+
+    /**
+     * Returns whether these classes were compiled from the given sources with the given options.
+     *
+     * @param fingerprint The fingerprint of the sources and options, see {@link #fingerprint(List, Collection)}.
+     * @return <code>true</code> if the classes may be reused, <code>false</code> else.
+     */
+    public boolean matches(String fingerprint) {
+        return this.fingerprint.equals(fingerprint);
+    }
+
+    /**
+     * Calculates the fingerprint of a compilation, i.e., a digest over the compiler options as well as the
+     * names and contents of the source files.
+     *
+     * @param options The compiler options.
+     * @param sources The source files, the order is not relevant.
+     * @return The fingerprint.
+     * @throws IOException If reading a source file fails.
+     */
+    public static String fingerprint(List<String> options, Collection<File> sources) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        for (String option : options) {
+            digest.update(option.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        List<String> paths = new ArrayList<String>(sources.size());
+        for (File source : sources) {
+            paths.add(source.getAbsolutePath());
+        }
+        Collections.sort(paths);
+        for (String path : paths) {
+            digest.update(path.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Files.readAllBytes(new File(path).toPath()));
+            digest.update((byte) 0);
+        }
+        StringBuilder result = new StringBuilder();
+        for (byte b : digest.digest()) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+
+}
@@ -1,17 +1,23 @@
 package de.uni_hildesheim.sse.javaSvnHooks;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.PrintStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.StringTokenizer;
 import java.util.Map.Entry;
 import java.util.jar.JarEntry;
@@ -24,6 +30,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.output.NullOutputStream;
 
 import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+import de.uni_hildesheim.sse.javaSvnHooks.util.PluginIndexer;
 
 /**
  * Base class for all configurations. This {@link Configuration} is needed to
@@ -49,6 +56,12 @@ public abstract class Configuration {
      */
     private static final String PATH_SETTING_PROPERTY_PREFIX = "config";
     
+    /**
+     * The locations (plugin directories or class paths) already scanned for plugins, as
+     * plugins register themselves once per JVM.
+     */
+    private static final Set<String> SCANNED_PLUGIN_LOCATIONS = Collections.synchronizedSet(new HashSet<String>());
+    
     /**
      * The properties as read from the configuration file.
      */
@@ -86,7 +99,17 @@ public abstract class Configuration {
      */
     private PrintStream testOutputStream = new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM);
     
-    private Map<TestEnvKey, String> testEnv = new HashMap<TestEnvKey, String>();
+    /**
+     * The {@link PrintStream} bound to the actual test thread, overrides {@link #testOutputStream}
+     * while set. Not inherited, as pooled threads would keep the stream of the task that created them;
+     * each task binds its stream explicitly.
+     */
+    private ThreadLocal<PrintStream> boundTestOutputStream = new ThreadLocal<PrintStream>();
+    
+    /**
+     * The {@link PathConfiguration} whose test is executed by the actual thread, bound per task.
+     */
+    private ThreadLocal<PathConfiguration> boundPathConfiguration = new ThreadLocal<PathConfiguration>();
     
     /**
      * Stores the author of the commit.
@@ -113,6 +136,13 @@ public abstract class Configuration {
      */
     private Set<PathConfiguration> changedPathConfigurations = new HashSet<PathConfiguration>();
     
+    /**
+     * The repository paths of the groups touched by the current transaction per changed
+     * {@link PathConfiguration}, only determined in change-scoped mode.
+     */
+    private Map<PathConfiguration, SortedSet<String>> changedGroups
+        = new HashMap<PathConfiguration, SortedSet<String>>();
+    
     /**
      * Reads the given configuration file.
      * 
@@ -214,13 +244,69 @@ public abstract class Configuration {
     }
 
     /**
-     * Loads addition test plugins from the tests package of this hook.
+     * Loads addition test plugins from the tests package of this hook. Each location is scanned only
+     * once per JVM, e.g., when serving multiple commits by a long-running process. If the hook does not
+     * contain a plugin directory, the plugins listed in the plugin index created at build time are
+     * loaded; the class path is only scanned if there is no such index.
      */
     private void findPlugins() {
-        ClassLoader loader = Configuration.class.getClassLoader();
         String pluginPackage = Configuration.class.getPackage().getName();
-        String pluginDirRest = class2file(pluginPackage);
-        File plugins = new File(getHookDir(), pluginDirRest);
+        File plugins = new File(getHookDir(), class2file(pluginPackage));
+        String location = plugins.exists() ? plugins.getAbsolutePath() : System.getProperty("java.class.path");
+        if (SCANNED_PLUGIN_LOCATIONS.add(location)) {
+            if (plugins.exists() || !loadIndexedPlugins()) {
+                loadPlugins(plugins, pluginPackage);
+            }
+        }
+    }
+    
+    /**
+     * Loads the test plugins listed in the plugin index (see {@link PluginIndexer}), i.e., initializes
+     * the listed classes only so that they register their tests.
+     * 
+     * @return <code>true</code> if an index was found, <code>false</code> if the class path needs to be scanned
+     */
+    private boolean loadIndexedPlugins() {
+        ClassLoader loader = Configuration.class.getClassLoader();
+        boolean found = false;
+        try {
+            Enumeration<URL> indices = loader.getResources(PluginIndexer.INDEX_RESOURCE);
+            while (indices.hasMoreElements()) {
+                found = true;
+                BufferedReader in = new BufferedReader(new InputStreamReader(
+                    indices.nextElement().openStream(), StandardCharsets.UTF_8));
+                try {
+                    String line = in.readLine();
+                    while (null != line) {
+                        String name = line.trim();
+                        if (name.length() > 0 && !name.startsWith("#")) {
+                            try {
+                                Class.forName(name, true, loader);
+                            } catch (ClassNotFoundException exc) {
+                                Logger.INSTANCE.log("WARNING: Indexed test plugin not found: " + name);
+                            }
+                        }
+                        line = in.readLine();
+                    }
+                } finally {
+                    in.close();
+                }
+            }
+        } catch (IOException exc) {
+            Logger.INSTANCE.logException(exc, false);
+        }
+        return found;
+    }
+    
+    /**
+     * Loads addition test plugins from the given plugin directory or, if it does not
+     * exist, from the jar files in the class path.
+     * 
+     * @param plugins the plugin directory
+     * @param pluginPackage the package containing the plugins
+     */
+    private void loadPlugins(File plugins, String pluginPackage) {
+        ClassLoader loader = Configuration.class.getClassLoader();
         if (plugins.exists()) {
             for (File f : FileUtils.listFiles(plugins, new String[] {"class"}, true)) {
                 try {
@@ -377,13 +463,106 @@ public abstract class Configuration {
         return checkoutDir;
     }
     
+    /**
+     * Overrides the checkout directory, e.g., to keep the checked out files across invocations.
+     * 
+     * @param checkoutDir the new checkout directory
+     */
+    protected void setCheckoutDir(File checkoutDir) {
+        this.checkoutDir = checkoutDir;
+    }
+    
     /**
      * Getter for the {@link PrintStream} where test results will be written to.
      * 
      * @return The {@link PrintStream} for test results.
      */
     public PrintStream getTestOutputStream() {
-        return testOutputStream;
+        PrintStream result = boundTestOutputStream.get();
+        if (null == result) {
+            result = testOutputStream;
+        }
+        return result;
+    }
+    
+    /**
+     * Binds a {@link PrintStream} for test results to the calling thread, so that concurrently
+     * running tests do not interleave their output.
+     * 
+     * @param out The {@link PrintStream} for test results of the calling thread,
+     *     <code>null</code> to return to the {@link #setTestOutputStream(PrintStream) shared one}.
+     * @return the {@link PrintStream} bound before, <code>null</code> if none was bound
+     */
+    public PrintStream bindTestOutputStream(PrintStream out) {
+        PrintStream previous = boundTestOutputStream.get();
+        if (null == out) {
+            boundTestOutputStream.remove();
+        } else {
+            boundTestOutputStream.set(out);
+        }
+        return previous;
+    }
+    
+    /**
+     * Binds the {@link PathConfiguration} whose test is executed to the calling thread.
+     * 
+     * @param pathConfiguration the path configuration tested by the calling thread, <code>null</code>
+     *     to unbind
+     * @return the {@link PathConfiguration} bound before, <code>null</code> if none was bound
+     */
+    public PathConfiguration bindPathConfiguration(PathConfiguration pathConfiguration) {
+        PathConfiguration previous = boundPathConfiguration.get();
+        if (null == pathConfiguration) {
+            boundPathConfiguration.remove();
+        } else {
+            boundPathConfiguration.set(pathConfiguration);
+        }
+        return previous;
+    }
+    
+    /**
+     * Returns the value matching the specified <code>key</code>
+     * from the test environment settings of the path configuration
+     * tested by the calling thread.
+     *
+     * @param key the key of the setting to be returned
+     *
+     * @return the value assigned to <code>key</code> or 
+     *        <b>null</b> if no value was assigned so far or no
+     *        path configuration is tested by the calling thread
+     * @deprecated the test environment is kept per group, use
+     *     {@link PathConfiguration#getTestEnvValue(TestEnvKey)}
+     */
+    @Deprecated
+    public String getTestEnvValue(TestEnvKey key) {
+        String result = null;
+        PathConfiguration pathConfiguration = boundPathConfiguration.get();
+        if (null != pathConfiguration) {
+            result = pathConfiguration.getTestEnvValue(key);
+        }
+        return result;
+    }
+    
+    /**
+     * Changes the value matching the specified <code>key</code>
+     * from the test environment settings of the path configuration
+     * tested by the calling thread.
+     *
+     * @param key the key of the setting to be returned
+     * @param value the value assigned to <code>key</code> or 
+     *        <b>null</b> if no value should be assigned
+     * @deprecated the test environment is kept per group, use
+     *     {@link PathConfiguration#setTestEnvValue(TestEnvKey, String)}
+     */
+    @Deprecated
+    public void setTestEnvValue(TestEnvKey key, String value) {
+        PathConfiguration pathConfiguration = boundPathConfiguration.get();
+        if (null != pathConfiguration) {
+            pathConfiguration.setTestEnvValue(key, value);
+        } else {
+            Logger.INSTANCE.log("WARNING: No path configuration tested by this thread, ignoring test env "
+                + key);
+        }
     }
     
     /**
@@ -420,36 +599,6 @@ public abstract class Configuration {
      */
     public abstract String getUniqueIdentifier();
     
-    /**
-     * Returns the value matching the specified <code>key</code>
-     * from the test environment settings.
-     *
-     * @param key the key of the setting to be returned
-     *
-     * @return the value assigned to <code>key</code> or 
-     *        <b>null</b> if no value was assigned so far
-     */
-    public String getTestEnvValue(TestEnvKey key) {
-        String result = null;
-        if (null != key) {
-            result = testEnv.get(key);
-        } 
-        return result;
-    }
-    
-    /**
-     * Changes the value matching the specified <code>key</code>
-     * from the test environment settings.
-     *
-     * @param key the key of the setting to be returned
-     * @param value the value assigned to <code>key</code> or 
-     *        <b>null</b> if no value should be assigned
-     */
-    public void setTestEnvValue(TestEnvKey key, String value) {
-        assert null != key;
-        testEnv.put(key, value);
-    }
-    
     /**
      * Getter for the installation path of this hook.
      * 
@@ -580,6 +729,29 @@ public abstract class Configuration {
         return Collections.unmodifiableSet(changedPathConfigurations);
     }
     
+    /**
+     * Setter for the groups of a changed {@link PathConfiguration} that are touched by the
+     * current transaction.
+     * 
+     * @param pathConfiguration The changed {@link PathConfiguration}.
+     * @param groups The repository paths of the touched groups (without leading /).
+     */
+    void setChangedGroups(PathConfiguration pathConfiguration, SortedSet<String> groups) {
+        changedGroups.put(pathConfiguration, Collections.unmodifiableSortedSet(groups));
+    }
+    
+    /**
+     * Getter for the groups of a changed {@link PathConfiguration} that are touched by the
+     * current transaction.
+     * 
+     * @param pathConfiguration The changed {@link PathConfiguration}.
+     * @return The repository paths of the touched groups (without leading /), <code>null</code>
+     *     if the groups were not determined, i.e., if not running in change-scoped mode.
+     */
+    SortedSet<String> getChangedGroups(PathConfiguration pathConfiguration) {
+        return changedGroups.get(pathConfiguration);
+    }
+    
     /**
      * Returns the commit stage.
      * 
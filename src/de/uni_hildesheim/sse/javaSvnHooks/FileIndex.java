@@ -0,0 +1,196 @@
+package de.uni_hildesheim.sse.javaSvnHooks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * The inventory of the files in a working directory, determined in a single pass over the directory tree.
+ * The index is a snapshot, i.e., it must be rebuilt (see {@link PathConfiguration#invalidateFileIndex()})
+ * when files in the working directory are created, changed or deleted.
+ */
+public class FileIndex {
+
+    /**
+     * The extension of Java source files.
+     */
+    public static final String JAVA_EXTENSION = "java";
+
+    /**
+     * An index without files.
+     */
+    static final FileIndex EMPTY = new FileIndex(new ArrayList<Entry>());
+
+    private List<Entry> entries;
+
+    /**
+     * An indexed file.
+     */
+    public static class Entry {
+
+        private File file;
+        private String relativePath;
+        private long size;
+
+        /**
+         * Creates an entry.
+         *
+         * @param file The file.
+         * @param relativePath The path relative to the working directory, separated by <code>/</code>.
+         * @param size The size of the file in bytes.
+         */
+        private Entry(File file, String relativePath, long size) {
+            this.file = file;
+            this.relativePath = relativePath;
+            this.size = size;
+        }
+
+        /**
+         * Returns the file.
+         *
+         * @return The file, relative if the working directory is relative.
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Returns the path of the file relative to the working directory.
+         *
+         * @return The relative path, separated by <code>/</code>.
+         */
+        public String getRelativePath() {
+            return relativePath;
+        }
+
+        /**
+         * Returns the size of the file at the time of indexing.
+         *
+         * @return The size in bytes.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Returns the extension of the file name.
+         *
+         * @return The extension without dot, an empty string if the file name has no extension.
+         */
+        public String getExtension() {
+            String name = file.getName();
+            int pos = name.lastIndexOf('.');
+            return pos < 0 ? "" : name.substring(pos + 1);
+        }
+
+        /**
+         * Returns the package name derived from the folder of the file relative to the working directory.
+         *
+         * @return The package name, an empty string for files in the working directory.
+         */
+        public String getPackageName() {
+            int pos = relativePath.lastIndexOf('/');
+            return pos < 0 ? "" : relativePath.substring(0, pos).replace('/', '.');
+        }
+
+    }
+
+    /**
+     * Creates an index.
+     *
+     * @param entries The indexed files.
+     */
+    private FileIndex(List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Indexes all files in a working directory including its sub directories. Unreadable files and
+     * directories are skipped.
+     *
+     * @param workingDir The working directory.
+     * @return The index, empty if <code>workingDir</code> does not exist.
+     * @throws IOException If walking the directory tree fails.
+     */
+    public static FileIndex build(final File workingDir) throws IOException {
+        final List<Entry> entries = new ArrayList<Entry>();
+        final Path root = workingDir.toPath();
+        Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+            new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (!attrs.isDirectory()) {
+                        String relativePath = root.relativize(file).toString().replace(File.separatorChar, '/');
+                        entries.add(new Entry(file.toFile(), relativePath, attrs.size()));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+            });
+        return new FileIndex(entries);
+    }
+
+    /**
+     * Returns all indexed files.
+     *
+     * @return The entries in the order of traversal, unmodifiable.
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the indexed files having the given extension.
+     *
+     * @param extension The extension without dot (case sensitive), <code>null</code> for all files.
+     * @return The matching entries.
+     */
+    public List<Entry> getEntries(String extension) {
+        List<Entry> result = new ArrayList<Entry>(entries.size());
+        for (Entry entry : entries) {
+            if (null == extension || extension.equals(entry.getExtension())) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the indexed files having the given extension.
+     *
+     * @param extension The extension without dot (case sensitive), <code>null</code> for all files.
+     * @return The matching files.
+     */
+    public List<File> getFiles(String extension) {
+        List<File> result = new ArrayList<File>(entries.size());
+        for (Entry entry : getEntries(extension)) {
+            result.add(entry.getFile());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the indexed Java source files.
+     *
+     * @return The Java files.
+     */
+    public List<File> getJavaFiles() {
+        return getFiles(JAVA_EXTENSION);
+    }
+
+}
@@ -1,10 +1,14 @@
 package de.uni_hildesheim.sse.javaSvnHooks;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
-import org.apache.commons.io.FileUtils;
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
 
 /**
  * Defines the specific configuration settings of a path/subpath in a repository.
@@ -26,6 +30,22 @@ public class PathConfiguration {
     
     private File workingDir;
     
+    /**
+     * The dynamic test environment, e.g., the classpath determined from the Eclipse
+     * configuration. Accessed by concurrently running tests.
+     */
+    private Map<TestEnvKey, String> testEnv = Collections.synchronizedMap(new HashMap<TestEnvKey, String>());
+    
+    /**
+     * The files in {@link #workingDir}, built on demand and shared by all tests.
+     */
+    private FileIndex fileIndex;
+    
+    /**
+     * The result of the last successful compilation of the Java sources in {@link #workingDir}.
+     */
+    private volatile CompilationArtifacts compilationArtifacts;
+    
     /**
      * Creates a path configuration for the given path.
      * 
@@ -159,6 +179,98 @@ public class PathConfiguration {
      */
     public void setWorkingDir(File workingDir) {
         this.workingDir = workingDir;
+        compilationArtifacts = null;
+        invalidateFileIndex();
+    }
+    
+    /**
+     * Creates the configuration for testing a single group (submission folder), i.e., a copy of this
+     * configuration with the given working directory and an empty test environment. Group
+     * configurations are not modified afterwards, so that groups may be tested concurrently.
+     * 
+     * @param workingDir The path to the directory of the test files of the group.
+     * @return The configuration for the group.
+     */
+    PathConfiguration createGroupConfiguration(File workingDir) {
+        PathConfiguration result = new PathConfiguration(path, prefix, configuration);
+        result.workingDir = workingDir;
+        return result;
+    }
+    
+    /**
+     * Returns the value matching the specified <code>key</code>
+     * from the test environment settings.
+     *
+     * @param key the key of the setting to be returned
+     *
+     * @return the value assigned to <code>key</code> or 
+     *        <b>null</b> if no value was assigned so far
+     */
+    public String getTestEnvValue(TestEnvKey key) {
+        String result = null;
+        if (null != key) {
+            result = testEnv.get(key);
+        } 
+        return result;
+    }
+    
+    /**
+     * Changes the value matching the specified <code>key</code>
+     * from the test environment settings.
+     *
+     * @param key the key of the setting to be returned
+     * @param value the value assigned to <code>key</code> or 
+     *        <b>null</b> if no value should be assigned
+     */
+    public void setTestEnvValue(TestEnvKey key, String value) {
+        assert null != key;
+        testEnv.put(key, value);
+    }
+    
+    /**
+     * Returns the index of the files in the current workingDir. The index is built once and reused
+     * until {@link #invalidateFileIndex()} is called.
+     * 
+     * @return The index of the files in the current working dir.
+     */
+    public synchronized FileIndex getFileIndex() {
+        FileIndex result = fileIndex;
+        if (null == result) {
+            try {
+                result = FileIndex.build(workingDir);
+                fileIndex = result;
+            } catch (IOException e) {
+                Logger.INSTANCE.logException(e, false);
+                result = FileIndex.EMPTY;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Discards the index of the files in the current workingDir. Must be called by tests creating,
+     * changing or deleting files in the working dir, e.g., compiled class files.
+     */
+    public synchronized void invalidateFileIndex() {
+        fileIndex = null;
+    }
+    
+    /**
+     * Returns the result of the last successful compilation of the Java sources in the current workingDir.
+     * 
+     * @return The compilation result, <b>null</b> if the sources were not compiled so far.
+     */
+    public CompilationArtifacts getCompilationArtifacts() {
+        return compilationArtifacts;
+    }
+    
+    /**
+     * Registers the result of compiling the Java sources in the current workingDir.
+     * 
+     * @param compilationArtifacts The compilation result, <b>null</b> if the classes shall not be reused.
+     */
+    public void setCompilationArtifacts(CompilationArtifacts compilationArtifacts) {
+        this.compilationArtifacts = compilationArtifacts;
     }
     
     /**
@@ -167,7 +279,7 @@ public class PathConfiguration {
      * @return An {@link Iterator} over all java files found in the current working dir.
      */
     public Collection<File> getJavaFiles() {
-        return FileUtils.listFiles(workingDir, new String[] {"java"}, true);
+        return getFileIndex().getJavaFiles();
     }
     
     /**
@@ -176,7 +288,7 @@ public class PathConfiguration {
      * @return An {@link Iterator} over all files found in the current working dir.
      */
     public Collection<File> getFiles() {
-        return FileUtils.listFiles(workingDir, null, true);
+        return getFileIndex().getFiles(null);
     }
     
     /**
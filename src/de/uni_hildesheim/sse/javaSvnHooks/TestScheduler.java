@@ -0,0 +1,267 @@
+package de.uni_hildesheim.sse.javaSvnHooks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.Test;
+import de.uni_hildesheim.sse.javaSvnHooks.util.ExitCodes;
+import de.uni_hildesheim.sse.javaSvnHooks.util.ThreadContext;
+
+/**
+ * Executes the enabled {@link Test}s of a {@link PathConfiguration} along their dependency graph
+ * as given by {@link Test#dependsOn(Configuration.Stage)}. The tests are ordered topologically once;
+ * a test is started as soon as its dependency finished successfully, so that independent tests
+ * (e.g., javadoc and checkstyle after javac) run concurrently on a bounded executor. The output of
+ * each test is buffered and emitted in topological order, i.e., the results do not depend on the
+ * actual thread interleaving.
+ */
+public class TestScheduler {
+
+    /**
+     * Guards the tests that modify JVM-global state (see {@link Test#requiresExclusiveExecution(PathConfiguration)}).
+     * Static, as this state is shared by all schedulers within the JVM.
+     */
+    private static final ReadWriteLock EXCLUSIVE_LOCK = new ReentrantReadWriteLock();
+
+    /**
+     * Executes tasks directly on the calling thread.
+     */
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+    };
+
+    private ExecutorService executor;
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param threads the maximum number of tests to be executed in parallel, values less than 2 execute all
+     *     tests sequentially on the calling thread
+     */
+    public TestScheduler(int threads) {
+        if (threads > 1) {
+            executor = Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    /**
+     * Executes the given tests.
+     *
+     * @param pathConfiguration the path configuration to run the tests on
+     * @param tests the enabled tests in registration order
+     * @return {@link ExitCodes#EXIT_SUCCESS} when all tests succeed;
+     *  {@link ExitCodes#EXIT_FAIL} when one or more tests fail.
+     */
+    public int runTests(PathConfiguration pathConfiguration, List<Test> tests) {
+        Configuration configuration = pathConfiguration.getGlobalConfiguration();
+        Configuration.Stage stage = configuration.getStage();
+
+        Map<Test, List<Test>> dependents = new HashMap<Test, List<Test>>();
+        List<Test> roots = buildGraph(tests, stage, dependents);
+        List<Test> order = new ArrayList<Test>(roots);
+        for (int i = 0; i < order.size(); i++) {
+            order.addAll(dependents.get(order.get(i)));
+        }
+
+        int exitCode = ExitCodes.EXIT_SUCCESS;
+        Set<Test> missingDependencyTests = new LinkedHashSet<Test>(tests);
+        Map<Test, TestTask> tasks = new HashMap<Test, TestTask>();
+        CompletionService<TestTask> completion = new ExecutorCompletionService<TestTask>(
+            null == executor ? DIRECT_EXECUTOR : executor);
+        int running = 0;
+        for (Test test : roots) {
+            running += submit(completion, new TestTask(test, pathConfiguration), tasks);
+        }
+        while (running > 0) {
+            running--;
+            TestTask task = take(completion);
+            missingDependencyTests.remove(task.test);
+            Logger.INSTANCE.log("Result from \"" + task.test.getName() + "\": " + task.result);
+            if (task.result != 0) {
+                exitCode = ExitCodes.EXIT_FAIL;
+            } else {
+                for (Test dependent : dependents.get(task.test)) {
+                    running += submit(completion, new TestTask(dependent, pathConfiguration), tasks);
+                }
+            }
+        }
+
+        PrintStream out = configuration.getTestOutputStream();
+        for (Test test : order) {
+            TestTask task = tasks.get(test);
+            if (null != task) {
+                out.print(task.output.toString());
+            }
+        }
+
+        logMissingDependencies(missingDependencyTests);
+        return exitCode;
+    }
+
+    /**
+     * Builds the dependency graph of the given tests. Tests with dependencies that are not among
+     * <code>tests</code> are not reachable from the returned roots.
+     *
+     * @param tests the tests to consider
+     * @param stage the actual commit stage
+     * @param dependents the direct dependents of each test, to be filled as a side effect
+     * @return the tests without dependencies, in the order of <code>tests</code>
+     */
+    private static List<Test> buildGraph(List<Test> tests, Configuration.Stage stage,
+        Map<Test, List<Test>> dependents) {
+        List<Test> roots = new ArrayList<Test>();
+        for (Test test : tests) {
+            dependents.put(test, new ArrayList<Test>());
+        }
+        for (Test test : tests) {
+            Class<? extends Test> dep = test.dependsOn(stage);
+            if (null == dep) {
+                roots.add(test);
+            } else {
+                for (Test provider : tests) {
+                    if (provider.getClass() == dep) {
+                        dependents.get(provider).add(test);
+                        break;
+                    }
+                }
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * Logs the tests that were not executed due to unfulfilled dependencies.
+     *
+     * @param missingDependencyTests the tests that were not executed
+     */
+    private static void logMissingDependencies(Set<Test> missingDependencyTests) {
+        if (missingDependencyTests.size() > 0) {
+            StringBuilder message = new StringBuilder("Couldn't run following tests due to not "
+                + "fulfilled test dependencies: ");
+            for (Iterator<Test> iter = missingDependencyTests.iterator(); iter.hasNext();) {
+                message.append(iter.next().getName());
+                if (iter.hasNext()) {
+                    message.append(", ");
+                }
+            }
+            Logger.INSTANCE.log(message.toString());
+        }
+    }
+
+    /**
+     * Submits a task.
+     *
+     * @param completion the completion service to submit to
+     * @param task the task to submit
+     * @param tasks the submitted tasks to be modified as a side effect
+     * @return the number of submitted tasks, i.e., 1
+     */
+    private static int submit(CompletionService<TestTask> completion, TestTask task, Map<Test, TestTask> tasks) {
+        tasks.put(task.test, task);
+        completion.submit(ThreadContext.wrap(task));
+        return 1;
+    }
+
+    /**
+     * Waits for the next completed task.
+     *
+     * @param completion the completion service to wait for
+     * @return the completed task
+     */
+    private static TestTask take(CompletionService<TestTask> completion) {
+        TestTask result;
+        try {
+            result = completion.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            // TestTask does not throw checked exceptions
+            throw new IllegalStateException(e.getCause());
+        }
+        return result;
+    }
+
+    /**
+     * Shuts down the executor of this scheduler.
+     */
+    public void shutdown() {
+        if (null != executor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Executes a single test and buffers its output.
+     */
+    private static class TestTask implements Callable<TestTask> {
+
+        private Test test;
+        private PathConfiguration pathConfiguration;
+        private ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private int result;
+
+        /**
+         * Creates a test task.
+         *
+         * @param test the test to execute
+         * @param pathConfiguration the path configuration to run the test on
+         */
+        private TestTask(Test test, PathConfiguration pathConfiguration) {
+            this.test = test;
+            this.pathConfiguration = pathConfiguration;
+        }
+
+        // checkstyle: stop exception type check
+
+        @Override
+        public TestTask call() {
+            Configuration configuration = pathConfiguration.getGlobalConfiguration();
+            Lock lock = test.requiresExclusiveExecution(pathConfiguration)
+                ? EXCLUSIVE_LOCK.writeLock() : EXCLUSIVE_LOCK.readLock();
+            PrintStream out = new PrintStream(output);
+            lock.lock();
+            PrintStream previous = configuration.bindTestOutputStream(out);
+            PathConfiguration previousConfiguration = configuration.bindPathConfiguration(pathConfiguration);
+            try {
+                result = test.execute(pathConfiguration);
+            } catch (Throwable t) {
+                Logger.INSTANCE.logException(t, false);
+                result = ExitCodes.EXIT_ERROR;
+            } finally {
+                configuration.bindPathConfiguration(previousConfiguration);
+                configuration.bindTestOutputStream(previous);
+                lock.unlock();
+                out.flush();
+            }
+            return this;
+        }
+
+        // checkstyle: resume exception type check
+
+    }
+
+}
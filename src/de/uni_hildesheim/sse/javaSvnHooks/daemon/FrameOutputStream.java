@@ -0,0 +1,52 @@
+package de.uni_hildesheim.sse.javaSvnHooks.daemon;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the data of a single channel (e.g., standard error) as frames to the connection to a
+ * {@link HookClient}. Each frame consists of the channel, the length of the data and the data.
+ * Multiple channels may share the same connection.
+ */
+class FrameOutputStream extends OutputStream {
+
+    private DataOutputStream out;
+    private int channel;
+
+    /**
+     * Creates a frame output stream.
+     *
+     * @param out The connection to write to, also used as monitor for writing frames.
+     * @param channel The channel.
+     */
+    FrameOutputStream(DataOutputStream out, int channel) {
+        this.out = out;
+        this.channel = channel;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len > 0) {
+            synchronized (out) {
+                out.writeByte(channel);
+                out.writeInt(len);
+                out.write(b, off, len);
+                out.flush();
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        synchronized (out) {
+            out.flush();
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+package de.uni_hildesheim.sse.javaSvnHooks.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import de.uni_hildesheim.sse.javaSvnHooks.util.ExitCodes;
+
+/**
+ * The entry point called by the hook scripts. Forwards the hook invocation to a running {@link HookServer} and
+ * streams back its output and exit code. If no server is running for the hook directory, the hook is executed
+ * within this process instead.
+ */
+public class HookClient {
+
+    /**
+     * The time to wait for a connection to the server in milliseconds.
+     */
+    private static final int CONNECT_TIMEOUT = 1000;
+
+    /**
+     * Executes a hook.
+     *
+     * @param args The command line parameters. This needs to be exactly 4 elements:
+     * <ul>
+     *  <li>[0] The hook type, i.e., <code>pre-commit</code> or <code>post-commit</code></li>
+     *  <li>[1] The path to the SVN repository</li>
+     *  <li>[2] The transaction identifier (pre-commit) or the revision (post-commit)</li>
+     *  <li>[3] The path to the hook directory</li>
+     * </ul>
+     * @return The exit code of the hook.
+     */
+    public static int execute(String[] args) {
+        int exitCode;
+        if (args.length != 4) {
+            System.err.println("Usage: HookClient pre-commit|post-commit <repository> <transaction|revision> "
+                + "<hookDir>");
+            exitCode = ExitCodes.EXIT_ERROR;
+        } else {
+            String[] hookArgs = Arrays.copyOfRange(args, 1, args.length);
+            File portFile = new File(args[3], HookServer.PORT_FILE);
+            Socket socket = null;
+            String token = null;
+            if (portFile.isFile()) {
+                try {
+                    String[] content = new String(Files.readAllBytes(portFile.toPath()), StandardCharsets.UTF_8)
+                        .trim().split(" ");
+                    token = content[1];
+                    socket = new Socket();
+                    socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                        Integer.parseInt(content[0])), CONNECT_TIMEOUT);
+                } catch (IOException | RuntimeException e) {
+                    // no server running, stale or unreadable port file
+                    close(socket);
+                    socket = null;
+                }
+            }
+            if (null != socket) {
+                exitCode = forward(socket, token, args[0], hookArgs);
+            } else {
+                exitCode = HookServer.execute(args[0], hookArgs);
+            }
+        }
+        return exitCode;
+    }
+
+    /**
+     * Forwards a hook invocation to the server.
+     *
+     * @param socket The connection to the server, closed by this method.
+     * @param token The access token of the server.
+     * @param hook The hook type.
+     * @param args The command line parameters of the hook.
+     * @return The exit code of the hook.
+     */
+    private static int forward(Socket socket, String token, String hook, String[] args) {
+        int exitCode = ExitCodes.EXIT_ERROR;
+        try (Socket connection = socket) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+            out.writeUTF(token);
+            out.writeUTF(hook);
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            int channel = in.readUnsignedByte();
+            while (HookServer.CHANNEL_EXIT != channel) {
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                OutputStream target = HookServer.CHANNEL_OUT == channel ? System.out : System.err;
+                target.write(data);
+                target.flush();
+                channel = in.readUnsignedByte();
+            }
+            in.readInt(); // length
+            exitCode = in.readInt();
+        } catch (EOFException e) {
+            System.err.println("The hook daemon terminated unexpectedly.");
+        } catch (IOException e) {
+            System.err.println("Communication with the hook daemon failed: " + e.getMessage());
+        }
+        return exitCode;
+    }
+
+    /**
+     * Closes a socket quietly.
+     *
+     * @param socket The socket, may be <code>null</code>.
+     */
+    private static void close(Socket socket) {
+        if (null != socket) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // nothing to do
+            }
+        }
+    }
+
+    /**
+     * The main-method that will be called from the hook scripts.
+     *
+     * @param args The command line parameters, see {@link #execute(String[])}.
+     */
+    public static void main(String[] args) {
+        System.exit(execute(args));
+    }
+
+}
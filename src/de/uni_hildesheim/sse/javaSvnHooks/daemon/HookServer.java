@@ -0,0 +1,324 @@
+package de.uni_hildesheim.sse.javaSvnHooks.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+import de.uni_hildesheim.sse.javaSvnHooks.post_commit.PostCommitHook;
+import de.uni_hildesheim.sse.javaSvnHooks.pre_commit.PreCommitHook;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.JavaCompilerService;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.JunitTest;
+import de.uni_hildesheim.sse.javaSvnHooks.util.ExitCodes;
+
+/**
+ * A long-running hook process serving the requests of {@link HookClient}s, i.e., the JVM startup, the loading
+ * of the test plugins and the warm-up of the Java compiler happen once instead of per commit. The server
+ * listens on the loopback interface and publishes its port together with a random access token in
+ * {@link #PORT_FILE} in the hook directory, readable by the owner only. Each request is executed on an own
+ * thread; its standard output and error streams as well as its log are separated from concurrent requests.
+ * By default, requests are executed one after another. If requests are executed concurrently, JUnit test suites
+ * are always executed in worker JVMs, as a test suite executed within this JVM modifies JVM-global state, e.g.,
+ * the standard streams, of all requests.
+ */
+public class HookServer {
+
+    /**
+     * The name of the file in the hook directory containing the port and the access token of a running server.
+     */
+    static final String PORT_FILE = "jSvnHookDaemon.port";
+
+    /**
+     * The hook type of pre-commit requests.
+     */
+    static final String PRE_COMMIT = "pre-commit";
+
+    /**
+     * The hook type of post-commit requests.
+     */
+    static final String POST_COMMIT = "post-commit";
+
+    /**
+     * The frame channel carrying the exit code, terminating a response.
+     */
+    static final int CHANNEL_EXIT = 0;
+
+    /**
+     * The frame channel carrying the standard output.
+     */
+    static final int CHANNEL_OUT = 1;
+
+    /**
+     * The frame channel carrying the standard error.
+     */
+    static final int CHANNEL_ERR = 2;
+
+    /**
+     * The maximum number of arguments of a request.
+     */
+    static final int MAX_ARGS = 16;
+
+    private static final int DEFAULT_THREADS = 1;
+    private static final int TOKEN_BYTES = 16;
+
+    private File hookDir;
+    private ServerSocket serverSocket;
+    private String token;
+    private int threads;
+    private ExecutorService executor;
+    private ThreadOutputRouter outRouter;
+    private ThreadOutputRouter errRouter;
+
+    /**
+     * Creates a server.
+     *
+     * @param hookDir The hook directory to publish the port in.
+     * @param port The port to listen on, <code>0</code> for any free port.
+     * @param threads The maximum number of requests executed in parallel.
+     * @throws IOException If binding the port fails.
+     */
+    public HookServer(File hookDir, int port, int threads) throws IOException {
+        this.hookDir = hookDir;
+        this.threads = Math.max(1, threads);
+        serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        executor = Executors.newFixedThreadPool(this.threads);
+        byte[] random = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(random);
+        StringBuilder tmp = new StringBuilder();
+        for (byte b : random) {
+            tmp.append(String.format("%02x", b));
+        }
+        token = tmp.toString();
+    }
+
+    /**
+     * Redirects the standard streams, publishes the port and serves requests until the process is terminated
+     * or the server is {@link #stop() stopped}.
+     *
+     * @throws IOException If publishing the port fails.
+     */
+    public void serve() throws IOException {
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        outRouter = new ThreadOutputRouter(originalOut);
+        errRouter = new ThreadOutputRouter(originalErr);
+        System.setOut(new PrintStream(outRouter, true));
+        System.setErr(new PrintStream(errRouter, true));
+        if (threads > 1) {
+            Logger.INSTANCE.log("Executing " + threads + " requests concurrently, JUnit test suites are executed "
+                + "in worker JVMs");
+            JunitTest.setForkEnforced(true);
+        }
+        try {
+            // load the compiler before the first request
+            JavaCompilerService.INSTANCE.getCompiler();
+            publishAndAccept();
+        } finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            JunitTest.setForkEnforced(false);
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+        }
+    }
+
+    /**
+     * Publishes the port and accepts requests until the server socket is closed.
+     *
+     * @throws IOException If publishing the port fails.
+     */
+    private void publishAndAccept() throws IOException {
+        final File portFile = new File(hookDir, PORT_FILE);
+        File tmp = File.createTempFile(PORT_FILE, ".tmp", hookDir);
+        try {
+            Files.setPosixFilePermissions(tmp.toPath(), PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            Logger.INSTANCE.log("WARNING: Cannot restrict access to " + portFile);
+        }
+        Files.write(tmp.toPath(), (serverSocket.getLocalPort() + " " + token).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp.toPath(), portFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+
+            @Override
+            public void run() {
+                portFile.delete();
+            }
+
+        });
+        Logger.INSTANCE.log("Listening on port " + serverSocket.getLocalPort());
+
+        try {
+            while (!serverSocket.isClosed()) {
+                final Socket connection = serverSocket.accept();
+                executor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        handle(connection);
+                    }
+
+                });
+            }
+        } catch (SocketException e) {
+            if (!serverSocket.isClosed()) {
+                throw e;
+            }
+        } finally {
+            portFile.delete();
+        }
+    }
+
+    /**
+     * Stops accepting requests. Requests in progress are completed.
+     *
+     * @throws IOException If closing the server socket fails.
+     */
+    public void stop() throws IOException {
+        serverSocket.close();
+    }
+
+    /**
+     * Handles a single request.
+     *
+     * @param connection The connection to the client.
+     */
+    private void handle(Socket connection) {
+        try (Socket socket = connection) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            byte[] received = in.readUTF().getBytes(StandardCharsets.UTF_8);
+            if (MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), received)) {
+                String hook = in.readUTF();
+                int count = in.readInt();
+                if (count < 0 || count > MAX_ARGS) {
+                    throw new IOException("Invalid number of arguments: " + count);
+                }
+                String[] args = new String[count];
+                for (int i = 0; i < count; i++) {
+                    args[i] = in.readUTF();
+                }
+                int exitCode = execute(hook, args, out);
+                synchronized (out) {
+                    out.writeByte(CHANNEL_EXIT);
+                    out.writeInt(4);
+                    out.writeInt(exitCode);
+                    out.flush();
+                }
+            } else {
+                Logger.INSTANCE.log("WARNING: Rejected request with invalid token");
+            }
+        } catch (IOException e) {
+            Logger.INSTANCE.logException(e, false);
+        }
+    }
+
+    // checkstyle: stop exception type check
+
+    /**
+     * Executes a hook on behalf of a client.
+     *
+     * @param hook The hook type.
+     * @param args The command line parameters of the hook.
+     * @param out The connection to the client.
+     * @return The exit code of the hook.
+     */
+    private int execute(String hook, String[] args, DataOutputStream out) {
+        int exitCode;
+        outRouter.bind(new FrameOutputStream(out, CHANNEL_OUT));
+        errRouter.bind(new FrameOutputStream(out, CHANNEL_ERR));
+        Logger.INSTANCE.beginScope();
+        try {
+            exitCode = execute(hook, args);
+        } catch (Throwable t) {
+            Logger.INSTANCE.logException(t, false);
+            exitCode = ExitCodes.EXIT_ERROR;
+        } finally {
+            Logger.INSTANCE.endScope();
+            System.out.flush();
+            System.err.flush();
+            outRouter.bind(null);
+            errRouter.bind(null);
+        }
+        return exitCode;
+    }
+
+    // checkstyle: resume exception type check
+
+    /**
+     * Executes a hook within the current process.
+     *
+     * @param hook The hook type, {@link #PRE_COMMIT} or {@link #POST_COMMIT}.
+     * @param args The command line parameters of the hook.
+     * @return The exit code of the hook.
+     */
+    static int execute(String hook, String[] args) {
+        int exitCode;
+        if (PRE_COMMIT.equals(hook)) {
+            exitCode = new PreCommitHook().execute(args);
+        } else if (POST_COMMIT.equals(hook)) {
+            exitCode = new PostCommitHook().execute(args);
+        } else {
+            System.err.println("Unknown hook type: " + hook);
+            exitCode = ExitCodes.EXIT_ERROR;
+        }
+        return exitCode;
+    }
+
+    /**
+     * Starts the server.
+     *
+     * @param args The command line parameters:
+     * <ul>
+     *  <li>[0] The path to the hook directory</li>
+     *  <li>[1] Optional: The port to listen on, by default any free port</li>
+     *  <li>[2] Optional: The maximum number of requests executed in parallel, by default 1</li>
+     * </ul>
+     */
+    public static void main(String[] args) {
+        int exitCode = ExitCodes.EXIT_SUCCESS;
+        if (args.length < 1 || args.length > 3) {
+            System.err.println("Usage: HookServer <hookDir> [port [threads]]");
+            exitCode = ExitCodes.EXIT_ERROR;
+        } else {
+            File hookDir = new File(args[0]);
+            try {
+                Logger.INSTANCE.setOutputStream(new PrintStream(
+                    new FileOutputStream(new File(hookDir, "jSvnHookDaemon.log"), true), true));
+                Logger.INSTANCE.log("\n--------------------");
+                Logger.INSTANCE.log("Current time: " + new Date() + "\n");
+                int port = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+                int threads = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_THREADS;
+                new HookServer(hookDir, port, threads).serve();
+            } catch (IOException | NumberFormatException e) {
+                Logger.INSTANCE.logException(e, false);
+                exitCode = ExitCodes.EXIT_ERROR;
+            }
+        }
+        System.exit(exitCode);
+    }
+
+}
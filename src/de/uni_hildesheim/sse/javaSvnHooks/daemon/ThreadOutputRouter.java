@@ -0,0 +1,69 @@
+package de.uni_hildesheim.sse.javaSvnHooks.daemon;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import de.uni_hildesheim.sse.javaSvnHooks.util.ThreadContext;
+
+/**
+ * Replaces {@link System#out} or {@link System#err} in the {@link HookServer} and routes the output of
+ * each request to its client. The target is defined for a request thread and the tasks it passes to other
+ * threads through {@link ThreadContext#wrap(Runnable)}; output of other threads goes to the original stream.
+ */
+class ThreadOutputRouter extends OutputStream {
+
+    private OutputStream original;
+    private ThreadLocal<OutputStream> target = new ThreadLocal<OutputStream>();
+
+    /**
+     * Creates a router.
+     *
+     * @param original The stream to write to if no target is bound.
+     */
+    ThreadOutputRouter(OutputStream original) {
+        this.original = original;
+        ThreadContext.register(target);
+    }
+
+    /**
+     * Binds the target for the current thread and the tasks it wraps from now on.
+     *
+     * @param stream The target, <code>null</code> to write to the original stream.
+     */
+    void bind(OutputStream stream) {
+        if (null == stream) {
+            target.remove();
+        } else {
+            target.set(stream);
+        }
+    }
+
+    /**
+     * Returns the target of the current thread.
+     *
+     * @return The target.
+     */
+    private OutputStream getTarget() {
+        OutputStream result = target.get();
+        if (null == result) {
+            result = original;
+        }
+        return result;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        getTarget().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        getTarget().write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        getTarget().flush();
+    }
+
+}
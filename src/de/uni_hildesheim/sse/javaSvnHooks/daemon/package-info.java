@@ -0,0 +1,5 @@
+/**
+ * This package contains a long-running hook server and the thin client forwarding hook invocations to it,
+ * i.e., the JVM, the loaded plugins and the caches are reused across commits.
+ */
+package de.uni_hildesheim.sse.javaSvnHooks.daemon;
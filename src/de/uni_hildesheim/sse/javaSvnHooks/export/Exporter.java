@@ -0,0 +1,394 @@
+package de.uni_hildesheim.sse.javaSvnHooks.export;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.internal.io.fs.FSFS;
+import org.tmatesoft.svn.core.internal.io.fs.FSRevisionNode;
+import org.tmatesoft.svn.core.internal.io.fs.FSRoot;
+import org.tmatesoft.svn.core.internal.wc.SVNAdminHelper;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+
+import de.uni_hildesheim.sse.javaSvnHooks.Configuration;
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+import de.uni_hildesheim.sse.javaSvnHooks.util.DiskCache;
+
+/**
+ * Exports files of a transaction (pre-commit) or a revision (post-commit) to the checkout directory. Paths are
+ * {@link #schedule(String, File) scheduled} while the tree is walked and exported in a single pass
+ * by {@link #finish()}, each path only once.
+ */
+public abstract class Exporter implements Closeable {
+
+    /**
+     * The hook property selecting the export strategy.
+     */
+    public static final String STRATEGY_PROPERTY = "exportStrategy";
+
+    /**
+     * Exports each file by a separate <code>svnlook cat</code> process.
+     */
+    public static final String STRATEGY_SVNLOOK = "svnlook";
+
+    /**
+     * Exports each file by {@link org.tmatesoft.svn.core.wc.admin.SVNLookClient#doCat(File, String, String,
+     * java.io.OutputStream)}.
+     */
+    public static final String STRATEGY_SVNKIT = "svnkit";
+
+    /**
+     * Exports all files through a single FSFS repository root.
+     */
+    public static final String STRATEGY_FSFS = "fsfs";
+
+    /**
+     * The hook property specifying the number of threads exporting files concurrently.
+     */
+    public static final String THREADS_PROPERTY = "exportThreads";
+
+    /**
+     * The hook property enabling the persistent blob cache below the temporary directory.
+     */
+    public static final String CACHE_PROPERTY = "blobCache";
+
+    /**
+     * The hook property specifying the maximum size of the blob cache in MB.
+     */
+    public static final String CACHE_SIZE_PROPERTY = "blobCache.maxSize";
+
+    /**
+     * The hook property specifying how cached blobs are materialized in the checkout directory,
+     * <code>copy</code> for writable copies (default), <code>link</code> for read-only hard links (falling back to
+     * copies). Links save disk space but share the file with the cache, so tests changing the read-only checkout
+     * (e.g., after making it writable) would corrupt the cache entry.
+     */
+    public static final String CACHE_LINK_MODE_PROPERTY = "blobCache.linkMode";
+
+    /**
+     * The name of the blob cache directory in the temporary directory.
+     */
+    private static final String CACHE_DIR = "blobCache";
+
+    private File repository;
+    private String transaction;
+    private SVNRevision revision;
+    private Map<String, File> scheduled = new LinkedHashMap<String, File>();
+    private Set<String> exported = new HashSet<String>();
+    private DiskCache cache;
+    private boolean hardLink;
+    private FSFS fsfs;
+    private FSRoot root;
+
+    /**
+     * Creates an exporter.
+     * 
+     * @param repository The path to the SVN repository.
+     * @param transaction The transaction to export from, <code>null</code> to export from <code>revision</code>.
+     * @param revision The revision to export from, ignored if <code>transaction</code> is given.
+     */
+    protected Exporter(File repository, String transaction, SVNRevision revision) {
+        this.repository = repository;
+        this.transaction = transaction;
+        this.revision = revision;
+    }
+
+    /**
+     * Creates the exporter selected by {@link #STRATEGY_PROPERTY}. If more than one
+     * {@link #THREADS_PROPERTY thread} is configured, the files are exported concurrently by
+     * multiple instances of the selected strategy.
+     * 
+     * @param configuration The configuration.
+     * @param defaultStrategy The strategy to use if none is configured.
+     * @param repository The path to the SVN repository.
+     * @param transaction The transaction to export from, <code>null</code> to export from <code>revision</code>.
+     * @param revision The revision to export from, ignored if <code>transaction</code> is given.
+     * @return The exporter.
+     */
+    public static Exporter create(Configuration configuration, String defaultStrategy, File repository,
+        String transaction, SVNRevision revision) {
+        String strategy = configuration.getStringProperty(STRATEGY_PROPERTY, defaultStrategy).trim();
+        int threads = configuration.getIntProperty(THREADS_PROPERTY, 1);
+        DiskCache cache = null;
+        if (configuration.getBooleanProperty(CACHE_PROPERTY, false)) {
+            cache = new DiskCache(new File(configuration.getTempDir(), CACHE_DIR),
+                configuration.getIntProperty(CACHE_SIZE_PROPERTY, 512) * 1024L * 1024L);
+        }
+        boolean hardLink = "link".equalsIgnoreCase(configuration.getStringProperty(CACHE_LINK_MODE_PROPERTY, "copy"));
+        Exporter result;
+        if (threads > 1) {
+            Exporter[] workers = new Exporter[threads];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = create(strategy, repository, transaction, revision);
+                workers[i].setCache(cache, hardLink);
+            }
+            result = new ParallelExporter(workers, create(strategy, repository, transaction, revision), repository,
+                transaction, revision);
+        } else {
+            result = create(strategy, repository, transaction, revision);
+            result.setCache(cache, hardLink);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a single exporter.
+     * 
+     * @param strategy The name of the strategy.
+     * @param repository The path to the SVN repository.
+     * @param transaction The transaction to export from, <code>null</code> to export from <code>revision</code>.
+     * @param revision The revision to export from, ignored if <code>transaction</code> is given.
+     * @return The exporter.
+     */
+    private static Exporter create(String strategy, File repository, String transaction, SVNRevision revision) {
+        Exporter result;
+        if (STRATEGY_FSFS.equalsIgnoreCase(strategy)) {
+            result = new FsfsExporter(repository, transaction, revision);
+        } else if (STRATEGY_SVNKIT.equalsIgnoreCase(strategy)) {
+            result = new SvnkitExporter(repository, transaction, revision);
+        } else {
+            if (!STRATEGY_SVNLOOK.equalsIgnoreCase(strategy)) {
+                Logger.INSTANCE.log("WARNING: Unknown export strategy " + strategy + ", using "
+                    + STRATEGY_SVNLOOK);
+            }
+            result = new SvnlookProcessExporter(repository, transaction, revision);
+        }
+        return result;
+    }
+
+    /**
+     * Defines the blob cache to be used by this exporter.
+     * 
+     * @param cache The blob cache, <code>null</code> for none.
+     * @param hardLink Whether cached blobs shall be hard linked or copied into the checkout directory.
+     */
+    private void setCache(DiskCache cache, boolean hardLink) {
+        this.cache = cache;
+        this.hardLink = hardLink;
+    }
+
+    /**
+     * Opens the FSFS repository root to export from, if not done before.
+     * 
+     * @return The repository root.
+     * 
+     * @throws SVNException If opening the repository fails.
+     */
+    protected FSRoot getRoot() throws SVNException {
+        if (null == root) {
+            fsfs = SVNAdminHelper.openRepository(repository, true);
+            if (null != transaction) {
+                root = fsfs.createTransactionRoot(fsfs.openTxn(transaction));
+            } else {
+                long number = revision.getNumber();
+                if (number < 0) {
+                    number = fsfs.getYoungestRevision();
+                }
+                root = fsfs.createRevisionRoot(number);
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Getter for the SVN repository.
+     * 
+     * @return The path to the SVN repository.
+     */
+    protected File getRepository() {
+        return repository;
+    }
+
+    /**
+     * Getter for the transaction to export from.
+     * 
+     * @return The transaction identifier, <code>null</code> if exporting from a revision.
+     */
+    protected String getTransaction() {
+        return transaction;
+    }
+
+    /**
+     * Getter for the revision to export from.
+     * 
+     * @return The revision, only relevant if {@link #getTransaction()} is <code>null</code>.
+     */
+    protected SVNRevision getRevision() {
+        return revision;
+    }
+
+    /**
+     * Schedules a file for export. Scheduling the same path multiple times exports it only once,
+     * also across multiple calls of {@link #finish()}.
+     * 
+     * @param path The path inside the repository.
+     * @param target The target file location to write the file to.
+     */
+    public void schedule(String path, File target) {
+        if (exported.add(path)) {
+            submit(path, target);
+        }
+    }
+
+    /**
+     * Submits a file for export, called once per path. By default, the file is exported
+     * by {@link #finish()}.
+     * 
+     * @param path The path inside the repository.
+     * @param target The target file location to write the file to.
+     */
+    protected void submit(String path, File target) {
+        scheduled.put(path, target);
+    }
+
+    /**
+     * Exports all scheduled files.
+     * 
+     * @throws SVNException If exporting a file fails in the repository.
+     */
+    public void finish() throws SVNException {
+        try {
+            for (Map.Entry<String, File> entry : scheduled.entrySet()) {
+                exportFile(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            scheduled.clear();
+        }
+    }
+
+    /**
+     * Exports a single file, creates the parent directory if required and replaces an existing file.
+     * I/O errors are logged.
+     * 
+     * @param path The path inside the repository.
+     * @param target The target file location to write the file to.
+     * 
+     * @throws SVNException If reading the file from the repository fails.
+     */
+    protected void exportFile(String path, File target) throws SVNException {
+        File dir = target.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            Logger.INSTANCE.log("WARNING: Could not create directory " + dir);
+        }
+        try {
+            // replace instead of overwriting, the file may be a link to a cached blob
+            Files.deleteIfExists(target.toPath());
+            if (null == cache || !exportCached(path, target)) {
+                export(path, target);
+            }
+        } catch (IOException e) {
+            Logger.INSTANCE.log("WARNING: Could not export " + path);
+            Logger.INSTANCE.logException(e, false);
+        }
+    }
+
+    /**
+     * Exports a single file through the blob cache. Files are identified by the checksum of their content
+     * as stored in the repository, i.e., a blob is cached once and reused for all paths and revisions with
+     * the same content.
+     * 
+     * @param path The path inside the repository.
+     * @param target The target file location to write the file to, the parent directory exists.
+     * @return <code>true</code> if the file was exported, <code>false</code> if no checksum is available
+     * 
+     * @throws SVNException If reading the file from the repository fails.
+     * @throws IOException If writing the file fails.
+     */
+    private boolean exportCached(String path, File target) throws SVNException, IOException {
+        FSRevisionNode node = getRoot().getRevisionNode(path);
+        String key = node.getFileSHA1Checksum();
+        if (null != key) {
+            key = "sha1-" + key;
+        } else if (null != node.getFileMD5Checksum()) {
+            key = "md5-" + node.getFileMD5Checksum();
+        }
+        boolean result = false;
+        if (null != key) {
+            Path blob = cache.get(key);
+            if (null != blob && Files.size(blob) != node.getFileLength()) {
+                cache.remove(key);
+                blob = null;
+            }
+            if (null == blob || !materialize(blob, target.toPath())) {
+                export(path, target);
+                cache.put(key, target.toPath());
+            }
+            result = true;
+        }
+        return result;
+    }
+
+    /**
+     * Materializes a cached blob in the checkout directory.
+     * 
+     * @param blob The cached blob.
+     * @param target The target file location, does not exist.
+     * @return <code>true</code> if successful, <code>false</code> if the blob vanished meanwhile
+     * 
+     * @throws IOException If writing the file fails.
+     */
+    private boolean materialize(Path blob, Path target) throws IOException {
+        boolean result = true;
+        try {
+            boolean linked = false;
+            if (hardLink) {
+                try {
+                    Files.createLink(target, blob);
+                    linked = true;
+                } catch (NoSuchFileException e) {
+                    throw e;
+                } catch (IOException | UnsupportedOperationException e) {
+                    // e.g., different file systems, fall back to copy
+                }
+            }
+            if (!linked) {
+                Files.copy(blob, target);
+                target.toFile().setWritable(true);
+            }
+        } catch (NoSuchFileException e) {
+            // evicted concurrently
+            result = false;
+        }
+        return result;
+    }
+
+    /**
+     * Exports a single file.
+     * 
+     * @param path The path inside the repository.
+     * @param target The target file location to write the file to, the parent directory exists.
+     * 
+     * @throws SVNException If reading the file from the repository fails.
+     * @throws IOException If writing the file fails.
+     */
+    protected abstract void export(String path, File target) throws SVNException, IOException;
+
+    /**
+     * Releases the resources of this exporter. Files scheduled but not {@link #finish() finished} are not exported.
+     * 
+     * @throws IOException If releasing the resources fails.
+     */
+    @Override
+    public void close() throws IOException {
+        scheduled.clear();
+        if (null != fsfs) {
+            try {
+                fsfs.close();
+            } catch (SVNException e) {
+                throw new IOException(e);
+            } finally {
+                fsfs = null;
+                root = null;
+            }
+        }
+    }
+
+}
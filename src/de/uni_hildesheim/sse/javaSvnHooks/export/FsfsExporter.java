@@ -0,0 +1,53 @@
+package de.uni_hildesheim.sse.javaSvnHooks.export;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.internal.delta.SVNDeltaCombiner;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+
+/**
+ * Exports all files through a single FSFS repository and transaction or revision root, i.e., the repository
+ * is opened once instead of once per file, and writes the files using NIO channels.
+ */
+class FsfsExporter extends Exporter {
+
+    /**
+     * The maximum number of bytes transferred at once.
+     */
+    private static final long TRANSFER_SIZE = 1024 * 1024;
+
+    private SVNDeltaCombiner combiner = new SVNDeltaCombiner();
+
+    /**
+     * Creates an exporter.
+     * 
+     * @param repository The path to the SVN repository.
+     * @param transaction The transaction to export from, <code>null</code> to export from <code>revision</code>.
+     * @param revision The revision to export from, ignored if <code>transaction</code> is given.
+     */
+    FsfsExporter(File repository, String transaction, SVNRevision revision) {
+        super(repository, transaction, revision);
+    }
+
+    @Override
+    protected void export(String path, File target) throws SVNException, IOException {
+        combiner.reset();
+        try (ReadableByteChannel in = Channels.newChannel(getRoot().getFileStreamForPath(combiner, path));
+            FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long position = 0;
+            long transferred;
+            do {
+                transferred = out.transferFrom(in, position, TRANSFER_SIZE);
+                position += transferred;
+            } while (transferred > 0);
+        }
+    }
+
+}
@@ -0,0 +1,232 @@
+package de.uni_hildesheim.sse.javaSvnHooks.export;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+import de.uni_hildesheim.sse.javaSvnHooks.util.ThreadContext;
+
+/**
+ * Exports files concurrently. Discovery and transfer are decoupled: {@link #schedule(String, File) scheduled}
+ * files are queued immediately and exported by a fixed number of worker threads, each using its own
+ * {@link Exporter} instance (e.g., its own <code>SVNLookClient</code> or FSFS root). The queue is bounded,
+ * i.e., scheduling blocks while the workers are behind (back-pressure). Errors are logged per file. Single
+ * files {@link #export(String, File) exported} directly bypass the queue and are exported by a further instance
+ * of the strategy.
+ */
+class ParallelExporter extends Exporter {
+
+    /**
+     * The number of queued files per worker before scheduling blocks.
+     */
+    private static final int QUEUE_SIZE_PER_WORKER = 16;
+
+    /**
+     * Signals a worker to terminate.
+     */
+    private static final Job POISON = new Job(null, null);
+
+    private Exporter direct;
+    private BlockingQueue<Job> queue;
+    private Thread[] threads;
+    private int pending;
+    private SVNException failure;
+
+    /**
+     * Creates a parallel exporter and starts the workers.
+     *
+     * @param workers The exporters to be used by the worker threads, one per thread.
+     * @param direct The exporter for files {@link #export(String, File) exported} directly, not used by a worker.
+     * @param repository The path to the SVN repository.
+     * @param transaction The transaction to export from, <code>null</code> to export from <code>revision</code>.
+     * @param revision The revision to export from, ignored if <code>transaction</code> is given.
+     */
+    ParallelExporter(Exporter[] workers, Exporter direct, File repository, String transaction,
+        SVNRevision revision) {
+        super(repository, transaction, revision);
+        this.direct = direct;
+        queue = new ArrayBlockingQueue<Job>(workers.length * QUEUE_SIZE_PER_WORKER);
+        threads = new Thread[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            threads[i] = new Thread(ThreadContext.wrap(new Worker(workers[i])), "export-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    @Override
+    protected void submit(String path, File target) {
+        synchronized (this) {
+            pending++;
+        }
+        try {
+            queue.put(new Job(path, target));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Logger.INSTANCE.log("WARNING: Interrupted while scheduling " + path);
+            done();
+        }
+    }
+
+    /**
+     * Waits until all scheduled files are exported.
+     *
+     * @throws SVNException The first error that occurred while exporting a file in the repository, all errors
+     *     are logged.
+     */
+    @Override
+    public synchronized void finish() throws SVNException {
+        while (pending > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Logger.INSTANCE.log("WARNING: Interrupted while waiting for " + pending + " exports");
+                break;
+            }
+        }
+        SVNException result = failure;
+        failure = null;
+        if (null != result) {
+            throw result;
+        }
+    }
+
+    @Override
+    protected void export(String path, File target) throws SVNException, IOException {
+        // scheduled files are exported by the workers, the direct exporter is not thread-safe
+        synchronized (direct) {
+            direct.export(path, target);
+        }
+    }
+
+    /**
+     * Marks a scheduled file as processed.
+     */
+    private synchronized void done() {
+        pending--;
+        if (pending <= 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Records an error while exporting a file.
+     *
+     * @param path The path inside the repository.
+     * @param exception The error.
+     */
+    private synchronized void failed(String path, SVNException exception) {
+        Logger.INSTANCE.log("WARNING: Could not export " + path + ": " + exception.getMessage());
+        if (null == failure) {
+            failure = exception;
+        }
+    }
+
+    /**
+     * Stops the workers after the queued files are processed and releases their exporters and the direct
+     * exporter.
+     *
+     * @throws IOException If releasing the resources fails.
+     */
+    @Override
+    public void close() throws IOException {
+        super.close();
+        for (int i = 0; i < threads.length; i++) {
+            try {
+                queue.put(POISON);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        synchronized (direct) {
+            direct.close();
+        }
+    }
+
+    /**
+     * A file to be exported.
+     */
+    private static class Job {
+
+        private String path;
+        private File target;
+
+        /**
+         * Creates a job.
+         *
+         * @param path The path inside the repository.
+         * @param target The target file location to write the file to.
+         */
+        private Job(String path, File target) {
+            this.path = path;
+            this.target = target;
+        }
+
+    }
+
+    /**
+     * Exports queued files using an own {@link Exporter}.
+     */
+    private class Worker implements Runnable {
+
+        private Exporter exporter;
+
+        /**
+         * Creates a worker.
+         *
+         * @param exporter The exporter of this worker.
+         */
+        private Worker(Exporter exporter) {
+            this.exporter = exporter;
+        }
+
+        // checkstyle: stop exception type check
+
+        @Override
+        public void run() {
+            try {
+                Job job = queue.take();
+                while (POISON != job) {
+                    try {
+                        exporter.exportFile(job.path, job.target);
+                    } catch (SVNException e) {
+                        failed(job.path, e);
+                    } catch (Throwable t) {
+                        Logger.INSTANCE.log("WARNING: Could not export " + job.path);
+                        Logger.INSTANCE.logException(t, false);
+                    } finally {
+                        done();
+                    }
+                    job = queue.take();
+                }
+            } catch (InterruptedException e) {
+                Logger.INSTANCE.logException(e, true);
+            } finally {
+                try {
+                    exporter.close();
+                } catch (IOException e) {
+                    Logger.INSTANCE.logException(e, false);
+                }
+            }
+        }
+
+        // checkstyle: resume exception type check
+
+    }
+
+}
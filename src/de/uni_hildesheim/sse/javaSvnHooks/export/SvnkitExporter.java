@@ -0,0 +1,43 @@
+package de.uni_hildesheim.sse.javaSvnHooks.export;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationManager;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+import org.tmatesoft.svn.core.wc.admin.SVNLookClient;
+
+/**
+ * Exports each file using {@link SVNLookClient#doCat(File, String, String, java.io.OutputStream)}.
+ * 
+ * @author Adam Krafczyk
+ */
+class SvnkitExporter extends Exporter {
+
+    private SVNLookClient lookClient = new SVNLookClient((ISVNAuthenticationManager) null, null);
+
+    /**
+     * Creates an exporter.
+     * 
+     * @param repository The path to the SVN repository.
+     * @param transaction The transaction to export from, <code>null</code> to export from <code>revision</code>.
+     * @param revision The revision to export from, ignored if <code>transaction</code> is given.
+     */
+    SvnkitExporter(File repository, String transaction, SVNRevision revision) {
+        super(repository, transaction, revision);
+    }
+
+    @Override
+    protected void export(String path, File target) throws SVNException, IOException {
+        try (FileOutputStream fos = new FileOutputStream(target)) {
+            if (null != getTransaction()) {
+                lookClient.doCat(getRepository(), path, getTransaction(), fos);
+            } else {
+                lookClient.doCat(getRepository(), path, getRevision(), fos);
+            }
+        }
+    }
+
+}
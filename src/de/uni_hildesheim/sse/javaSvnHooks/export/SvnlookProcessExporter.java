@@ -0,0 +1,70 @@
+package de.uni_hildesheim.sse.javaSvnHooks.export;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.ProcessBuilder.Redirect;
+
+import org.tmatesoft.svn.core.wc.SVNRevision;
+
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+
+/**
+ * Exports each file using a separate process of the <code>svnlook</code> utility program.
+ * <p>
+ * <b>Note:</b> There occurred a strange bug inside of svnkit, where checking out files in the pre-commit hook
+ * sometimes failed inexplicably. For this reason, this strategy was created as a replacement.
+ * 
+ * @author Adam Krafczyk
+ */
+class SvnlookProcessExporter extends Exporter {
+
+    /**
+     * Creates an exporter.
+     * 
+     * @param repository The path to the SVN repository.
+     * @param transaction The transaction to export from, <code>null</code> to export from <code>revision</code>.
+     * @param revision The revision to export from, ignored if <code>transaction</code> is given.
+     */
+    SvnlookProcessExporter(File repository, String transaction, SVNRevision revision) {
+        super(repository, transaction, revision);
+    }
+
+    @Override
+    protected void export(String path, File target) throws IOException {
+        ProcessBuilder pb;
+        if (null != getTransaction()) {
+            pb = new ProcessBuilder("/usr/bin/svnlook", "cat", "--transaction", getTransaction(),
+                getRepository().getAbsolutePath(), path);
+        } else {
+            pb = new ProcessBuilder("/usr/bin/svnlook", "cat", "--revision", getRevision().toString(),
+                getRepository().getAbsolutePath(), path);
+        }
+        
+        pb.redirectOutput(target);
+        pb.redirectError(Redirect.PIPE);
+        
+        try {
+            Process proc = pb.start();
+            
+            BufferedReader stderrReader = new BufferedReader(new InputStreamReader(proc.getErrorStream()));
+            StringBuilder stderr = new StringBuilder();
+            String line;
+            while ((line = stderrReader.readLine()) != null) {
+                stderr.append(line);
+            }
+            
+            int result = proc.waitFor();
+            
+            if (result != 0) {
+                Logger.INSTANCE.log("WARNING: svnlook exited with " + result);
+                Logger.INSTANCE.log("svnlook stderr:\n" + stderr.toString());
+            }
+            
+        } catch (InterruptedException e) {
+            Logger.INSTANCE.logException(e, false);
+        }
+    }
+
+}
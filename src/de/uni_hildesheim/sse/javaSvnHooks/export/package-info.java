@@ -0,0 +1,4 @@
+/**
+ * This package contains the strategies for exporting files from the repository to the checkout directory.
+ */
+package de.uni_hildesheim.sse.javaSvnHooks.export;
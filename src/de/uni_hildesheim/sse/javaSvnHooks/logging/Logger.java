@@ -1,9 +1,15 @@
 package de.uni_hildesheim.sse.javaSvnHooks.logging;
 
 import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.uni_hildesheim.sse.javaSvnHooks.util.ThreadContext;
 
 /**
- * Class for logging.
+ * Class for logging. By default, all threads log to the same {@link PrintStream}. A thread may
+ * {@link #beginScope() begin a scope}, e.g., for serving a single hook request within a long-running
+ * process; the output stream is then defined for this thread and the tasks it passes to other threads through
+ * {@link ThreadContext#wrap(Runnable)} only.
  * 
  * @author Adam Krafczyk
  */
@@ -11,21 +17,83 @@ public class Logger {
 
     public static final Logger INSTANCE = new Logger();
     
-    private PrintStream out = System.out;
+    private volatile PrintStream out = System.out;
+    
+    private ThreadLocal<AtomicReference<PrintStream>> scope = new ThreadLocal<AtomicReference<PrintStream>>();
     
     /**
      * Private since this is a singleton.
      */
     private Logger() {
+        ThreadContext.register(scope);
     }
     
     /**
-     * Changes the {@link PrintStream} where log messages will be written to.
+     * Changes the {@link PrintStream} where log messages will be written to. The previous stream is
+     * closed unless it is {@link System#out} or {@link System#err}.
      * 
      * @param out The new {@link PrintStream}.
      */
     public void setOutputStream(PrintStream out) {
-        this.out = out;
+        PrintStream previous;
+        AtomicReference<PrintStream> bound = scope.get();
+        if (null != bound) {
+            previous = bound.getAndSet(out);
+        } else {
+            synchronized (this) {
+                previous = this.out;
+                this.out = out;
+            }
+        }
+        close(previous);
+    }
+    
+    /**
+     * Begins a scope for the current thread and the tasks it wraps from now on. Until
+     * the scope is {@link #endScope() ended}, {@link #setOutputStream(PrintStream)} affects
+     * only this scope. Initially, a scope logs to the output stream of the process.
+     */
+    public void beginScope() {
+        scope.set(new AtomicReference<PrintStream>());
+    }
+    
+    /**
+     * Ends the scope of the current thread and closes the output stream defined in the scope.
+     */
+    public void endScope() {
+        AtomicReference<PrintStream> bound = scope.get();
+        scope.remove();
+        if (null != bound) {
+            close(bound.get());
+        }
+    }
+    
+    /**
+     * Closes a stream replaced by another one.
+     * 
+     * @param stream The stream to be closed, may be <code>null</code>.
+     */
+    private void close(PrintStream stream) {
+        if (null != stream && stream != System.out && stream != System.err && stream != out) {
+            stream.close();
+        }
+    }
+    
+    /**
+     * Returns the output stream for the current thread.
+     * 
+     * @return The output stream.
+     */
+    private PrintStream getOutputStream() {
+        PrintStream result = null;
+        AtomicReference<PrintStream> bound = scope.get();
+        if (null != bound) {
+            result = bound.get();
+        }
+        if (null == result) {
+            result = out;
+        }
+        return result;
     }
     
     /**
@@ -34,7 +102,7 @@ public class Logger {
      * @param message The message to be logged.
      */
     public void log(String message) {
-        out.println(message);
+        getOutputStream().println(message);
     }
     
     /**
@@ -45,17 +113,18 @@ public class Logger {
      *     trace to indicate that this is a handled exception.
      */
     public void logException(Throwable exception, boolean handled) {
+        PrintStream stream = getOutputStream();
         if (handled) {
-            out.println("Handled " + exception.getClass().getName() + ": " 
+            stream.println("Handled " + exception.getClass().getName() + ": " 
                 + exception.getMessage());
             StackTraceElement[] trace = exception.getStackTrace();
             if (null != trace) {
                 for (int t = trace.length - 1; t >= Math.max(0, trace.length - 2); t--) {
-                    out.println(" " + trace[t]);
+                    stream.println(" " + trace[t]);
                 }
             }
         } else {
-            exception.printStackTrace(out);
+            exception.printStackTrace(stream);
         }
     }
 
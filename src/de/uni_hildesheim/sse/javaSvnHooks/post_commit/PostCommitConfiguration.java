@@ -16,6 +16,12 @@ import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
  */
 class PostCommitConfiguration extends Configuration {
 
+    /**
+     * The hook property enabling the incremental workspace mode, i.e., the groups are kept in a persistent
+     * checkout directory and only the changes of each revision are applied.
+     */
+    static final String WORKSPACE_PROPERTY = "incrementalWorkspace";
+    
     private File repository;
     
     private SVNRevision revision;
@@ -36,6 +42,9 @@ class PostCommitConfiguration extends Configuration {
         
         File configFile = new File(hooksDir, "hook.properties");
         readConfig(configFile);
+        if (isIncrementalWorkspace()) {
+            setCheckoutDir(new File(getTempDir(), "workspace_" + getRepositoryKey()));
+        }
         
         setTestOutputStream(new PrintStream(testOutputStream));
     }
@@ -57,6 +66,33 @@ class PostCommitConfiguration extends Configuration {
         return repository;
     }
     
+    /**
+     * Returns whether the incremental workspace mode is enabled.
+     * 
+     * @return <code>true</code> if the checkout directory is kept across invocations.
+     */
+    boolean isIncrementalWorkspace() {
+        return getBooleanProperty(WORKSPACE_PROPERTY, false);
+    }
+    
+    /**
+     * Getter for the directory storing the state of the workspaces in incremental workspace mode.
+     * 
+     * @return The directory.
+     */
+    File getWorkspaceStateDir() {
+        return new File(getTempDir(), "workspace_" + getRepositoryKey() + ".state");
+    }
+    
+    /**
+     * Returns a key distinguishing the workspaces of different repositories.
+     * 
+     * @return The key.
+     */
+    private String getRepositoryKey() {
+        return repository.getName() + "_" + Integer.toHexString(repository.getAbsolutePath().hashCode());
+    }
+    
     @Override
     public String getUniqueIdentifier() {
         return "rev_" + revision;
@@ -5,19 +5,24 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
+import org.tmatesoft.svn.core.SVNErrorCode;
 import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.auth.ISVNAuthenticationManager;
+import org.tmatesoft.svn.core.wc.admin.ISVNTreeHandler;
+import org.tmatesoft.svn.core.wc.admin.SVNAdminPath;
 import org.tmatesoft.svn.core.wc.admin.SVNLookClient;
 
 import de.uni_hildesheim.sse.javaSvnHooks.CommitHook;
 import de.uni_hildesheim.sse.javaSvnHooks.Configuration;
 import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.export.Exporter;
 import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.Test;
 import de.uni_hildesheim.sse.javaSvnHooks.util.ExitCodes;
@@ -33,6 +38,8 @@ public class PostCommitHook extends CommitHook {
     
     private PostCommitConfiguration config;
     
+    private List<Workspace> workspaces = new ArrayList<Workspace>();
+    
     /**
      * Executes this post-commit hook.
      * 
@@ -111,42 +118,135 @@ public class PostCommitHook extends CommitHook {
      * in the {@link PostCommitConfiguration}.
      * 
      * @throws SVNException If checking out the files throws a {@link SVNException}.
+     * @throws IOException If writing the files or updating a workspace fails.
      */
-    private void checkoutChangedFolders() throws SVNException {
+    private void checkoutChangedFolders() throws SVNException, IOException {
         SVNLookClient client = new SVNLookClient((ISVNAuthenticationManager) null, null);
-        PostCommitSvnCatHandler handler = new PostCommitSvnCatHandler(config, client);
-        
-        client.doGetChanged(config.getRepository(), config.getRevision(), handler, false);
-        
-        // Get affected PathConfigurations
-        Set<PathConfiguration> changedPCs = new HashSet<PathConfiguration>();
-        Iterator<PathConfiguration> pathConfigs = config.pathConfigurations();
-        while (pathConfigs.hasNext()) {
-            PathConfiguration pathConfig = pathConfigs.next();
-            for (String path : handler.getChangedFiles()) {
-                if (path.startsWith(pathConfig.getPath())) {
-                    changedPCs.add(pathConfig);
-                    break;
+        boolean incremental = config.isIncrementalWorkspace();
+        try (Exporter exporter = Exporter.create(config, Exporter.STRATEGY_SVNKIT, config.getRepository(),
+                null, config.getRevision())) {
+            PostCommitSvnCatHandler handler = new PostCommitSvnCatHandler(config, exporter, incremental);
+            
+            client.doGetChanged(config.getRepository(), config.getRevision(), handler, false);
+            exporter.finish();
+            
+            Set<PathConfiguration> changedPCs = determineChangedPathConfigurations(config, handler.getChangedFiles());
+            
+            if (incremental) {
+                updateWorkspaces(client, exporter, handler, changedPCs);
+            } else {
+                // Do a complete checkout of the (changed) groups inside the changed PathConfigurations
+                for (PathConfiguration pathConfig : changedPCs) {
+                    for (String repositoryPath : getGroupPaths(config, pathConfig)) {
+                        client.doGetTree(config.getRepository(),
+                                repositoryPath, config.getRevision(), false, true, handler);
+                    }
                 }
+                exporter.finish();
             }
         }
-        
-        config.setChangedPathConfigurations(changedPCs);
-        
-        // Do a complete checkout of the sub-folders inside the changed PathConfigurations
+    }
+    
+    /**
+     * Brings the {@link Workspace}s of the (changed) groups inside the changed {@link PathConfiguration}s to
+     * the current revision. A workspace reflecting the previous revision is updated by the changes of this
+     * revision only, otherwise or if the update fails the group is exported completely. The workspaces stay
+     * locked until the tests are done.
+     * 
+     * @param client The client to read the repository with.
+     * @param exporter The exporter to get files from the repository.
+     * @param handler The handler that collected the changes of this revision.
+     * @param changedPCs The changed {@link PathConfiguration}s.
+     * 
+     * @throws SVNException If reading the repository fails.
+     * @throws IOException If updating a workspace fails.
+     */
+    private void updateWorkspaces(SVNLookClient client, Exporter exporter, PostCommitSvnCatHandler handler,
+        Set<PathConfiguration> changedPCs) throws SVNException, IOException {
+        long revision = config.getRevision().getNumber();
+        // lock in a global order, i.e., concurrent hooks cannot deadlock
+        SortedSet<String> allGroups = new TreeSet<String>();
         for (PathConfiguration pathConfig : changedPCs) {
-            File workingDir = new File(config.getCheckoutDir(), pathConfig.getPath());
-            Path checkoutDirPath = config.getCheckoutDir().toPath();
-            for (File f : workingDir.listFiles()) {
-                if (f.isDirectory()) {
-                    String repositoryPath = checkoutDirPath.relativize(f.toPath()).toString();
-                    client.doGetTree(config.getRepository(),
-                            repositoryPath, config.getRevision(), false, true, handler);
+            // the changed groups that still exist, stale folders of deleted groups are not tested
+            SortedSet<String> groups = listGroups(client, pathConfig);
+            groups.retainAll(getGroupPaths(config, pathConfig));
+            setGroupPaths(config, pathConfig, groups);
+            allGroups.addAll(groups);
+        }
+        for (String group : allGroups) {
+            Workspace workspace = new Workspace(config.getWorkspaceStateDir(), config.getCheckoutDir(), group);
+            workspace.lock();
+            workspaces.add(workspace);
+            boolean updated = false;
+            if (workspace.isAt(revision - 1) && !handler.requiresFullExport(group)) {
+                Logger.INSTANCE.log("Updating workspace " + group + " from revision " + (revision - 1));
+                try {
+                    workspace.invalidate();
+                    workspace.scrub(exporter, config.getCheckoutDir());
+                    handler.applyChanges(workspace);
+                    updated = true;
+                } catch (IOException e) {
+                    Logger.INSTANCE.log("Updating workspace " + group + " failed, falling back to a full export");
+                    Logger.INSTANCE.logException(e, false);
                 }
             }
+            if (!updated) {
+                Logger.INSTANCE.log("Exporting workspace " + group + " completely");
+                workspace.clear();
+                client.doGetTree(config.getRepository(), group, config.getRevision(), false, true, handler);
+            }
+        }
+        exporter.finish();
+        for (Workspace workspace : workspaces) {
+            workspace.commit(revision);
         }
     }
     
+    /**
+     * Lists the groups, i.e., the top-level folders, of a {@link PathConfiguration} in the current revision.
+     * 
+     * @param client The client to read the repository with.
+     * @param pathConfig The {@link PathConfiguration}.
+     * @return The repository paths of the groups (without leading /), empty if the path does not exist.
+     * 
+     * @throws SVNException If reading the repository fails.
+     */
+    private SortedSet<String> listGroups(SVNLookClient client, PathConfiguration pathConfig) throws SVNException {
+        final SortedSet<String> result = new TreeSet<String>();
+        try {
+            client.doGetTree(config.getRepository(), "/" + stripSlashes(pathConfig.getPath()), config.getRevision(),
+                false, false, new ISVNTreeHandler() {
+                
+                    @Override
+                    public void handlePath(SVNAdminPath path) throws SVNException {
+                        if (path.isDir() && path.getTreeDepth() == 1) {
+                            result.add(stripSlashes(path.getPath()));
+                        }
+                    }
+                    
+                });
+        } catch (SVNException e) {
+            if (e.getErrorMessage().getErrorCode() != SVNErrorCode.FS_NOT_FOUND) {
+                throw e;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Releases the {@link Workspace}s locked by this hook.
+     */
+    private void releaseWorkspaces() {
+        for (Workspace workspace : workspaces) {
+            try {
+                workspace.close();
+            } catch (IOException e) {
+                Logger.INSTANCE.logException(e, false);
+            }
+        }
+        workspaces.clear();
+    }
+    
     /**
      * Sends a JSON message to the student management system containing the result of the submission.
      * 
@@ -184,7 +284,7 @@ public class PostCommitHook extends CommitHook {
     private int beforeTests() {
         int exitCode = ExitCodes.EXIT_SUCCESS;
         
-        exitCode = createDirecotries(config);
+        exitCode = createDirecotries(config, config.isIncrementalWorkspace());
         
         if (exitCode == ExitCodes.EXIT_SUCCESS) {
             try {
@@ -196,7 +296,7 @@ public class PostCommitHook extends CommitHook {
                         client.doGetLog(config.getRepository(), config.getRevision()));
                 
                 checkoutChangedFolders();
-            } catch (SVNException e) {
+            } catch (SVNException | IOException e) {
                 Logger.INSTANCE.logException(e, false);
                 exitCode = ExitCodes.EXIT_ERROR;
             }
@@ -228,10 +328,7 @@ public class PostCommitHook extends CommitHook {
         
         // notify stuff about the commit
         for (PathConfiguration pathConfiguration : config.getChangedPathConfigurations()) {
-            Path checkoutDirPath = config.getCheckoutDir().toPath();
-            for (File f : new File(config.getCheckoutDir(), pathConfiguration.getPath()).listFiles()) {
-                String repositoryPath = checkoutDirPath.relativize(f.toPath()).toString();
-
+            for (String repositoryPath : getGroupPaths(config, pathConfiguration)) {
                 // notify the student management system
                 int status;
                 status = notifyManagementSystem(repositoryPath, testOutput);
@@ -241,7 +338,11 @@ public class PostCommitHook extends CommitHook {
             }
         }
         
-        deleteCheckoutDir(config);
+        if (config.isIncrementalWorkspace()) {
+            releaseWorkspaces();
+        } else {
+            deleteCheckoutDir(config);
+        }
         
         boolean outputEmpty;
         if (config.produceXmlOutput()) {
@@ -265,6 +366,18 @@ public class PostCommitHook extends CommitHook {
         return returnValue;
     }
     
+    /**
+     * Returns whether the change-scoped mode is enabled. This is always the case in incremental workspace mode,
+     * as the checkout directory contains all groups and not only the changed ones.
+     * 
+     * @param configuration The {@link Configuration} object.
+     * @return <code>true</code> in change-scoped mode.
+     */
+    @Override
+    protected boolean isChangeScoped(Configuration configuration) {
+        return config.isIncrementalWorkspace() || super.isChangeScoped(configuration);
+    }
+    
     @Override
     protected boolean isTestEnabled(PathConfiguration pathConfiguration, Test test) {
         return test.runInPostCommit(pathConfiguration);
@@ -1,8 +1,6 @@
 package de.uni_hildesheim.sse.javaSvnHooks.post_commit;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -17,38 +15,58 @@ import org.tmatesoft.svn.core.wc.admin.SVNAdminPath;
 import org.tmatesoft.svn.core.wc.admin.SVNChangeEntry;
 import org.tmatesoft.svn.core.wc.admin.SVNLookClient;
 
-import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+import de.uni_hildesheim.sse.javaSvnHooks.export.Exporter;
 
 /**
  * Implements a handler for {@link SVNLookClient#doGetChanged(java.io.File, String, ISVNChangeEntryHandler, boolean)}
  * and {@link SVNLookClient#doGetTree(File, String, String, boolean, boolean, ISVNTreeHandler)}
- * that writes files to the checkoutDir.
+ * that writes files to the checkoutDir. In incremental workspace mode, the changes are collected and applied
+ * to the {@link Workspace}s of the groups by {@link #applyChanges(Workspace)}.
  * 
  * @author Adam Krafczyk
  */
 class PostCommitSvnCatHandler implements ISVNChangeEntryHandler, ISVNTreeHandler {
     
-    private SVNLookClient lookClient;
+    /**
+     * The type of replaced nodes as reported by <code>svnlook changed</code> (not defined by
+     * {@link SVNChangeEntry}).
+     */
+    private static final char TYPE_REPLACED = 'R';
+    
+    private Exporter exporter;
     
     private PostCommitConfiguration configuration;
     
     private List<String> changedFiles;
     
+    private List<SVNChangeEntry> changes;
+    
     /**
      * Creates an {@link PostCommitSvnCatHandler} that will write files to the checkoutDir of the configuration.
+     * The files are written when calling {@link Exporter#finish()}.
      * 
      * @param configuration The configuration object.
-     * @param lookClient The {@link SVNLookClient} to get files from the repository.
+     * @param exporter The {@link Exporter} to get files from the repository.
+     * @param collectChanges <code>true</code> if the changes shall only be collected for
+     *     {@link #applyChanges(Workspace)}, <code>false</code> if changed files shall be exported immediately.
      */
-    PostCommitSvnCatHandler(PostCommitConfiguration configuration, SVNLookClient lookClient) {
-        this.lookClient = lookClient;
+    PostCommitSvnCatHandler(PostCommitConfiguration configuration, Exporter exporter, boolean collectChanges) {
+        this.exporter = exporter;
         this.configuration = configuration;
         changedFiles = new ArrayList<String>();
+        if (collectChanges) {
+            changes = new ArrayList<SVNChangeEntry>();
+        }
     }
 
     @Override
     public void handleEntry(SVNChangeEntry entry) throws SVNException {
-        if (entry.getKind() == SVNNodeKind.FILE && !isFileIgnored(entry.getPath())) {
+        if (null != changes && !isFileIgnored(entry.getPath())) {
+            changes.add(entry);
+            if (entry.getKind() == SVNNodeKind.FILE) {
+                changedFiles.add(entry.getPath());
+            }
+        } else if (entry.getKind() == SVNNodeKind.FILE && !isFileIgnored(entry.getPath())) {
             
             changedFiles.add(entry.getPath());
             
@@ -56,19 +74,7 @@ class PostCommitSvnCatHandler implements ISVNChangeEntryHandler, ISVNTreeHandler
             file.getParentFile().mkdirs();
             
             if (entry.getType() != SVNChangeEntry.TYPE_DELETED) {
-                try {
-                    FileOutputStream fos = new FileOutputStream(file);
-                    
-                    lookClient.doCat(configuration.getRepository(), entry.getPath(),
-                            configuration.getRevision(), fos);
-                    
-                    fos.close();
-                    
-                } catch (FileNotFoundException e) {
-                    Logger.INSTANCE.logException(e, false);
-                } catch (IOException e) {
-                    Logger.INSTANCE.logException(e, false);
-                }
+                exporter.schedule(entry.getPath(), file);
             }
             
         }
@@ -78,26 +84,72 @@ class PostCommitSvnCatHandler implements ISVNChangeEntryHandler, ISVNTreeHandler
     public void handlePath(SVNAdminPath path) throws SVNException {
         if (!path.isDir() && !isFileIgnored(path.getPath())) {
             
-            File file = new File(configuration.getCheckoutDir(), path.getPath());
-            
             changedFiles.add(path.getPath());
             
-            file.getParentFile().mkdirs();
+            exporter.schedule(path.getPath(), new File(configuration.getCheckoutDir(), path.getPath()));
             
-            try {
-                FileOutputStream fos = new FileOutputStream(file);
-                
-                lookClient.doCat(configuration.getRepository(), path.getPath(),
-                        configuration.getRevision(), fos);
-                
-                fos.close();
-                
-            } catch (FileNotFoundException e) {
-                Logger.INSTANCE.logException(e, false);
-            } catch (IOException e) {
-                Logger.INSTANCE.logException(e, false);
+        }
+    }
+    
+    /**
+     * Returns the path of a changed node relative to a group.
+     * 
+     * @param entry The changed node.
+     * @param group The repository path of the group (without leading /).
+     * @return The relative path, the empty string for the group itself, <code>null</code> if the node is
+     *     not inside the group.
+     */
+    private static String relativize(SVNChangeEntry entry, String group) {
+        String path = entry.getPath();
+        int start = path.startsWith("/") ? 1 : 0;
+        String result = null;
+        if (path.startsWith(group, start)) {
+            int end = start + group.length();
+            if (path.length() == end) {
+                result = "";
+            } else if (path.charAt(end) == '/') {
+                result = path.substring(end + 1);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Checks whether the collected changes can be applied to the workspace of a group. This is not the case
+     * for copied or replaced directories, as their content is not listed as changed.
+     * 
+     * @param group The repository path of the group (without leading /).
+     * @return <code>true</code> if the group must be exported completely.
+     */
+    boolean requiresFullExport(String group) {
+        boolean result = false;
+        for (int i = 0; !result && i < changes.size(); i++) {
+            SVNChangeEntry entry = changes.get(i);
+            if (entry.getKind() == SVNNodeKind.DIR && null != relativize(entry, group)) {
+                result = entry.getType() == TYPE_REPLACED
+                    || (entry.getType() == SVNChangeEntry.TYPE_ADDED && null != entry.getCopyFromPath());
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Applies the collected changes to the workspace of a group, i.e., deletes deleted files and directories
+     * and schedules added and modified files for export.
+     * 
+     * @param workspace The workspace reflecting the previous revision.
+     * @throws IOException If deleting files fails.
+     */
+    void applyChanges(Workspace workspace) throws IOException {
+        for (SVNChangeEntry entry : changes) {
+            String path = relativize(entry, workspace.getGroup());
+            if (null != path && path.length() > 0) {
+                if (entry.getType() == SVNChangeEntry.TYPE_DELETED) {
+                    workspace.delete(path);
+                } else if (entry.getKind() == SVNNodeKind.FILE) {
+                    exporter.schedule(entry.getPath(), new File(workspace.getDirectory(), path));
+                }
             }
-            
         }
     }
     
@@ -0,0 +1,331 @@
+package de.uni_hildesheim.sse.javaSvnHooks.post_commit;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.io.FileUtils;
+
+import de.uni_hildesheim.sse.javaSvnHooks.export.Exporter;
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+
+/**
+ * A warm working copy of a single group that is kept in the checkout directory across post-commit
+ * invocations. The state of a workspace, i.e., the revision it reflects and a manifest of the exported
+ * files (size and modification time), is stored separately from the files so that the tests cannot
+ * modify it. A workspace is locked while it is used, i.e., concurrent hooks updating or testing the
+ * same group are serialized, within the JVM as well as across processes.
+ */
+class Workspace implements Closeable {
+
+    /**
+     * The locks of the workspaces within this JVM, as file locks are held on behalf of the whole JVM.
+     */
+    private static final Map<String, ReentrantLock> LOCKS = new HashMap<String, ReentrantLock>();
+
+    private static final String REVISION_SUFFIX = ".revision";
+    private static final String MANIFEST_SUFFIX = ".manifest";
+    private static final String LOCK_SUFFIX = ".lock";
+
+    private String group;
+    private File dir;
+    private File stateDir;
+    private String key;
+    private ReentrantLock localLock;
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private Properties manifest = new Properties();
+
+    /**
+     * Creates a workspace. Call {@link #lock()} before using it.
+     *
+     * @param stateDir The directory to store the state of the workspaces in.
+     * @param checkoutDir The checkout directory containing the groups.
+     * @param group The repository path of the group (without leading /).
+     */
+    Workspace(File stateDir, File checkoutDir, String group) {
+        this.group = group;
+        this.stateDir = stateDir;
+        this.dir = new File(checkoutDir, group);
+        try {
+            key = URLEncoder.encode(group, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            key = group.replace('/', '_'); // UTF-8 is always supported
+        }
+    }
+
+    /**
+     * Getter for the repository path of the group.
+     *
+     * @return The repository path (without leading /).
+     */
+    String getGroup() {
+        return group;
+    }
+
+    /**
+     * Getter for the directory of the group.
+     *
+     * @return The directory containing the files of the group.
+     */
+    File getDirectory() {
+        return dir;
+    }
+
+    /**
+     * Locks this workspace, waits until other processes released it.
+     *
+     * @throws IOException If locking fails.
+     */
+    void lock() throws IOException {
+        if (!stateDir.isDirectory() && !stateDir.mkdirs() && !stateDir.isDirectory()) {
+            throw new IOException("Can't create " + stateDir);
+        }
+        File lockFile = getStateFile(LOCK_SUFFIX).getAbsoluteFile();
+        synchronized (LOCKS) {
+            localLock = LOCKS.get(lockFile.getPath());
+            if (null == localLock) {
+                localLock = new ReentrantLock();
+                LOCKS.put(lockFile.getPath(), localLock);
+            }
+        }
+        localLock.lock();
+        try {
+            lockChannel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            lock = lockChannel.lock();
+        } catch (IOException e) {
+            if (null != lockChannel) {
+                lockChannel.close();
+                lockChannel = null;
+            }
+            localLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a file storing the state of this workspace.
+     *
+     * @param suffix The suffix denoting the kind of state.
+     * @return The state file.
+     */
+    private File getStateFile(String suffix) {
+        return new File(stateDir, key + suffix);
+    }
+
+    /**
+     * Returns whether this workspace reflects the given revision and its manifest is available.
+     *
+     * @param revision The revision.
+     * @return <code>true</code> if the workspace can be updated incrementally from <code>revision</code>.
+     */
+    boolean isAt(long revision) {
+        boolean result = false;
+        Properties state = new Properties();
+        if (load(getStateFile(REVISION_SUFFIX), state) && load(getStateFile(MANIFEST_SUFFIX), manifest)) {
+            result = String.valueOf(revision).equals(state.getProperty("revision")) && dir.isDirectory();
+        }
+        return result;
+    }
+
+    /**
+     * Loads a state file.
+     *
+     * @param file The file.
+     * @param properties The properties to load the file into.
+     * @return <code>true</code> if successful, <code>false</code> if the file does not exist or cannot be read.
+     */
+    private static boolean load(File file, Properties properties) {
+        boolean result = false;
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                properties.load(in);
+                result = true;
+            } catch (IOException e) {
+                Logger.INSTANCE.logException(e, false);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Marks this workspace as being modified, i.e., a failing update leads to a full export next time.
+     *
+     * @throws IOException If removing the revision marker fails.
+     */
+    void invalidate() throws IOException {
+        Files.deleteIfExists(getStateFile(REVISION_SUFFIX).toPath());
+    }
+
+    /**
+     * Deletes all files of this workspace, e.g., before a full export.
+     *
+     * @throws IOException If deleting fails.
+     */
+    void clear() throws IOException {
+        invalidate();
+        manifest.clear();
+        FileUtils.deleteDirectory(dir);
+    }
+
+    /**
+     * Restores the exported state of this workspace. Files that are not in the manifest (e.g., left over by the
+     * tests of the previous revision) are deleted. Files that were modified (e.g., by the tests) are deleted and
+     * scheduled to be exported again.
+     *
+     * @param exporter The exporter to re-export modified files with.
+     * @param checkoutDir The checkout directory containing the groups.
+     * @throws IOException If walking or deleting the files fails.
+     */
+    void scrub(final Exporter exporter, final File checkoutDir) throws IOException {
+        final Path root = dir.toPath();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String path = toManifestPath(root.relativize(file));
+                String expected = manifest.getProperty(path);
+                if (null == expected) {
+                    Files.delete(file);
+                } else if (!expected.equals(toManifestValue(attrs))) {
+                    Files.delete(file);
+                    String repositoryPath = "/" + group + "/" + path;
+                    exporter.schedule(repositoryPath, new File(checkoutDir, repositoryPath));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path directory, IOException exc) throws IOException {
+                if (null == exc && !root.equals(directory)) {
+                    String[] children = directory.toFile().list();
+                    if (null != children && 0 == children.length) {
+                        Files.delete(directory);
+                    }
+                }
+                return super.postVisitDirectory(directory, exc);
+            }
+
+        });
+    }
+
+    /**
+     * Deletes a file or directory that was deleted in the repository.
+     *
+     * @param path The path relative to the group directory.
+     * @throws IOException If deleting fails.
+     */
+    void delete(String path) throws IOException {
+        File file = new File(dir, path);
+        if (file.isDirectory()) {
+            FileUtils.deleteDirectory(file);
+        } else {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    /**
+     * Records that this workspace reflects the given revision, i.e., stores the manifest of the current files
+     * and the revision marker. To be called after all files are exported and before the tests run.
+     *
+     * @param revision The revision.
+     * @throws IOException If storing the state fails.
+     */
+    void commit(long revision) throws IOException {
+        manifest.clear();
+        final Path root = dir.toPath();
+        if (dir.isDirectory()) {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    manifest.setProperty(toManifestPath(root.relativize(file)), toManifestValue(attrs));
+                    return FileVisitResult.CONTINUE;
+                }
+
+            });
+        }
+        store(getStateFile(MANIFEST_SUFFIX), manifest);
+        Properties state = new Properties();
+        state.setProperty("revision", String.valueOf(revision));
+        store(getStateFile(REVISION_SUFFIX), state);
+    }
+
+    /**
+     * Stores a state file atomically.
+     *
+     * @param file The file.
+     * @param properties The properties to store.
+     * @throws IOException If storing fails.
+     */
+    private static void store(File file, Properties properties) throws IOException {
+        File tmp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        try {
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                properties.store(out, null);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    /**
+     * Returns the path of a file as stored in the manifest.
+     *
+     * @param relPath The path relative to the group directory.
+     * @return The path using / as separator.
+     */
+    private static String toManifestPath(Path relPath) {
+        return relPath.toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Returns the attributes of a file as stored in the manifest.
+     *
+     * @param attrs The attributes of the file.
+     * @return The size and modification time.
+     */
+    private static String toManifestValue(BasicFileAttributes attrs) {
+        return attrs.size() + ":" + attrs.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * Releases the lock of this workspace.
+     *
+     * @throws IOException If releasing the lock fails.
+     */
+    @Override
+    public void close() throws IOException {
+        if (null != lockChannel) {
+            try {
+                lock.release();
+            } finally {
+                lockChannel.close();
+                lockChannel = null;
+                localLock.unlock();
+            }
+        }
+    }
+
+}
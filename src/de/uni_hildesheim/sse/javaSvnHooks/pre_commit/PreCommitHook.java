@@ -4,10 +4,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.nio.file.Path;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
 
 import org.tmatesoft.svn.core.SVNException;
@@ -16,6 +13,7 @@ import org.tmatesoft.svn.core.wc.admin.SVNLookClient;
 
 import de.uni_hildesheim.sse.javaSvnHooks.CommitHook;
 import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.export.Exporter;
 import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.Test;
 import de.uni_hildesheim.sse.javaSvnHooks.util.ExitCodes;
@@ -105,36 +103,26 @@ public class PreCommitHook extends CommitHook {
      */
     private void checkoutChangedFolders(PreCommitConfiguration configuration) throws SVNException {
         SVNLookClient client = new SVNLookClient((ISVNAuthenticationManager) null, null);
-        PreCommitSvnCatHandler handler = new PreCommitSvnCatHandler(configuration, client);
-        
-        client.doGetChanged(configuration.getRepository(), configuration.getTransaction(), handler, false);
-        
-        // Get affected PathConfigurations
-        Set<PathConfiguration> changedPCs = new HashSet<PathConfiguration>();
-        Iterator<PathConfiguration> pathConfigs = configuration.pathConfigurations();
-        while (pathConfigs.hasNext()) {
-            PathConfiguration pathConfig = pathConfigs.next();
-            for (String path : handler.getChangedFiles()) {
-                if (path.startsWith(pathConfig.getPath())) {
-                    changedPCs.add(pathConfig);
-                    break;
-                }
-            }
-        }
-        
-        configuration.setChangedPathConfigurations(changedPCs);
-        
-        // Do a complete checkout of the sub-folders inside the changed PathConfigurations
-        for (PathConfiguration config : changedPCs) {
-            File workingDir = new File(configuration.getCheckoutDir(), config.getPath());
-            Path checkoutDirPath = configuration.getCheckoutDir().toPath();
-            for (File f : workingDir.listFiles()) {
-                if (f.isDirectory()) {
-                    String repositoryPath = checkoutDirPath.relativize(f.toPath()).toString();
+        try (Exporter exporter = Exporter.create(configuration, Exporter.STRATEGY_SVNLOOK,
+                configuration.getRepository(), configuration.getTransaction(), null)) {
+            PreCommitSvnCatHandler handler = new PreCommitSvnCatHandler(configuration, exporter);
+            
+            client.doGetChanged(configuration.getRepository(), configuration.getTransaction(), handler, false);
+            exporter.finish();
+            
+            Set<PathConfiguration> changedPCs = determineChangedPathConfigurations(configuration,
+                handler.getChangedFiles());
+            
+            // Do a complete checkout of the (changed) groups inside the changed PathConfigurations
+            for (PathConfiguration config : changedPCs) {
+                for (String repositoryPath : getGroupPaths(configuration, config)) {
                     client.doGetTree(configuration.getRepository(),
                             repositoryPath, configuration.getTransaction(), false, true, handler);
                 }
             }
+            exporter.finish();
+        } catch (IOException e) {
+            Logger.INSTANCE.logException(e, false);
         }
     }
     
@@ -1,11 +1,6 @@
 package de.uni_hildesheim.sse.javaSvnHooks.pre_commit;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.lang.ProcessBuilder.Redirect;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -20,7 +15,7 @@ import org.tmatesoft.svn.core.wc.admin.SVNChangeEntry;
 import org.tmatesoft.svn.core.wc.admin.SVNLookClient;
 
 import de.uni_hildesheim.sse.javaSvnHooks.Configuration;
-import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+import de.uni_hildesheim.sse.javaSvnHooks.export.Exporter;
 
 /**
  * Implements a handler for {@link SVNLookClient#doGetChanged(java.io.File, String, ISVNChangeEntryHandler, boolean)}
@@ -31,7 +26,7 @@ import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
  */
 class PreCommitSvnCatHandler implements ISVNChangeEntryHandler, ISVNTreeHandler {
     
-    private SVNLookClient lookClient;
+    private Exporter exporter;
     
     private PreCommitConfiguration configuration;
     
@@ -39,100 +34,26 @@ class PreCommitSvnCatHandler implements ISVNChangeEntryHandler, ISVNTreeHandler
     
     /**
      * Creates an {@link PreCommitSvnCatHandler} that will write files to the checkoutDir of the configuration.
+     * The files are written when calling {@link Exporter#finish()}.
      * 
      * @param configuration The {@link Configuration} object.
-     * @param lookClient The {@link SVNLookClient} to get files from the repository.
+     * @param exporter The {@link Exporter} to get files from the repository.
      */
-    PreCommitSvnCatHandler(PreCommitConfiguration configuration, SVNLookClient lookClient) {
-        this.lookClient = lookClient;
+    PreCommitSvnCatHandler(PreCommitConfiguration configuration, Exporter exporter) {
+        this.exporter = exporter;
         this.configuration = configuration;
         changedFiles = new ArrayList<String>();
     }
     
     /**
-     * Checks out the given repository path using the <code>svnlook</code> utility program.
-     * 
-     * @param path The path inside the repository to check out.
-     * @param target The target file location to write the file to.
-     */
-    private void checkoutWithSvnlookProcess(String path, File target) {
-        
-        ProcessBuilder pb = new ProcessBuilder(
-            "/usr/bin/svnlook",
-            "cat",
-            "--transaction",
-            configuration.getTransaction(),
-            configuration.getRepository().getAbsolutePath(),
-            path
-        );
-        
-        pb.redirectOutput(target);
-        pb.redirectError(Redirect.PIPE);
-        
-        try {
-            Process proc = pb.start();
-            
-            BufferedReader stderrReader = new BufferedReader(new InputStreamReader(proc.getErrorStream()));
-            StringBuilder stderr = new StringBuilder();
-            String line;
-            while ((line = stderrReader.readLine()) != null) {
-                stderr.append(line);
-            }
-            
-            int result = proc.waitFor();
-            
-            if (result != 0) {
-                Logger.INSTANCE.log("WARNING: svnlook exited with " + result);
-                Logger.INSTANCE.log("svnlook stderr:\n" + stderr.toString());
-            }
-            
-        } catch (IOException | InterruptedException e) {
-            Logger.INSTANCE.logException(e, false);
-        }
-    }
-    
-    /**
-     * Checks out the given path in the repository using the svnkit library.
-     * <p>
-     * <b>Note:</b> There occurred a strange bug inside of svnkit, where checking out files in the pre-commit hook
-     * sometimes failed inexplicably. For this reason, {@link #checkoutWithSvnlookProcess(String, File)} was created
-     * as a replacement.
-     * 
-     * @param path The path inside the repository to check out.
-     * @param target The target file location to write the file to.
-     * 
-     * @throws SVNException If the checkout fails.
-     */
-    @SuppressWarnings("unused")
-    private void checkoutWithSvnkit(String path, File target) throws SVNException {
-        try (FileOutputStream fos = new FileOutputStream(target)) {
-            
-            lookClient.doCat(configuration.getRepository(), path, configuration.getTransaction(), fos);
-            
-        } catch (IOException e) {
-            Logger.INSTANCE.logException(e, false);
-        }
-    }
-
-    /**
-     * Checks out the given file in the repository to the checkout directory.
+     * Schedules the given file in the repository for export to the checkout directory.
      * 
      * @param path The path inside the repository.
-     * 
-     * @throws SVNException If checking out the file fails.
      */
-    private void writeFileToCheckoutDir(String path) throws SVNException {
+    private void writeFileToCheckoutDir(String path) {
         changedFiles.add(path);
         
-        File target = new File(configuration.getCheckoutDir(), path);
-        File dir = target.getParentFile();
-        if (!dir.isDirectory() && !dir.mkdirs()) {
-            Logger.INSTANCE.log("WARNING: Could not create directory " + dir);
-        }
-        
-//        checkoutWithSvnkit(path, target);
-        
-        checkoutWithSvnlookProcess(path, target);
+        exporter.schedule(path, new File(configuration.getCheckoutDir(), path));
     }
     
     @Override
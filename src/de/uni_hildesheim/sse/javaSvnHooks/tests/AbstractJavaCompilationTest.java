@@ -1,19 +1,19 @@
 package de.uni_hildesheim.sse.javaSvnHooks.tests;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
 import javax.tools.DiagnosticCollector;
-import javax.tools.JavaCompiler;
-import javax.tools.JavaCompiler.CompilationTask;
 import javax.tools.JavaFileObject;
-import javax.tools.StandardJavaFileManager;
 import javax.tools.ToolProvider;
 
+import de.uni_hildesheim.sse.javaSvnHooks.CompilationArtifacts;
 import de.uni_hildesheim.sse.javaSvnHooks.Configuration;
 import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
 import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
@@ -28,11 +28,35 @@ import de.uni_hildesheim.sse.javaSvnHooks.tests.javac.PrintDiagnostics;
  */
 public abstract class AbstractJavaCompilationTest extends AbstractJavaTest {
 
+    /**
+     * The name of the global property enabling the compilation within the hook
+     * process through the shared {@link JavaCompilerService} instead of an
+     * external <code>javac</code> process.
+     */
+    public static final String COMPILE_SERVICE_PROPERTY = "compileService";
+
     protected PathConfiguration pathConfiguration;
     protected Configuration configuration;
     protected File homeDir;
     protected List<String> params;
     
+    /**
+     * The directory the compiled classes are written to.
+     */
+    protected File outputDir;
+    
+    /**
+     * The classes of a previous compilation of the same sources with the same
+     * parameters, <b>null</b> if the sources must be compiled.
+     */
+    protected CompilationArtifacts compiled;
+    
+    /**
+     * Whether only the diagnostics of the compiler are of interest, i.e., the
+     * classes are not written to disk (see {@link #compilesInMemory()}).
+     */
+    protected boolean diagnosticsOnly;
+    
     @Override
     public int execute(PathConfiguration pathConfiguration) {
         // Settings
@@ -43,16 +67,147 @@ public abstract class AbstractJavaCompilationTest extends AbstractJavaTest {
          * server.
          */
         homeDir = pathConfiguration.getWorkingDir().getAbsoluteFile();
-
-        // Cleanup
-        deleteCompiledClasses(homeDir);
-        
-        // Compilation settings
         String binPath = getJavaBinaryPath(pathConfiguration);
-        params = readParams(pathConfiguration, homeDir, binPath, 
-            getCompileParamsToolName());
+        outputDir = null != binPath && binPath.length() > 0 ? new File(homeDir, binPath) : homeDir;
+        diagnosticsOnly = compilesInMemory();
+        if (reusesCompilation()) {
+            compiled = findCompilation(getCompilerParams(pathConfiguration, homeDir, binPath, 
+                getCompileParamsToolName()));
+        }
+        
+        if (null == compiled) {
+            // Cleanup
+            deleteCompiledClasses(homeDir);
+            
+            // Compilation settings
+            if (diagnosticsOnly) {
+                params = withoutOutputDir(getCompilerParams(pathConfiguration, homeDir, binPath, 
+                    getCompileParamsToolName()));
+            } else {
+                params = readParams(pathConfiguration, homeDir, binPath, 
+                    getCompileParamsToolName());
+            }
+            pathConfiguration.invalidateFileIndex();
+        } else {
+            Logger.INSTANCE.log("Reusing the classes in " + outputDir);
+        }
         
-        return executeCompilationTest();
+        int result = executeCompilationTest();
+        // compiled classes
+        pathConfiguration.invalidateFileIndex();
+        return result;
+    }
+    
+    /**
+     * Returns whether this test may use the classes of a previous compilation
+     * of the same sources with the same parameters (see {@link #compiled})
+     * instead of compiling the sources again.
+     * 
+     * @return <code>false</code>, to be overridden by tests which compile only
+     *     as a prerequisite of their actual check
+     */
+    protected boolean reusesCompilation() {
+        return false;
+    }
+    
+    /**
+     * Returns whether this test needs only the diagnostics of the compiler, 
+     * i.e., whether the sources shall be compiled in this application without
+     * writing classes or creating the output directory.
+     * 
+     * @return <code>false</code>, to be overridden by tests which check the
+     *     sources only
+     */
+    protected boolean compilesInMemory() {
+        return false;
+    }
+    
+    /**
+     * Removes the output directory from the compiler parameters.
+     * 
+     * @param options the compiler parameters
+     * @return the compiler parameters without <code>-d</code>
+     */
+    private static List<String> withoutOutputDir(List<String> options) {
+        List<String> result = new ArrayList<String>(options.size());
+        for (Iterator<String> iter = options.iterator(); iter.hasNext();) {
+            String option = iter.next();
+            if ("-d".equals(option) && iter.hasNext()) {
+                iter.next();
+            } else {
+                result.add(option);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the registered compilation of the current sources with the given
+     * parameters.
+     * 
+     * @param options the compiler parameters
+     * @return the matching compilation or <b>null</b>
+     */
+    private CompilationArtifacts findCompilation(List<String> options) {
+        CompilationArtifacts result = pathConfiguration.getCompilationArtifacts();
+        if (null != result) {
+            try {
+                if (result.matches(CompilationArtifacts.fingerprint(options, pathConfiguration.getJavaFiles()))) {
+                    params = options;
+                } else {
+                    result = null;
+                }
+            } catch (IOException e) {
+                Logger.INSTANCE.logException(e, false);
+                result = null;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Determines the fingerprint of compiling the given sources with {@link #params}
+     * and discards the compilation registered so far. Must be called before the 
+     * sources are compiled, i.e., the fingerprint must reflect the sources 
+     * actually being compiled.
+     * 
+     * @param javaFiles the compiled sources
+     * @return the fingerprint to be passed to {@link #registerCompilation(String)}
+     *     after the compilation succeeded, <b>null</b> if the sources cannot be
+     *     read
+     */
+    protected String fingerprintCompilation(Collection<File> javaFiles) {
+        String result = null;
+        pathConfiguration.setCompilationArtifacts(null);
+        try {
+            result = CompilationArtifacts.fingerprint(params, javaFiles);
+        } catch (IOException e) {
+            Logger.INSTANCE.logException(e, false);
+        }
+        return result;
+    }
+    
+    /**
+     * Registers the classes of a successful compilation at the path 
+     * configuration. Nothing is registered if the classes were not written
+     * to disk.
+     * 
+     * @param fingerprint the fingerprint determined by 
+     *     {@link #fingerprintCompilation(Collection)}, ignored if <b>null</b>
+     */
+    protected void registerCompilation(String fingerprint) {
+        if (null != fingerprint && !diagnosticsOnly) {
+            pathConfiguration.invalidateFileIndex();
+            String prefix = outputDir.getAbsolutePath() + File.separator;
+            List<File> classFiles = new ArrayList<File>();
+            for (File file : pathConfiguration.getFileIndex().getFiles("class")) {
+                if (file.getAbsolutePath().startsWith(prefix)) {
+                    classFiles.add(file);
+                }
+            }
+            pathConfiguration.setCompilationArtifacts(new CompilationArtifacts(outputDir, 
+                getClasspath(pathConfiguration, getCompileParamsToolName(), false), fingerprint, classFiles));
+        }
     }
     
     /**
@@ -91,8 +246,177 @@ public abstract class AbstractJavaCompilationTest extends AbstractJavaTest {
         return pathConfiguration.getBooleanProperty(getToolName() + "_post", false);
     }
 
+    /**
+     * Compiles the given sources, incrementally if enabled for the hook (see
+     * {@link IncrementalCompilation#PROPERTY}).
+     * 
+     * @param srcPath The source path.
+     * @param javaFiles The sources.
+     * @return The result of the compiler (0 denotes success).
+     * @throws IOException if an I/O error occurred
+     * @throws InterruptedException if interrupted while waiting for the compiler
+     */
+    protected int compile(String srcPath, Collection<File> javaFiles) throws IOException, InterruptedException {
+        int result;
+        IncrementalCompilation incremental = diagnosticsOnly ? null 
+            : IncrementalCompilation.getInstance(pathConfiguration, getClass().getName(), outputDir);
+        if (null == incremental) {
+            result = compileSources(srcPath, javaFiles);
+        } else {
+            try {
+                result = compileIncrementally(incremental, srcPath, javaFiles);
+            } finally {
+                incremental.close();
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Compiles only the changed sources and the sources depending on them
+     * if possible, the classes of the remaining sources are reused from the
+     * previous compilation. Falls back to compiling all sources if the 
+     * incremental compilation fails or produces any output, i.e., the
+     * messages of the compiler are always those of a full compilation.
+     * 
+     * @param incremental The locked state of the incremental compilation.
+     * @param srcPath The source path.
+     * @param javaFiles The sources.
+     * @return The result of the compiler (0 denotes success).
+     * @throws IOException if an I/O error occurred
+     * @throws InterruptedException if interrupted while waiting for the compiler
+     */
+    private int compileIncrementally(IncrementalCompilation incremental, String srcPath, 
+        Collection<File> javaFiles) throws IOException, InterruptedException {
+        String options = incremental.getOptionsKey(getCompilerId(), params);
+        List<File> changed = incremental.reuseClasses(options, javaFiles);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int result = -1;
+        if (null != changed) {
+            List<String> allParams = params;
+            params = prependToClasspath(allParams, outputDir.getAbsolutePath());
+            try {
+                result = changed.isEmpty() ? 0 : compileSources(srcPath, changed, output);
+            } finally {
+                params = allParams;
+            }
+            if (0 != result || output.size() > 0) {
+                Logger.INSTANCE.log("Incremental compilation not possible, compiling all sources");
+                deleteCompiledClasses(outputDir);
+                output.reset();
+                result = -1;
+            }
+        }
+        if (result < 0) {
+            result = compileSources(srcPath, javaFiles, output);
+            configuration.getTestOutputStream().write(output.toByteArray());
+            configuration.getTestOutputStream().flush();
+        }
+        if (0 == result && 0 == output.size()) {
+            incremental.update(options, javaFiles);
+        } else {
+            incremental.discard();
+        }
+        return result;
+    }
+    
+    /**
+     * Compiles the given sources and captures the output of the compiler.
+     * 
+     * @param srcPath The source path.
+     * @param javaFiles The sources.
+     * @param output Receives the output of the compiler.
+     * @return The result of the compiler (0 denotes success).
+     * @throws IOException if an I/O error occurred
+     * @throws InterruptedException if interrupted while waiting for the compiler
+     */
+    private int compileSources(String srcPath, Collection<File> javaFiles, ByteArrayOutputStream output) 
+        throws IOException, InterruptedException {
+        int result;
+        PrintStream previous = configuration.bindTestOutputStream(new PrintStream(output, true));
+        try {
+            result = compileSources(srcPath, javaFiles);
+        } finally {
+            configuration.bindTestOutputStream(previous);
+        }
+        return result;
+    }
+    
+    /**
+     * Compiles the given sources at the command line or in this application
+     * (see {@link #shouldCompileAtCommandLine()}) as soon as the 
+     * {@link CompileScheduler} admits the compilation.
+     * 
+     * @param srcPath The source path.
+     * @param javaFiles The sources.
+     * @return The result of the compiler (0 denotes success).
+     * @throws IOException if an I/O error occurred
+     * @throws InterruptedException if interrupted while waiting for the compiler
+     */
+    private int compileSources(String srcPath, Collection<File> javaFiles) 
+        throws IOException, InterruptedException {
+        int result;
+        CompileScheduler.Permit permit = CompileScheduler.INSTANCE.acquire(configuration, javaFiles);
+        try {
+            if (shouldCompileAtCommandLine()) {
+                List<String> files = findJavaFilesList(srcPath, javaFiles);
+                result = compiliationAtComandLine(pathConfiguration, files);
+            } else {
+                result = compileInJava(javaFiles);
+            }
+        } finally {
+            permit.release();
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the compiler parameters with an additional class path entry
+     * in front of the class path.
+     * 
+     * @param options The compiler parameters.
+     * @param entry The class path entry.
+     * @return The modified compiler parameters.
+     */
+    private static List<String> prependToClasspath(List<String> options, String entry) {
+        List<String> result = new ArrayList<String>(options);
+        boolean found = false;
+        for (int i = 0; !found && i + 1 < result.size(); i++) {
+            String option = result.get(i);
+            if ("-classpath".equals(option) || "-cp".equals(option) || "--class-path".equals(option)) {
+                result.set(i + 1, entry + File.pathSeparator + result.get(i + 1));
+                found = true;
+            }
+        }
+        if (!found) {
+            result.add(0, "-classpath");
+            result.add(1, entry);
+        }
+        return result;
+    }
+    
+    /**
+     * Identifies the compiler used by {@link #compile(String, Collection)}, 
+     * e.g., for caching compilation results.
+     * 
+     * @return The identification of the compiler.
+     */
+    protected String getCompilerId() {
+        String result;
+        if (shouldCompileAtCommandLine()) {
+            String javac = pathConfiguration.prefixJava("javac");
+            File javacFile = new File(javac);
+            result = javac + ":" + javacFile.lastModified() + ":" + System.getenv("PATH");
+        } else {
+            result = (diagnosticsOnly ? "in-memory:" : "in-process:") + System.getProperty("java.vm.vendor") + ":" 
+                + System.getProperty("java.runtime.version");
+        }
+        return result;
+    }
+
     /**
      * Compiles the given set of Java source files inside this java application.
+     * If {@link #diagnosticsOnly}, the classes are discarded.
      * <br/>
      * Alternatively, {@link #compiliationAtComandLine(StringBuffer)} can
      * be used, if {@link ToolProvider#getSystemJavaCompiler()} is returning
@@ -105,22 +429,19 @@ public abstract class AbstractJavaCompilationTest extends AbstractJavaTest {
      */
     protected int compileInJava(Collection<File> javaFiles) throws IOException {
         
-        JavaCompiler tool = ToolProvider.getSystemJavaCompiler();
-        StandardJavaFileManager manager = 
-            tool.getStandardFileManager(null, null, null);
-        Iterable<? extends JavaFileObject> units;
-        units = manager.getJavaFileObjectsFromFiles(javaFiles);
         DiagnosticCollector<JavaFileObject> diagnostics = 
             new DiagnosticCollector<JavaFileObject>();
-        CompilationTask task = tool.getTask(null, manager, 
-            diagnostics, params, null, units);
-        
-        int result = task.call() ? 0 : 1;
+        boolean success;
+        if (diagnosticsOnly) {
+            success = JavaCompilerService.INSTANCE.check(javaFiles, params, diagnostics);
+        } else {
+            success = JavaCompilerService.INSTANCE.compile(javaFiles, params, diagnostics);
+        }
+        int result = success ? 0 : 1;
         
         PrintDiagnostics.printDiagnostics(configuration.getTestOutputStream(), diagnostics,
-            configuration.produceXmlOutput());
+            configuration.produceXmlOutput(), pathConfiguration);
         
-        manager.close();
         return result;
     }
 
@@ -144,10 +465,7 @@ public abstract class AbstractJavaCompilationTest extends AbstractJavaTest {
         
         Runtime runtime = Runtime.getRuntime();
         String[] env = new String[0];
-        JavacTestFilter filter = null;
-        if (config.getGlobalConfiguration().produceXmlOutput()) {
-            filter = new JavacTestFilter(config);
-        }
+        JavacTestFilter filter = new JavacTestFilter(config, homeDir);
         
         List<String> cmdList = new ArrayList<String>();
         cmdList.add(config.prefixJava("javac"));
@@ -160,15 +478,17 @@ public abstract class AbstractJavaCompilationTest extends AbstractJavaTest {
     
     /**
      * Checks whether Java source code files should be compile at command line
-     * or inside this application.
+     * or inside this application. The {@link #COMPILE_SERVICE_PROPERTY compile
+     * service} and {@link #diagnosticsOnly} override <code>nativeTestThreads</code>.
      * @return <tt>true</tt> if the settings specified that java source code
      * files should be compiled outside of this application or if the Java
      * compiler could not be found (e.g. JAVA_HOME is not pointing to the JDK),
      * <tt>false</tt> otherwise.
      */
     protected boolean shouldCompileAtCommandLine() {
-        boolean runNative = configuration.getBooleanProperty("nativeTestThreads", true);
-        boolean hasNoCompiler = null == ToolProvider.getSystemJavaCompiler();
+        boolean runNative = !diagnosticsOnly && !configuration.getBooleanProperty(COMPILE_SERVICE_PROPERTY, false)
+            && configuration.getBooleanProperty("nativeTestThreads", true);
+        boolean hasNoCompiler = null == JavaCompilerService.INSTANCE.getCompiler();
         
         return runNative || (hasNoCompiler && !runNative);
     }
@@ -180,7 +500,7 @@ public abstract class AbstractJavaCompilationTest extends AbstractJavaTest {
      */
     protected StringBuffer findJavaFiles(String srcPath) {
         StringBuffer files = new StringBuffer();
-        findJavaFilesImpl(srcPath, files, null);
+        findJavaFilesImpl(srcPath, pathConfiguration.getJavaFiles(), files, null);
         return files;
     }
 
@@ -190,19 +510,32 @@ public abstract class AbstractJavaCompilationTest extends AbstractJavaTest {
      * @return list of java source code files.
      */
     protected List<String> findJavaFilesList(String srcPath) {
+        return findJavaFilesList(srcPath, pathConfiguration.getJavaFiles());
+    }
+
+    /**
+     * Turns the given Java source code files into paths relative to the
+     * given dir (<tt>srcPath</tt>).
+     * @param srcPath The location of the Java source code files.
+     * @param javaFiles The Java source code files.
+     * @return list of java source code files.
+     */
+    protected List<String> findJavaFilesList(String srcPath, Collection<File> javaFiles) {
         List<String> result = new ArrayList<String>();
-        findJavaFilesImpl(srcPath, null, result);
+        findJavaFilesImpl(srcPath, javaFiles, null, result);
         return result;
     }
 
     /**
      * Finds all Java source code files in the given dir (<tt>srcPath</tt>).
      * @param srcPath The location of the Java source code files.
+     * @param javaFiles The Java source code files.
      * @param files the string buffer to fill if given (separated by whitespaces)
      * @param filesList a list of strings to fill
      */
-    private void findJavaFilesImpl(String srcPath, StringBuffer files, List<String> filesList) {
-        for (Iterator<File> iter = pathConfiguration.getJavaFiles().iterator(); 
+    private void findJavaFilesImpl(String srcPath, Collection<File> javaFiles, StringBuffer files, 
+        List<String> filesList) {
+        for (Iterator<File> iter = javaFiles.iterator(); 
             iter.hasNext();) {
             String javaFile = iter.next().toString();
     
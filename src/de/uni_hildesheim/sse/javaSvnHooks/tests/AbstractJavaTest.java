@@ -135,8 +135,7 @@ public abstract class AbstractJavaTest extends Test {
         /*String params = pathConfiguration.getClasspathProperty();
         params = appendLibDirsToClasspath(params, pathConfiguration,
             keyPrefix);
-        String testEnvClasspath = pathConfiguration.getGlobalConfiguration().
-            getTestEnvValue(TestEnvKey.CLASSPATH);
+        String testEnvClasspath = pathConfiguration.getTestEnvValue(TestEnvKey.CLASSPATH);
         if (null != testEnvClasspath) {
             params = appendToClasspath(params, testEnvClasspath);
         }
@@ -279,7 +278,8 @@ public abstract class AbstractJavaTest extends Test {
     }
 
     /**
-     * Appends libraries to the specified <code>classpath</code>.
+     * Appends libraries to the specified <code>classpath</code>. The
+     * libraries are resolved via the {@link ClasspathResolver}.
      * 
      * @param classpath the classpath to which the libraries should be
      *        appended
@@ -291,46 +291,16 @@ public abstract class AbstractJavaTest extends Test {
      */
     protected static String appendLibDirsToClasspath(String classpath, 
         PathConfiguration pathConfiguration, String keyPrefix) {
-        String libDir = 
-            pathConfiguration.getStringProperty(keyPrefix + ".libDir", "");
-        if (libDir.length() > 0) {
-            File homeDir = new File(pathConfiguration.getWorkingDir(), libDir);
-            StringBuffer buf = new StringBuffer(classpath);
-            enumJars(homeDir, buf);
-            classpath = appendToClasspath(classpath, buf.toString());
+        ClasspathResolver.LibraryPath libs = 
+            ClasspathResolver.INSTANCE.resolve(pathConfiguration, keyPrefix);
+        if (null != libs) {
+            classpath = appendToClasspath(classpath, libs.getClasspath());
             if (classpath.length() > 0 && !classpath.startsWith(".")) {
                 classpath = "." + File.separator + classpath;
             }
         }
         return classpath;
     }
-    
-    /**
-     * Enumerates all jar files in the specified directory and adds them
-     * as fully qualified paths.
-     * 
-     * @param dir the file/directory where to start
-     * @param result the string buffer to be modified as a side effect
-     * 
-     * @since 1.00
-     */
-    protected static void enumJars(File dir, StringBuffer result) {
-        File[] dirs = dir.listFiles();
-        if (null != dirs) {
-            for (File f : dirs) {
-                if (f.isDirectory()) {
-                    enumJars(f, result);
-                } else {
-                    if (f.getName().endsWith(".jar")) {
-                        if (result.length() > 0) {
-                            result.append(File.pathSeparator);
-                        }
-                        result.append(f.getAbsolutePath());
-                    }
-                }
-            }
-        }
-    }
 
     /**
      * Returns the binary path for java tests. 
@@ -343,8 +313,7 @@ public abstract class AbstractJavaTest extends Test {
      */
     protected String getJavaBinaryPath(PathConfiguration pathConfiguration) {
         String result = null;
-        String testEnv = pathConfiguration.getGlobalConfiguration().
-            getTestEnvValue(TestEnvKey.BIN);
+        String testEnv = pathConfiguration.getTestEnvValue(TestEnvKey.BIN);
         if (null != testEnv && testEnv.length() > 0) {
             result = testEnv;
         }
@@ -371,8 +340,7 @@ public abstract class AbstractJavaTest extends Test {
      */
     protected String getJavaSourcePath(PathConfiguration pathConfiguration) {
         String result = null;
-        String testEnv = pathConfiguration.getGlobalConfiguration().
-            getTestEnvValue(TestEnvKey.SRC);
+        String testEnv = pathConfiguration.getTestEnvValue(TestEnvKey.SRC);
         if (null != testEnv && testEnv.length() > 0) {
             result = testEnv;
         } else {
@@ -475,7 +443,6 @@ public abstract class AbstractJavaTest extends Test {
     protected List<String> readParams(PathConfiguration pathConfiguration,
         File homeDir, String binPath, String keyPrefix) {
             
-        List<String> result = getJavaParam(pathConfiguration, keyPrefix, false);
         if (null != binPath && binPath.length() > 0) {
             File binPathFile = new File(homeDir, binPath);
             if (!binPathFile.exists()) {
@@ -484,8 +451,26 @@ public abstract class AbstractJavaTest extends Test {
                 FileUtils.deleteQuietly(binPathFile);
                 binPathFile.mkdirs();
             }
+        }
+        return getCompilerParams(pathConfiguration, homeDir, binPath, keyPrefix);
+    }
+
+    /**
+     * Determines the parameters for the javac compiler as {@link #readParams(PathConfiguration, File, String,
+     * String)}, but without preparing the bin path.
+     * @param pathConfiguration the configuration to be considered
+     * @param homeDir The directory of the committed project.
+     * @param keyPrefix the key prefix denoting the name of the checker
+     * @param binPath the bin path from the dynamic environment; if not
+     *        <code>null</code> then it is used as output directory
+     * @return the compiled Java command line parameters
+     */
+    protected List<String> getCompilerParams(PathConfiguration pathConfiguration,
+        File homeDir, String binPath, String keyPrefix) {
+        List<String> result = getJavaParam(pathConfiguration, keyPrefix, false);
+        if (null != binPath && binPath.length() > 0) {
             result.add("-d");
-            result.add(binPathFile.getAbsolutePath());
+            result.add(new File(homeDir, binPath).getAbsolutePath());
         }
         return result;
     }
@@ -0,0 +1,219 @@
+package de.uni_hildesheim.sse.javaSvnHooks.tests;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
+
+/**
+ * Resolves the jar files in the library directories of the tools (<code><i>keyPrefix</i>.libDir</code>)
+ * and remembers them across tests, groups and commits handled by this process. Typically, several tests
+ * of a group and all groups of a course refer to the same library directories, i.e., the directory tree
+ * is listed once and the resolved classpath is reused as long as the tree is not modified. Adding,
+ * removing or renaming a jar file or a directory changes the modification time of the containing
+ * directory, thus, a resolved library directory is valid as long as the modification times of all its
+ * directories are unchanged.
+ * <p>
+ * Library directories may be located in the per-run working directories of the groups. Thus, the number
+ * of remembered library directories is bounded (least recently used first) and library directories which
+ * do not exist anymore are forgotten.
+ */
+public class ClasspathResolver {
+
+    /**
+     * The shared instance.
+     */
+    public static final ClasspathResolver INSTANCE = new ClasspathResolver();
+
+    /**
+     * The maximum number of remembered library directories.
+     */
+    public static final int MAX_ENTRIES = 64;
+
+    @SuppressWarnings("serial")
+    private Map<File, LibraryPath> cache = new LinkedHashMap<File, LibraryPath>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<File, LibraryPath> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+
+    };
+
+    /**
+     * The jar files in a library directory.
+     */
+    public static class LibraryPath {
+
+        private List<Path> jars;
+        private List<String> entries;
+        private String classpath;
+        private Map<File, Long> directories;
+
+        /**
+         * Creates a resolved library directory.
+         *
+         * @param jars the jar files
+         * @param directories the directories of the library directory with their modification times
+         */
+        private LibraryPath(List<Path> jars, Map<File, Long> directories) {
+            List<String> entries = new ArrayList<String>(jars.size());
+            String classpath = "";
+            for (Path jar : jars) {
+                String entry = jar.toString();
+                entries.add(entry);
+                classpath = JavaClasspath.appendToClasspath(classpath, entry);
+            }
+            this.jars = Collections.unmodifiableList(jars);
+            this.entries = Collections.unmodifiableList(entries);
+            this.classpath = classpath;
+            this.directories = directories;
+        }
+
+        /**
+         * Returns the jar files.
+         *
+         * @return the absolute paths of the jar files (immutable)
+         */
+        public List<Path> getJars() {
+            return jars;
+        }
+
+        /**
+         * Returns the jar files as classpath entries.
+         *
+         * @return the absolute paths of the jar files (immutable)
+         */
+        public List<String> getEntries() {
+            return entries;
+        }
+
+        /**
+         * Returns the jar files as classpath.
+         *
+         * @return the jar files separated by the path separator, empty if there are no jar files
+         */
+        public String getClasspath() {
+            return classpath;
+        }
+
+        /**
+         * Returns whether the library directory was modified since it was resolved.
+         *
+         * @return <code>true</code> if it was modified, <code>false</code> else
+         */
+        private boolean isModified() {
+            boolean modified = false;
+            for (Map.Entry<File, Long> entry : directories.entrySet()) {
+                if (!modified && entry.getKey().lastModified() != entry.getValue()) {
+                    modified = true;
+                }
+            }
+            return modified;
+        }
+
+    }
+
+    /**
+     * Creates the resolver. Use {@link #INSTANCE}.
+     */
+    private ClasspathResolver() {
+    }
+
+    /**
+     * Returns the jar files in the library directory of the given tool.
+     *
+     * @param pathConfiguration the configuration to be considered
+     * @param keyPrefix the key prefix denoting the name of the tool
+     * @return the jar files, <b>null</b> if no library directory is configured
+     */
+    public LibraryPath resolve(PathConfiguration pathConfiguration, String keyPrefix) {
+        LibraryPath result = null;
+        String libDir = pathConfiguration.getStringProperty(keyPrefix + ".libDir", "");
+        if (libDir.length() > 0) {
+            result = resolve(new File(pathConfiguration.getWorkingDir(), libDir).getAbsoluteFile());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the jar files in the given library directory.
+     *
+     * @param dir the library directory (absolute)
+     * @return the jar files
+     */
+    public LibraryPath resolve(File dir) {
+        LibraryPath result;
+        synchronized (cache) {
+            result = cache.get(dir);
+        }
+        if (null == result || result.isModified()) {
+            List<Path> jars = new ArrayList<Path>();
+            Map<File, Long> directories = new LinkedHashMap<File, Long>();
+            enumJars(dir, jars, directories);
+            result = new LibraryPath(jars, directories);
+            synchronized (cache) {
+                removeDeleted();
+                if (dir.isDirectory()) {
+                    cache.put(dir, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forgets the library directories which do not exist anymore, e.g., as they were located in a
+     * working directory which was deleted after the run. Call only when synchronized on {@link #cache}.
+     */
+    private void removeDeleted() {
+        for (Iterator<File> iter = cache.keySet().iterator(); iter.hasNext();) {
+            if (!iter.next().isDirectory()) {
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of remembered library directories.
+     *
+     * @return the number of library directories
+     */
+    public int size() {
+        int result;
+        synchronized (cache) {
+            removeDeleted();
+            result = cache.size();
+        }
+        return result;
+    }
+
+    /**
+     * Enumerates all jar files in the specified directory.
+     *
+     * @param dir the directory where to start
+     * @param jars the jar files found so far, modified as a side effect
+     * @param directories the directories visited so far with their modification times (taken before
+     *     listing, so that concurrent modifications are detected), modified as a side effect
+     */
+    private static void enumJars(File dir, List<Path> jars, Map<File, Long> directories) {
+        directories.put(dir, dir.lastModified());
+        File[] files = dir.listFiles();
+        if (null != files) {
+            for (File f : files) {
+                if (f.isDirectory()) {
+                    enumJars(f, jars, directories);
+                } else if (f.getName().endsWith(".jar")) {
+                    jars.add(f.getAbsoluteFile().toPath());
+                }
+            }
+        }
+    }
+
+}
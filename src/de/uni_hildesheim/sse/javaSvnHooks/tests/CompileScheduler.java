@@ -0,0 +1,153 @@
+package de.uni_hildesheim.sse.javaSvnHooks.tests;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.concurrent.Semaphore;
+
+import de.uni_hildesheim.sse.javaSvnHooks.Configuration;
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+
+/**
+ * Limits the compilations running concurrently in this process, e.g., when several groups are tested in
+ * parallel (see <code>groupThreads</code>) or the hook daemon serves several commits at once. A compilation
+ * occupies one of a bounded number of compiler slots and an estimated amount of a memory budget, i.e.,
+ * a group waits until a slot and enough memory are free. The compilation is executed on the thread of
+ * the group, so that the output of the compiler goes to the output stream bound to the group.
+ * <p>
+ * The limits are taken from the configuration of the first scheduled compilation and apply to the
+ * whole process.
+ */
+public class CompileScheduler {
+
+    /**
+     * The hook property specifying the maximum number of compilations running concurrently, by default
+     * the number of processors.
+     */
+    public static final String THREADS_PROPERTY = "compileThreads";
+
+    /**
+     * The hook property specifying the memory budget of the concurrent compilations in MB, by default
+     * the maximum heap size of the hook.
+     */
+    public static final String MEMORY_PROPERTY = "compileMemoryBudget";
+
+    /**
+     * The shared instance.
+     */
+    public static final CompileScheduler INSTANCE = new CompileScheduler();
+
+    private static final long MB = 1024L * 1024L;
+
+    /**
+     * The estimated memory of a compilation independent of the sources, in MB.
+     */
+    private static final int BASE_MEMORY = 32;
+
+    /**
+     * The estimated memory per byte of source code.
+     */
+    private static final int MEMORY_PER_SOURCE_BYTE = 64;
+
+    private Semaphore slots;
+    private Semaphore memory;
+    private int budget;
+
+    /**
+     * A compilation admitted by the scheduler, to be {@link #release() released} when the compilation
+     * terminated.
+     */
+    public class Permit {
+
+        private int megabytes;
+
+        /**
+         * Creates a permit.
+         *
+         * @param megabytes The memory reserved for the compilation.
+         */
+        private Permit(int megabytes) {
+            this.megabytes = megabytes;
+        }
+
+        /**
+         * Releases the slot and the memory of the compilation.
+         */
+        public void release() {
+            memory.release(megabytes);
+            slots.release();
+        }
+
+    }
+
+    /**
+     * Creates the scheduler. Use {@link #INSTANCE}.
+     */
+    private CompileScheduler() {
+    }
+
+    /**
+     * Creates a scheduler with fixed limits, e.g., for testing. Use {@link #INSTANCE} for the compilations of
+     * the hook.
+     *
+     * @param threads The maximum number of compilations running concurrently.
+     * @param megabytes The memory budget of the concurrent compilations in MB.
+     */
+    public CompileScheduler(int threads, int megabytes) {
+        budget = Math.max(BASE_MEMORY, megabytes);
+        slots = new Semaphore(Math.max(1, threads), true);
+        memory = new Semaphore(budget, true);
+    }
+
+    /**
+     * Creates the limits on first use.
+     *
+     * @param configuration The configuration of the hook.
+     */
+    private synchronized void initialize(Configuration configuration) {
+        if (null == slots) {
+            int threads = Math.max(1, configuration.getIntProperty(THREADS_PROPERTY,
+                Runtime.getRuntime().availableProcessors()));
+            budget = Math.max(BASE_MEMORY, configuration.getIntProperty(MEMORY_PROPERTY,
+                (int) (Runtime.getRuntime().maxMemory() / MB)));
+            slots = new Semaphore(threads, true);
+            memory = new Semaphore(budget, true);
+            Logger.INSTANCE.log("Compiling with up to " + threads + " threads within " + budget + " MB");
+        }
+    }
+
+    /**
+     * Waits until the given sources may be compiled.
+     *
+     * @param configuration The configuration of the hook.
+     * @param javaFiles The sources to be compiled.
+     * @return The permit to be released after compiling.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public Permit acquire(Configuration configuration, Collection<File> javaFiles) throws InterruptedException {
+        initialize(configuration);
+        int megabytes = Math.min(budget, estimateMemory(javaFiles));
+        slots.acquire();
+        try {
+            memory.acquire(megabytes);
+        } catch (InterruptedException e) {
+            slots.release();
+            throw e;
+        }
+        return new Permit(megabytes);
+    }
+
+    /**
+     * Estimates the memory needed for compiling the given sources.
+     *
+     * @param javaFiles The sources.
+     * @return The estimated memory in MB.
+     */
+    static int estimateMemory(Collection<File> javaFiles) {
+        long bytes = 0;
+        for (File file : javaFiles) {
+            bytes += file.length();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, BASE_MEMORY + bytes * MEMORY_PER_SOURCE_BYTE / MB);
+    }
+
+}
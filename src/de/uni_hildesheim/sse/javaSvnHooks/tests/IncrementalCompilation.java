@@ -0,0 +1,664 @@
+package de.uni_hildesheim.sse.javaSvnHooks.tests;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.io.FileUtils;
+
+import de.uni_hildesheim.sse.javaSvnHooks.Configuration;
+import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+import de.uni_hildesheim.sse.javaSvnHooks.util.ClassFileInfo;
+
+/**
+ * The state of the incremental compilation of the Java sources of a group, kept below the temporary
+ * directory across revisions: the contents of the sources of the last successful compilation, the classes
+ * created from each source and the dependencies between the sources derived from the constant pools of the
+ * classes. For a new revision, only the changed sources and the sources depending on them (transitively)
+ * must be compiled, the classes of all other sources are restored from the previous compilation.
+ * <p>
+ * A full compilation is required if there is no state, the compiler or its parameters changed or a changed
+ * or removed source declares compile-time constants, as these are inlined by the compiler without leaving
+ * a reference in the using classes. The state is only recorded for compilations without any output of the
+ * compiler, so that warnings of unchanged sources are never suppressed. The state of a group is locked while
+ * it is used, i.e., concurrent hooks compiling the same group wait for each other. The state is kept per
+ * compiling test, path configuration and group within the checkout.
+ */
+public class IncrementalCompilation implements Closeable {
+
+    /**
+     * The hook property enabling the incremental compilation.
+     */
+    public static final String PROPERTY = "incrementalJavac";
+
+    private static final String DIR = "incrementalJavac";
+    private static final String STATE_FILE = "state";
+    private static final String CLASSES_DIR = "classes";
+    private static final String LOCK_FILE = "lock";
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String SEPARATOR = "\t";
+
+    private static final String OPTIONS = "O";
+    private static final String SOURCE = "S";
+    private static final String CLASS = "C";
+    private static final String DEPENDENCY = "D";
+    private static final String CONSTANTS = "K";
+
+    /**
+     * The locks of the states within this JVM, as file locks are held on behalf of the whole JVM.
+     */
+    private static final Map<String, ReentrantLock> LOCKS = new HashMap<String, ReentrantLock>();
+
+    private File stateDir;
+    private File workingDir;
+    private File outputDir;
+    private Map<String, String> hashes = new HashMap<String, String>();
+
+    private ReentrantLock localLock;
+    private FileChannel lockChannel;
+    private FileLock lock;
+
+    /**
+     * The state of the previous compilation.
+     */
+    private static class State {
+
+        private String options;
+        private Map<String, String> sources = new HashMap<String, String>();
+        private Map<String, List<String>> classes = new HashMap<String, List<String>>();
+        private Map<String, Set<String>> dependents = new HashMap<String, Set<String>>();
+        private Set<String> constants = new HashSet<String>();
+
+    }
+
+    /**
+     * Creates an incremental compilation. Call {@link #lock()} before using it.
+     *
+     * @param stateDir The directory of the state.
+     * @param workingDir The working directory of the group.
+     * @param outputDir The directory the classes are written to.
+     */
+    private IncrementalCompilation(File stateDir, File workingDir, File outputDir) {
+        this.stateDir = stateDir;
+        this.workingDir = workingDir.getAbsoluteFile();
+        this.outputDir = outputDir.getAbsoluteFile();
+    }
+
+    /**
+     * Returns the locked incremental compilation of the given test for the group of the given configuration.
+     * Each test has an own state, as the tests compile with different parameters.
+     *
+     * @param pathConfiguration The configuration of the group.
+     * @param test Identifies the compiling test, e.g., its class name.
+     * @param outputDir The directory the classes are written to.
+     * @return The incremental compilation to be closed after compiling, <code>null</code> if the incremental
+     *     compilation is not enabled.
+     * @throws IOException If locking the state fails.
+     */
+    public static IncrementalCompilation getInstance(PathConfiguration pathConfiguration, String test,
+        File outputDir) throws IOException {
+        IncrementalCompilation result = null;
+        Configuration configuration = pathConfiguration.getGlobalConfiguration();
+        if (configuration.getBooleanProperty(PROPERTY, false)) {
+            String key = test + '\u0000' + pathConfiguration.getName() + '\u0000' + getGroup(pathConfiguration);
+            File stateDir = new File(new File(configuration.getTempDir(), DIR),
+                hash(key.getBytes(StandardCharsets.UTF_8))).getAbsoluteFile();
+            result = new IncrementalCompilation(stateDir, pathConfiguration.getWorkingDir(), outputDir);
+            result.lock();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the group of a configuration, i.e., the path of its working directory within the checkout
+     * directory, which differs for each transaction, or the absolute working directory if it is not located
+     * within the checkout directory.
+     *
+     * @param pathConfiguration The configuration of the group.
+     * @return The group.
+     */
+    private static String getGroup(PathConfiguration pathConfiguration) {
+        Path workingDir = pathConfiguration.getWorkingDir().getAbsoluteFile().toPath().normalize();
+        File checkoutDir = pathConfiguration.getGlobalConfiguration().getCheckoutDir();
+        String result = workingDir.toString();
+        if (null != checkoutDir) {
+            Path checkout = checkoutDir.getAbsoluteFile().toPath().normalize();
+            if (workingDir.startsWith(checkout)) {
+                result = checkout.relativize(workingDir).toString().replace(File.separatorChar, '/');
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Locks the state, waits until other processes released it.
+     *
+     * @throws IOException If locking fails.
+     */
+    private void lock() throws IOException {
+        if (!stateDir.isDirectory() && !stateDir.mkdirs() && !stateDir.isDirectory()) {
+            throw new IOException("Can't create " + stateDir);
+        }
+        File lockFile = new File(stateDir, LOCK_FILE);
+        synchronized (LOCKS) {
+            localLock = LOCKS.get(lockFile.getPath());
+            if (null == localLock) {
+                localLock = new ReentrantLock();
+                LOCKS.put(lockFile.getPath(), localLock);
+            }
+        }
+        localLock.lock();
+        try {
+            lockChannel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            lock = lockChannel.lock();
+        } catch (IOException e) {
+            if (null != lockChannel) {
+                lockChannel.close();
+                lockChannel = null;
+            }
+            localLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Calculates the key of the compiler and its parameters. Archives on the class path are considered by
+     * their sizes and modification times.
+     *
+     * @param compiler Identifies the compiler, e.g., its version.
+     * @param options The compiler parameters.
+     * @return The key.
+     */
+    public String getOptionsKey(String compiler, List<String> options) {
+        StringBuilder key = new StringBuilder(compiler);
+        for (Iterator<String> iter = options.iterator(); iter.hasNext();) {
+            String option = iter.next();
+            key.append('\u0000').append(relativize(option));
+            if (("-classpath".equals(option) || "-cp".equals(option)) && iter.hasNext()) {
+                String classpath = iter.next();
+                key.append('\u0000').append(relativize(classpath));
+                for (String entry : classpath.split(File.pathSeparator)) {
+                    File file = new File(entry);
+                    if (file.isFile()) {
+                        key.append('\u0000').append(file.length()).append(':').append(file.lastModified());
+                    }
+                }
+            }
+        }
+        return hash(key.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Restores the classes of the sources which did not change since the previous compilation into the output
+     * directory and returns the sources which must be compiled.
+     *
+     * @param options The key of the compiler and its parameters, see {@link #getOptionsKey(String, List)}.
+     * @param javaFiles All sources of the group.
+     * @return The sources to be compiled, <code>null</code> if all sources must be compiled.
+     * @throws IOException If reading the sources fails.
+     */
+    public List<File> reuseClasses(String options, Collection<File> javaFiles) throws IOException {
+        Map<String, File> current = getSources(javaFiles);
+        State state = readState();
+        Set<String> dirty = null;
+        if (null != state && options.equals(state.options)) {
+            dirty = getDirtySources(state, current);
+        }
+        List<File> result = null;
+        if (null != dirty && dirty.size() < current.size()) {
+            Logger.INSTANCE.log("Compiling " + dirty.size() + " of " + current.size() + " sources incrementally");
+            if (restoreClasses(state, current.keySet(), dirty)) {
+                result = new ArrayList<File>();
+                for (String source : dirty) {
+                    result.add(current.get(source));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determines the sources to be compiled, i.e., the changed and new sources and the sources depending on
+     * changed or removed sources.
+     *
+     * @param state The state of the previous compilation.
+     * @param current The current sources by their paths relative to the working directory.
+     * @return The sources to be compiled, <code>null</code> if all sources must be compiled.
+     */
+    private Set<String> getDirtySources(State state, Map<String, File> current) {
+        Set<String> result = new HashSet<String>();
+        Deque<String> changed = new ArrayDeque<String>();
+        boolean full = false;
+        for (String source : current.keySet()) {
+            String previous = state.sources.get(source);
+            if (null == previous) {
+                result.add(source);
+                // a new class may shadow classes referenced by simple name within its package
+                changed.addAll(getSourcesInDirectory(state, getDirectory(source)));
+            } else if (!previous.equals(hashes.get(source))) {
+                result.add(source);
+                changed.add(source);
+                full |= state.constants.contains(source);
+            }
+        }
+        for (String source : state.sources.keySet()) {
+            if (!current.containsKey(source)) {
+                changed.add(source);
+                full |= state.constants.contains(source);
+            }
+        }
+        while (!changed.isEmpty()) {
+            String source = changed.removeFirst();
+            if (current.containsKey(source)) {
+                result.add(source);
+            }
+            Set<String> dependents = state.dependents.get(source);
+            if (null != dependents) {
+                for (String dependent : dependents) {
+                    if (!result.contains(dependent)) {
+                        changed.add(dependent);
+                    }
+                }
+            }
+        }
+        return full ? null : result;
+    }
+
+    /**
+     * Returns the previously compiled sources in the given directory.
+     *
+     * @param state The state of the previous compilation.
+     * @param directory The directory relative to the working directory.
+     * @return The sources.
+     */
+    private static List<String> getSourcesInDirectory(State state, String directory) {
+        List<String> result = new ArrayList<String>();
+        for (String source : state.sources.keySet()) {
+            if (directory.equals(getDirectory(source))) {
+                result.add(source);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the directory of a relative path.
+     *
+     * @param path The path, separated by <code>/</code>.
+     * @return The directory, an empty string for the working directory.
+     */
+    private static String getDirectory(String path) {
+        int pos = path.lastIndexOf('/');
+        return pos < 0 ? "" : path.substring(0, pos);
+    }
+
+    /**
+     * Copies the classes of the unchanged sources into the output directory.
+     *
+     * @param state The state of the previous compilation.
+     * @param sources All current sources.
+     * @param dirty The sources to be compiled.
+     * @return <code>true</code> if all classes were restored, <code>false</code> if the state is inconsistent.
+     */
+    private boolean restoreClasses(State state, Set<String> sources, Set<String> dirty) {
+        boolean restored = true;
+        File classesDir = new File(stateDir, CLASSES_DIR);
+        for (String source : sources) {
+            List<String> classes = state.classes.get(source);
+            if (!dirty.contains(source) && null != classes) {
+                for (String cls : classes) {
+                    try {
+                        File target = new File(outputDir, cls);
+                        target.getParentFile().mkdirs();
+                        Files.copy(new File(classesDir, cls).toPath(), target.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                    } catch (IOException e) {
+                        Logger.INSTANCE.logException(e, false);
+                        restored = false;
+                    }
+                }
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * Records the state of a successful compilation of all sources without output of the compiler, i.e.,
+     * the sources and the classes in the output directory. The state is discarded if the classes cannot be
+     * assigned to the sources unambiguously.
+     *
+     * @param options The key of the compiler and its parameters, see {@link #getOptionsKey(String, List)}.
+     * @param javaFiles All sources of the group.
+     */
+    public void update(String options, Collection<File> javaFiles) {
+        try {
+            Map<String, File> sources = getSources(javaFiles);
+            State state = new State();
+            state.options = options;
+            for (String source : sources.keySet()) {
+                state.sources.put(source, hashes.get(source));
+            }
+            if (readClasses(state)) {
+                writeState(state);
+            } else {
+                Logger.INSTANCE.log("Classes cannot be assigned to sources, compiling completely next time");
+                discard();
+            }
+        } catch (IOException e) {
+            Logger.INSTANCE.logException(e, false);
+            discard();
+        }
+    }
+
+    /**
+     * Assigns the classes in the output directory to the sources and determines the dependencies.
+     *
+     * @param state The state to be completed.
+     * @return <code>true</code> if all classes were assigned to a source, <code>false</code> else.
+     * @throws IOException If reading a class file fails.
+     */
+    private boolean readClasses(State state) throws IOException {
+        final Map<String, ClassFileInfo> infos = new TreeMap<String, ClassFileInfo>();
+        final Path root = outputDir.toPath();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (file.getFileName().toString().endsWith(CLASS_SUFFIX)) {
+                    infos.put(root.relativize(file).toString().replace(File.separatorChar, '/'),
+                        ClassFileInfo.read(file.toFile()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+        });
+        boolean assigned = true;
+        Map<String, String> classSources = new HashMap<String, String>();
+        for (Map.Entry<String, ClassFileInfo> entry : infos.entrySet()) {
+            String source = getSource(state, entry.getValue());
+            if (null == source) {
+                assigned = false;
+            } else {
+                classSources.put(entry.getValue().getName(), source);
+                add(state.classes, source, entry.getKey());
+                if (entry.getValue().declaresConstants()) {
+                    state.constants.add(source);
+                }
+            }
+        }
+        for (ClassFileInfo info : infos.values()) {
+            String source = classSources.get(info.getName());
+            for (String referenced : info.getReferencedClasses()) {
+                String dependency = classSources.get(referenced);
+                if (null != source && null != dependency && !source.equals(dependency)) {
+                    addDependent(state.dependents, dependency, source);
+                }
+            }
+        }
+        return assigned;
+    }
+
+    /**
+     * Determines the source a class was compiled from by its package and its source file attribute.
+     *
+     * @param state The state containing the sources.
+     * @param info The class.
+     * @return The source relative to the working directory, <code>null</code> if not unique.
+     */
+    private static String getSource(State state, ClassFileInfo info) {
+        String result = null;
+        if (null != info.getSourceFile()) {
+            String pkg = getDirectory(info.getName());
+            String path = pkg.length() > 0 ? pkg + "/" + info.getSourceFile() : info.getSourceFile();
+            int count = 0;
+            for (String source : state.sources.keySet()) {
+                if (source.equals(path) || source.endsWith("/" + path)) {
+                    result = source;
+                    count++;
+                }
+            }
+            if (count != 1) {
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds a class to the classes of a source.
+     *
+     * @param classes The classes per source.
+     * @param source The source.
+     * @param cls The class file relative to the output directory.
+     */
+    private static void add(Map<String, List<String>> classes, String source, String cls) {
+        List<String> values = classes.get(source);
+        if (null == values) {
+            values = new ArrayList<String>();
+            classes.put(source, values);
+        }
+        values.add(cls);
+    }
+
+    /**
+     * Adds a dependency between sources.
+     *
+     * @param dependents The dependent sources per source.
+     * @param source The source being depended on.
+     * @param dependent The dependent source.
+     */
+    private static void addDependent(Map<String, Set<String>> dependents, String source, String dependent) {
+        Set<String> values = dependents.get(source);
+        if (null == values) {
+            values = new HashSet<String>();
+            dependents.put(source, values);
+        }
+        values.add(dependent);
+    }
+
+    /**
+     * Discards the state, i.e., the next compilation is a full compilation.
+     */
+    public void discard() {
+        new File(stateDir, STATE_FILE).delete();
+    }
+
+    /**
+     * Reads the state of the previous compilation.
+     *
+     * @return The state, <code>null</code> if there is no (readable) state.
+     */
+    private State readState() {
+        State result = null;
+        File file = new File(stateDir, STATE_FILE);
+        if (file.isFile()) {
+            result = new State();
+            try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                for (String line = in.readLine(); null != line; line = in.readLine()) {
+                    readStateLine(result, line.split(SEPARATOR));
+                }
+            } catch (IOException | ArrayIndexOutOfBoundsException e) {
+                Logger.INSTANCE.logException(e, false);
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads a line of the state file.
+     *
+     * @param state The state to be filled.
+     * @param line The fields of the line.
+     */
+    private static void readStateLine(State state, String[] line) {
+        if (OPTIONS.equals(line[0])) {
+            state.options = line[1];
+        } else if (SOURCE.equals(line[0])) {
+            state.sources.put(line[1], line[2]);
+        } else if (CLASS.equals(line[0])) {
+            add(state.classes, line[1], line[2]);
+        } else if (DEPENDENCY.equals(line[0])) {
+            addDependent(state.dependents, line[2], line[1]);
+        } else if (CONSTANTS.equals(line[0])) {
+            state.constants.add(line[1]);
+        }
+    }
+
+    /**
+     * Writes the state and copies the classes. The state file is removed first and written last, i.e., an
+     * interrupted update leads to a full compilation.
+     *
+     * @param state The state.
+     * @throws IOException If writing fails.
+     */
+    private void writeState(State state) throws IOException {
+        File file = new File(stateDir, STATE_FILE);
+        file.delete();
+        File classesDir = new File(stateDir, CLASSES_DIR);
+        FileUtils.deleteDirectory(classesDir);
+        File tmp = new File(stateDir, STATE_FILE + ".tmp");
+        try (Writer out = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            writeLine(out, OPTIONS, state.options, null);
+            for (Map.Entry<String, String> entry : state.sources.entrySet()) {
+                writeLine(out, SOURCE, entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<String, List<String>> entry : state.classes.entrySet()) {
+                for (String cls : entry.getValue()) {
+                    writeLine(out, CLASS, entry.getKey(), cls);
+                    File target = new File(classesDir, cls);
+                    target.getParentFile().mkdirs();
+                    Files.copy(new File(outputDir, cls).toPath(), target.toPath());
+                }
+            }
+            for (Map.Entry<String, Set<String>> entry : state.dependents.entrySet()) {
+                for (String dependent : entry.getValue()) {
+                    writeLine(out, DEPENDENCY, dependent, entry.getKey());
+                }
+            }
+            for (String source : state.constants) {
+                writeLine(out, CONSTANTS, source, null);
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes a line of the state file.
+     *
+     * @param out The state file.
+     * @param kind The kind of the line.
+     * @param first The first value.
+     * @param second The second value, ignored if <code>null</code>.
+     * @throws IOException If writing fails.
+     */
+    private static void writeLine(Writer out, String kind, String first, String second) throws IOException {
+        out.write(kind);
+        out.write(SEPARATOR);
+        out.write(first);
+        if (null != second) {
+            out.write(SEPARATOR);
+            out.write(second);
+        }
+        out.write('\n');
+    }
+
+    /**
+     * Determines the paths of the sources relative to the working directory and their hashes.
+     *
+     * @param javaFiles The sources.
+     * @return The sources by their relative paths.
+     * @throws IOException If a source is not in the working directory or cannot be read.
+     */
+    private Map<String, File> getSources(Collection<File> javaFiles) throws IOException {
+        Map<String, File> result = new HashMap<String, File>();
+        Path root = workingDir.toPath();
+        for (File file : javaFiles) {
+            Path path = file.getAbsoluteFile().toPath();
+            String relative = root.relativize(path).toString().replace(File.separatorChar, '/');
+            if (relative.startsWith("..") || relative.contains(SEPARATOR) || relative.contains("\n")) {
+                throw new IOException("Cannot compile " + file + " incrementally");
+            }
+            result.put(relative, file);
+            if (!hashes.containsKey(relative)) {
+                hashes.put(relative, hash(Files.readAllBytes(path)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the path of the working directory in a path or an option.
+     *
+     * @param text The path or option.
+     * @return The text relative to the working directory.
+     */
+    private String relativize(String text) {
+        return text.replace(workingDir.getPath(), "${workingDir}");
+    }
+
+    /**
+     * Calculates the SHA-256 digest of the given data.
+     *
+     * @param data The data.
+     * @return The digest in hexadecimal notation.
+     */
+    private static String hash(byte[] data) {
+        StringBuilder result = new StringBuilder();
+        try {
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(data)) {
+                result.append(String.format("%02x", b));
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // required for every Java platform
+        }
+        return result.toString();
+    }
+
+    /**
+     * Releases the lock of the state.
+     *
+     * @throws IOException If releasing the lock fails.
+     */
+    @Override
+    public void close() throws IOException {
+        if (null != lockChannel) {
+            try {
+                lock.release();
+            } finally {
+                lockChannel.close();
+                lockChannel = null;
+                localLock.unlock();
+            }
+        }
+    }
+
+}
@@ -26,14 +26,14 @@ public class JavaClasspath {
         List<String> result = new ArrayList<String>();        
         appendToClasspath(result, pathConfiguration.getClasspathProperty());
         appendLibDirsToClasspath(result, pathConfiguration, keyPrefix);
-        String testEnvClasspath = pathConfiguration.getGlobalConfiguration().
-            getTestEnvValue(TestEnvKey.CLASSPATH);
+        String testEnvClasspath = pathConfiguration.getTestEnvValue(TestEnvKey.CLASSPATH);
         appendToClasspath(result, testEnvClasspath);
         return result;
     }
     
     /**
-     * Appends libraries to the specified <code>classpath</code>.
+     * Appends libraries to the specified <code>classpath</code>. The
+     * libraries are resolved via the {@link ClasspathResolver}.
      * 
      * @param classpath the classpath to which the libraries should be
      *        appended
@@ -44,41 +44,16 @@ public class JavaClasspath {
      */
     protected static void appendLibDirsToClasspath(List<String> classpath, 
         PathConfiguration pathConfiguration, String keyPrefix) {
-        String libDir = 
-            pathConfiguration.getStringProperty(keyPrefix + ".libDir", "");
-        if (libDir.length() > 0) {
-            File homeDir = new File(pathConfiguration.getWorkingDir(), libDir);
-            enumJars(homeDir, classpath);
+        ClasspathResolver.LibraryPath libs = 
+            ClasspathResolver.INSTANCE.resolve(pathConfiguration, keyPrefix);
+        if (null != libs) {
+            classpath.addAll(libs.getEntries());
             if (classpath.size() > 0 && !classpath.get(0).startsWith(".")) {
                 classpath.set(0, "." + File.separator + classpath.get(0));
             }
         }
     }
 
-    /**
-     * Enumerates all jar files in the specified directory and adds them
-     * as fully qualified paths.
-     * 
-     * @param dir the file/directory where to start
-     * @param result the string buffer to be modified as a side effect
-     * 
-     * @since 1.00
-     */
-    protected static void enumJars(File dir, List<String> result) {
-        File[] dirs = dir.listFiles();
-        if (null != dirs) {
-            for (File f : dirs) {
-                if (f.isDirectory()) {
-                    enumJars(f, result);
-                } else {
-                    if (f.getName().endsWith(".jar")) {
-                        appendToClasspath(result, f.getAbsolutePath());
-                    }
-                }
-            }
-        }
-    }
-    
     /**
      * Appends an element to the given classpath.
      * 
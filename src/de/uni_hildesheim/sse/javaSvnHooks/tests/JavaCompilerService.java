@@ -0,0 +1,393 @@
+package de.uni_hildesheim.sse.javaSvnHooks.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.tools.DiagnosticListener;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileManager.Location;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+
+/**
+ * Compiles Java sources within the hook process using a single {@link JavaCompiler} instance and a pool of
+ * file managers, i.e., the compiler classes are loaded and the platform classes are indexed once per process
+ * instead of once per compilation. This is particularly relevant for a long-running hook daemon.
+ * <p>
+ * File managers are pooled per set of compiler options apart from the paths (output directories, class path,
+ * source path), which are reset before a file manager is reused. As file managers keep archives on the class
+ * path open, a file manager is discarded if an archive it has read was changed in the meantime.
+ * <p>
+ * Sources may also just be {@link #check(Collection, List, DiagnosticListener) checked}, i.e., compiled
+ * without writing any file.
+ */
+public class JavaCompilerService {
+
+    /**
+     * The shared instance.
+     */
+    public static final JavaCompilerService INSTANCE = new JavaCompilerService();
+
+    /**
+     * The maximum number of idle file managers kept per set of options.
+     */
+    private static final int MAX_IDLE = 4;
+
+    /**
+     * The command line options taking a path, handled by {@link #resetLocations(StandardJavaFileManager)}.
+     */
+    private static final Set<String> PATH_OPTIONS = new HashSet<String>(Arrays.asList("-d", "-s", "-h", "-cp",
+        "-classpath", "--class-path", "-sourcepath", "--source-path", "-processorpath", "--processor-path"));
+
+    /**
+     * The command line options taking a class path.
+     */
+    private static final Set<String> CLASSPATH_OPTIONS = new HashSet<String>(Arrays.asList("-cp",
+        "-classpath", "--class-path", "-processorpath", "--processor-path"));
+
+    /**
+     * The command line options taking an output directory.
+     */
+    private static final Set<String> OUTPUT_OPTIONS = new HashSet<String>(Arrays.asList("-d", "-s", "-h"));
+
+    /**
+     * The locations being reset to their defaults before a file manager is reused.
+     */
+    private static final Location[] LOCATIONS = {StandardLocation.CLASS_OUTPUT, StandardLocation.SOURCE_OUTPUT,
+        StandardLocation.NATIVE_HEADER_OUTPUT, StandardLocation.CLASS_PATH, StandardLocation.SOURCE_PATH,
+        StandardLocation.ANNOTATION_PROCESSOR_PATH};
+
+    private boolean compilerLoaded;
+    private JavaCompiler compiler;
+    private Map<List<String>, Deque<PooledFileManager>> idle = new HashMap<List<String>, Deque<PooledFileManager>>();
+
+    /**
+     * A pooled file manager and the archives read through it.
+     */
+    private static class PooledFileManager {
+
+        private StandardJavaFileManager manager;
+        private Map<File, String> archives = new HashMap<File, String>();
+
+        /**
+         * Creates a pooled file manager.
+         *
+         * @param manager The file manager.
+         */
+        private PooledFileManager(StandardJavaFileManager manager) {
+            this.manager = manager;
+        }
+
+        /**
+         * Returns whether one of the given archives was changed since it was read through this file manager.
+         *
+         * @param stamps The current stamps of the archives.
+         * @return <code>true</code> if the file manager must not be used anymore, <code>false</code> else.
+         */
+        private boolean isStale(Map<File, String> stamps) {
+            boolean stale = false;
+            for (Map.Entry<File, String> entry : stamps.entrySet()) {
+                String known = archives.get(entry.getKey());
+                stale |= null != known && !known.equals(entry.getValue());
+            }
+            return stale;
+        }
+
+    }
+
+    /**
+     * A file manager discarding all output of the compiler.
+     */
+    private static class DiscardingFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        /**
+         * Creates a discarding file manager.
+         *
+         * @param manager The file manager to read sources and classes from.
+         */
+        private DiscardingFileManager(StandardJavaFileManager manager) {
+            super(manager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, Kind kind,
+            FileObject sibling) {
+            return new DiscardedFile(className.replace('.', '/') + kind.extension, kind);
+        }
+
+        @Override
+        public FileObject getFileForOutput(Location location, String packageName, String relativeName,
+            FileObject sibling) {
+            return new DiscardedFile(packageName.replace('.', '/') + "/" + relativeName, Kind.OTHER);
+        }
+
+        @Override
+        public void close() {
+            // the underlying file manager is pooled
+        }
+
+    }
+
+    /**
+     * An output file of the compiler which is not written.
+     */
+    private static class DiscardedFile extends SimpleJavaFileObject {
+
+        /**
+         * Creates a discarded file.
+         *
+         * @param path The relative path of the file.
+         * @param kind The kind of the file.
+         */
+        private DiscardedFile(String path, Kind kind) {
+            super(URI.create("discarded:///" + path), kind);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return new OutputStream() {
+
+                @Override
+                public void write(int b) {
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                }
+
+            };
+        }
+
+    }
+
+    /**
+     * Creates the service. Use {@link #INSTANCE}.
+     */
+    private JavaCompilerService() {
+    }
+
+    /**
+     * Returns the system Java compiler. The compiler is determined once.
+     *
+     * @return The compiler, <code>null</code> if the hook is not running on a JDK.
+     */
+    public synchronized JavaCompiler getCompiler() {
+        if (!compilerLoaded) {
+            compiler = ToolProvider.getSystemJavaCompiler();
+            compilerLoaded = true;
+        }
+        return compiler;
+    }
+
+    /**
+     * Compiles the given source files.
+     *
+     * @param javaFiles The source files to be compiled together.
+     * @param options The command line options of the compiler (without source files).
+     * @param diagnostics Receives the diagnostics of the compiler.
+     * @return <code>true</code> if the compilation succeeded, <code>false</code> else.
+     * @throws IOException If the compiler is not available or closing a discarded file manager fails.
+     */
+    public boolean compile(Collection<File> javaFiles, List<String> options,
+        DiagnosticListener<? super JavaFileObject> diagnostics) throws IOException {
+        return compile(javaFiles, options, diagnostics, false);
+    }
+
+    /**
+     * Compiles the given source files without writing classes or other files, i.e., only the diagnostics of
+     * the compiler are determined. Output directories in the options are ignored.
+     *
+     * @param javaFiles The source files to be compiled together.
+     * @param options The command line options of the compiler (without source files).
+     * @param diagnostics Receives the diagnostics of the compiler.
+     * @return <code>true</code> if the compilation succeeded, <code>false</code> else.
+     * @throws IOException If the compiler is not available or closing a discarded file manager fails.
+     */
+    public boolean check(Collection<File> javaFiles, List<String> options,
+        DiagnosticListener<? super JavaFileObject> diagnostics) throws IOException {
+        List<String> checkOptions = new ArrayList<String>(options.size());
+        for (Iterator<String> iter = options.iterator(); iter.hasNext();) {
+            String option = iter.next();
+            if (OUTPUT_OPTIONS.contains(option)) {
+                if (iter.hasNext()) {
+                    iter.next();
+                }
+            } else {
+                checkOptions.add(option);
+            }
+        }
+        return compile(javaFiles, checkOptions, diagnostics, true);
+    }
+
+    /**
+     * Compiles the given source files.
+     *
+     * @param javaFiles The source files to be compiled together.
+     * @param options The command line options of the compiler (without source files).
+     * @param diagnostics Receives the diagnostics of the compiler.
+     * @param discardOutput Whether the classes and other files created by the compiler are discarded.
+     * @return <code>true</code> if the compilation succeeded, <code>false</code> else.
+     * @throws IOException If the compiler is not available or closing a discarded file manager fails.
+     */
+    private boolean compile(Collection<File> javaFiles, List<String> options,
+        DiagnosticListener<? super JavaFileObject> diagnostics, boolean discardOutput) throws IOException {
+        JavaCompiler tool = getCompiler();
+        if (null == tool) {
+            throw new IOException("No Java compiler available, the hook must be executed by a JDK");
+        }
+        List<String> key = getPoolKey(options);
+        Map<File, String> stamps = getArchiveStamps(options);
+        PooledFileManager pooled = acquire(key, stamps);
+        boolean success = false;
+        boolean reusable = false;
+        try {
+            Iterable<? extends JavaFileObject> units = pooled.manager.getJavaFileObjectsFromFiles(javaFiles);
+            JavaFileManager manager = discardOutput ? new DiscardingFileManager(pooled.manager) : pooled.manager;
+            success = tool.getTask(null, manager, diagnostics, options, null, units).call();
+            pooled.manager.flush();
+            pooled.archives.putAll(stamps);
+            reusable = true;
+        } finally {
+            release(key, pooled, reusable);
+        }
+        return success;
+    }
+
+    /**
+     * Takes an idle file manager for the given options from the pool or creates a new one.
+     *
+     * @param key The pool key of the options.
+     * @param stamps The current stamps of the archives on the class path.
+     * @return The file manager, with the locations reset to their defaults.
+     * @throws IOException If closing a stale file manager fails.
+     */
+    private PooledFileManager acquire(List<String> key, Map<File, String> stamps) throws IOException {
+        PooledFileManager result = null;
+        while (null == result) {
+            PooledFileManager candidate;
+            synchronized (this) {
+                Deque<PooledFileManager> managers = idle.get(key);
+                candidate = null == managers ? null : managers.pollFirst();
+            }
+            if (null == candidate) {
+                result = new PooledFileManager(getCompiler().getStandardFileManager(null, null, null));
+            } else if (candidate.isStale(stamps)) {
+                candidate.manager.close();
+            } else {
+                resetLocations(candidate.manager);
+                result = candidate;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a file manager to the pool.
+     *
+     * @param key The pool key of the options the file manager was used with.
+     * @param pooled The file manager.
+     * @param reusable Whether the compilation terminated normally, i.e., the file manager may be reused.
+     * @throws IOException If closing a file manager which is not reused fails.
+     */
+    private void release(List<String> key, PooledFileManager pooled, boolean reusable) throws IOException {
+        boolean pooledAgain = false;
+        if (reusable) {
+            synchronized (this) {
+                Deque<PooledFileManager> managers = idle.get(key);
+                if (null == managers) {
+                    managers = new ArrayDeque<PooledFileManager>();
+                    idle.put(key, managers);
+                }
+                if (managers.size() < MAX_IDLE) {
+                    managers.addFirst(pooled);
+                    pooledAgain = true;
+                }
+            }
+        }
+        if (!pooledAgain) {
+            pooled.manager.close();
+        }
+    }
+
+    /**
+     * Resets the locations which may have been set by the options of a previous compilation.
+     *
+     * @param manager The file manager.
+     */
+    private static void resetLocations(StandardJavaFileManager manager) {
+        for (Location location : LOCATIONS) {
+            try {
+                manager.setLocation(location, null);
+            } catch (IOException | IllegalArgumentException e) {
+                Logger.INSTANCE.logException(e, false);
+            }
+        }
+    }
+
+    /**
+     * Returns the options without the path options and their values, i.e., the options which affect a file
+     * manager persistently.
+     *
+     * @param options The command line options.
+     * @return The pool key.
+     */
+    static List<String> getPoolKey(List<String> options) {
+        List<String> result = new ArrayList<String>(options.size());
+        for (Iterator<String> iter = options.iterator(); iter.hasNext();) {
+            String option = iter.next();
+            if (PATH_OPTIONS.contains(option)) {
+                if (iter.hasNext()) {
+                    iter.next();
+                }
+            } else {
+                result.add(option);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determines the current size and modification time of the archives on the class paths in the options.
+     *
+     * @param options The command line options.
+     * @return The stamps of the archives.
+     */
+    private static Map<File, String> getArchiveStamps(List<String> options) {
+        Map<File, String> result = new HashMap<File, String>();
+        for (Iterator<String> iter = options.iterator(); iter.hasNext();) {
+            String option = iter.next();
+            if (CLASSPATH_OPTIONS.contains(option) && iter.hasNext()) {
+                for (String entry : iter.next().split(File.pathSeparator)) {
+                    File file = new File(entry).getAbsoluteFile();
+                    if (file.isFile()) {
+                        result.put(file, file.length() + ":" + file.lastModified());
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+}
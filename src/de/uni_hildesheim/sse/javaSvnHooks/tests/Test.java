@@ -78,6 +78,32 @@ public abstract class Test {
      * means test not passed.
      */
     public abstract int execute(PathConfiguration pathConfiguration);
+    
+    /**
+     * Returns whether this test modifies JVM-global state (e.g., the system
+     * streams or the security manager) and must not run concurrently with
+     * any other test.
+     * 
+     * @return <code>true</code> if this test must run exclusively,
+     * <code>false</code> else (default)
+     */
+    public boolean requiresExclusiveExecution() {
+        return false;
+    }
+
+    /**
+     * Returns whether this test modifies JVM-global state when executed on
+     * the given path configuration, by default
+     * {@link #requiresExclusiveExecution()}.
+     * 
+     * @param pathConfiguration the path configuration the test will be
+     * executed on
+     * @return <code>true</code> if this test must run exclusively,
+     * <code>false</code> else
+     */
+    public boolean requiresExclusiveExecution(PathConfiguration pathConfiguration) {
+        return requiresExclusiveExecution();
+    }
 
     // checkstyle: stop parameter number check
     
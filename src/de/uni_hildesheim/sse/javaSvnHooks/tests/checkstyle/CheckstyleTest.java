@@ -179,8 +179,7 @@ public class CheckstyleTest extends AbstractJavaTest {
             pathConfiguration.getClasspathProperty());
         classpath = appendLibDirsToClasspath(classpath, pathConfiguration,
             "javac");
-        String testEnvClasspath = pathConfiguration.getGlobalConfiguration().
-            getTestEnvValue(TestEnvKey.CLASSPATH);
+        String testEnvClasspath = pathConfiguration.getTestEnvValue(TestEnvKey.CLASSPATH);
         if (null != testEnvClasspath) {
             classpath = appendToClasspath(classpath, testEnvClasspath);
         }
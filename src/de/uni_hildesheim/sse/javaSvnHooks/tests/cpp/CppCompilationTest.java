@@ -112,6 +112,8 @@ public class CppCompilationTest extends Test {
             e.printStackTrace();
             returnValue = ExitCodes.EXIT_FAIL;
         }
+        // object files
+        pathConfiguration.invalidateFileIndex();
         
         return returnValue;
     }
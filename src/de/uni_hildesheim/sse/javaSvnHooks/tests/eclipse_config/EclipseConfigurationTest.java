@@ -9,7 +9,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
-import java.util.jar.JarInputStream;
 import java.util.jar.Manifest;
 import java.util.regex.PatternSyntaxException;
 
@@ -28,6 +27,7 @@ import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.AbstractJavaTest;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.Test;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.file_size.FileSizeTest;
+import de.uni_hildesheim.sse.javaSvnHooks.util.JarIndex;
 import de.uni_hildesheim.sse.javaSvnHooks.util.XmlUtilities;
 
 /**
@@ -675,7 +675,7 @@ public class EclipseConfigurationTest extends AbstractJavaTest {
                 } else {
                     unmatchedClassPathEntries.remove(
                         absoluteF.getAbsolutePath());
-                    configuration.setTestEnvValue(
+                    pathConfiguration.setTestEnvValue(
                         TestEnvKey.BIN, path);
                 }
             } else if (path.length() > 0) {
@@ -696,7 +696,7 @@ public class EclipseConfigurationTest extends AbstractJavaTest {
                 if (file.isAbsolute()) {
                     emitError("Absolute source path not allowed."); 
                 } else {
-                    configuration.setTestEnvValue(
+                    pathConfiguration.setTestEnvValue(
                         TestEnvKey.SRC, path);
                 }
             } else if (path.length() > 0) {
@@ -735,7 +735,7 @@ public class EclipseConfigurationTest extends AbstractJavaTest {
             }
             if (0 == result && pathConfiguration.getBooleanProperty(
                     CONF_KEY + ".addToClasspath", true)) {
-                addToClassPath(configuration, 
+                addToClassPath(pathConfiguration, 
                     file.getAbsolutePath());
             }
         }
@@ -752,7 +752,7 @@ public class EclipseConfigurationTest extends AbstractJavaTest {
             } else {
                 String param = retrieveContainerMapping(path);
                 if (null != param && param.length() > 0) {
-                    addToClassPath(configuration, param);
+                    addToClassPath(pathConfiguration, param);
                 }
             }
         }
@@ -806,7 +806,7 @@ public class EclipseConfigurationTest extends AbstractJavaTest {
                         Manifest manifest = new Manifest(
                             new FileInputStream(manifestFile));
                         analyzeManifest(manifest, pluginMapping, 
-                            configuration, true);
+                            pathConfiguration, true);
                     } catch (IOException ioe) {
                     }
                 }
@@ -906,16 +906,16 @@ public class EclipseConfigurationTest extends AbstractJavaTest {
     }
     
     /**
-     * Adds the specified path to the global dynamic test environment.
+     * Adds the specified path to the dynamic test environment.
      * 
-     * @param configuration the currently relevant global configuration
+     * @param pathConfiguration the currently relevant path configuration
      * @param path the path to be added
      * 
      * @since 1.20
      */
-    private static void addToClassPath(Configuration configuration, 
+    private static void addToClassPath(PathConfiguration pathConfiguration, 
         String path) {
-        String classpath = configuration.getTestEnvValue(
+        String classpath = pathConfiguration.getTestEnvValue(
             AbstractJavaTest.TestEnvKey.CLASSPATH);
         if (null == classpath) {
             classpath = "";
@@ -925,7 +925,7 @@ public class EclipseConfigurationTest extends AbstractJavaTest {
             path = "\"" + path + "\"";
         }
         classpath = appendToClasspath(classpath, path);
-        configuration.setTestEnvValue(
+        pathConfiguration.setTestEnvValue(
             AbstractJavaTest.TestEnvKey.CLASSPATH, classpath);
     }
     
@@ -970,7 +970,7 @@ public class EclipseConfigurationTest extends AbstractJavaTest {
      * 
      * @param manifest the manifest to be analyzed
      * @param pluginMapping the plugin mapping
-     * @param configuration the current program configuration (may 
+     * @param pathConfiguration the current path configuration (may 
      *        be <b>null</b> if related plugin jars should be printed
      *        to the standard output stream only)
      * @param initial if <code>true</code> all referenced plugins will
@@ -982,7 +982,7 @@ public class EclipseConfigurationTest extends AbstractJavaTest {
      */
     private static void analyzeManifest(Manifest manifest, 
         Map<String, PluginFileInfo> pluginMapping, 
-        Configuration configuration, boolean initial) throws IOException {
+        PathConfiguration pathConfiguration, boolean initial) throws IOException {
         java.util.jar.Attributes attributes = 
             manifest.getMainAttributes();
         if (null != attributes 
@@ -1020,12 +1020,13 @@ public class EclipseConfigurationTest extends AbstractJavaTest {
                 //if (initial || visibility.equals("reexport"))
                 PluginFileInfo info = pluginMapping.get(libName);
                 if (null != info && !info.isResolved()) {
-                    info.addToClassPath(configuration);
+                    info.addToClassPath(pathConfiguration);
                     info.setResolved();
-                    Manifest inputStream = info.getManifest();
+                    Manifest inputStream = info.getManifest(JarIndex.getInstance(
+                        null == pathConfiguration ? null : pathConfiguration.getGlobalConfiguration()));
                     if (null != inputStream) {
                         analyzeManifest(inputStream, pluginMapping, 
-                            configuration, false);
+                            pathConfiguration, false);
                     }
                 }
             }
@@ -1256,19 +1257,19 @@ public class EclipseConfigurationTest extends AbstractJavaTest {
         /**
          * Adds all related jar files to the dynamic classpath by calling 
          * {@link EclipseConfigurationTest#addToClassPath(
-         * Configuration, String)}.
+         * PathConfiguration, String)}.
          * 
-         * @param configuration the global configuration containing the dynamic
+         * @param pathConfiguration the path configuration containing the dynamic
          *        test environment data (if <b>null</b> the relevant files
          *        will only be printed to the standard output stream
          * 
          * @since 1.20
          */
-        public void addToClassPath(Configuration configuration) {
+        public void addToClassPath(PathConfiguration pathConfiguration) {
             for (File f : jars) {
-                if (null != configuration) {                        
+                if (null != pathConfiguration) {                        
                     EclipseConfigurationTest.addToClassPath(
-                        configuration, f.getAbsolutePath());
+                        pathConfiguration, f.getAbsolutePath());
                 }
             }
         }
@@ -1316,13 +1317,14 @@ public class EclipseConfigurationTest extends AbstractJavaTest {
         /**
          * Returns a stream containing the manifest of this plugin.
          * 
+         * @param jarIndex the index providing the manifest of a plugin jar
          * @return a steam containing the manifest or <b>null</b> if 
          *         none was found
          * @throws IOException if an I/O related error occurred
          * 
          * @since 1.20
          */
-        public Manifest getManifest() throws IOException {
+        public Manifest getManifest(JarIndex jarIndex) throws IOException {
             Manifest manifest = null;
             if (file.isDirectory()) {
                 File manifestFile = constructManifestPath(file);
@@ -1330,10 +1332,7 @@ public class EclipseConfigurationTest extends AbstractJavaTest {
                     manifest = new Manifest(new FileInputStream(manifestFile));
                 }
             } else {
-                JarInputStream jis =
-                    new JarInputStream(new FileInputStream(file));
-                manifest = jis.getManifest();
-                jis.close();
+                manifest = jarIndex.get(file).getManifest();
             }
             return manifest;
         }
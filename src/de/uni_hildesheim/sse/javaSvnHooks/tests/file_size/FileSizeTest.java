@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import de.uni_hildesheim.sse.javaSvnHooks.Configuration;
+import de.uni_hildesheim.sse.javaSvnHooks.FileIndex;
 import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.Test;
 import de.uni_hildesheim.sse.javaSvnHooks.util.XmlUtilities;
@@ -50,11 +51,11 @@ public class FileSizeTest extends Test {
         long projectSize = 0;
         
         if (maxFileSize > 0) {
-            for (File file : pathConfiguration.getFiles()) {
-                long length = file.length();
+            for (FileIndex.Entry entry : pathConfiguration.getFileIndex().getEntries()) {
+                long length = entry.getSize();
                 projectSize += length;
                 if (length > maxFileSize) {
-                    tooBigFiles.add(file);
+                    tooBigFiles.add(entry.getFile());
                 }
             }
         }
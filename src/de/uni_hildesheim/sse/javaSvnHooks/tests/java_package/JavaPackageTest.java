@@ -1,11 +1,11 @@
 package de.uni_hildesheim.sse.javaSvnHooks.tests.java_package;
 
-import java.io.File;
 import java.io.PrintStream;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import de.uni_hildesheim.sse.javaSvnHooks.Configuration;
+import de.uni_hildesheim.sse.javaSvnHooks.FileIndex;
 import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
 import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.Test;
@@ -76,16 +76,8 @@ public class JavaPackageTest extends Test {
         Boolean requiredFound = null;
         Boolean forbiddenFound = null;
         int exitCode = ExitCodes.EXIT_SUCCESS;
-        for (File f : pathConfiguration.getJavaFiles()) {
-            File folder = f;
-            if (!folder.isDirectory()) {
-                folder = f.getParentFile();
-            }
-            String name = pathConfiguration.relativizeFileName(folder.getAbsolutePath());
-            name = name.replace('/', '.').replace('\\', '.');
-            while (name.endsWith(".")) {
-                name = name.substring(0, name.length() - 1);
-            }
+        for (FileIndex.Entry entry : pathConfiguration.getFileIndex().getEntries(FileIndex.JAVA_EXTENSION)) {
+            String name = entry.getPackageName();
             if (null != requiredRegEx) {
                 boolean matches = requiredRegEx.matcher(name).matches();
                 if (null == requiredFound) {
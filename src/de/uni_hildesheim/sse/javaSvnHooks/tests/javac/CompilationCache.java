@@ -0,0 +1,374 @@
+package de.uni_hildesheim.sse.javaSvnHooks.tests.javac;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import de.uni_hildesheim.sse.javaSvnHooks.Configuration;
+import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+import de.uni_hildesheim.sse.javaSvnHooks.util.DiskCache;
+
+/**
+ * A persistent cache of compilation results below the temporary directory, shared by all groups and
+ * revisions. An entry is keyed by the compiler, the compiler parameters, the class path and the contents
+ * of all sources of a compilation. It contains the created class files, the output of the compiler and
+ * its result, so that a compilation of the same sources (e.g., recommitted or identical starter files)
+ * can be replayed without invoking the compiler. Paths within the working directory are stored relative
+ * to the working directory, i.e., entries are independent of the group and the revision.
+ */
+public class CompilationCache {
+
+    /**
+     * The hook property enabling the compilation cache.
+     */
+    public static final String PROPERTY = "compileCache";
+
+    /**
+     * The hook property specifying the maximum size of the compilation cache in MB.
+     */
+    public static final String SIZE_PROPERTY = "compileCache.maxSize";
+
+    private static final String DIR = "compileCache";
+    private static final String PLACEHOLDER = "${workingDir}";
+    private static final String RESULT_ENTRY = "result";
+    private static final String OUTPUT_ENTRY = "output";
+    private static final String CLASSES_PREFIX = "classes/";
+
+    /**
+     * The caches per directory, shared so that the size of a cache is determined only once per process.
+     */
+    private static final Map<File, DiskCache> CACHES = new HashMap<File, DiskCache>();
+
+    private DiskCache cache;
+    private File dir;
+    private String workingDir;
+
+    /**
+     * Creates a compilation cache.
+     *
+     * @param cache The underlying cache.
+     * @param dir The directory of the cache.
+     * @param workingDir The working directory of the group.
+     */
+    private CompilationCache(DiskCache cache, File dir, File workingDir) {
+        this.cache = cache;
+        this.dir = dir;
+        this.workingDir = workingDir.getAbsolutePath();
+    }
+
+    /**
+     * Returns the compilation cache for the group of the given configuration.
+     *
+     * @param pathConfiguration The configuration of the group.
+     * @return The cache, <code>null</code> if the cache is not enabled.
+     */
+    public static CompilationCache getInstance(PathConfiguration pathConfiguration) {
+        CompilationCache result = null;
+        Configuration configuration = pathConfiguration.getGlobalConfiguration();
+        if (configuration.getBooleanProperty(PROPERTY, false)) {
+            File dir = new File(configuration.getTempDir(), DIR).getAbsoluteFile();
+            DiskCache cache;
+            synchronized (CACHES) {
+                cache = CACHES.get(dir);
+                if (null == cache) {
+                    cache = new DiskCache(dir, configuration.getIntProperty(SIZE_PROPERTY, 256) * 1024L * 1024L);
+                    CACHES.put(dir, cache);
+                }
+            }
+            result = new CompilationCache(cache, dir, pathConfiguration.getWorkingDir());
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the key of a compilation.
+     *
+     * @param compiler Identifies the compiler, e.g., its version.
+     * @param options The compiler parameters.
+     * @param sources The compiled sources.
+     * @param baseDir The directory relative class path entries are resolved against, i.e., the directory the
+     *     compiler is executed in.
+     * @return The key.
+     * @throws IOException If reading a source or a class path entry fails.
+     */
+    public String getKey(String compiler, List<String> options, Collection<File> sources, File baseDir)
+        throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        update(digest, compiler);
+        for (Iterator<String> iter = options.iterator(); iter.hasNext();) {
+            String option = iter.next();
+            update(digest, relativize(option));
+            if (("-classpath".equals(option) || "-cp".equals(option)) && iter.hasNext()) {
+                String classpath = iter.next();
+                update(digest, relativize(classpath));
+                for (String entry : classpath.split(File.pathSeparator)) {
+                    File file = new File(entry);
+                    if (!file.isAbsolute()) {
+                        file = new File(baseDir, entry);
+                    }
+                    updateClasspathEntry(digest, file.getAbsoluteFile().toPath().normalize().toFile());
+                }
+            }
+        }
+        List<String> paths = new ArrayList<String>(sources.size());
+        for (File source : sources) {
+            paths.add(source.getAbsolutePath());
+        }
+        Collections.sort(paths);
+        for (String path : paths) {
+            update(digest, relativize(path));
+            digest.update(Files.readAllBytes(new File(path).toPath()));
+        }
+        StringBuilder result = new StringBuilder();
+        for (byte b : digest.digest()) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Adds a class path entry to a key. The contents of archives are considered. For directories outside the
+     * working directory, the names, sizes and modification times of their files are considered. Directories
+     * in the working directory are exported anew for each revision, i.e., the names and contents of the
+     * classes and sources therein are considered, the only files the compiler reads from a class path.
+     *
+     * @param digest The digest of the key.
+     * @param entry The class path entry, absolute and normalized.
+     * @throws IOException If reading the entry fails.
+     */
+    private void updateClasspathEntry(final MessageDigest digest, final File entry) throws IOException {
+        if (entry.isFile()) {
+            digest.update(Files.readAllBytes(entry.toPath()));
+        } else if (entry.isDirectory()) {
+            final boolean inWorkingDir = isInWorkingDir(entry);
+            final Path root = entry.toPath();
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    String name = root.relativize(file).toString().replace(File.separatorChar, '/');
+                    if (!inWorkingDir) {
+                        update(digest, name + ":" + attrs.size() + ":" + attrs.lastModifiedTime().toMillis());
+                    } else if (name.endsWith(".class") || name.endsWith(".java")) {
+                        update(digest, name);
+                        digest.update(Files.readAllBytes(file));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+            });
+        }
+    }
+
+    /**
+     * Replays a cached compilation, i.e., writes the cached classes to the output directory and the cached
+     * compiler output to <code>out</code>.
+     *
+     * @param key The key of the compilation.
+     * @param outputDir The directory to write the classes to.
+     * @param out The stream to write the compiler output to.
+     * @return The result of the compiler, <code>null</code> if the compilation is not cached.
+     */
+    public Integer replay(String key, File outputDir, PrintStream out) {
+        Integer result = null;
+        Path entry = cache.get(key);
+        if (null != entry) {
+            byte[] output = null;
+            try (ZipInputStream in = new ZipInputStream(Files.newInputStream(entry))) {
+                for (ZipEntry zipEntry = in.getNextEntry(); null != zipEntry; zipEntry = in.getNextEntry()) {
+                    String name = zipEntry.getName();
+                    if (RESULT_ENTRY.equals(name)) {
+                        result = Integer.valueOf(new String(readAll(in), StandardCharsets.UTF_8));
+                    } else if (OUTPUT_ENTRY.equals(name)) {
+                        output = readAll(in);
+                    } else if (name.startsWith(CLASSES_PREFIX)) {
+                        Path target = outputDir.toPath().resolve(name.substring(CLASSES_PREFIX.length()))
+                            .normalize();
+                        if (target.startsWith(outputDir.toPath())) {
+                            Files.createDirectories(target.getParent());
+                            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+                        }
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                Logger.INSTANCE.logException(e, false);
+                cache.remove(key);
+                result = null;
+            }
+            if (null != result && null != output) {
+                output = fromStoredOutput(output);
+                out.write(output, 0, output.length);
+                out.flush();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds a compilation to the cache.
+     *
+     * @param key The key of the compilation.
+     * @param result The result of the compiler.
+     * @param output The output of the compiler, in the platform encoding.
+     * @param outputDir The directory the classes were written to.
+     * @param classFiles The class files created by the compiler, files outside <code>outputDir</code> are
+     *     ignored.
+     */
+    public void store(String key, int result, byte[] output, File outputDir, Collection<File> classFiles) {
+        Path outputPath = outputDir.getAbsoluteFile().toPath();
+        File tmp = null;
+        try {
+            dir.mkdirs();
+            // ignored by the cache due to the suffix
+            tmp = File.createTempFile(DIR, ".tmp", dir);
+            try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(tmp))) {
+                put(out, RESULT_ENTRY, String.valueOf(result).getBytes(StandardCharsets.UTF_8));
+                put(out, OUTPUT_ENTRY, toStoredOutput(output));
+                for (File classFile : classFiles) {
+                    Path relative = outputPath.relativize(classFile.getAbsoluteFile().toPath());
+                    if (!relative.startsWith("..")) {
+                        put(out, CLASSES_PREFIX + relative.toString().replace(File.separatorChar, '/'),
+                            Files.readAllBytes(classFile.toPath()));
+                    }
+                }
+            }
+            cache.put(key, tmp.toPath());
+        } catch (IOException e) {
+            Logger.INSTANCE.logException(e, false);
+        } finally {
+            if (null != tmp) {
+                tmp.delete();
+            }
+        }
+    }
+
+    /**
+     * Replaces the path of the working directory in the given compiler output by a placeholder, so that the
+     * output can be replayed for other working directories.
+     *
+     * @param output The compiler output, in the platform encoding.
+     * @return The output to be stored.
+     */
+    private byte[] toStoredOutput(byte[] output) {
+        return replace(output, workingDir, PLACEHOLDER);
+    }
+
+    /**
+     * Replaces the placeholder in stored compiler output by the path of the working directory.
+     *
+     * @param output The stored output.
+     * @return The output for the current working directory, in the platform encoding.
+     */
+    private byte[] fromStoredOutput(byte[] output) {
+        return replace(output, PLACEHOLDER, workingDir);
+    }
+
+    /**
+     * Replaces a text in bytes in the platform encoding.
+     *
+     * @param data The bytes.
+     * @param text The text to be replaced.
+     * @param replacement The replacement.
+     * @return The bytes with the text replaced.
+     */
+    private static byte[] replace(byte[] data, String text, String replacement) {
+        // ISO-8859-1 maps each byte to one character, i.e., the bytes are not modified apart from the text
+        Charset platform = Charset.defaultCharset();
+        String tmp = new String(data, StandardCharsets.ISO_8859_1);
+        String from = new String(text.getBytes(platform), StandardCharsets.ISO_8859_1);
+        String to = new String(replacement.getBytes(platform), StandardCharsets.ISO_8859_1);
+        return tmp.replace(from, to).getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Returns whether a file is located in the working directory.
+     *
+     * @param file The absolute, normalized file.
+     * @return <code>true</code> if the file is in the working directory, <code>false</code> else.
+     */
+    private boolean isInWorkingDir(File file) {
+        return file.toPath().startsWith(new File(workingDir).toPath().normalize());
+    }
+
+    /**
+     * Replaces the path of the working directory in a path or an option.
+     *
+     * @param text The path or option.
+     * @return The text relative to the working directory.
+     */
+    private String relativize(String text) {
+        return text.replace(workingDir, PLACEHOLDER);
+    }
+
+    /**
+     * Adds a text terminated by a separator to a digest.
+     *
+     * @param digest The digest.
+     * @param text The text.
+     */
+    private static void update(MessageDigest digest, String text) {
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Adds an entry to a zip file.
+     *
+     * @param out The zip file.
+     * @param name The name of the entry.
+     * @param data The contents of the entry.
+     * @throws IOException If writing fails.
+     */
+    private static void put(ZipOutputStream out, String name, byte[] data) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(data);
+        out.closeEntry();
+    }
+
+    /**
+     * Reads the current entry of a zip file.
+     *
+     * @param in The zip file.
+     * @return The contents of the entry.
+     * @throws IOException If reading fails.
+     */
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            result.write(buffer, 0, read);
+        }
+        return result.toByteArray();
+    }
+
+}
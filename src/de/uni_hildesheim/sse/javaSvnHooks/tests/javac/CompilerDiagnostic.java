@@ -0,0 +1,176 @@
+package de.uni_hildesheim.sse.javaSvnHooks.tests.javac;
+
+/**
+ * A message of the Java compiler independent of how the compiler was executed, i.e., created from the
+ * diagnostics of the in-process compiler (see {@link PrintDiagnostics}) as well as from the output of an
+ * external compiler (see {@link JavacTestFilter}), and rendered by {@link DiagnosticRenderer}.
+ */
+public class CompilerDiagnostic {
+
+    /**
+     * The kinds of messages.
+     */
+    public enum Kind {
+        ERROR("error"),
+        WARNING("warning"),
+        NOTE("Note");
+
+        private String label;
+
+        /**
+         * Creates a kind.
+         *
+         * @param label the label of the kind as printed by the compiler
+         */
+        private Kind(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Returns the label of the kind as printed by the compiler.
+         *
+         * @return the label
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Returns the type of the kind in the XML output.
+         *
+         * @return the type
+         */
+        public String getType() {
+            return label.toLowerCase();
+        }
+    }
+
+    private String tool;
+    private Kind kind;
+    private String message;
+    private String file;
+    private int line = -1;
+    private int column = -1;
+    private String code;
+    private StringBuilder details = new StringBuilder();
+
+    /**
+     * Creates a message without location.
+     *
+     * @param tool the name of the reporting tool
+     * @param kind the kind of the message
+     * @param message the (first line of the) message
+     */
+    public CompilerDiagnostic(String tool, Kind kind, String message) {
+        this.tool = tool;
+        this.kind = kind;
+        this.message = message;
+    }
+
+    /**
+     * Defines the location of the message.
+     *
+     * @param file the file relative to the working directory
+     * @param line the line number (1-based)
+     */
+    public void setLocation(String file, int line) {
+        this.file = file;
+        this.line = line;
+    }
+
+    /**
+     * Defines the code the message refers to.
+     *
+     * @param code the source code line
+     * @param column the column within <code>code</code> (1-based)
+     */
+    public void setCode(String code, int column) {
+        this.code = code;
+        this.column = column;
+    }
+
+    /**
+     * Adds a further line of the message, e.g., the symbol which was not found.
+     *
+     * @param detail the additional line
+     */
+    public void addDetail(String detail) {
+        if (details.length() > 0) {
+            details.append('\n');
+        }
+        details.append(detail);
+    }
+
+    /**
+     * Returns the name of the reporting tool.
+     *
+     * @return the name of the tool
+     */
+    public String getTool() {
+        return tool;
+    }
+
+    /**
+     * Returns the kind of the message.
+     *
+     * @return the kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the (first line of the) message.
+     *
+     * @return the message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the file the message refers to.
+     *
+     * @return the file relative to the working directory, <b>null</b> for general messages
+     */
+    public String getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the line the message refers to.
+     *
+     * @return the line number (1-based), negative if unknown
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the column the message refers to.
+     *
+     * @return the column within {@link #getCode()} (1-based), negative if unknown
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Returns the code the message refers to.
+     *
+     * @return the source code line, <b>null</b> if unknown
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * Returns the further lines of the message.
+     *
+     * @return the further lines separated by line breaks, empty if there are none
+     */
+    public String getDetails() {
+        return details.toString();
+    }
+
+}
@@ -0,0 +1,156 @@
+package de.uni_hildesheim.sse.javaSvnHooks.tests.javac;
+
+import java.io.PrintStream;
+import java.util.List;
+
+import de.uni_hildesheim.sse.javaSvnHooks.tests.ITestMessageFilter;
+import de.uni_hildesheim.sse.javaSvnHooks.util.XmlUtilities;
+
+/**
+ * Renders {@link CompilerDiagnostic compiler messages} either as XML elements (see
+ * {@link ITestMessageFilter}) or as plain text in the format of the Java compiler.
+ */
+public class DiagnosticRenderer {
+
+    /**
+     * Prevents this class from being instantiated from outside.
+     */
+    private DiagnosticRenderer() {
+    }
+
+    /**
+     * Prints the given messages followed by the number of errors and warnings in plain text.
+     *
+     * @param out the stream to print to
+     * @param diagnostics the messages
+     * @param xml print the messages as XML elements or as plain text
+     */
+    public static void print(PrintStream out, List<CompilerDiagnostic> diagnostics, boolean xml) {
+        int errors = 0;
+        int warnings = 0;
+        for (CompilerDiagnostic diagnostic : diagnostics) {
+            String text = render(diagnostic, xml);
+            if (null != text) {
+                out.println(text);
+            }
+            if (CompilerDiagnostic.Kind.ERROR == diagnostic.getKind()) {
+                errors++;
+            } else if (CompilerDiagnostic.Kind.WARNING == diagnostic.getKind()) {
+                warnings++;
+            }
+        }
+        if (!xml) {
+            printCount(out, errors, "error");
+            printCount(out, warnings, "warning");
+        }
+    }
+
+    /**
+     * Prints a count in the format of the Java compiler.
+     *
+     * @param out the stream to print to
+     * @param count the count, nothing is printed if <code>0</code>
+     * @param noun the counted noun (singular)
+     */
+    private static void printCount(PrintStream out, int count, String noun) {
+        if (count > 0) {
+            out.println(count + " " + noun + (1 == count ? "" : "s"));
+        }
+    }
+
+    /**
+     * Renders a message.
+     *
+     * @param diagnostic the message
+     * @param xml render the message as XML element or as plain text
+     * @return the rendered message without trailing line break, <b>null</b> if the message is not
+     *     rendered (notes in XML)
+     */
+    public static String render(CompilerDiagnostic diagnostic, boolean xml) {
+        String result;
+        if (xml) {
+            result = CompilerDiagnostic.Kind.NOTE == diagnostic.getKind() ? null : renderXml(diagnostic);
+        } else {
+            result = renderPlain(diagnostic);
+        }
+        return result;
+    }
+
+    /**
+     * Renders a message as XML element.
+     *
+     * @param diagnostic the message
+     * @return the XML element
+     */
+    private static String renderXml(CompilerDiagnostic diagnostic) {
+        StringBuilder result = new StringBuilder();
+        String text = diagnostic.getKind().getLabel() + ": " + diagnostic.getMessage();
+        if (diagnostic.getDetails().length() > 0) {
+            text += "\n" + diagnostic.getDetails();
+        }
+        result.append("  <message tool=\"");
+        result.append(diagnostic.getTool());
+        result.append("\" type=\"");
+        result.append(diagnostic.getKind().getType());
+        if (null == diagnostic.getFile()) {
+            result.append("\" message=\"");
+            result.append(XmlUtilities.xmlifyForAttributes(text));
+            result.append("\"/>");
+        } else {
+            result.append("\" file=\"");
+            result.append(XmlUtilities.xmlify(diagnostic.getFile()));
+            result.append("\" line=\"");
+            result.append(diagnostic.getLine());
+            result.append("\" message=\"");
+            result.append(XmlUtilities.xmlifyForAttributes(text));
+            result.append("\">\n");
+            if (null != diagnostic.getCode() && diagnostic.getColumn() > 0) {
+                result.append("    <example position=\"");
+                result.append(diagnostic.getColumn() - 1);
+                result.append("\">\n");
+                // xmlify drops line breaks
+                result.append(XmlUtilities.xmlify(diagnostic.getCode()));
+                result.append('\n');
+                result.append("    </example>\n");
+            }
+            result.append("  </message>");
+        }
+        return result.toString();
+    }
+
+    /**
+     * Renders a message as plain text in the format of the Java compiler.
+     *
+     * @param diagnostic the message
+     * @return the text
+     */
+    private static String renderPlain(CompilerDiagnostic diagnostic) {
+        StringBuilder result = new StringBuilder();
+        if (null != diagnostic.getFile()) {
+            result.append(diagnostic.getFile());
+            result.append(':');
+            result.append(diagnostic.getLine());
+            result.append(": ");
+        }
+        result.append(diagnostic.getKind().getLabel());
+        result.append(": ");
+        result.append(diagnostic.getMessage());
+        String code = diagnostic.getCode();
+        if (null != code && diagnostic.getColumn() > 0) {
+            result.append('\n');
+            result.append(code);
+            result.append('\n');
+            // keep tabs so that the marker is aligned with the code
+            for (int i = 0; i < diagnostic.getColumn() - 1; i++) {
+                result.append(i < code.length() && '\t' == code.charAt(i) ? '\t' : ' ');
+            }
+            result.append('^');
+        }
+        if (diagnostic.getDetails().length() > 0) {
+            result.append('\n');
+            result.append(diagnostic.getDetails());
+        }
+        return result.toString();
+    }
+
+}
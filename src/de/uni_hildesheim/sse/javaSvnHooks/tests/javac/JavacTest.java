@@ -1,16 +1,21 @@
 package de.uni_hildesheim.sse.javaSvnHooks.tests.javac;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Collection;
-import java.util.List;
 
 import de.uni_hildesheim.sse.javaSvnHooks.Configuration;
 import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.AbstractJavaCompilationTest;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.JavaCompilerService;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.Test;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.eclipse_config.EclipseConfigurationTest;
+import de.uni_hildesheim.sse.javaSvnHooks.util.EncodingScanner;
 
 /**
  * Implements a (default) commit test for the Java compiler.
@@ -25,6 +30,9 @@ import de.uni_hildesheim.sse.javaSvnHooks.tests.eclipse_config.EclipseConfigurat
  *      specify additional elements for the classpath</li>
  *  <li><code>config<i>Nr</i>.javac.libDir = </code> the directory
  *      to be searched recursively for additional libraries</li>
+ *  <li><code>config<i>Nr</i>.javac.diagnosticsOnly = true</code> compiles
+ *      the sources in memory without writing classes if no JUnit test
+ *      runs in the current stage</li>
  * </ul>
  * Furthermore, the parameters described in
  * {@link de.uni_hildesheim.sse.javaSvnCommit.core.AbstractJavaTest} 
@@ -42,6 +50,12 @@ import de.uni_hildesheim.sse.javaSvnHooks.tests.eclipse_config.EclipseConfigurat
  */
 public class JavacTest extends AbstractJavaCompilationTest {
 
+    /**
+     * The property (relative to the configuration) enabling the compilation
+     * without writing classes.
+     */
+    public static final String DIAGNOSTICS_ONLY_PROPERTY = "javac.diagnosticsOnly";
+
     @Override
     public String getName() {
         return "Compiling the submitted sources (Java)";
@@ -61,13 +75,17 @@ public class JavacTest extends AbstractJavaCompilationTest {
         for (File file : javaFiles) {
             checkAndRepairEncoding(file);
         }
+        String fingerprint = fingerprintCompilation(javaFiles);
         
         try {
-            if (shouldCompileAtCommandLine()) {
-                List<String> files = findJavaFilesList(srcPath);
-                result = compiliationAtComandLine(pathConfiguration, files);
+            CompilationCache cache = CompilationCache.getInstance(pathConfiguration);
+            if (null == cache) {
+                result = compile(srcPath, javaFiles);
             } else {
-                result = compileInJava(javaFiles);
+                result = compileCached(cache, srcPath, javaFiles);
+            }
+            if (0 == result) {
+                registerCompilation(fingerprint);
             }
         } catch (IOException | InterruptedException e) {
             Logger.INSTANCE.logException(e, false);
@@ -77,51 +95,113 @@ public class JavacTest extends AbstractJavaCompilationTest {
     }
     
     /**
-     * Searches for umlauts that are wrongly converted to UTF-8.
+     * Replays the compilation of the sources from the compilation cache or, if not cached, compiles the
+     * sources and adds the result to the cache.
+     * 
+     * @param cache The compilation cache.
+     * @param srcPath The source path.
+     * @param javaFiles The sources.
+     * @return The result of the compiler (0 denotes success).
+     * @throws IOException if an I/O error occurred
+     * @throws InterruptedException if interrupted while waiting for the compiler
+     */
+    private int compileCached(CompilationCache cache, String srcPath, Collection<File> javaFiles)
+        throws IOException, InterruptedException {
+        String key = cache.getKey(getCompilerId(), params, javaFiles, homeDir);
+        Integer cached = cache.replay(key, outputDir, configuration.getTestOutputStream());
+        int result;
+        if (null != cached) {
+            Logger.INSTANCE.log("Replayed the compilation from the compilation cache");
+            result = cached;
+        } else {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            PrintStream previous = configuration.bindTestOutputStream(new PrintStream(output, true));
+            try {
+                result = compile(srcPath, javaFiles);
+            } finally {
+                configuration.bindTestOutputStream(previous);
+            }
+            configuration.getTestOutputStream().write(output.toByteArray());
+            configuration.getTestOutputStream().flush();
+            if (0 == result || 1 == result) { // no internal failure
+                pathConfiguration.invalidateFileIndex();
+                cache.store(key, result, output.toByteArray(), outputDir, 
+                    pathConfiguration.getFileIndex().getFiles("class"));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Searches for umlauts that are wrongly converted to UTF-8. The file is
+     * only rewritten if it contains such characters.
      * @param file The file to check and possibly fix.
      */
     private void checkAndRepairEncoding(File file) {
         try {
-            String content = org.apache.commons.io.FileUtils.readFileToString(
-                    file, StandardCharsets.UTF_8);
-            
-            StringBuilder builder = new StringBuilder();
-            for (int i = 0; i < content.length(); i++) {
-                char c = content.charAt(i);
-                switch (c) {
-                // Umlauts coded with "ANSI"
-                case 65533:
-                    break;
-                // Umlauts coded with "UTF-8 without BOM"
-                case 196:
-                    break;
-                case 214:
-                    break;
-                case 220:
-                    break;
-                case 223:
-                    break;
-                case 228:
-                    break;
-                case 246:
-                    break;
-                case 252:
-                    break;
-                // Umlauts coded with "UTF-8"
-                case 65279:
-                    break;
-                default:
-                    builder.append(c);
-                    break;
-                }
+            if (EncodingScanner.needsRepair(file)) {
+                repairEncoding(file);
             }
-            
-            org.apache.commons.io.FileUtils.write(file, builder.toString(), StandardCharsets.UTF_8);
-            
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+    
+    /**
+     * Removes umlauts, byte order marks and invalid UTF-8 from a file.
+     * @param file The file to fix.
+     * @throws IOException if reading or writing the file fails
+     */
+    private void repairEncoding(File file) throws IOException {
+        String content = org.apache.commons.io.FileUtils.readFileToString(
+                file, StandardCharsets.UTF_8);
+        
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            switch (c) {
+            // Umlauts coded with "ANSI"
+            case 65533:
+                break;
+            // Umlauts coded with "UTF-8 without BOM"
+            case 196:
+                break;
+            case 214:
+                break;
+            case 220:
+                break;
+            case 223:
+                break;
+            case 228:
+                break;
+            case 246:
+                break;
+            case 252:
+                break;
+            // Umlauts coded with "UTF-8"
+            case 65279:
+                break;
+            default:
+                builder.append(c);
+                break;
+            }
+        }
+        
+        // replace atomically as tests not depending on javac may read the file concurrently
+        File tmp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        org.apache.commons.io.FileUtils.write(tmp, builder.toString(), StandardCharsets.UTF_8);
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    protected boolean compilesInMemory() {
+        // the JUnit test reuses the classes compiled by this test
+        String junit = "junit" + (Configuration.Stage.PRE_COMMIT == configuration.getStage() ? "_pre" : "_post");
+        return pathConfiguration.getBooleanProperty(DIAGNOSTICS_ONLY_PROPERTY, false)
+            && !pathConfiguration.getBooleanProperty(junit, false)
+            && null != JavaCompilerService.INSTANCE.getCompiler();
+    }
 
     @Override
     public Class<? extends Test> dependsOn(Configuration.Stage stage) {
@@ -1,200 +1,258 @@
 package de.uni_hildesheim.sse.javaSvnHooks.tests.javac;
 
-import de.uni_hildesheim.sse.javaSvnHooks.Configuration;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
 import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
-import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.ITestMessageFilter;
-import de.uni_hildesheim.sse.javaSvnHooks.util.XmlUtilities;
 
 /**
- * Implements a test filter according to the message format 
- * of the Java compiler. Currently, this filter does not
- * consider warnings. For the output XML format see 
- * {@link ITestMessageFilter}.
- * 
+ * Implements a test filter according to the message format
+ * of the Java compiler. The output of the compiler is parsed
+ * into {@link CompilerDiagnostic compiler messages}, which are
+ * rendered by the {@link DiagnosticRenderer} as for the
+ * in-process compiler, i.e., as XML elements (see
+ * {@link ITestMessageFilter}) or as plain text.
+ * <p>
+ * A message consists of a header (<code>file:line: kind: message</code>
+ * or <code>kind: message</code>), optionally followed by the source
+ * code line and a line marking the column, and further lines of the
+ * message. As a message is complete only when the next message starts,
+ * messages are emitted with a delay of one message. The same filter
+ * may be informed by the gobblers of both streams of the compiler
+ * process, thus, the parsing state is kept per calling thread.
+ *
  * @author Holger Eichelberger
  * @since 1.00
  * @version 1.00
  */
 public class JavacTestFilter implements ITestMessageFilter {
 
-    /**
-     * Stores the state while parsing the tool output.
-     * 1 denotes the example part of a message where the
-     * error is indicated by a "^", 0 denotes the remainder
-     * (beginning) of the message.
-     * 
-     * @since 1.00
-     */
-    private int errorWarningMessageState = 0;
+    private static final String TOOL = "javac";
 
-    /**
-     * Stores a message buffer so that multiple lines 
-     * can be processed.
-     * 
-     * @since 1.00
-     */
-    private StringBuilder buffer = new StringBuilder();
+    private PathConfiguration pathConfiguration;
 
-    /**
-     * Stores if the last message had an example.
-     * 
-     * @since 1.00
-     */
-    private boolean hadExample = false;
+    private File baseDir;
+
+    private boolean xml;
+
+    private Map<Thread, ParseState> states = new HashMap<Thread, ParseState>();
 
     /**
-     * Stores if the currently processed message
-     * was the first message.
-     * 
-     * @since 1.00
+     * The parsing state of a stream.
      */
-    private boolean firstMsg = true;
-    
+    private class ParseState {
+
+        private CompilerDiagnostic current;
+        private String code;
+        private boolean beforeMarker;
+
+        /**
+         * Parses a line of the compiler output.
+         *
+         * @param line the line
+         * @return the rendered text of a completed message, <b>null</b> for none
+         */
+        private String accept(String line) {
+            String result = null;
+            CompilerDiagnostic header = parseHeader(line);
+            if (null != header) {
+                result = complete();
+                current = header;
+                beforeMarker = null != header.getFile();
+            } else if (isCount(line)) {
+                result = join(complete(), xml ? null : line);
+            } else if (null == current) {
+                result = xml ? null : line;
+            } else if (beforeMarker && line.trim().equals("^")) {
+                current.setCode(code, line.indexOf('^') + 1);
+                code = null;
+                beforeMarker = false;
+            } else if (beforeMarker) {
+                if (null != code) {
+                    current.addDetail(code);
+                }
+                code = line;
+            } else {
+                current.addDetail(line);
+            }
+            return result;
+        }
+
+        /**
+         * Completes the current message.
+         *
+         * @return the rendered message, <b>null</b> for none
+         */
+        private String complete() {
+            String result = null;
+            if (null != current) {
+                if (null != code) {
+                    current.addDetail(code);
+                }
+                result = DiagnosticRenderer.render(current, xml);
+                current = null;
+                code = null;
+            }
+            return result;
+        }
+
+    }
+
     /**
-     * Stores the global configuration instance.
-     * 
+     * Creates a new filter instance for a compiler running in the
+     * working directory.
+     *
+     * @param pathConfiguration the configuration data to be considered
+     *
      * @since 1.00
      */
-    private Configuration configuration;
-    
-    private PathConfiguration pathConfiguration;
+    public JavacTestFilter(PathConfiguration pathConfiguration) {
+        this(pathConfiguration, pathConfiguration.getWorkingDir());
+    }
 
     /**
      * Creates a new filter instance.
-     * 
+     *
      * @param pathConfiguration the configuration data to be considered
-     * 
-     * @since 1.00
+     * @param baseDir the directory the compiler is running in, i.e.,
+     *     the directory relative file names refer to
      */
-    public JavacTestFilter(PathConfiguration pathConfiguration) {
+    public JavacTestFilter(PathConfiguration pathConfiguration, File baseDir) {
         this.pathConfiguration = pathConfiguration;
-        this.configuration = pathConfiguration.getGlobalConfiguration();
+        this.baseDir = baseDir;
+        this.xml = pathConfiguration.getGlobalConfiguration().produceXmlOutput();
     }
 
     /**
      * Filters a given <code>line</code>.
-     * 
+     *
      * @param lineNr the line number of <code>line</code> in the
      *        entire output of the test
-     * @param line the line with number <code>lineNr</code> of the 
+     * @param line the line with number <code>lineNr</code> of the
      *        test output
      * @return the filtered message in XML format
-     * 
+     *
      * @since 1.00
      */
     public String filterMessage(int lineNr, String line) {
-        final String input = line;
-        boolean handled = false;
-        switch (errorWarningMessageState) {
-        case 0:
-            line = handleErrorWarningMessageStateEquals0(line);
-            handled = line != null;
-            break;
-        case 1:
-            line = handleErrorWarningMessageStateEquals1(line);
-            handled = true;
-            break;
-        default:
-            break;
-        }
-        if (null == line && 0 == errorWarningMessageState) {
-            if (!hadExample && !firstMsg) {
-                line = "  </message>\n";
+        ParseState state;
+        synchronized (states) {
+            state = states.get(Thread.currentThread());
+            if (null == state) {
+                state = new ParseState();
+                states.put(Thread.currentThread(), state);
             }
         }
-        if (configuration.produceXmlOutput()) {
-            String out = input;
-            if (!handled) {
-                out += " |***";
+        return state.accept(line);
+    }
+
+    /**
+     * Parses the header of a message.
+     *
+     * @param line the line to parse
+     * @return the message, <b>null</b> if <code>line</code> is not a header
+     */
+    private CompilerDiagnostic parseHeader(String line) {
+        CompilerDiagnostic result = null;
+        for (CompilerDiagnostic.Kind kind : CompilerDiagnostic.Kind.values()) {
+            String label = kind.getLabel() + ": ";
+            int pos = line.indexOf(": " + label);
+            if (null == result && line.startsWith(label)) {
+                result = new CompilerDiagnostic(TOOL, kind, line.substring(label.length()));
+            } else if (null == result && pos > 0) {
+                String location = line.substring(0, pos);
+                int colon = location.lastIndexOf(':');
+                int lineNr = colon > 0 ? parseNumber(location.substring(colon + 1)) : -1;
+                if (lineNr > 0) {
+                    result = new CompilerDiagnostic(TOOL, kind, line.substring(pos + label.length() + 2));
+                    result.setLocation(relativize(location.substring(0, colon)), lineNr);
+                }
             }
-            Logger.INSTANCE.log(out);
         }
-        return line;
+        if (null == result && line.startsWith(TOOL + ": ")) { // older compilers
+            result = new CompilerDiagnostic(TOOL, CompilerDiagnostic.Kind.ERROR,
+                line.substring(TOOL.length() + 2));
+        }
+        return result;
     }
 
     /**
-     * Called by filterMessage() if errorWarningMessageState is 1.
-     * @param line The line to be filtered.
-     * @return The filtered line.
+     * Returns whether a line is the number of errors or warnings
+     * printed at the end of the compilation.
+     *
+     * @param line the line
+     * @return <code>true</code> for a count, <code>false</code> else
      */
-    private String handleErrorWarningMessageStateEquals1(String line) {
-        if (line.trim().equals("^")) {
-            int pos = line.indexOf("^");
-            line =
-                "    <example position=\"" + pos + "\">\n"
-                + XmlUtilities.xmlify(buffer.toString())
-                + "    </example>\n  </message>";
-            errorWarningMessageState = 0;
-            buffer = new StringBuilder();
-            hadExample = true;
-        } else {
-            if (null != line) {
-                buffer.append(line);
-                buffer.append("\n");
-            }
-            line = null;
+    private static boolean isCount(String line) {
+        int pos = line.indexOf(' ');
+        boolean result = false;
+        if (pos > 0 && parseNumber(line.substring(0, pos)) > 0) {
+            String noun = line.substring(pos + 1);
+            result = noun.equals("error") || noun.equals("errors")
+                || noun.equals("warning") || noun.equals("warnings");
         }
-        return line;
+        return result;
     }
 
     /**
-     * Called by filterMessage() if errorWarningMessageState is 0.
-     * @param line The line to be filtered.
-     * @return The filtered line.
+     * Parses a positive number.
+     *
+     * @param text the text
+     * @return the number, <code>-1</code> if <code>text</code> is not a
+     *     positive number
      */
-    private String handleErrorWarningMessageStateEquals0(String line) {
-        int dotPos = line.indexOf(".");
-        if (dotPos > 0) {
-            int firstColonPos = line.indexOf(":", dotPos + 1);
-            if (firstColonPos > 0) {
-                int sndColonPos = line.indexOf(":", firstColonPos + 1);
-                if (sndColonPos > 0) {
-                    String result = "";
-                    if (!hadExample && !firstMsg) {
-                        result = "  </message>\n";
-                    }
-                    hadExample = false;
-                    errorWarningMessageState = 1;
-                    result +=
-                        "  <message tool=\"javac\" type=\"error\" "
-                        + "file=\""
-                        + XmlUtilities.xmlify(pathConfiguration.relativizeFileName(
-                                line.substring(0, firstColonPos)));
-                    result =
-                        result
-                            + "\" line=\""
-                            + line.substring(firstColonPos + 1,
-                                sndColonPos);
-                    line =
-                        result
-                            + "\" message=\""
-                            + XmlUtilities.xmlify(line.substring(sndColonPos + 1)
-                                .trim()) + "\">";
-                    firstMsg = false;
-                } else {
-                    line = null;
-                }
-            } else {
-                line = null;
-            }
+    private static int parseNumber(String text) {
+        int result = text.length() > 0 && text.length() < 10 ? 0 : -1;
+        for (int i = 0; result >= 0 && i < text.length(); i++) {
+            char c = text.charAt(i);
+            result = c >= '0' && c <= '9' ? result * 10 + (c - '0') : -1;
+        }
+        return result;
+    }
+
+    /**
+     * Turns a file name printed by the compiler into a file name
+     * relative to the working directory.
+     *
+     * @param fileName the file name
+     * @return the relative file name
+     */
+    private String relativize(String fileName) {
+        File file = new File(fileName);
+        if (!file.isAbsolute() && null != baseDir) {
+            file = new File(baseDir, fileName);
+        }
+        return pathConfiguration.relativizeFileName(file.getAbsolutePath());
+    }
+
+    /**
+     * Joins two texts by a line break.
+     *
+     * @param first the first text, may be <b>null</b>
+     * @param second the second text, may be <b>null</b>
+     * @return the joined text, <b>null</b> if both are <b>null</b>
+     */
+    private static String join(String first, String second) {
+        String result;
+        if (null == first) {
+            result = second;
+        } else if (null == second) {
+            result = first;
         } else {
-            if (line.startsWith("javac:")) {
-                String result = "  <message tool=\"javac\" type=\"error\" ";
-                line =
-                    result
-                        + "message=\""
-                        + XmlUtilities.xmlify(line) + "\"/>";
-            } else {
-                line = null;
-            }
+            result = first + "\n" + second;
         }
-        return line;
+        return result;
     }
 
     @Override
     public String done() {
-        return null;
+        ParseState state;
+        synchronized (states) {
+            state = states.remove(Thread.currentThread());
+        }
+        return null == state ? null : state.complete();
     }
 
-}
\ No newline at end of file
+}
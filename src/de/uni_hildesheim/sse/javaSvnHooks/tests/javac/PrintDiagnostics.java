@@ -1,125 +1,176 @@
 package de.uni_hildesheim.sse.javaSvnHooks.tests.javac;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticCollector;
 import javax.tools.JavaFileObject;
 
-import de.uni_hildesheim.sse.javaSvnHooks.util.XmlUtilities;
+import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
 
 /**
  * A class for converting java compiler diagnostic objects to
- * textual output.
- * 
+ * textual output, i.e., into {@link CompilerDiagnostic compiler messages}
+ * rendered by the {@link DiagnosticRenderer} as for an external compiler.
+ *
  * @author Holger Eichelberger
  * @since 1.20
  * @version 1.20
  */
 public class PrintDiagnostics {
 
+    private static final String TOOL = "javac";
+
+    /**
+     * The content of a source file.
+     */
+    private static class SourceContent {
+
+        private String content;
+
+        /**
+         * Creates the content of a source file.
+         *
+         * @param content the content of the source file
+         */
+        private SourceContent(String content) {
+            this.content = content;
+        }
+
+        /**
+         * Defines the code line and the column of a message. The column is
+         * determined in characters (not expanding tabs) as for the output of
+         * an external compiler.
+         *
+         * @param diagnostic the message
+         * @param position the character offset of the message in the source
+         */
+        private void setCode(CompilerDiagnostic diagnostic, long position) {
+            if (position >= 0 && position <= content.length()) {
+                int pos = (int) position;
+                int start = Math.max(content.lastIndexOf('\n', pos - 1), content.lastIndexOf('\r', pos - 1)) + 1;
+                int end = start;
+                while (end < content.length() && content.charAt(end) != '\n' && content.charAt(end) != '\r') {
+                    end++;
+                }
+                diagnostic.setCode(content.substring(start, end), pos - start + 1);
+            }
+        }
+
+    }
+
     /**
      * Prevents this class from being instantiated from outside.
-     * 
+     *
      * @since 1.20
      */
     private PrintDiagnostics() {
     }
-    
+
     /**
      * Prints the diagnostics of the given collator.
-     * 
+     *
      * @param out The {@link PrintStream} to write the results to.
      * @param diagnostics the diagnostics of the given collator
      * @param xml print the diagnostics as XML elements
-     * 
+     * @param pathConfiguration the configuration of the compiled group,
+     *     file names are printed relative to its working directory
+     *
      * @since 1.00
      */
     public static void printDiagnostics(PrintStream out,
-        DiagnosticCollector<? extends JavaFileObject> diagnostics, 
-        boolean xml) {
-        for (Diagnostic<? extends JavaFileObject> diagnostic 
+        DiagnosticCollector<? extends JavaFileObject> diagnostics,
+        boolean xml, PathConfiguration pathConfiguration) {
+        DiagnosticRenderer.print(out, toCompilerDiagnostics(diagnostics, pathConfiguration), xml);
+    }
+
+    /**
+     * Converts the diagnostics of the given collator.
+     *
+     * @param diagnostics the diagnostics of the given collator
+     * @param pathConfiguration the configuration of the compiled group
+     * @return the compiler messages
+     */
+    public static List<CompilerDiagnostic> toCompilerDiagnostics(
+        DiagnosticCollector<? extends JavaFileObject> diagnostics, PathConfiguration pathConfiguration) {
+        List<CompilerDiagnostic> result = new ArrayList<CompilerDiagnostic>();
+        Map<JavaFileObject, SourceContent> sources = new HashMap<JavaFileObject, SourceContent>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic
             : diagnostics.getDiagnostics()) {
-            String type;
+            CompilerDiagnostic.Kind kind;
             switch (diagnostic.getKind()) {
             case ERROR:
-                type = "error";
+                kind = CompilerDiagnostic.Kind.ERROR;
                 break;
             case MANDATORY_WARNING:
-                type = "warning";
-                break;
-            case NOTE:
-                type = null;
-                break;
             case WARNING:
-                type = "warning";
+                kind = CompilerDiagnostic.Kind.WARNING;
                 break;
-            case OTHER:
-                type = null;
+            case NOTE:
+                kind = CompilerDiagnostic.Kind.NOTE;
                 break;
             default:
-                type = null;
+                kind = null;
                 break;
             }
-            if (null != type) {
-                if (xml) {
-                    out.print("<message tool=\"javac\"");
-                    out.print("type = \"" + type + "\"");
-                    out.print("file = \"" 
-                        + XmlUtilities.xmlify(diagnostic.getSource().getName()) 
-                        + "\"");
-                    out.print("message = \"" 
-                        + XmlUtilities.xmlify(diagnostic.getMessage(null)) 
-                        + "\"");
-                    out.println("line = \"" 
-                        + diagnostic.getLineNumber() + "\">");
-                    if (Diagnostic.NOPOS != diagnostic.getColumnNumber()) {
-                        out.println("<example position=\"" 
-                            + diagnostic.getColumnNumber() + "\">");
-                        if (null != diagnostic.getCode()) {
-                            out.println(
-                                XmlUtilities.xmlify(diagnostic.getCode()));
-                        }
-                        out.println("</example>");
+            if (null != kind) {
+                String[] lines = toLines(diagnostic.getMessage(null));
+                CompilerDiagnostic converted = new CompilerDiagnostic(TOOL, kind, lines[0]);
+                JavaFileObject source = diagnostic.getSource();
+                if (null != source && Diagnostic.NOPOS != diagnostic.getLineNumber()) {
+                    converted.setLocation(pathConfiguration.relativizeFileName(
+                        new File(source.toUri()).getAbsolutePath()), (int) diagnostic.getLineNumber());
+                    if (Diagnostic.NOPOS != diagnostic.getPosition()) {
+                        getSourceContent(sources, source).setCode(converted, diagnostic.getPosition());
                     }
-                    out.println("</message>");
-                } else {
-                    out.print(
-                        diagnostic.getSource().getName());
-                    out.print(":");
-                    out.print(
-                        String.valueOf(diagnostic.getLineNumber()));
-                    out.print(":");
-                    
-                    out.println(
-                        toOneLine(diagnostic.getMessage(null)));
                 }
+                for (int l = 1; l < lines.length; l++) {
+                    converted.addDetail(lines[l]);
+                }
+                result.add(converted);
             }
         }
+        return result;
     }
 
     /**
-     * Removes all line breaks.
-     * 
-     * @param text the text to be processed
-     * @return the line breaks to be removed
-     * 
-     * @since 1.00
+     * Returns the content of a source file.
+     *
+     * @param sources the source files read so far
+     * @param source the source file
+     * @return the content, empty if the source file cannot be read
      */
-    private static String toOneLine(String text) {
-        StringBuffer buf = new StringBuffer();
-        for (int i = 0; i < text.length(); i++) {
-            char c = text.charAt(i);
-            if (c == '\n') {
-                c = ' ';
-            } else if (c == '\r') {
-                c = 0;
-            }
-            if (c != 0) {
-                buf.append(c);
+    private static SourceContent getSourceContent(Map<JavaFileObject, SourceContent> sources, JavaFileObject source) {
+        SourceContent result = sources.get(source);
+        if (null == result) {
+            String content;
+            try {
+                content = source.getCharContent(true).toString();
+            } catch (IOException e) {
+                Logger.INSTANCE.logException(e, false);
+                content = "";
             }
+            result = new SourceContent(content);
+            sources.put(source, result);
         }
-        return buf.toString();
+        return result;
+    }
+
+    /**
+     * Splits a text into lines.
+     *
+     * @param text the text to be processed
+     * @return the lines without line breaks
+     */
+    private static String[] toLines(String text) {
+        return text.split("\r\n|\r|\n", -1);
     }
-    
+
 }
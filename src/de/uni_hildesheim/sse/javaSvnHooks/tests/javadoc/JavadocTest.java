@@ -91,6 +91,8 @@ public class JavadocTest extends AbstractJavaTest {
             Logger.INSTANCE.logException(e, false);
             result = 2;
         }
+        // generated documentation
+        pathConfiguration.invalidateFileIndex();
         if (0 == result && filter.hasError()) {
             result = 1;
         }
@@ -36,17 +36,24 @@ public class JUnitRunListener extends RunListener {
     
     @Override
     public void testFailure(Failure failure) {
-        Importance importance = currentTest.getAnnotation(Importance.class);
+        // the failed test, as tests may run in parallel
+        Description failedTest = null != failure.getDescription() ? failure.getDescription() : currentTest;
+        Importance importance = failedTest.getAnnotation(Importance.class);
         boolean mandatory = true;
         if (null != importance) {
             mandatory = importance.mandatory();
         }
         
-        FailureMessage messageAnnoation = currentTest.getAnnotation(
+        FailureMessage messageAnnoation = failedTest.getAnnotation(
                 FailureMessage.class);
         
         String message;
-        if (messageAnnoation != null) {
+        if (failure.getException() instanceof TimeBudgetExceededException) {
+            message = failure.getException().getMessage();
+            if (messageAnnoation != null) {
+                message = messageAnnoation.message() + " (" + message + ")";
+            }
+        } else if (messageAnnoation != null) {
             message = messageAnnoation.message();
         } else {
             Logger.INSTANCE.logException(failure.getException(), false);
@@ -3,15 +3,14 @@ package de.uni_hildesheim.sse.javaSvnHooks.tests.junit;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
 import java.util.Collection;
-import java.util.List;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.runner.JUnitCore;
 
+import de.uni_hildesheim.sse.javaSvnHooks.CompilationArtifacts;
 import de.uni_hildesheim.sse.javaSvnHooks.Configuration;
+import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
 import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.AbstractJavaCompilationTest;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.Test;
@@ -21,7 +20,9 @@ import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.Console
 import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.TestFailure;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.TestResult;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.TestSuiteSecurityManager;
+import de.uni_hildesheim.sse.javaSvnHooks.util.JarIndex;
 import de.uni_hildesheim.sse.javaSvnHooks.util.ResultOutputStream;
+import de.uni_hildesheim.sse.javaSvnHooks.util.ThreadContext;
 import de.uni_hildesheim.sse.javaSvnHooks.util.XmlUtilities;
 import de.uni_hildesheim.sse.test.suite.AbstractJavaTestSuite;
 
@@ -45,6 +46,27 @@ import de.uni_hildesheim.sse.test.suite.AbstractJavaTestSuite;
  *      if relative. If not given but <code>jUnitSuitePath</code> is specified,
  *      use {@link PathConfiguration#getName()} as name of the jar (adding .jar)
  *      to simplify the configuration effort. 
+ *  <li><code>config<i>Nr</i>.junit.fork = </code> runs the test suite in
+ *      a worker JVM of the {@link JunitWorkerPool} instead of the hook JVM</li>
+ *  <li><code>config<i>Nr</i>.junit.forkSandbox = </code> installs the
+ *      {@link TestSuiteSecurityManager} also in the worker JVM (default
+ *      true, disable only for trusted submissions)</li>
+ *  <li><code>config<i>Nr</i>.junit.parallelThreads = </code> the number
+ *      of threads running the test methods of a test class in parallel
+ *      (default 1, only in a worker JVM with <code>junit.forkSandbox = false</code>). Parallel
+ *      methods share the class loader of the test suite and the JVM-wide security manager, so
+ *      they are neither isolated from each other nor sandboxed. Sandboxed test suites always run
+ *      their methods sequentially; per-method class loaders are deliberately not supported.</li>
+ *  <li><code>config<i>Nr</i>.junit.methodTimeout = </code> the maximum
+ *      time of a single test method in milliseconds (default 0, none), may
+ *      be overridden by the test suite with
+ *      {@link de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.TimeBudget}</li>
+ *  <li><code>config<i>Nr</i>.junit.cpuBudget = </code> the CPU time of
+ *      all test methods in milliseconds, after which the remaining test
+ *      methods fail without being executed (default 0, none)</li>
+ *  <li><code>config<i>Nr</i>.junit.cacheSuite = </code> reuses the loaded
+ *      test suite for further runs in the same JVM (default false, only for
+ *      test suites keeping no state of a run in static fields)</li>
  * </ul>
  * Furthermore, the parameters described in
  * {@link de.uni_hildesheim.sse.javaSvnCommit.core.AbstractJavaTest} 
@@ -55,6 +77,44 @@ import de.uni_hildesheim.sse.test.suite.AbstractJavaTestSuite;
  */
 public class JunitTest extends AbstractJavaCompilationTest {
 
+    /**
+     * The path property executing the test suite in a worker JVM of the
+     * {@link JunitWorkerPool} instead of this JVM.
+     */
+    public static final String FORK_PROPERTY = "junit.fork";
+    
+    /**
+     * The path property installing the {@link TestSuiteSecurityManager} in
+     * the worker JVM, <code>true</code> by default.
+     */
+    public static final String FORK_SANDBOX_PROPERTY = "junit.forkSandbox";
+    
+    /**
+     * The path property specifying the number of threads running the test
+     * methods of a test class in parallel.
+     */
+    public static final String PARALLEL_THREADS_PROPERTY = "junit.parallelThreads";
+    
+    /**
+     * The path property specifying the maximum time of a single test method
+     * in milliseconds.
+     */
+    public static final String METHOD_TIMEOUT_PROPERTY = "junit.methodTimeout";
+    
+    /**
+     * The path property specifying the CPU time budget of all test methods
+     * in milliseconds.
+     */
+    public static final String CPU_BUDGET_PROPERTY = "junit.cpuBudget";
+    
+    /**
+     * The path property reusing the loaded test suite for further runs in
+     * the same JVM, <code>false</code> by default.
+     */
+    public static final String CACHE_SUITE_PROPERTY = "junit.cacheSuite";
+
+    private static volatile boolean forkEnforced;
+
     /**
      * Registers this test automatically when loading this class.
      * 
@@ -77,25 +137,26 @@ public class JunitTest extends AbstractJavaCompilationTest {
             homeDir = new File(homeDir, srcPath);
         }
 
-        // TODO DO WE NEED THIS AT ALL? see dependsOn()
-        Collection<File> javaFiles = pathConfiguration.getJavaFiles();
-        
-        if (shouldCompileAtCommandLine()) {
-            List<String> files = findJavaFilesList(srcPath);
-            result = compiliationAtComandLine(pathConfiguration, files);
-        } else {
-            result = compileInJava(javaFiles);
+        // usually, JavacTest (see dependsOn()) compiled the same sources already
+        if (null == compiled) {
+            Collection<File> javaFiles = pathConfiguration.getJavaFiles();
+            String fingerprint = fingerprintCompilation(javaFiles);
+            
+            result = compile(srcPath, javaFiles);
+            if (0 == result) {
+                registerCompilation(fingerprint);
+            }
         }
         
         return result;
     }
     
     /**
-     * Loads the TestSuite from the location specified in the configuration.
-     * @return The TestSuite class.
-     * @throws NoTestSuiteException If loading the TestSuite fails.
+     * Determines the TestSuite jar from the location specified in the configuration.
+     * @return The path to the TestSuite jar.
+     * @throws NoTestSuiteException If no TestSuite is configured or the jar does not exist.
      */
-    private Class<?> loadTestSuite() throws NoTestSuiteException {
+    private String getTestSuiteJar() throws NoTestSuiteException {
         String testSuiteJarPath = pathConfiguration.getStringProperty(
                 "junit.testSuiteJar", null);
         String junitSuitePath = pathConfiguration.getGlobalConfiguration()
@@ -120,32 +181,7 @@ public class JunitTest extends AbstractJavaCompilationTest {
         if (!new File(testSuiteJarPath).exists()) {
             throw new NoTestSuiteException("TestSuite doesn't exist.");
         }
-        
-        Logger.INSTANCE.log("Creating Classloader.");
-        ClassLoader testSuiteClassLoader;
-        try {
-            // use the loader of this class, not 
-            // ClassLoader.getSystemClassLoader() as this will fail when
-            // testing this test with junit
-            testSuiteClassLoader = new URLClassLoader(new URL[] {
-                new File(testSuiteJarPath).toURI().toURL()}, 
-                JunitTest.class.getClassLoader());
-        } catch (MalformedURLException e) {
-            throw new NoTestSuiteException(e);
-        }
-        
-        Logger.INSTANCE.log("Loading Testsuite class.");
-        final String suiteClsName = "de.uni_hildesheim.sse.test.JavaTestSuite";
-        Class<?> testSuiteClass;
-        try {
-            testSuiteClass = Class.forName(suiteClsName, true,
-                testSuiteClassLoader);
-        } catch (ClassNotFoundException e) {
-            throw new NoTestSuiteException("Class " + suiteClsName 
-                + " not found");
-        }
-        
-        return testSuiteClass;
+        return testSuiteJarPath;
     }
     
     /**
@@ -283,14 +319,69 @@ public class JunitTest extends AbstractJavaCompilationTest {
      * @throws IllegalAccessException If a method of the test suite cannot be invoked (internal problem).
      * @throws InvocationTargetException If a method of the test suite cannot be invoked (internal problem).
      * @throws NoSuchMethodException If a method of the test suite cannot be invoked (internal problem).
+     * @throws InterruptedException If interrupted while waiting for a worker JVM.
      */
     private int executeInternal() throws
+            WrongPackageException, NoTestSuiteException,
+            ClassNotFoundException, IOException,
+            IllegalAccessException, InvocationTargetException, NoSuchMethodException, InterruptedException {
+        int exitCode;
+        if (isForked(pathConfiguration)) {
+            exitCode = executeForked();
+        } else {
+            exitCode = executeInProcess();
+        }
+        return exitCode;
+    }
+    
+    /**
+     * Runs this junit test within this JVM.
+     * 
+     * @return The exit code of this test.
+     * @throws WrongPackageException If a class in the submission has a wrong package declaration.
+     * @throws NoTestSuiteException If the test suite or the classes of the
+     *      submission cannot be loaded.
+     * @throws ClassNotFoundException If a class could not be loaded (internal problem).
+     * @throws IOException If an IO exception occurs (internal problem).
+     * @throws IllegalAccessException If a method of the test suite cannot be invoked (internal problem).
+     * @throws InvocationTargetException If a method of the test suite cannot be invoked (internal problem).
+     * @throws NoSuchMethodException If a method of the test suite cannot be invoked (internal problem).
+     */
+    private int executeInProcess() throws
             WrongPackageException, NoTestSuiteException,
             ClassNotFoundException, IOException,
             IllegalAccessException, InvocationTargetException, NoSuchMethodException {
-        int exitCode = 0;
         // Load TestSuite Jar
-        final Class<?> testSuiteClass = loadTestSuite();
+        Class<?> testSuiteClass = TestSuiteCache.INSTANCE.acquire(getTestSuiteJar(),
+            pathConfiguration.getBooleanProperty(CACHE_SUITE_PROPERTY, false));
+        int exitCode = 2;
+        try {
+            exitCode = executeTestSuite(testSuiteClass);
+        } finally {
+            // a test suite stopped due to the timeout may be in an inconsistent state
+            TestSuiteCache.INSTANCE.release(testSuiteClass, 2 != exitCode);
+        }
+        return exitCode;
+    }
+    
+    /**
+     * Runs the given test suite in this JVM.
+     * 
+     * @param testSuiteClass The test suite class.
+     * @return The exit code of this test.
+     * @throws WrongPackageException If a class in the submission has a wrong package declaration.
+     * @throws NoTestSuiteException If the classes of the submission cannot be loaded.
+     * @throws ClassNotFoundException If a class could not be loaded (internal problem).
+     * @throws IOException If an IO exception occurs (internal problem).
+     * @throws IllegalAccessException If a method of the test suite cannot be invoked (internal problem).
+     * @throws InvocationTargetException If a method of the test suite cannot be invoked (internal problem).
+     * @throws NoSuchMethodException If a method of the test suite cannot be invoked (internal problem).
+     */
+    private int executeTestSuite(final Class<?> testSuiteClass) throws
+            WrongPackageException, NoTestSuiteException,
+            ClassNotFoundException, IOException,
+            IllegalAccessException, InvocationTargetException, NoSuchMethodException {
+        int exitCode = 0;
         // Activate console if specified in configuration to ensure that
         // statically created Scanners get the proper System.in
         if (pathConfiguration.getBooleanProperty(
@@ -301,18 +392,10 @@ public class JunitTest extends AbstractJavaCompilationTest {
         Logger.INSTANCE.log("Creating Registry for " + homeDir.getAbsolutePath());
         ClassRegistry registry = null;
         try {
-            registry = new ClassRegistry(homeDir, 
-                getClasspath(pathConfiguration, "javac", false));
+            registry = new ClassRegistry(homeDir, getClasspath(pathConfiguration, "javac", false), 
+                getSubmittedJavaFiles(), getCompiledClassFiles(), JarIndex.getInstance(configuration));
         } catch (WrongPackageException exc) {
-            //FIXME and TODO SE: Make it generic
-            String offendingFileName = exc.getClassFile().getAbsolutePath();
-            offendingFileName = offendingFileName.replaceAll("\\.class$", ".java");
-            
-            String errorMessage = "  <message tool=\"javac\" type=\"error\" "
-                    + "file=\"" + XmlUtilities.xmlify(pathConfiguration.relativizeFileName(offendingFileName))
-                    + "\" line=\"1\" message=\"Paket-Deklaration und Ordnerstruktur"
-                    + " stimmen nicht ueberein.\" />\n";
-            configuration.getTestOutputStream().print(errorMessage);
+            reportWrongPackage(exc.getClassFile());
             throw exc;
         }
         AbstractJavaTestSuite.setClassRegistry(registry);
@@ -376,26 +459,28 @@ public class JunitTest extends AbstractJavaCompilationTest {
         JUnitRunListener jUnitRunListener = new JUnitRunListener(testResult);
         junit.addListener(jUnitRunListener);
         Logger.INSTANCE.log("Running TestSuite");
+        if (pathConfiguration.getIntProperty(PARALLEL_THREADS_PROPERTY, 1) > 1) {
+            // the security manager of the test suite applies to all threads of this JVM
+            Logger.INSTANCE.log("Running test methods sequentially, parallel execution requires "
+                + FORK_PROPERTY);
+        }
+        final long methodTimeout = getMethodTimeout();
+        final long cpuBudget = getCpuBudget();
         
-        
-        Thread th = new Thread() {
+        Thread th = new Thread(ThreadContext.wrap(new Runnable() {
             @Override
             public void run() {
                 try {
-                    junit.run(testSuiteClass);
+                    ParallelSuiteComputer.run(junit, testSuiteClass, 1, methodTimeout, cpuBudget);
                 } catch (Throwable t) { // catch everything and report!
-                    configuration.getTestOutputStream().print(
-                        "<message tool=\"junit\" type=\"error\" "
-                        + "message=\"Error during test execution (call Java team): "
-                        + t.getMessage() + "\" />");
+                    reportExecutionError(t.getMessage());
                 }
             }
-        };
+        }));
         
         th.start();
         
-        long timeout = pathConfiguration.getIntProperty("junit.timeout",
-                1000 * 60 * 2); // 2 minutes
+        long timeout = getTimeout();
         
         try {
             th.join(timeout);
@@ -410,21 +495,7 @@ public class JunitTest extends AbstractJavaCompilationTest {
             
             if (th.isAlive()) {
                 th.stop();
-                
-                StringBuffer errorMessage = new StringBuffer();
-                if (configuration.produceXmlOutput()) {
-                    errorMessage
-                        .append("<message tool=\"junit\" type=\"error\" ");
-                    errorMessage
-                        .append("message=\"Execution exceeded timeout\">");
-                    errorMessage.append("</message>\n");
-                } else {
-                    errorMessage
-                        .append("logic error: Execution exceeded timeout");
-                    errorMessage.append("\n");
-                }
-                configuration.getTestOutputStream().print(errorMessage.toString());
-                
+                reportTimeout();
                 timedOut = true;
             }
         }
@@ -433,6 +504,193 @@ public class JunitTest extends AbstractJavaCompilationTest {
     }
 
     // checkstyle: resume exception type check
+    
+    /**
+     * Runs this junit test in a worker JVM of the {@link JunitWorkerPool}.
+     * 
+     * @return The exit code of this test.
+     * @throws WrongPackageException If a class in the submission has a wrong package declaration.
+     * @throws NoTestSuiteException If the test suite cannot be loaded.
+     * @throws IOException If the worker JVM fails (internal problem).
+     * @throws InterruptedException If interrupted while waiting for a worker JVM.
+     */
+    private int executeForked() throws WrongPackageException, NoTestSuiteException, IOException, 
+        InterruptedException {
+        JunitWorker.Job job = new JunitWorker.Job(homeDir, getTestSuiteJar(), 
+            getClasspath(pathConfiguration, "javac", false), getSubmittedJavaFiles(), getCompiledClassFiles());
+        job.setConsoleActivate(pathConfiguration.getBooleanProperty("junit.consoleActivate", true));
+        boolean sandbox = pathConfiguration.getBooleanProperty(FORK_SANDBOX_PROPERTY, true);
+        int parallelThreads = pathConfiguration.getIntProperty(PARALLEL_THREADS_PROPERTY, 1);
+        job.setSandbox(sandbox);
+        job.setParallelThreads(parallelThreads);
+        if (sandbox && parallelThreads > 1) {
+            Logger.INSTANCE.log("Running test methods sequentially, parallel execution requires "
+                + FORK_SANDBOX_PROPERTY + " = false");
+        }
+        job.setMethodTimeout(getMethodTimeout());
+        job.setSuiteBudget(getCpuBudget());
+        job.setCacheSuite(pathConfiguration.getBooleanProperty(CACHE_SUITE_PROPERTY, false));
+        Logger.INSTANCE.log("Running TestSuite in worker JVM");
+        JunitWorker.Outcome outcome = JunitWorkerPool.INSTANCE.execute(configuration, job, getTimeout());
+        int exitCode = 0;
+        if (null == outcome) {
+            reportTimeout();
+            exitCode = 2;
+        } else {
+            switch (outcome.getStatus()) {
+            case JunitWorker.STATUS_WRONG_PACKAGE:
+                File classFile = new File(outcome.getDetail());
+                reportWrongPackage(classFile);
+                throw new WrongPackageException(classFile);
+            case JunitWorker.STATUS_NO_SUITE:
+                throw new NoTestSuiteException(outcome.getDetail());
+            case JunitWorker.STATUS_FAILED:
+                throw new IOException("Test worker failed: " + outcome.getDetail());
+            default:
+                break;
+            }
+            if (null != outcome.getExecutionError()) {
+                reportExecutionError(outcome.getExecutionError());
+            }
+            if (handleErrors(outcome.getTestResult()) > 0 || outcome.isTerminated()) {
+                exitCode = 1;
+            }
+        }
+        return exitCode;
+    }
+    
+    /**
+     * Returns whether the test suite of the given configuration is executed in
+     * a worker JVM.
+     * 
+     * @param pathConfiguration the configuration
+     * @return <code>true</code> for a worker JVM, <code>false</code> for this JVM
+     */
+    private static boolean isForked(PathConfiguration pathConfiguration) {
+        return forkEnforced || pathConfiguration.getBooleanProperty(FORK_PROPERTY, false);
+    }
+    
+    /**
+     * Defines whether all test suites are executed in worker JVMs regardless
+     * of {@link #FORK_PROPERTY}, e.g., while multiple hooks are executed
+     * concurrently within this JVM. A test suite executed in this JVM replaces
+     * the system streams, the security manager and <code>user.dir</code> of
+     * the whole JVM, i.e., also of the concurrent hooks.
+     * 
+     * @param enforced <code>true</code> to execute all test suites in worker
+     *     JVMs, <code>false</code> to follow {@link #FORK_PROPERTY}
+     */
+    public static void setForkEnforced(boolean enforced) {
+        forkEnforced = enforced;
+    }
+    
+    /**
+     * Returns the maximum time the test suite may run.
+     * 
+     * @return the timeout in milliseconds
+     */
+    private long getTimeout() {
+        return pathConfiguration.getIntProperty("junit.timeout",
+                1000 * 60 * 2); // 2 minutes
+    }
+    
+    /**
+     * Returns the maximum time a single test method may run.
+     * 
+     * @return the timeout in milliseconds, none if not positive
+     */
+    private long getMethodTimeout() {
+        return pathConfiguration.getIntProperty(METHOD_TIMEOUT_PROPERTY, 0);
+    }
+    
+    /**
+     * Returns the CPU time all test methods may consume before the remaining
+     * test methods fail without being executed.
+     * 
+     * @return the budget in milliseconds, none if not positive
+     */
+    private long getCpuBudget() {
+        return pathConfiguration.getIntProperty(CPU_BUDGET_PROPERTY, 0);
+    }
+    
+    /**
+     * Returns the submitted java files.
+     * 
+     * @return the java files
+     */
+    private Collection<File> getSubmittedJavaFiles() {
+        Collection<File> result;
+        if (null != pathConfiguration.getCompilationArtifacts()) {
+            result = pathConfiguration.getJavaFiles();
+        } else {
+            result = FileUtils.listFiles(homeDir, new String[] {"java"}, true);
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the compiled class files of the submission.
+     * 
+     * @return the class files
+     */
+    private Collection<File> getCompiledClassFiles() {
+        Collection<File> result;
+        CompilationArtifacts artifacts = pathConfiguration.getCompilationArtifacts();
+        if (null != artifacts) {
+            result = artifacts.getClassFiles();
+        } else {
+            result = FileUtils.listFiles(homeDir, new String[] {"class"}, true);
+        }
+        return result;
+    }
+    
+    /**
+     * Reports a class with a package declaration not matching its location.
+     * 
+     * @param classFile the class file
+     */
+    private void reportWrongPackage(File classFile) {
+        //FIXME and TODO SE: Make it generic
+        String offendingFileName = classFile.getAbsolutePath();
+        offendingFileName = offendingFileName.replaceAll("\\.class$", ".java");
+        
+        String errorMessage = "  <message tool=\"javac\" type=\"error\" "
+                + "file=\"" + XmlUtilities.xmlify(pathConfiguration.relativizeFileName(offendingFileName))
+                + "\" line=\"1\" message=\"Paket-Deklaration und Ordnerstruktur"
+                + " stimmen nicht ueberein.\" />\n";
+        configuration.getTestOutputStream().print(errorMessage);
+    }
+    
+    /**
+     * Reports an error which aborted running the test suite.
+     * 
+     * @param message the message of the error
+     */
+    private void reportExecutionError(String message) {
+        configuration.getTestOutputStream().print(
+            "<message tool=\"junit\" type=\"error\" "
+            + "message=\"Error during test execution (call Java team): "
+            + message + "\" />");
+    }
+    
+    /**
+     * Reports that the test suite exceeded the timeout.
+     */
+    private void reportTimeout() {
+        StringBuffer errorMessage = new StringBuffer();
+        if (configuration.produceXmlOutput()) {
+            errorMessage
+                .append("<message tool=\"junit\" type=\"error\" ");
+            errorMessage
+                .append("message=\"Execution exceeded timeout\">");
+            errorMessage.append("</message>\n");
+        } else {
+            errorMessage
+                .append("logic error: Execution exceeded timeout");
+            errorMessage.append("\n");
+        }
+        configuration.getTestOutputStream().print(errorMessage.toString());
+    }
 
     @Override
     public String getName() {
@@ -444,11 +702,37 @@ public class JunitTest extends AbstractJavaCompilationTest {
         return JavacTest.class;
     }
     
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The test suite is executed within this JVM, replacing the system
+     * streams, the security manager and <code>user.dir</code>.
+     */
+    @Override
+    public boolean requiresExclusiveExecution() {
+        return true;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Test suites executed in worker JVMs do not affect this JVM.
+     */
+    @Override
+    public boolean requiresExclusiveExecution(PathConfiguration pathConfiguration) {
+        return !isForked(pathConfiguration);
+    }
+    
     @Override
     protected String getToolName() {
         return "junit";
     }
 
+    @Override
+    protected boolean reusesCompilation() {
+        return true;
+    }
+
     @Override
     protected String getCompileParamsToolName() {
         return "javac";
@@ -0,0 +1,544 @@
+package de.uni_hildesheim.sse.javaSvnHooks.tests.junit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.runner.JUnitCore;
+
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.ClassRegistry;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.Console;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.TestFailure;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.TestResult;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.TestSuiteSecurityManager;
+import de.uni_hildesheim.sse.javaSvnHooks.util.JarIndex;
+import de.uni_hildesheim.sse.test.suite.AbstractJavaTestSuite;
+
+/**
+ * Executes test suites in a separate JVM, started and reused by the {@link JunitWorkerPool}. A worker reads
+ * {@link Job jobs} from its standard input and writes the {@link Outcome} of each job to its standard output.
+ * The system streams of the worker are replaced, so that neither the executed code nor logging interferes
+ * with the protocol. The worker terminates when its standard input is closed, a worker exceeding the
+ * timeout is destroyed by the pool.
+ */
+public class JunitWorker {
+
+    /**
+     * The job was executed, i.e., the test suite was run.
+     */
+    static final int STATUS_OK = 0;
+
+    /**
+     * A class has a package declaration not matching its location, the detail is the class file.
+     */
+    static final int STATUS_WRONG_PACKAGE = 1;
+
+    /**
+     * The test suite cannot be loaded, the detail is the reason.
+     */
+    static final int STATUS_NO_SUITE = 2;
+
+    /**
+     * The job failed for an internal reason, the detail is the reason.
+     */
+    static final int STATUS_FAILED = 3;
+
+    private static final int RECORD_READY = 'R';
+    private static final int RECORD_FAILURE = 'F';
+    private static final int RECORD_EXECUTION_ERROR = 'X';
+    private static final int RECORD_END = 'E';
+
+    /**
+     * A test suite to be executed on a compiled submission.
+     */
+    static class Job {
+
+        private String homeDir;
+        private String suiteJar;
+        private boolean consoleActivate;
+        private boolean sandbox;
+        private int parallelThreads = 1;
+        private long methodTimeout;
+        private long suiteBudget;
+        private boolean cacheSuite;
+        private List<String> classpath = new ArrayList<String>();
+        private List<File> javaFiles = new ArrayList<File>();
+        private List<File> classFiles = new ArrayList<File>();
+
+        /**
+         * Creates an empty job to be read.
+         */
+        private Job() {
+        }
+
+        /**
+         * Creates a job.
+         *
+         * @param homeDir the directory of the compiled submission
+         * @param suiteJar the jar file containing the test suite
+         * @param classpath the class path of the submission
+         * @param javaFiles the submitted java files
+         * @param classFiles the compiled class files
+         */
+        Job(File homeDir, String suiteJar, List<String> classpath, Collection<File> javaFiles,
+            Collection<File> classFiles) {
+            this.homeDir = homeDir.getAbsolutePath();
+            this.suiteJar = suiteJar;
+            this.classpath.addAll(classpath);
+            this.javaFiles.addAll(javaFiles);
+            this.classFiles.addAll(classFiles);
+        }
+
+        /**
+         * Defines whether the console of the test suite interface shall be activated.
+         *
+         * @param consoleActivate <code>true</code> to activate the console, <code>false</code> else
+         */
+        void setConsoleActivate(boolean consoleActivate) {
+            this.consoleActivate = consoleActivate;
+        }
+
+        /**
+         * Defines whether the test suite shall execute the submission with the {@link TestSuiteSecurityManager}.
+         * The {@link JunitWorkerPool} starts the workers with <code>-Djava.security.manager=allow</code>.
+         *
+         * @param sandbox <code>true</code> to install the security manager, <code>false</code> else
+         */
+        void setSandbox(boolean sandbox) {
+            this.sandbox = sandbox;
+        }
+
+        /**
+         * Defines the number of threads running the test methods of a test class in parallel. Ignored if the
+         * {@link #setSandbox(boolean) sandbox} is enabled, as the security manager applies to all threads.
+         *
+         * @param parallelThreads the number of threads, sequential if <code>1</code>
+         */
+        void setParallelThreads(int parallelThreads) {
+            this.parallelThreads = parallelThreads;
+        }
+
+        /**
+         * Defines the maximum time of a single test method.
+         *
+         * @param methodTimeout the timeout in milliseconds, none if not positive
+         */
+        void setMethodTimeout(long methodTimeout) {
+            this.methodTimeout = methodTimeout;
+        }
+
+        /**
+         * Defines the CPU time budget of all test methods.
+         *
+         * @param suiteBudget the budget in milliseconds, none if not positive
+         */
+        void setSuiteBudget(long suiteBudget) {
+            this.suiteBudget = suiteBudget;
+        }
+
+        /**
+         * Defines whether the test suite may be reused for further jobs of the worker.
+         *
+         * @param cacheSuite <code>true</code> to reuse the test suite, <code>false</code> to load it for this job
+         */
+        void setCacheSuite(boolean cacheSuite) {
+            this.cacheSuite = cacheSuite;
+        }
+
+        /**
+         * Writes this job.
+         *
+         * @param out the stream to write to
+         * @throws IOException if writing fails
+         */
+        void write(DataOutputStream out) throws IOException {
+            writeString(out, homeDir);
+            writeString(out, suiteJar);
+            out.writeBoolean(consoleActivate);
+            out.writeBoolean(sandbox);
+            out.writeInt(parallelThreads);
+            out.writeLong(methodTimeout);
+            out.writeLong(suiteBudget);
+            out.writeBoolean(cacheSuite);
+            out.writeInt(classpath.size());
+            for (String entry : classpath) {
+                writeString(out, entry);
+            }
+            writeFiles(out, javaFiles);
+            writeFiles(out, classFiles);
+            out.flush();
+        }
+
+        /**
+         * Reads a job.
+         *
+         * @param in the stream to read from
+         * @return the job
+         * @throws IOException if reading fails, {@link EOFException} if the stream is closed
+         */
+        static Job read(DataInputStream in) throws IOException {
+            Job result = new Job();
+            result.homeDir = readString(in);
+            result.suiteJar = readString(in);
+            result.consoleActivate = in.readBoolean();
+            result.sandbox = in.readBoolean();
+            result.parallelThreads = in.readInt();
+            result.methodTimeout = in.readLong();
+            result.suiteBudget = in.readLong();
+            result.cacheSuite = in.readBoolean();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                result.classpath.add(readString(in));
+            }
+            readFiles(in, result.javaFiles);
+            readFiles(in, result.classFiles);
+            return result;
+        }
+
+    }
+
+    /**
+     * The outcome of a {@link Job}.
+     */
+    static class Outcome {
+
+        private TestResult testResult = new TestResult();
+        private String executionError;
+        private int status;
+        private String detail;
+        private boolean clean;
+        private boolean terminated;
+
+        /**
+         * Returns the failed tests.
+         *
+         * @return the failed tests
+         */
+        TestResult getTestResult() {
+            return testResult;
+        }
+
+        /**
+         * Returns the error which aborted running the test suite.
+         *
+         * @return the message of the error, <b>null</b> if the test suite terminated regularly
+         */
+        String getExecutionError() {
+            return executionError;
+        }
+
+        /**
+         * Returns the status of the job.
+         *
+         * @return one of the <code>STATUS</code> constants of {@link JunitWorker}
+         */
+        int getStatus() {
+            return status;
+        }
+
+        /**
+         * Returns the detail of the status.
+         *
+         * @return the detail, empty for {@link JunitWorker#STATUS_OK}
+         */
+        String getDetail() {
+            return detail;
+        }
+
+        /**
+         * Returns whether the worker may execute further jobs, i.e., no threads of the executed code
+         * are still running.
+         *
+         * @return <code>true</code> if the worker may be reused, <code>false</code> else
+         */
+        boolean isClean() {
+            return clean;
+        }
+
+        /**
+         * Returns whether the worker JVM terminated while executing the job, e.g., as the executed code
+         * called <code>System.exit</code>. Failures detected before are not available.
+         *
+         * @return <code>true</code> if the worker terminated, <code>false</code> else
+         */
+        boolean isTerminated() {
+            return terminated;
+        }
+
+        /**
+         * Creates the outcome of a job during which the worker JVM terminated.
+         *
+         * @param exitCode the exit code of the worker JVM
+         * @return the outcome
+         */
+        static Outcome terminated(int exitCode) {
+            Outcome result = new Outcome();
+            result.status = STATUS_OK;
+            result.detail = "";
+            result.terminated = true;
+            result.executionError = "Test execution terminated the JVM with exit code " + exitCode
+                + ", e.g., by calling System.exit()";
+            return result;
+        }
+
+        /**
+         * Reads the outcome of a job.
+         *
+         * @param in the stream to read from
+         * @return the outcome
+         * @throws IOException if reading fails, {@link EOFException} if the worker terminated
+         */
+        static Outcome read(DataInputStream in) throws IOException {
+            Outcome result = new Outcome();
+            int record;
+            do {
+                record = in.readByte();
+                if (RECORD_FAILURE == record) {
+                    String message = readString(in);
+                    boolean mandatory = in.readBoolean();
+                    String file = in.readBoolean() ? readString(in) : null;
+                    result.testResult.addTestFailure(new TestFailure(message, mandatory, file, in.readInt()));
+                } else if (RECORD_EXECUTION_ERROR == record) {
+                    result.executionError = readString(in);
+                } else if (RECORD_END == record) {
+                    result.status = in.readInt();
+                    result.detail = readString(in);
+                    result.clean = in.readBoolean();
+                } else {
+                    throw new IOException("Unexpected record " + record);
+                }
+            } while (RECORD_END != record);
+            return result;
+        }
+
+    }
+
+    /**
+     * Prevents this class from being instantiated from outside.
+     */
+    private JunitWorker() {
+    }
+
+    /**
+     * Writes a string as length and UTF-8 bytes. Unlike {@link DataOutputStream#writeUTF(String)}, the
+     * length of the string is not limited to 64 KB, e.g., for long class paths or failure messages.
+     *
+     * @param out the stream to write to
+     * @param text the string
+     * @throws IOException if writing fails
+     */
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param in the stream to read from
+     * @return the string
+     * @throws IOException if reading fails
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes files as their absolute paths.
+     *
+     * @param out the stream to write to
+     * @param files the files
+     * @throws IOException if writing fails
+     */
+    private static void writeFiles(DataOutputStream out, List<File> files) throws IOException {
+        out.writeInt(files.size());
+        for (File file : files) {
+            writeString(out, file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Reads files written by {@link #writeFiles(DataOutputStream, List)}.
+     *
+     * @param in the stream to read from
+     * @param files the files read so far, modified as a side effect
+     * @throws IOException if reading fails
+     */
+    private static void readFiles(DataInputStream in, List<File> files) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            files.add(new File(readString(in)));
+        }
+    }
+
+    /**
+     * Waits until a started worker is ready to execute jobs.
+     *
+     * @param in the standard output of the worker
+     * @throws IOException if the worker failed to start
+     */
+    static void awaitReady(DataInputStream in) throws IOException {
+        if (RECORD_READY != in.readByte()) {
+            throw new IOException("Test worker did not start");
+        }
+    }
+
+    /**
+     * Executes a job.
+     *
+     * @param job the job
+     * @param out the stream to write the outcome to
+     * @throws IOException if writing the outcome fails
+     */
+    private static void execute(Job job, DataOutputStream out) throws IOException {
+        int threads = Thread.activeCount();
+        int status = STATUS_OK;
+        String detail = "";
+        String previousUserDir = System.getProperty("user.dir");
+        ClassRegistry registry = null;
+        Class<?> testSuiteClass = null;
+        try {
+            testSuiteClass = TestSuiteCache.INSTANCE.acquire(job.suiteJar, job.cacheSuite);
+            if (job.consoleActivate) {
+                Console.INSTANCE.aktivieren();
+            }
+            registry = new ClassRegistry(new File(job.homeDir), job.classpath, job.javaFiles, job.classFiles,
+                JarIndex.getInstance(null));
+            System.setProperty("user.dir", job.homeDir);
+            runTestSuite(testSuiteClass, registry, job, out);
+        } catch (WrongPackageException e) {
+            status = STATUS_WRONG_PACKAGE;
+            detail = e.getClassFile().getAbsolutePath();
+        } catch (NoTestSuiteException e) {
+            status = STATUS_NO_SUITE;
+            detail = String.valueOf(e.getMessage());
+        } catch (ReflectiveOperationException | IOException | LinkageError e) {
+            Logger.INSTANCE.logException(e, false);
+            status = STATUS_FAILED;
+            detail = e.toString();
+        } finally {
+            System.setProperty("user.dir", previousUserDir);
+            Console.INSTANCE.deaktivieren();
+            if (null != registry) {
+                registry.close();
+            }
+            if (null != testSuiteClass) {
+                TestSuiteCache.INSTANCE.release(testSuiteClass, true);
+            }
+        }
+        out.writeByte(RECORD_END);
+        out.writeInt(status);
+        writeString(out, detail);
+        out.writeBoolean(Thread.activeCount() <= threads);
+        out.flush();
+    }
+
+    // checkstyle: stop exception type check
+
+    /**
+     * Runs a test suite and writes the failed tests.
+     *
+     * @param testSuiteClass the test suite class
+     * @param registry the classes of the submission
+     * @param job the job
+     * @param out the stream to write the failed tests to
+     * @throws ReflectiveOperationException if configuring the test suite fails
+     * @throws IOException if writing fails
+     */
+    private static void runTestSuite(Class<?> testSuiteClass, ClassRegistry registry, Job job,
+        DataOutputStream out) throws ReflectiveOperationException, IOException {
+        AbstractJavaTestSuite.setClassRegistry(registry);
+        try { // legacy, set anyway
+            testSuiteClass.getMethod("setClassRegistry", ClassRegistry.class).invoke(null, registry);
+        } catch (NoSuchMethodException e) {
+        }
+        TestResult testResult = new TestResult();
+        testSuiteClass.getMethod("setTestResult", TestResult.class).invoke(null, testResult);
+        TestSuiteSecurityManager securityManager = job.sandbox ? new TestSuiteSecurityManager(job.homeDir) : null;
+        try {
+            // reset in any case as the worker is reused
+            testSuiteClass.getMethod("setSecurityManager", TestSuiteSecurityManager.class)
+                .invoke(null, securityManager);
+        } catch (NoSuchMethodException e) {
+            // Probably older test suite version
+        }
+        JUnitCore junit = new JUnitCore();
+        junit.addListener(new JUnitRunListener(testResult));
+        try {
+            // the security manager applies to all threads of this JVM and the methods share the class loader of
+            // the suite, so sandboxed suites run sequentially (no per-method isolation by design)
+            ParallelSuiteComputer.run(junit, testSuiteClass, job.sandbox ? 1 : job.parallelThreads,
+                job.methodTimeout, job.suiteBudget);
+        } catch (Throwable t) { // catch everything and report!
+            out.writeByte(RECORD_EXECUTION_ERROR);
+            writeString(out, String.valueOf(t.getMessage()));
+        }
+        if (null != securityManager) {
+            securityManager.unset();
+        }
+        for (TestFailure failure : testResult.getTestFailures()) {
+            out.writeByte(RECORD_FAILURE);
+            writeString(out, failure.getMessage());
+            out.writeBoolean(failure.isMandatory());
+            out.writeBoolean(null != failure.getFileName());
+            if (null != failure.getFileName()) {
+                writeString(out, failure.getFileName());
+            }
+            out.writeInt(failure.getLine());
+        }
+    }
+
+    // checkstyle: resume exception type check
+
+    /**
+     * Executes jobs until the standard input is closed.
+     *
+     * @param args ignored
+     * @throws IOException if the protocol streams fail
+     */
+    public static void main(String[] args) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new FileOutputStream(FileDescriptor.out)));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+            new FileInputStream(FileDescriptor.in)));
+        // before Console captures the system streams
+        System.setIn(new ByteArrayInputStream(new byte[0]));
+        System.setOut(System.err);
+        Logger.INSTANCE.setOutputStream(System.err);
+        out.writeByte(RECORD_READY);
+        out.flush();
+        boolean running = true;
+        while (running) {
+            Job job = null;
+            try {
+                job = Job.read(in);
+            } catch (EOFException e) {
+                running = false;
+            }
+            if (null != job) {
+                execute(job, out);
+            }
+        }
+    }
+
+}
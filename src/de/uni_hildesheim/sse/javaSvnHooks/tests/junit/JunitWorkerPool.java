@@ -0,0 +1,317 @@
+package de.uni_hildesheim.sse.javaSvnHooks.tests.junit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import de.uni_hildesheim.sse.javaSvnHooks.Configuration;
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+
+/**
+ * A pool of {@link JunitWorker} JVMs executing test suites outside of the hook JVM, so that test suites of
+ * several groups may run in parallel. Workers are started ahead of use and reused for further jobs. A worker
+ * exceeding the timeout of a job is destroyed and replaced by a new one, as well as a worker which still runs
+ * threads of the executed code after a job. A worker terminated by the executed code, e.g., by
+ * <code>System.exit</code>, is reported as {@link JunitWorker.Outcome#isTerminated() terminated} job.
+ * Including the workers being started, there are never more than <code>junitWorkers</code> workers.
+ * <p>
+ * The limits are taken from the configuration of the first job and apply to the whole process.
+ */
+public class JunitWorkerPool {
+
+    /**
+     * The hook property specifying the maximum number of worker JVMs, by default the number of processors.
+     */
+    public static final String WORKERS_PROPERTY = "junitWorkers";
+
+    /**
+     * The hook property specifying additional parameters of the worker JVMs, e.g., the heap size.
+     */
+    public static final String JVM_PARAMS_PROPERTY = "junitWorkerJvmParams";
+
+    /**
+     * The shared instance.
+     */
+    public static final JunitWorkerPool INSTANCE = new JunitWorkerPool();
+
+    private static final String LOG_DIR = "junitWorkers";
+    private static final String SECURITY_MANAGER_PARAM = "-Djava.security.manager";
+
+    /**
+     * The time to wait for the termination of a worker whose protocol stream ended, in milliseconds.
+     */
+    private static final long TERMINATION_WAIT = 1000;
+
+    private Semaphore slots;
+    private int maxWorkers;
+    private int workers;
+    private int lastId;
+    private Deque<Worker> idle = new ArrayDeque<Worker>();
+    private List<String> command;
+    private File logDir;
+    private Timer timer;
+
+    /**
+     * A worker JVM.
+     */
+    private class Worker {
+
+        private Process process;
+        private DataOutputStream out;
+        private DataInputStream in;
+        private volatile boolean destroyed;
+
+        /**
+         * Starts a worker JVM and waits until it is ready.
+         *
+         * @param id the number of the worker, used to name its log file
+         * @throws IOException if starting the worker fails
+         */
+        private Worker(int id) throws IOException {
+            ProcessBuilder builder = new ProcessBuilder(command);
+            builder.redirectError(new File(logDir, "worker" + id + ".log"));
+            process = builder.start();
+            out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            try {
+                JunitWorker.awaitReady(in);
+            } catch (IOException e) {
+                destroy();
+                throw e;
+            }
+        }
+
+        /**
+         * Destroys the worker JVM.
+         */
+        private void destroy() {
+            destroyed = true;
+            process.destroyForcibly();
+        }
+
+        /**
+         * Waits shortly for the termination of the worker JVM.
+         *
+         * @return the exit code, <b>null</b> if the worker is still running
+         * @throws InterruptedException if interrupted while waiting
+         */
+        private Integer awaitTermination() throws InterruptedException {
+            Integer result = null;
+            if (process.waitFor(TERMINATION_WAIT, TimeUnit.MILLISECONDS)) {
+                result = process.exitValue();
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Creates the pool. Use {@link #INSTANCE}.
+     */
+    private JunitWorkerPool() {
+    }
+
+    /**
+     * Creates the limits and the command starting a worker on first use.
+     *
+     * @param configuration The configuration of the hook.
+     */
+    private synchronized void initialize(Configuration configuration) {
+        if (null == slots) {
+            maxWorkers = Math.max(1, configuration.getIntProperty(WORKERS_PROPERTY,
+                Runtime.getRuntime().availableProcessors()));
+            slots = new Semaphore(maxWorkers, true);
+            command = new ArrayList<String>();
+            command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath());
+            String jvmParams = configuration.getStringProperty(JVM_PARAMS_PROPERTY, "");
+            if (Runtime.version().feature() >= 12 && !jvmParams.contains(SECURITY_MANAGER_PARAM)) {
+                // the sandbox (junit.forkSandbox) installs a security manager, disallowed by default since Java 18
+                command.add(SECURITY_MANAGER_PARAM + "=allow");
+            }
+            StringTokenizer params = new StringTokenizer(jvmParams);
+            while (params.hasMoreTokens()) {
+                command.add(params.nextToken());
+            }
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(JunitWorker.class.getName());
+            logDir = new File(configuration.getTempDir(), LOG_DIR).getAbsoluteFile();
+            logDir.mkdirs();
+            timer = new Timer("junit worker timeout", true);
+            Logger.INSTANCE.log("Running test suites in up to " + maxWorkers + " worker JVMs");
+            prewarm();
+        }
+    }
+
+    /**
+     * Starts a worker in the background if fewer than the maximum number of workers are running, so that
+     * the next job does not wait for the start of a JVM.
+     */
+    private synchronized void prewarm() {
+        if (workers < maxWorkers) {
+            workers++;
+            final int id = ++lastId;
+            Thread starter = new Thread("junit worker start") {
+
+                @Override
+                public void run() {
+                    Worker worker = null;
+                    try {
+                        worker = new Worker(id);
+                    } catch (IOException e) {
+                        Logger.INSTANCE.logException(e, false);
+                    }
+                    release(worker, null != worker);
+                }
+
+            };
+            starter.setDaemon(true);
+            starter.start();
+        }
+    }
+
+    /**
+     * Returns an idle worker or starts a new one. If the maximum number of workers is reached, the caller
+     * holding a slot waits for a worker being started in the background.
+     *
+     * @return the worker
+     * @throws IOException if starting a worker fails
+     * @throws InterruptedException if interrupted while waiting for a worker being started
+     */
+    private Worker obtain() throws IOException, InterruptedException {
+        Worker result = null;
+        int id = 0;
+        synchronized (this) {
+            while (null == result && 0 == id) {
+                result = idle.poll();
+                if (null != result && !result.process.isAlive()) { // terminated while idle
+                    workers--;
+                    result = null;
+                } else if (null == result && workers < maxWorkers) {
+                    workers++;
+                    id = ++lastId;
+                } else if (null == result) {
+                    wait();
+                }
+            }
+        }
+        if (null == result) {
+            try {
+                result = new Worker(id);
+            } catch (IOException e) {
+                release(null, false);
+                throw e;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Releases a worker after a job.
+     *
+     * @param worker the worker, may be <b>null</b> if starting the worker failed
+     * @param reusable whether the worker may execute further jobs
+     */
+    private void release(Worker worker, boolean reusable) {
+        boolean replace = false;
+        boolean keep = false;
+        synchronized (this) {
+            keep = reusable && workers <= maxWorkers;
+            if (keep) {
+                idle.push(worker);
+            } else {
+                workers--;
+                replace = null != worker && !reusable;
+            }
+            notifyAll();
+        }
+        if (null != worker && !keep) {
+            worker.destroy();
+        }
+        if (replace) {
+            prewarm();
+        }
+    }
+
+    /**
+     * Handles a worker whose protocol stream failed during a job.
+     *
+     * @param worker the worker
+     * @param cause the failure of the protocol stream
+     * @return the outcome of the job if the worker terminated, e.g., as the executed code called
+     *     <code>System.exit</code>
+     * @throws IOException <code>cause</code> if the worker is still running, i.e., the protocol failed
+     * @throws InterruptedException if interrupted while waiting for the termination of the worker
+     */
+    private static JunitWorker.Outcome terminated(Worker worker, IOException cause)
+        throws IOException, InterruptedException {
+        Integer exitCode = worker.awaitTermination();
+        if (null == exitCode) {
+            throw cause;
+        }
+        Logger.INSTANCE.log("Test worker terminated with exit code " + exitCode);
+        return JunitWorker.Outcome.terminated(exitCode);
+    }
+
+    /**
+     * Executes a job in a worker JVM.
+     *
+     * @param configuration The configuration of the hook.
+     * @param job The job.
+     * @param timeout The maximum time of the job in milliseconds.
+     * @return The outcome of the job, <b>null</b> if the job exceeded the timeout.
+     * @throws IOException If the worker failed.
+     * @throws InterruptedException If interrupted while waiting for a worker.
+     */
+    JunitWorker.Outcome execute(Configuration configuration, JunitWorker.Job job, long timeout)
+        throws IOException, InterruptedException {
+        initialize(configuration);
+        JunitWorker.Outcome result = null;
+        slots.acquire();
+        Worker worker = null;
+        boolean reusable = false;
+        try {
+            worker = obtain();
+            final Worker running = worker;
+            TimerTask watchdog = new TimerTask() {
+
+                @Override
+                public void run() {
+                    running.destroy();
+                }
+
+            };
+            timer.schedule(watchdog, timeout);
+            try {
+                job.write(worker.out);
+                result = JunitWorker.Outcome.read(worker.in);
+                reusable = result.isClean();
+            } catch (IOException e) {
+                if (!worker.destroyed) {
+                    result = terminated(worker, e);
+                }
+            } finally {
+                watchdog.cancel();
+            }
+        } finally {
+            if (null != worker) {
+                release(worker, reusable && !worker.destroyed);
+            }
+            slots.release();
+        }
+        return result;
+    }
+
+}
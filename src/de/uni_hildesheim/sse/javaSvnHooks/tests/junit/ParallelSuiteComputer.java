@@ -0,0 +1,399 @@
+package de.uni_hildesheim.sse.javaSvnHooks.tests.junit;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.internal.builders.AnnotatedBuilder;
+import org.junit.internal.builders.IgnoredBuilder;
+import org.junit.internal.builders.JUnit3Builder;
+import org.junit.internal.builders.SuiteMethodBuilder;
+import org.junit.runner.Computer;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.Runner;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.BlockJUnit4ClassRunner;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerBuilder;
+import org.junit.runners.model.RunnerScheduler;
+import org.junit.runners.model.Statement;
+
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.Console;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.TestSuiteSecurityManager;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.TimeBudget;
+import de.uni_hildesheim.sse.javaSvnHooks.util.ThreadContext;
+import de.uni_hildesheim.sse.test.suite.AbstractJavaTestSuite;
+
+/**
+ * Runs the test methods of a test suite on a bounded number of threads and/or with time budgets. The test
+ * classes (also nested in suites) are executed one after another, the methods of a test class concurrently.
+ * A method running in parallel gets its own {@link Console#isolieren() console}.
+ * <p>
+ * A test method exceeding its time budget ({@link TimeBudget} or the default timeout) is stopped and fails
+ * with a {@link TimeBudgetExceededException}, the remaining methods are executed as usual. As a backstop,
+ * the CPU time consumed by all test methods is accounted against the budget of the test suite. Once it is
+ * exhausted, the remaining methods fail without being executed, so that the results of the executed methods
+ * are reported before the hard timeout of the whole test suite.
+ * <p>
+ * Failures are reported to the listeners of the run as usual, i.e., they are aggregated in the
+ * {@link de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.TestResult} seen by the suite.
+ * Call {@link #shutdown()} after the run.
+ */
+class ParallelSuiteComputer extends Computer {
+
+    private static final long STOP_GRACE = 100;
+
+    private int threads;
+    private long methodTimeout;
+    private long suiteBudget;
+    private AtomicLong consumed = new AtomicLong();
+    private Set<Thread> running = new HashSet<Thread>();
+    private ExecutorService executor;
+
+    /**
+     * Creates the builder of the runners, routing also the classes of nested suites to
+     * {@link MethodRunner}.
+     */
+    private class Builder extends RunnerBuilder {
+
+        @Override
+        public Runner runnerForClass(Class<?> testClass) throws Throwable {
+            Runner result = new IgnoredBuilder().runnerForClass(testClass);
+            if (null == result) {
+                result = new AnnotatedBuilder(this).runnerForClass(testClass);
+            }
+            if (null == result) {
+                result = new SuiteMethodBuilder().runnerForClass(testClass);
+            }
+            if (null == result) {
+                result = new JUnit3Builder().runnerForClass(testClass);
+            }
+            if (null == result) {
+                result = new MethodRunner(testClass);
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Runs the methods of a JUnit 4 test class.
+     */
+    private class MethodRunner extends BlockJUnit4ClassRunner {
+
+        /**
+         * Creates the runner.
+         *
+         * @param testClass the test class
+         * @throws InitializationError if the test class is malformed
+         */
+        private MethodRunner(Class<?> testClass) throws InitializationError {
+            super(testClass);
+            if (threads > 1) {
+                setScheduler(new MethodScheduler());
+            }
+        }
+
+        @Override
+        protected void runChild(FrameworkMethod method, RunNotifier notifier) {
+            if (threads > 1) {
+                Console.INSTANCE.isolieren();
+            }
+            try {
+                super.runChild(method, notifier);
+            } finally {
+                if (threads > 1) {
+                    Console.INSTANCE.teilen();
+                }
+            }
+        }
+
+        @Override
+        protected Statement methodInvoker(FrameworkMethod method, Object test) {
+            Statement result = super.methodInvoker(method, test);
+            long timeout = methodTimeout;
+            TimeBudget budget = method.getAnnotation(TimeBudget.class);
+            if (null != budget) {
+                timeout = budget.millis();
+            }
+            if (timeout > 0 || suiteBudget > 0) {
+                result = new TimedMethod(result, timeout);
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Executes a test method in an own thread within its time budget.
+     */
+    private class TimedMethod extends Statement {
+
+        private Statement next;
+        private long timeout;
+
+        /**
+         * Creates the statement.
+         *
+         * @param next the statement invoking the test method
+         * @param timeout the time budget of the test method in milliseconds, none if not positive
+         */
+        private TimedMethod(Statement next, long timeout) {
+            this.next = next;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public void evaluate() throws Throwable {
+            long limit = timeout;
+            if (suiteBudget > 0) {
+                long remaining = suiteBudget - TimeUnit.NANOSECONDS.toMillis(consumed.get());
+                if (remaining <= 0) {
+                    throw new TimeBudgetExceededException("Nicht ausgefuehrt, Zeitbudget der Tests erschoepft");
+                }
+                limit = limit > 0 ? Math.min(limit, remaining) : remaining;
+            }
+            MethodThread thread = new MethodThread(next);
+            thread.start();
+            boolean timedOut = false;
+            try {
+                thread.join(limit);
+            } finally {
+                timedOut = thread.isAlive();
+                if (timedOut) {
+                    stop(thread);
+                }
+            }
+            if (timedOut) {
+                throw new TimeBudgetExceededException("Zeitlimit von " + limit + " ms ueberschritten");
+            }
+            if (null != thread.failure) {
+                throw thread.failure;
+            }
+        }
+
+    }
+
+    /**
+     * Executes a test method and accounts its CPU time against the budget of the test suite.
+     */
+    private class MethodThread extends Thread {
+
+        private Statement next;
+        private volatile Throwable failure;
+
+        /**
+         * Creates the thread.
+         *
+         * @param next the statement invoking the test method
+         */
+        private MethodThread(Statement next) {
+            super(Thread.currentThread().getName() + " test");
+            this.next = next;
+            setDaemon(true);
+        }
+
+        // checkstyle: stop exception type check
+
+        @Override
+        public void run() {
+            synchronized (running) {
+                running.add(this);
+            }
+            long start = cpuTime();
+            try {
+                next.evaluate();
+            } catch (Throwable t) { // reported by the calling thread
+                failure = t;
+            } finally {
+                consumed.addAndGet(cpuTime() - start);
+                synchronized (running) {
+                    running.remove(this);
+                }
+            }
+        }
+
+        // checkstyle: resume exception type check
+
+    }
+
+    /**
+     * Executes the methods of a test class on the threads of the computer.
+     */
+    private class MethodScheduler implements RunnerScheduler {
+
+        private List<Future<?>> running = new ArrayList<Future<?>>();
+
+        @Override
+        public void schedule(Runnable childStatement) {
+            running.add(executor.submit(ThreadContext.wrap(childStatement)));
+        }
+
+        @Override
+        public void finished() {
+            boolean interrupted = false;
+            for (Future<?> future : running) {
+                try {
+                    if (interrupted) {
+                        future.cancel(true);
+                    } else {
+                        future.get();
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    future.cancel(true);
+                } catch (ExecutionException e) {
+                    // failures are reported to the notifier by the test method
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+    }
+
+    /**
+     * Creates the computer.
+     *
+     * @param threads the number of threads running test methods, sequential if <code>1</code>
+     * @param methodTimeout the default time budget of a test method in milliseconds, none if not positive
+     * @param suiteBudget the CPU time budget of all test methods in milliseconds, none if not positive
+     */
+    ParallelSuiteComputer(int threads, long methodTimeout, long suiteBudget) {
+        this.threads = Math.max(1, threads);
+        this.methodTimeout = methodTimeout;
+        this.suiteBudget = suiteBudget;
+        if (this.threads > 1) {
+            final AtomicInteger count = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread result = new Thread(runnable, "junit method " + count.incrementAndGet());
+                    result.setDaemon(true);
+                    return result;
+                }
+
+            });
+        }
+    }
+
+    @Override
+    public Runner getSuite(RunnerBuilder builder, Class<?>[] classes) throws InitializationError {
+        return super.getSuite(new Builder(), classes);
+    }
+
+    /**
+     * Runs a test suite.
+     *
+     * @param junit the JUnit instance with the listeners of the run
+     * @param testSuiteClass the test suite
+     * @param threads the number of threads running test methods, sequential if <code>1</code>
+     * @param methodTimeout the default time budget of a test method in milliseconds, none if not positive
+     * @param suiteBudget the CPU time budget of all test methods in milliseconds, none if not positive
+     * @return the result of the run
+     */
+    static Result run(JUnitCore junit, Class<?> testSuiteClass, int threads, long methodTimeout,
+        long suiteBudget) {
+        ParallelSuiteComputer computer = new ParallelSuiteComputer(threads, methodTimeout, suiteBudget);
+        try {
+            return junit.run(computer, testSuiteClass);
+        } finally {
+            computer.shutdown();
+        }
+    }
+
+    /**
+     * Returns the CPU time of the current thread.
+     *
+     * @return the CPU time in nanoseconds, the elapsed time if CPU time measurement is not supported
+     */
+    private static long cpuTime() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        long result = bean.isCurrentThreadCpuTimeSupported() ? bean.getCurrentThreadCpuTime() : -1;
+        return result >= 0 ? result : System.nanoTime();
+    }
+
+    /**
+     * Stops a thread executing a test method. The thread is interrupted first and stopped if it does not
+     * terminate within a short grace period, e.g., as it runs an endless loop. As the security manager of
+     * the test suite denies stopping threads, it is unset before (synchronized on it, so that the thread
+     * cannot be stopped while unsetting it itself) and again after the thread terminated, as the thread may
+     * have been stopped while setting it. Methods called afterwards set it again.
+     *
+     * @param thread the thread
+     */
+    private static void stop(Thread thread) {
+        thread.interrupt();
+        try {
+            thread.join(STOP_GRACE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            TestSuiteSecurityManager securityManager = AbstractJavaTestSuite.getSecurityManager();
+            if (null != securityManager) {
+                synchronized (securityManager) {
+                    securityManager.unset();
+                    forceStop(thread);
+                }
+                try {
+                    thread.join(STOP_GRACE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                // sequential with sandbox, no other test method is running
+                securityManager.unset();
+            } else {
+                forceStop(thread);
+            }
+        }
+    }
+
+    /**
+     * Stops a thread immediately.
+     *
+     * @param thread the thread
+     */
+    @SuppressWarnings("deprecation")
+    private static void forceStop(Thread thread) {
+        try {
+            thread.stop();
+        } catch (SecurityException e) { // another security manager is installed
+            Logger.INSTANCE.log("Cannot stop test method: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the threads of this computer. Methods still running (exceeding the timeout of the suite) are
+     * interrupted.
+     */
+    void shutdown() {
+        if (null != executor) {
+            executor.shutdownNow();
+        }
+        List<Thread> stopping;
+        synchronized (running) {
+            stopping = new ArrayList<Thread>(running);
+        }
+        for (Thread thread : stopping) {
+            stop(thread);
+        }
+    }
+
+}
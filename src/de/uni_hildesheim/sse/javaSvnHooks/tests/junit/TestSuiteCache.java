@@ -0,0 +1,170 @@
+package de.uni_hildesheim.sse.javaSvnHooks.tests.junit;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+import de.uni_hildesheim.sse.test.suite.AbstractJavaTestSuite;
+
+/**
+ * Caches the loaded test suites of the test suite jars, so that further runs of the same test suite, e.g.,
+ * for the next group or the next commit in a reused {@link JunitWorker}, neither open the jar nor load and
+ * link the test suite, JUnit and the test utilities again. A cached test suite is valid as long as the path,
+ * the size and the modification time of its jar file are unchanged.
+ * <p>
+ * As the classes of a test suite keep the state of a run in static fields, a loaded test suite is leased to
+ * one run at a time. A run requesting a test suite which is currently leased gets an own class loader, and the
+ * state passed to the test suite by the hook is cleared when a test suite is returned. Static state of the
+ * test suite itself, e.g., caches of its test classes, is kept, so reusing a test suite is opt-in (see
+ * {@link JunitTest#CACHE_SUITE_PROPERTY}). Otherwise, each run loads the test suite with an own class loader.
+ */
+class TestSuiteCache {
+
+    /**
+     * The shared instance.
+     */
+    static final TestSuiteCache INSTANCE = new TestSuiteCache();
+
+    private static final String SUITE_CLASS = "de.uni_hildesheim.sse.test.JavaTestSuite";
+
+    private Map<String, LoadedSuite> idle = new HashMap<String, LoadedSuite>();
+    private Map<Class<?>, LoadedSuite> leased = new HashMap<Class<?>, LoadedSuite>();
+
+    /**
+     * A test suite loaded from a jar file.
+     */
+    private static class LoadedSuite {
+
+        private String path;
+        private long size;
+        private long lastModified;
+        private URLClassLoader loader;
+        private Class<?> suiteClass;
+        private boolean reuse;
+
+        /**
+         * Loads the test suite from a jar file.
+         *
+         * @param jar the jar file (absolute)
+         * @throws NoTestSuiteException if loading the test suite fails
+         */
+        private LoadedSuite(File jar) throws NoTestSuiteException {
+            path = jar.getPath();
+            size = jar.length();
+            lastModified = jar.lastModified();
+            Logger.INSTANCE.log("Creating Classloader.");
+            try {
+                // use the loader of this class, not
+                // ClassLoader.getSystemClassLoader() as this will fail when
+                // testing this test with junit
+                loader = new URLClassLoader(new URL[] {jar.toURI().toURL()}, TestSuiteCache.class.getClassLoader());
+            } catch (MalformedURLException e) {
+                throw new NoTestSuiteException(e);
+            }
+            Logger.INSTANCE.log("Loading Testsuite class.");
+            try {
+                suiteClass = Class.forName(SUITE_CLASS, true, loader);
+            } catch (ClassNotFoundException e) {
+                close();
+                throw new NoTestSuiteException("Class " + SUITE_CLASS + " not found");
+            }
+        }
+
+        /**
+         * Returns whether this test suite was loaded from the current version of its jar file.
+         *
+         * @return <code>true</code> if the size and the modification time are unchanged, <code>false</code>
+         *     else
+         */
+        private boolean isValid() {
+            File jar = new File(path);
+            return jar.length() == size && jar.lastModified() == lastModified;
+        }
+
+        /**
+         * Closes the class loader of this test suite.
+         */
+        private void close() {
+            try {
+                loader.close();
+            } catch (IOException e) {
+                Logger.INSTANCE.logException(e, false);
+            }
+        }
+
+    }
+
+    /**
+     * Creates the cache. Use {@link #INSTANCE}.
+     */
+    private TestSuiteCache() {
+    }
+
+    /**
+     * Leases the test suite of the given jar. Call {@link #release(Class, boolean)} after the run.
+     *
+     * @param testSuiteJarPath the path to the test suite jar
+     * @param reuse whether a cached test suite may be used and the test suite may be cached for further runs,
+     *     <code>false</code> to load it with an own class loader discarded after the run
+     * @return the test suite class
+     * @throws NoTestSuiteException if loading the test suite fails
+     */
+    Class<?> acquire(String testSuiteJarPath, boolean reuse) throws NoTestSuiteException {
+        File jar = new File(testSuiteJarPath).getAbsoluteFile();
+        LoadedSuite result = null;
+        if (reuse) {
+            synchronized (this) {
+                result = idle.remove(jar.getPath());
+            }
+        }
+        if (null != result && !result.isValid()) {
+            Logger.INSTANCE.log("Test suite jar changed: " + jar);
+            result.close();
+            result = null;
+        }
+        if (null == result) {
+            result = new LoadedSuite(jar);
+            result.reuse = reuse;
+        } else {
+            Logger.INSTANCE.log("Reusing Testsuite class.");
+        }
+        synchronized (this) {
+            leased.put(result.suiteClass, result);
+        }
+        return result.suiteClass;
+    }
+
+    /**
+     * Returns a test suite after a run and clears the state passed to the test suite.
+     *
+     * @param suiteClass the test suite class obtained from {@link #acquire(String, boolean)}
+     * @param reusable whether the test suite may be used for further runs, <code>false</code> if the run was
+     *     aborted, e.g., due to a timeout. Ignored if the test suite was acquired without reuse.
+     */
+    void release(Class<?> suiteClass, boolean reusable) {
+        AbstractJavaTestSuite.setClassRegistry(null);
+        AbstractJavaTestSuite.setTestResult(null);
+        AbstractJavaTestSuite.setSecurityManager(null);
+        LoadedSuite suite;
+        LoadedSuite evicted = null;
+        synchronized (this) {
+            suite = leased.remove(suiteClass);
+            if (null != suite && reusable && suite.reuse && suite.isValid()) {
+                evicted = idle.put(suite.path, suite);
+                suite = null;
+            }
+        }
+        if (null != suite) {
+            suite.close();
+        }
+        if (null != evicted) {
+            evicted.close();
+        }
+    }
+
+}
@@ -0,0 +1,20 @@
+package de.uni_hildesheim.sse.javaSvnHooks.tests.junit;
+
+/**
+ * Reported as failure of a test method which exceeded its time budget or was
+ * not executed as the time budget of the test suite is exhausted.
+ */
+public class TimeBudgetExceededException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * Creates a {@link TimeBudgetExceededException} for the message.
+     * 
+     * @param message the failure message shown to the students.
+     */
+    public TimeBudgetExceededException(String message) {
+        super(message);
+    }
+
+}
@@ -2,7 +2,6 @@ package de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface;
 
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.net.MalformedURLException;
@@ -10,16 +9,15 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.jar.JarEntry;
-import java.util.jar.JarInputStream;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -27,16 +25,25 @@ import org.apache.commons.io.FileUtils;
 
 import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.WrongPackageException;
+import de.uni_hildesheim.sse.javaSvnHooks.util.JarIndex;
 
 /**
- * A registry for all {@link WrappedClass} of the submission.
+ * A registry for all {@link WrappedClass} of the submission. The classes of
+ * the submission are registered when creating the registry, while their
+ * sources are read on first access. The classes of the libraries on the
+ * classpath are registered on demand, i.e., when asked for a library class
+ * or for all classes.
  * 
  * @author Adam Krafczyk
  */
 public class ClassRegistry implements Closeable {
 
     private URLClassLoader classLoader;
-    private Map<Class<?>, WrappedClass> classes;
+    private Map<Class<?>, WrappedClass> classes = new HashMap<Class<?>, WrappedClass>();
+    private JarIndex jarIndex;
+    private List<File> libraries = new ArrayList<File>();
+    private Set<String> libraryClassNames;
+    private boolean librariesRegistered;
 
     /**
      * Creates a {@link ClassRegistry} for the given project directory. The java
@@ -66,6 +73,50 @@ public class ClassRegistry implements Closeable {
      */
     public ClassRegistry(File projectDir, List<String> classpath) 
         throws ClassNotFoundException, IOException, WrongPackageException {
+        this(projectDir, classpath, FileUtils.listFiles(projectDir, new String[] {"java"}, true), 
+            FileUtils.listFiles(projectDir, new String[] {"class"}, true));
+    }
+
+    /**
+     * Creates a {@link ClassRegistry} for the given project directory from the
+     * known source and class files, e.g., of a previous compilation, without 
+     * scanning the project directory.
+     * 
+     * @param projectDir The directory of the submission.
+     * @param classpath optional classpath entries (may be <b>null</b>)
+     * @param javaFiles The submitted java files.
+     * @param classFiles The compiled class files, files outside of 
+     *     <code>projectDir</code> are ignored.
+     * 
+     * @throws ClassNotFoundException If loading a class fails.
+     * @throws IOException If reading a file fails.
+     * @throws WrongPackageException If a class has a wrong package declaration.
+     */
+    public ClassRegistry(File projectDir, List<String> classpath, Collection<File> javaFiles, 
+        Collection<File> classFiles) throws ClassNotFoundException, IOException, WrongPackageException {
+        this(projectDir, classpath, javaFiles, classFiles, JarIndex.getInstance(null));
+    }
+
+    /**
+     * Creates a {@link ClassRegistry} for the given project directory from the
+     * known source and class files, e.g., of a previous compilation, without 
+     * scanning the project directory.
+     * 
+     * @param projectDir The directory of the submission.
+     * @param classpath optional classpath entries (may be <b>null</b>)
+     * @param javaFiles The submitted java files.
+     * @param classFiles The compiled class files, files outside of 
+     *     <code>projectDir</code> are ignored.
+     * @param jarIndex The index determining the classes of the libraries 
+     *     on <code>classpath</code>.
+     * 
+     * @throws ClassNotFoundException If loading a class fails.
+     * @throws IOException If reading a file fails.
+     * @throws WrongPackageException If a class has a wrong package declaration.
+     */
+    public ClassRegistry(File projectDir, List<String> classpath, Collection<File> javaFiles, 
+        Collection<File> classFiles, JarIndex jarIndex) throws ClassNotFoundException, IOException, 
+        WrongPackageException {
         // Create class loader for project
         List<URL> urls = new ArrayList<URL>();
         try {
@@ -83,84 +134,98 @@ public class ClassRegistry implements Closeable {
             throw new ClassNotFoundException("", e1);
         }
         
-        classes = new HashMap<Class<?>, WrappedClass>();
-        registerSubmittedFiles(projectDir);
+        registerSubmittedFiles(projectDir, javaFiles, classFiles);
         
-        // and register the rest of the classes, but without sources
-        registerClasspathLibraries(urls);
-        
-        classes = Collections.unmodifiableMap(classes);
+        // the rest of the classes is registered on demand, but without sources
+        this.jarIndex = jarIndex;
+        collectClasspathLibraries(urls);
     }
     
     /**
      * Registers submitted files as classes if possible.
      * 
-     * @param projectDir the project directory to scan
+     * @param projectDir the project directory
+     * @param javaFiles the submitted java files
+     * @param classFiles the compiled class files
      * @throws ClassNotFoundException If loading a class fails.
-     * @throws IOException If reading a file fails.
      * @throws WrongPackageException If a class has a wrong package declaration.
      */
-    private void registerSubmittedFiles(File projectDir) 
-        throws ClassNotFoundException, IOException, WrongPackageException {
-        // Get all submitted java files
-        Collection<File> javaFiles = FileUtils.listFiles(projectDir, 
-            new String[] {"java"}, true);
-        
-        // Get all class names
-        Collection<File> classFiles = FileUtils.listFiles(projectDir, 
-            new String[] {"class"}, true);
+    private void registerSubmittedFiles(File projectDir, Collection<File> javaFiles, 
+        Collection<File> classFiles) throws ClassNotFoundException, WrongPackageException {
+        String projectPrefix = projectDir.getAbsolutePath() + File.separator;
+        URI homeDirURI = projectDir.toURI();
+        Map<String, File> sources = indexSources(homeDirURI, javaFiles);
         for (File classFile : classFiles) {
-            String className = filePathToJavaClass(classFile.getAbsolutePath(),
-                    projectDir.getAbsolutePath());
-            
-            Class<?> clazz = null;
-            try {
-                clazz = classLoader.loadClass(className);
-            } catch (NoClassDefFoundError exc) {
-                throw new WrongPackageException(classFile);
-            }
-            
-            // Try to get the .java file
-            String guessedName = classFile.getAbsolutePath();
-            guessedName = guessedName.substring(0, guessedName.length()
-                    - "class".length()) + "java";
-            String matchingJavaFileName = null;
-            File matchingJavaFile = null;
-            for (File javaFile : javaFiles) {
-                if (guessedName.equalsIgnoreCase(javaFile.getAbsolutePath())) {
-                    
-                    URI homeDirURI = projectDir.toURI();
-                    URI javaFileURI = javaFile.toURI();
-                    matchingJavaFileName = homeDirURI.relativize(javaFileURI)
+            if (classFile.getAbsolutePath().startsWith(projectPrefix)) {
+                String className = filePathToJavaClass(classFile.getAbsolutePath(),
+                        projectDir.getAbsolutePath());
+                
+                Class<?> clazz = null;
+                try {
+                    clazz = classLoader.loadClass(className);
+                } catch (NoClassDefFoundError exc) {
+                    throw new WrongPackageException(classFile);
+                }
+                
+                // Try to get the .java file
+                String guessedName = homeDirURI.relativize(classFile.toURI()).getPath();
+                guessedName = guessedName.substring(0, guessedName.length()
+                        - "class".length()) + "java";
+                File matchingJavaFile = sources.get(normalizeSourcePath(guessedName));
+                String matchingJavaFileName = null;
+                if (matchingJavaFile != null) {
+                    matchingJavaFileName = homeDirURI.relativize(matchingJavaFile.toURI())
                             .getPath();
-                    matchingJavaFile = javaFile;
-                    
-                    break;
                 }
+                classes.put(clazz, new WrappedClass(clazz, matchingJavaFileName,
+                        matchingJavaFile));
             }
-            
-            String content = null;
-            if (matchingJavaFile != null) {
-                // Read content of the java file
-                content = FileUtils.readFileToString(matchingJavaFile, StandardCharsets.UTF_8);
+        }
+    }
+    
+    /**
+     * Indexes the submitted java files by their normalized path relative to
+     * the project directory.
+     * 
+     * @param homeDirURI the URI of the project directory
+     * @param javaFiles the submitted java files
+     * @return the java files by normalized relative path, the first file if
+     *     several files share a normalized path
+     */
+    private static Map<String, File> indexSources(URI homeDirURI, Collection<File> javaFiles) {
+        Map<String, File> result = new HashMap<String, File>();
+        for (File javaFile : javaFiles) {
+            String key = normalizeSourcePath(homeDirURI.relativize(javaFile.toURI()).getPath());
+            if (!result.containsKey(key)) {
+                result.put(key, javaFile);
             }
-            classes.put(clazz, new WrappedClass(clazz, matchingJavaFileName,
-                    content));
         }
+        return result;
+    }
+    
+    /**
+     * Normalizes the path of a java file, as java files are assigned to class
+     * files ignoring the case.
+     * 
+     * @param path the path relative to the project directory
+     * @return the normalized path
+     */
+    private static String normalizeSourcePath(String path) {
+        return path.toLowerCase(Locale.ROOT);
     }
 
     /**
-     * Registers classes on the library path. Do not throw exceptions, as 
+     * Collects the libraries on the library path. Do not throw exceptions, as 
      * library classes may not completely be resolvable.
      * 
      * @param urls the URLs to scan
      */
-    private void registerClasspathLibraries(List<URL> urls) {
+    private void collectClasspathLibraries(List<URL> urls) {
         for (URL url : urls) {
             try {
                 File file = new File(url.toURI());
                 if (file.isFile() && file.getName().endsWith(".jar")) {
-                    registerClasspathLibrary(file);
+                    libraries.add(file);
                 }
             } catch (URISyntaxException e) {
                 Logger.INSTANCE.log("URI exception: " + e.getMessage());
@@ -168,45 +233,62 @@ public class ClassRegistry implements Closeable {
         }
     }
 
+    /**
+     * Returns the names of the classes of the libraries.
+     * 
+     * @return the names of the classes
+     */
+    private Set<String> getLibraryClassNames() {
+        if (null == libraryClassNames) {
+            libraryClassNames = new LinkedHashSet<String>();
+            for (File library : libraries) {
+                try {
+                    libraryClassNames.addAll(jarIndex.get(library).getClassNames());
+                } catch (IOException e) {
+                    Logger.INSTANCE.log("I/O exception: " + e.getMessage());
+                }
+            }
+        }
+        return libraryClassNames;
+    }
+
+    /**
+     * Registers all classes on the library path if not done before.
+     */
+    private void registerClasspathLibraries() {
+        if (!librariesRegistered) {
+            for (String className : getLibraryClassNames()) {
+                registerClasspathLibrary(className);
+            }
+            librariesRegistered = true;
+        }
+    }
+
     /**
      * Registers a class on the library path. Do not throw exceptions, as 
      * library classes may not completely be resolvable. Do not look for code,
      * as sources may not be available.
      * 
-     * @param file the class file to register
+     * @param className the name of the class to register
+     * @return the registered class, <b>null</b> if the class cannot be loaded
      */
-    private void registerClasspathLibrary(File file) {
+    private WrappedClass registerClasspathLibrary(String className) {
+        WrappedClass result = null;
         try {
-            JarInputStream jis = new JarInputStream(
-                new FileInputStream(file));
-            JarEntry entry;
-            do {
-                entry = jis.getNextJarEntry();
-                if (null != entry && !entry.isDirectory()) {
-                    String fileName = entry.getName();
-                    if (fileName.endsWith(".class")) {
-                        // see JarSpec, only /, not \
-                        fileName = fileName.substring(0, fileName
-                            .length() - 6).replace("/", ".");
-                        try {
-                            Class<?> clazz = classLoader
-                                .loadClass(fileName);
-                            classes.put(clazz, new WrappedClass(
-                                clazz, null, null));
-                        } catch (NoClassDefFoundError e2) {
-                            Logger.INSTANCE.log("Library class "
-                                + "not found: " + e2.getMessage());
-                        } catch (ClassNotFoundException e2) {
-                            Logger.INSTANCE.log("Library class "
-                                + "not found: " + e2.getMessage());
-                        }
-                    }
-                }
-            } while (null != entry);
-            jis.close();
-        } catch (IOException e) {
-            Logger.INSTANCE.log("I/O exception: " + e.getMessage());
+            Class<?> clazz = classLoader.loadClass(className);
+            result = classes.get(clazz);
+            if (null == result) {
+                result = new WrappedClass(clazz, null, null);
+                classes.put(clazz, result);
+            }
+        } catch (NoClassDefFoundError e2) {
+            Logger.INSTANCE.log("Library class "
+                + "not found: " + e2.getMessage());
+        } catch (ClassNotFoundException e2) {
+            Logger.INSTANCE.log("Library class "
+                + "not found: " + e2.getMessage());
         }
+        return result;
     }
 
     /**
@@ -247,7 +329,7 @@ public class ClassRegistry implements Closeable {
             Class<?> ... parameterTypes) {
         
         Method method = null;
-        for (Class<?> clazz : classes.keySet()) {
+        for (Class<?> clazz : getAllClasses()) {
             try {
                 if (onlyPublic) {
                     method = clazz.getMethod(name, parameterTypes);
@@ -268,15 +350,24 @@ public class ClassRegistry implements Closeable {
      * @param clazz The {@link Class} to get the {@link WrappedClass} for.
      * @return The {@link WrappedClass} or <code>null</code>.
      */
-    public WrappedClass getWrappedClass(Class<?> clazz) {
-        return classes.get(clazz);
+    public synchronized WrappedClass getWrappedClass(Class<?> clazz) {
+        WrappedClass result = classes.get(clazz);
+        if (null == result && !librariesRegistered 
+            && getLibraryClassNames().contains(clazz.getName())) {
+            result = registerClasspathLibrary(clazz.getName());
+            if (null != result && result.getWrappedClass() != clazz) {
+                result = null;
+            }
+        }
+        return result;
     }
     
     /**
      * Getter for all wrapped classes of this registry.
      * @return An unmodifiable collection of all wrapped classes.
      */
-    public Collection<WrappedClass> getAllWrappedClasses() {
+    public synchronized Collection<WrappedClass> getAllWrappedClasses() {
+        registerClasspathLibraries();
         return Collections.unmodifiableCollection(classes.values());
     }
     
@@ -284,7 +375,8 @@ public class ClassRegistry implements Closeable {
      * Getter for all classes of this registry.
      * @return An unmodifiable set of all classes.
      */
-    public Set<Class<?>> getAllClasses() {
+    public synchronized Set<Class<?>> getAllClasses() {
+        registerClasspathLibraries();
         return Collections.unmodifiableSet(classes.keySet());
     }
     
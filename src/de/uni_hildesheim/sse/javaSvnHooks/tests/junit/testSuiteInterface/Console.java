@@ -1,11 +1,16 @@
 package de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
 
 /**
  * Utilityklasse um Konsoleeingaben und -ausgaben zu simulieren/abzufangen.
+ * Werden Tests parallel ausgefuehrt, erhaelt jeder Test mit
+ * {@link #isolieren()} eine eigene Konsole, die auch fuer die vom Test
+ * gestarteten Threads gilt.
  * @author El-Sharkawy
  *
  */
@@ -18,32 +23,117 @@ public class Console {
      *  werden.
      */
     public static final Console INSTANCE = new Console();
-    
+
     private PrintStream systemOut;
     private PrintStream systemErr;
     private InputStream systemIn;
-    
-    private SystemInStream inBuffer;
-    private ByteArrayOutputStream outBuffer;
-    private ByteArrayOutputStream errBuffer;
-    
+
+    private Puffer gemeinsam;
+    private InheritableThreadLocal<Puffer> isoliert
+        = new InheritableThreadLocal<Puffer>();
+
     private boolean aktiv;
-    
+
+    /**
+     * Die Ein- und Ausgaben einer Konsole.
+     */
+    private static class Puffer {
+
+        // Stream fuer Benutzerinteraktionen
+        private SystemInStream inBuffer = new SystemInStream();
+        private ByteArrayOutputStream outBuffer;
+        private ByteArrayOutputStream errBuffer;
+
+    }
+
+    /**
+     * Leitet Ausgaben an die Konsole des ausgebenden Threads weiter.
+     */
+    private class Ausgabe extends OutputStream {
+
+        private boolean error;
+
+        /**
+         * Erzeugt die Weiterleitung.
+         * @param error <code>true</code> fuer {@link System#err},
+         *     <code>false</code> fuer {@link System#out}
+         */
+        private Ausgabe(boolean error) {
+            this.error = error;
+        }
+
+        /**
+         * Liefert das Ziel der Ausgabe.
+         * @return Das Ziel, <tt>null</tt> wenn die Ausgabe verworfen wird.
+         */
+        private OutputStream ziel() {
+            Puffer puffer = aktuell();
+            return error ? puffer.errBuffer : puffer.outBuffer;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            OutputStream ziel = ziel();
+            if (null != ziel) {
+                ziel.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            OutputStream ziel = ziel();
+            if (null != ziel) {
+                ziel.write(b, off, len);
+            }
+        }
+
+    }
+
+    /**
+     * Leitet Eingaben von der Konsole des lesenden Threads weiter.
+     */
+    private class Eingabe extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            return aktuell().inBuffer.read();
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) throws IOException {
+            return aktuell().inBuffer.read(bytes, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return aktuell().inBuffer.available();
+        }
+
+    }
+
     /**
      * Singleton-Konstruktur.
      */
     private Console() {
         aktiv = false;
-        
+
         // Originale System-Streams
         systemOut = System.out;
         systemErr = System.err;
         systemIn = System.in;
-        
-        // Stream fuer Benutzerinteraktionen
-        inBuffer = new SystemInStream();
+
+        gemeinsam = new Puffer();
     }
-    
+
+    /**
+     * Liefert die Konsole des aktuellen Threads.
+     * @return Die isolierte Konsole des Threads, sonst die gemeinsame Konsole.
+     */
+    private Puffer aktuell() {
+        Puffer result = isoliert.get();
+        return null != result ? result : gemeinsam;
+    }
+
     /**
      * Aktiviert die Simulation der Konsole.
      */
@@ -52,11 +142,13 @@ public class Console {
             aktiv = true;
             resetOut();
             resetErr();
-            inBuffer.reset();
-            System.setIn(inBuffer);
+            gemeinsam.inBuffer.reset();
+            System.setIn(new Eingabe());
+            System.setOut(new PrintStream(new Ausgabe(false)));
+            System.setErr(new PrintStream(new Ausgabe(true)));
         }
     }
-    
+
     /**
      * Beendet die Simulation der Konsole.
      */
@@ -68,7 +160,30 @@ public class Console {
             System.setIn(systemIn);
         }
     }
-    
+
+    /**
+     * Gibt dem aktuellen Thread und den von ihm ab jetzt gestarteten Threads
+     * eine eigene, leere Konsole, z.B. fuer einen parallel ausgefuehrten
+     * Test. Bis zum Aufruf von {@link #teilen()} beziehen sich alle anderen
+     * Methoden in diesen Threads auf die eigene Konsole.
+     */
+    public void isolieren() {
+        Puffer puffer = new Puffer();
+        if (aktiv) {
+            puffer.outBuffer = new ByteArrayOutputStream();
+            puffer.errBuffer = new ByteArrayOutputStream();
+        }
+        isoliert.set(puffer);
+    }
+
+    /**
+     * Beendet die mit {@link #isolieren()} begonnene eigene Konsole des
+     * aktuellen Threads, d.h. der Thread nutzt wieder die gemeinsame Konsole.
+     */
+    public void teilen() {
+        isoliert.remove();
+    }
+
     /**
      * Gibt einen Text wie {@link System#in} in die Konsole ein.
      * Nach dem Aufruf dieser Methode sollte zu einem spaeteren Zeitpunkt
@@ -78,27 +193,29 @@ public class Console {
      *     werden.
      */
     public void eingabe(String eingabeText) {
-        inBuffer.input(eingabeText);
+        aktuell().inBuffer.input(eingabeText);
     }
-    
+
     /**
      * Liest die bisherigen Ausgaben von {@link System#out}.
      * @return Die bisherigen Ausgaben auf der Konsole oder <tt>null</tt>
      *     wenn {@link #aktivieren()} nicht aufgerufen wurde.
      */
     public String leseOut() {
+        ByteArrayOutputStream outBuffer = aktuell().outBuffer;
         return outBuffer != null ? outBuffer.toString() : null;
     }
-    
+
     /**
      * Liest die bisherigen Ausgaben von {@link System#err}.
      * @return Die bisherigen Ausgaben auf der Konsole oder <tt>null</tt> wenn
      *     {@link #aktivieren()} nicht aufgerufen wurde.
      */
     public String leseError() {
+        ByteArrayOutputStream errBuffer = aktuell().errBuffer;
         return errBuffer != null ? errBuffer.toString() : null;
     }
-    
+
     /**
      * Löscht die bisherigen Eingaben auf der Konsole.
      * Eingaben die vor diesen Aufruf gemacht wurden, werden verworfen.
@@ -107,12 +224,10 @@ public class Console {
      */
     public void resetOut() {
         if (aktiv) {
-            outBuffer = new ByteArrayOutputStream();
-            PrintStream simOut = new PrintStream(outBuffer);
-            System.setOut(simOut);
+            aktuell().outBuffer = new ByteArrayOutputStream();
         }
     }
-    
+
     /**
      * Löscht die bisherigen Eingaben auf der Konsole.
      * Eingaben die vor diesen Aufruf gemacht wurden, werden verworfen.
@@ -121,9 +236,7 @@ public class Console {
      */
     public void resetErr() {
         if (aktiv) {
-            errBuffer = new ByteArrayOutputStream();
-            PrintStream simErr = new PrintStream(errBuffer);
-            System.setErr(simErr);
+            aktuell().errBuffer = new ByteArrayOutputStream();
         }
     }
 }
@@ -5,7 +5,8 @@ import java.util.Collections;
 import java.util.List;
 
 /**
- * Collects {@link TestFailure}s.
+ * Collects {@link TestFailure}s. Failures may be added concurrently, e.g.,
+ * by test methods running in parallel.
  * 
  * @author Adam Krafczyk
  */
@@ -24,7 +25,7 @@ public class TestResult {
      * Adds a new {@link TestFailure} representing a failed test.
      * @param testFailure The new {@link TestFailure}.
      */
-    public void addTestFailure(TestFailure testFailure) {
+    public synchronized void addTestFailure(TestFailure testFailure) {
         testFailures.add(testFailure);
     }
     
@@ -32,8 +33,8 @@ public class TestResult {
      * Returns a list of {@link TestFailure} for all failed tests.
      * @return An unmodifiable {@link List} of {@link TestFailure}s.
      */
-    public List<TestFailure> getTestFailures() {
-        return Collections.unmodifiableList(testFailures);
+    public synchronized List<TestFailure> getTestFailures() {
+        return Collections.unmodifiableList(new ArrayList<TestFailure>(testFailures));
     }
     
 }
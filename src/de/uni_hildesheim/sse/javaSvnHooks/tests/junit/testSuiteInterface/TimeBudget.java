@@ -0,0 +1,23 @@
+package de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The maximum time the test may run. A test exceeding its time budget fails,
+ * the remaining tests of the test suite are executed as usual.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface TimeBudget {
+
+    /**
+     * The maximum time of the test.
+     * 
+     * @return the time in milliseconds
+     */
+    long millis();
+    
+}
@@ -1,7 +1,16 @@
 package de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.FileUtils;
+
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+
 /**
  * A wrapper arround a {@link Class} object with java file name and content.
+ * The content is read on first access.
  * 
  * @author Adam Krafczyk
  */
@@ -9,6 +18,8 @@ public class WrappedClass {
 
     private Class<?> wrappedClass;
     private String file;
+    private File source;
+    private boolean contentRead;
     private String content;
     
     /**
@@ -16,12 +27,12 @@ public class WrappedClass {
      * 
      * @param wrappedClass The {@link Class} to be wrapped.
      * @param file The path to the java file of the class (relative to project).
-     * @param content The content of the java file of the class.
+     * @param source The java file of the class, may be <code>null</code>.
      */
-    WrappedClass(Class<?> wrappedClass, String file, String content) {
+    WrappedClass(Class<?> wrappedClass, String file, File source) {
         this.wrappedClass = wrappedClass;
         this.file = file;
-        this.content = content;
+        this.source = source;
     }
     
     /**
@@ -43,9 +54,20 @@ public class WrappedClass {
     
     /**
      * Getter for the content of the java file.
-     * @return The content of the java file. May be <code>null</code>.
+     * @return The content of the java file. May be <code>null</code>, also
+     * if reading the java file fails.
      */
-    public String getContent() {
+    public synchronized String getContent() {
+        if (!contentRead) {
+            contentRead = true;
+            if (null != source) {
+                try {
+                    content = FileUtils.readFileToString(source, StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    Logger.INSTANCE.log("Cannot read " + source + ": " + e.getMessage());
+                }
+            }
+        }
         return content;
     }
     
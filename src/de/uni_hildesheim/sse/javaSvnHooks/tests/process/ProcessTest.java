@@ -156,6 +156,8 @@ public class ProcessTest extends Test {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        // the process may have created files
+        pathConfiguration.invalidateFileIndex();
         
         return returnValue;
     }
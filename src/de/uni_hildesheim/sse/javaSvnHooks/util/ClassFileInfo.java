@@ -0,0 +1,268 @@
+package de.uni_hildesheim.sse.javaSvnHooks.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The information of a compiled class file needed to track dependencies between classes, read directly from
+ * the class file format without loading the class: its name, its source file, the classes it refers to and
+ * whether it declares compile-time constants that other classes may have inlined.
+ */
+public class ClassFileInfo {
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int ACC_PRIVATE = 0x0002;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    /**
+     * Matches class types in descriptors and signatures.
+     */
+    private static final Pattern CLASS_TYPE = Pattern.compile("L([^;<:.\\[]+)[;<]");
+
+    private String name;
+    private String sourceFile;
+    private Set<String> referencedClasses = new HashSet<String>();
+    private boolean declaresConstants;
+    private int[] classNames;
+
+    /**
+     * Creates an instance. Use {@link #read(File)}.
+     */
+    private ClassFileInfo() {
+    }
+
+    /**
+     * Reads a class file.
+     *
+     * @param file The class file.
+     * @return The information of the class.
+     * @throws IOException If reading fails or the file is not a class file.
+     */
+    public static ClassFileInfo read(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads a class file.
+     *
+     * @param stream The contents of the class file, not closed by this method.
+     * @return The information of the class.
+     * @throws IOException If reading fails or the stream does not contain a class file.
+     */
+    public static ClassFileInfo read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (MAGIC != in.readInt()) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+        ClassFileInfo result = new ClassFileInfo();
+        String[] utf8 = result.readConstantPool(in);
+        in.readUnsignedShort(); // access flags
+        result.name = utf8[result.classIndex(in.readUnsignedShort())];
+        result.referencedClasses.remove(result.name);
+        in.readUnsignedShort(); // super class, contained in the constant pool
+        skip(in, 2 * in.readUnsignedShort()); // interfaces, contained in the constant pool
+        result.readMembers(in, utf8, true);
+        result.readMembers(in, utf8, false);
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            String attribute = utf8[in.readUnsignedShort()];
+            int length = in.readInt();
+            if ("SourceFile".equals(attribute)) {
+                result.sourceFile = utf8[in.readUnsignedShort()];
+            } else {
+                skip(in, length);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the name of a class constant.
+     *
+     * @param index The index of the class constant.
+     * @return The index of the Utf8 constant.
+     */
+    private int classIndex(int index) {
+        return classNames[index];
+    }
+
+    /**
+     * Reads the constant pool and collects the referenced classes.
+     *
+     * @param in The class file, positioned at the constant pool.
+     * @return The Utf8 constants by index, <code>null</code> for other constants.
+     * @throws IOException If reading fails.
+     */
+    private String[] readConstantPool(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        String[] utf8 = new String[count];
+        classNames = new int[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+            case CONSTANT_UTF8:
+                utf8[i] = in.readUTF();
+                break;
+            case CONSTANT_CLASS:
+                classNames[i] = in.readUnsignedShort();
+                break;
+            case CONSTANT_STRING:
+            case CONSTANT_METHOD_TYPE:
+            case CONSTANT_MODULE:
+            case CONSTANT_PACKAGE:
+                in.readUnsignedShort();
+                break;
+            case CONSTANT_METHOD_HANDLE:
+                skip(in, 3);
+                break;
+            case CONSTANT_INTEGER:
+            case CONSTANT_FLOAT:
+            case CONSTANT_FIELDREF:
+            case CONSTANT_METHODREF:
+            case CONSTANT_INTERFACE_METHODREF:
+            case CONSTANT_NAME_AND_TYPE:
+            case CONSTANT_DYNAMIC:
+            case CONSTANT_INVOKE_DYNAMIC:
+                in.readInt();
+                break;
+            case CONSTANT_LONG:
+            case CONSTANT_DOUBLE:
+                in.readLong();
+                i++; // takes two entries
+                break;
+            default:
+                throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        for (int i = 1; i < count; i++) {
+            if (classNames[i] > 0) {
+                addClass(utf8[classNames[i]]);
+            } else if (null != utf8[i]) {
+                // descriptors and signatures, may over-approximate for other strings
+                Matcher matcher = CLASS_TYPE.matcher(utf8[i]);
+                while (matcher.find()) {
+                    referencedClasses.add(matcher.group(1));
+                }
+            }
+        }
+        return utf8;
+    }
+
+    /**
+     * Adds the name of a class constant, which may also denote an array type.
+     *
+     * @param className The name in internal form.
+     */
+    private void addClass(String className) {
+        if (className.startsWith("[")) {
+            Matcher matcher = CLASS_TYPE.matcher(className);
+            while (matcher.find()) {
+                referencedClasses.add(matcher.group(1));
+            }
+        } else {
+            referencedClasses.add(className);
+        }
+    }
+
+    /**
+     * Reads the fields or the methods of the class.
+     *
+     * @param in The class file, positioned at the members.
+     * @param utf8 The Utf8 constants.
+     * @param fields Whether fields are read, i.e., constant values are considered.
+     * @throws IOException If reading fails.
+     */
+    private void readMembers(DataInputStream in, String[] utf8, boolean fields) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            int access = in.readUnsignedShort();
+            skip(in, 4); // name and descriptor, contained in the constant pool
+            int attributes = in.readUnsignedShort();
+            for (int a = 0; a < attributes; a++) {
+                String attribute = utf8[in.readUnsignedShort()];
+                // private constants are inlined only within the same source file
+                declaresConstants |= fields && 0 == (access & ACC_PRIVATE) && "ConstantValue".equals(attribute);
+                skip(in, in.readInt());
+            }
+        }
+    }
+
+    /**
+     * Skips bytes of the class file.
+     *
+     * @param in The class file.
+     * @param bytes The number of bytes to skip.
+     * @throws IOException If the file ends before.
+     */
+    private static void skip(DataInputStream in, int bytes) throws IOException {
+        in.readFully(new byte[bytes]);
+    }
+
+    /**
+     * Returns the name of the class.
+     *
+     * @return The name in internal form, e.g., <code>java/lang/Object</code>.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the name of the source file of the class.
+     *
+     * @return The file name without path, <code>null</code> if not recorded by the compiler.
+     */
+    public String getSourceFile() {
+        return sourceFile;
+    }
+
+    /**
+     * Returns the classes referenced by this class.
+     *
+     * @return The names in internal form, unmodifiable.
+     */
+    public Set<String> getReferencedClasses() {
+        return Collections.unmodifiableSet(referencedClasses);
+    }
+
+    /**
+     * Returns whether this class declares non-private compile-time constants, which other classes may have
+     * inlined without referring to this class.
+     *
+     * @return <code>true</code> if the class declares constants, <code>false</code> else.
+     */
+    public boolean declaresConstants() {
+        return declaresConstants;
+    }
+
+}
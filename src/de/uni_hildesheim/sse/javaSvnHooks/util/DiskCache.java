@@ -0,0 +1,221 @@
+package de.uni_hildesheim.sse.javaSvnHooks.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+
+/**
+ * A persistent, size-bounded cache of files on disk, e.g., below the temporary directory of the hook.
+ * Entries are immutable files addressed by a key (e.g., a checksum), stored atomically so that
+ * concurrent hook processes may share the cache. Accessed entries are touched and the least recently used
+ * entries are evicted when the cache exceeds its maximum size. Only the access time of an entry is touched,
+ * as entries may be hard linked into checkout directories which detect modified files by their modification
+ * time.
+ */
+public class DiskCache {
+
+    /**
+     * The fraction of the maximum size the cache is reduced to when evicting entries.
+     */
+    private static final double EVICTION_TARGET = 0.9;
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private Path dir;
+    private long maxSize;
+    private long size = -1;
+
+    /**
+     * Creates a cache.
+     *
+     * @param dir the directory of the cache, created if needed
+     * @param maxSize the maximum size of the cache in bytes
+     */
+    public DiskCache(File dir, long maxSize) {
+        this.dir = dir.toPath();
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the file of an entry, i.e., the key must consist of characters valid in file names. Entries
+     * are distributed over 256 sub-directories to keep directories small.
+     *
+     * @param key the key
+     * @return the file (may not exist)
+     */
+    private Path getEntry(String key) {
+        String shard = String.format("%02x", key.hashCode() & 0xff);
+        return dir.resolve(shard).resolve(key);
+    }
+
+    /**
+     * Returns the entry for the given key and marks it as recently used. The returned file must not
+     * be modified.
+     *
+     * @param key the key
+     * @return the file of the entry, <code>null</code> if there is no entry for <code>key</code>
+     */
+    public Path get(String key) {
+        Path result = getEntry(key);
+        try {
+            Files.getFileAttributeView(result, BasicFileAttributeView.class)
+                .setTimes(null, FileTime.fromMillis(System.currentTimeMillis()), null);
+        } catch (IOException e) {
+            // not cached or just evicted
+            result = null;
+        }
+        return result;
+    }
+
+    /**
+     * Adds a copy of the given file as entry for the given key. The entry is made read-only.
+     *
+     * @param key the key
+     * @param file the file to add
+     * @throws IOException if adding the file fails
+     */
+    public void put(String key, Path file) throws IOException {
+        Path entry = getEntry(key);
+        Files.createDirectories(entry.getParent());
+        Path tmp = Files.createTempFile(entry.getParent(), key, TMP_SUFFIX);
+        try {
+            Files.copy(file, tmp, StandardCopyOption.REPLACE_EXISTING);
+            tmp.toFile().setWritable(false, false);
+            Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        added(Files.size(entry));
+    }
+
+    /**
+     * Removes the entry for the given key, e.g., as it turned out to be inconsistent.
+     *
+     * @param key the key
+     */
+    public void remove(String key) {
+        try {
+            Files.deleteIfExists(getEntry(key));
+        } catch (IOException e) {
+            Logger.INSTANCE.logException(e, true);
+        }
+    }
+
+    /**
+     * Accounts for an added entry and evicts the least recently used entries if the cache is too large.
+     *
+     * @param entrySize the size of the added entry
+     * @throws IOException if determining the size of the cache fails
+     */
+    private synchronized void added(long entrySize) throws IOException {
+        if (size < 0) {
+            size = listEntries(null);
+        } else {
+            size += entrySize;
+        }
+        if (size > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Evicts the least recently used entries until the size of the cache is below
+     * {@link #EVICTION_TARGET} of the maximum size.
+     *
+     * @throws IOException if listing the entries fails
+     */
+    private void evict() throws IOException {
+        final List<Path> entries = new ArrayList<Path>();
+        size = listEntries(entries);
+        // determine the access times once, concurrent accesses shall not affect the order while sorting
+        final Map<Path, Long> accessed = new HashMap<Path, Long>();
+        for (Path entry : entries) {
+            accessed.put(entry, getLastAccess(entry));
+        }
+        Collections.sort(entries, new Comparator<Path>() {
+
+            @Override
+            public int compare(Path p1, Path p2) {
+                return Long.compare(accessed.get(p1), accessed.get(p2));
+            }
+
+        });
+        long target = (long) (maxSize * EVICTION_TARGET);
+        for (int i = 0; size > target && i < entries.size(); i++) {
+            Path entry = entries.get(i);
+            try {
+                long entrySize = Files.size(entry);
+                Files.delete(entry);
+                size -= entrySize;
+            } catch (NoSuchFileException e) {
+                // evicted concurrently by another process
+            }
+        }
+    }
+
+    /**
+     * Returns the last access time of an entry.
+     *
+     * @param entry the entry
+     * @return the last access time in milliseconds, <code>0</code> if the entry vanished meanwhile
+     */
+    private static long getLastAccess(Path entry) {
+        long result;
+        try {
+            result = Files.readAttributes(entry, BasicFileAttributes.class).lastAccessTime().toMillis();
+        } catch (IOException e) {
+            result = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Determines the size of the cache.
+     *
+     * @param entries the entries of the cache to be modified as a side effect, may be <code>null</code>
+     * @return the size of all entries
+     * @throws IOException if listing the entries fails
+     */
+    private long listEntries(final List<Path> entries) throws IOException {
+        final long[] result = new long[1];
+        if (Files.isDirectory(dir)) {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (!file.getFileName().toString().endsWith(TMP_SUFFIX)) {
+                        result[0] += attrs.size();
+                        if (null != entries) {
+                            entries.add(file);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+            });
+        }
+        return result[0];
+    }
+
+}
@@ -0,0 +1,124 @@
+package de.uni_hildesheim.sse.javaSvnHooks.util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Detects source files with problematic encodings in a single pass over their bytes without decoding
+ * them, i.e., files containing byte order marks, umlauts or byte sequences which are not valid UTF-8
+ * (e.g., umlauts in Latin-1 or Windows-1252). Files consisting of ASCII only, the usual case for Java
+ * sources, are recognized without further processing.
+ */
+public class EncodingScanner {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The code points to be detected: umlauts, the replacement character and the byte order mark.
+     */
+    private static final int[] DETECTED = {0xC4, 0xD6, 0xDC, 0xDF, 0xE4, 0xF6, 0xFC, 0xFFFD, 0xFEFF};
+
+    /**
+     * Prevents instantiation.
+     */
+    private EncodingScanner() {
+    }
+
+    /**
+     * Returns whether a file contains a byte order mark, an umlaut, a replacement character or invalid
+     * UTF-8.
+     *
+     * @param file The file.
+     * @return <code>true</code> if the file must be repaired, <code>false</code> else.
+     * @throws IOException If reading the file fails.
+     */
+    public static boolean needsRepair(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return needsRepair(in);
+        }
+    }
+
+    /**
+     * Returns whether a stream contains a byte order mark, an umlaut, a replacement character or invalid
+     * UTF-8.
+     *
+     * @param stream The stream, not closed by this method.
+     * @return <code>true</code> if the contents must be repaired, <code>false</code> else.
+     * @throws IOException If reading fails.
+     */
+    public static boolean needsRepair(InputStream stream) throws IOException {
+        InputStream in = new BufferedInputStream(stream, BUFFER_SIZE);
+        boolean found = false;
+        int b = in.read();
+        while (!found && b >= 0) {
+            if (b >= 0x80) {
+                int codePoint = readCodePoint(in, b);
+                found = codePoint < 0 || isDetected(codePoint);
+            }
+            b = in.read();
+        }
+        return found;
+    }
+
+    /**
+     * Reads the remaining bytes of a multi-byte UTF-8 sequence.
+     *
+     * @param in The stream, positioned after the lead byte.
+     * @param lead The lead byte.
+     * @return The code point, <code>-1</code> if the sequence is not valid UTF-8 (RFC 3629).
+     * @throws IOException If reading fails.
+     */
+    private static int readCodePoint(InputStream in, int lead) throws IOException {
+        int length;
+        int codePoint;
+        int min;
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            length = 1;
+            codePoint = lead & 0x1F;
+            min = 0x80;
+        } else if (lead >= 0xE0 && lead <= 0xEF) {
+            length = 2;
+            codePoint = lead & 0x0F;
+            min = 0x800;
+        } else if (lead >= 0xF0 && lead <= 0xF4) {
+            length = 3;
+            codePoint = lead & 0x07;
+            min = 0x10000;
+        } else {
+            length = 0;
+            codePoint = -1;
+            min = 0;
+        }
+        for (int i = 0; i < length && codePoint >= 0; i++) {
+            int b = in.read();
+            if ((b & 0xC0) == 0x80) {
+                codePoint = (codePoint << 6) | (b & 0x3F);
+            } else {
+                codePoint = -1;
+            }
+        }
+        if (codePoint < min || codePoint > Character.MAX_CODE_POINT
+            || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            codePoint = -1;
+        }
+        return codePoint;
+    }
+
+    /**
+     * Returns whether a code point is to be detected.
+     *
+     * @param codePoint The code point.
+     * @return <code>true</code> if the code point is detected, <code>false</code> else.
+     */
+    private static boolean isDetected(int codePoint) {
+        boolean result = false;
+        for (int detected : DETECTED) {
+            result |= detected == codePoint;
+        }
+        return result;
+    }
+
+}
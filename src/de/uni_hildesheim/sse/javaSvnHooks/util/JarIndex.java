@@ -0,0 +1,472 @@
+package de.uni_hildesheim.sse.javaSvnHooks.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import de.uni_hildesheim.sse.javaSvnHooks.Configuration;
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+
+/**
+ * An index of the classes, packages and the manifest of jar files, e.g., of the course libraries on the
+ * class path of all groups. A jar file is read once and its index is kept in memory as long as the size and
+ * the modification time of the jar file are unchanged. If enabled, the index of a jar file is also stored
+ * in a compact file below the temporary directory, which is memory-mapped by further hook processes
+ * instead of scanning the jar file again. As jar files are often located in the checkout directories of
+ * the single runs, the stored indexes are addressed by the name, the size and the checksum of the jar file
+ * rather than by its path and are evicted when exceeding <code>jarIndex.maxSize</code>. The number of
+ * indexes kept in memory is bounded as well.
+ */
+public class JarIndex {
+
+    /**
+     * The hook property enabling the persistent index below the temporary directory.
+     */
+    public static final String PROPERTY = "jarIndex";
+
+    /**
+     * The hook property specifying the maximum size of the persistent index in MB.
+     */
+    public static final String SIZE_PROPERTY = "jarIndex.maxSize";
+
+    /**
+     * The maximum number of indexes of jar files kept in memory.
+     */
+    public static final int MAX_ENTRIES = 256;
+
+    private static final String DIR = "jarIndex";
+    private static final String SUFFIX = ".idx";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x4A494458;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 20;
+    private static final String CLASS_SUFFIX = ".class";
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The indexes per directory (<code>null</code> for the index kept in memory only).
+     */
+    private static final Map<File, JarIndex> INDEXES = new HashMap<File, JarIndex>();
+
+    private File dir;
+    private DiskCache cache;
+
+    @SuppressWarnings("serial")
+    private Map<File, Entry> entries = new LinkedHashMap<File, Entry>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<File, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+
+    };
+
+    /**
+     * The index of a jar file. The contents of the index are decoded on demand.
+     */
+    public static class Entry {
+
+        private long size;
+        private long lastModified;
+        private ByteBuffer data;
+        private int packagesStart;
+        private List<String> packages;
+        private List<String> classNames;
+
+        /**
+         * Creates the index of a jar file.
+         *
+         * @param data the index in the format written by {@link JarIndex#write(JarFile, long)}
+         * @param size the size of the jar file
+         * @param lastModified the modification time of the jar file
+         * @throws IOException if <code>data</code> is not a valid index of a jar file of the given size
+         */
+        private Entry(ByteBuffer data, long size, long lastModified) throws IOException {
+            this.data = data.asReadOnlyBuffer();
+            if (data.remaining() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION
+                || data.getLong(8) != size) {
+                throw new IOException("Invalid jar index");
+            }
+            this.size = size;
+            this.lastModified = lastModified;
+            packagesStart = HEADER_SIZE + data.getInt(16);
+        }
+
+        /**
+         * Returns whether this index describes the given jar file.
+         *
+         * @param jar the jar file
+         * @return <code>true</code> if the size and the modification time are unchanged, <code>false</code>
+         *     else
+         */
+        private boolean isValid(File jar) {
+            return jar.length() == size && jar.lastModified() == lastModified;
+        }
+
+        /**
+         * Returns the manifest of the jar file.
+         *
+         * @return the manifest (a new instance for each call), <b>null</b> if the jar file has no manifest
+         * @throws IOException if the manifest cannot be read
+         */
+        public Manifest getManifest() throws IOException {
+            Manifest result = null;
+            int length = packagesStart - HEADER_SIZE;
+            if (length > 0) {
+                byte[] bytes = new byte[length];
+                ByteBuffer buf = data.duplicate();
+                buf.position(HEADER_SIZE);
+                buf.get(bytes);
+                result = new Manifest(new ByteArrayInputStream(bytes));
+            }
+            return result;
+        }
+
+        /**
+         * Returns the packages containing classes.
+         *
+         * @return the names of the packages, the default package as empty name (immutable)
+         */
+        public synchronized List<String> getPackages() {
+            if (null == packages) {
+                ByteBuffer buf = data.duplicate();
+                buf.position(packagesStart);
+                int count = buf.getInt();
+                List<String> result = new ArrayList<String>(count);
+                for (int i = 0; i < count; i++) {
+                    result.add(readString(buf));
+                }
+                packages = Collections.unmodifiableList(result);
+            }
+            return packages;
+        }
+
+        /**
+         * Returns the classes.
+         *
+         * @return the fully qualified (binary) names of the classes including nested classes (immutable)
+         */
+        public synchronized List<String> getClassNames() {
+            if (null == classNames) {
+                List<String> packages = getPackages();
+                ByteBuffer buf = data.duplicate();
+                buf.position(packagesStart);
+                int count = buf.getInt();
+                for (int i = 0; i < count; i++) {
+                    readString(buf);
+                }
+                count = buf.getInt();
+                List<String> result = new ArrayList<String>(count);
+                for (int i = 0; i < count; i++) {
+                    String pkg = packages.get(buf.getInt());
+                    String name = readString(buf);
+                    result.add(pkg.length() > 0 ? pkg + "." + name : name);
+                }
+                classNames = Collections.unmodifiableList(result);
+            }
+            return classNames;
+        }
+
+    }
+
+    /**
+     * Creates an index.
+     *
+     * @param dir the directory of the persistent index, <b>null</b> if the index is kept in memory only
+     * @param maxSize the maximum size of the persistent index in bytes
+     */
+    private JarIndex(File dir, long maxSize) {
+        this.dir = dir;
+        if (null != dir) {
+            cache = new DiskCache(dir, maxSize);
+        }
+    }
+
+    /**
+     * Returns the index for the given configuration.
+     *
+     * @param configuration the configuration of the hook, <b>null</b> for an index kept in memory only
+     * @return the index, shared by all callers using the same temporary directory
+     */
+    public static JarIndex getInstance(Configuration configuration) {
+        File dir = null;
+        if (null != configuration && configuration.getBooleanProperty(PROPERTY, false)) {
+            dir = new File(configuration.getTempDir(), DIR).getAbsoluteFile();
+        }
+        JarIndex result;
+        synchronized (INDEXES) {
+            result = INDEXES.get(dir);
+            if (null == result) {
+                result = new JarIndex(dir, null == dir ? 0 : configuration.getIntProperty(SIZE_PROPERTY, 64)
+                    * 1024L * 1024L);
+                INDEXES.put(dir, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the given jar file.
+     *
+     * @param jar the jar file
+     * @return the index
+     * @throws IOException if reading the jar file fails
+     */
+    public Entry get(File jar) throws IOException {
+        File key = jar.getAbsoluteFile();
+        Entry result;
+        synchronized (entries) {
+            result = entries.get(key);
+        }
+        if (null == result || !result.isValid(key)) {
+            // taken before reading, so that concurrent modifications are detected
+            long size = key.length();
+            long lastModified = key.lastModified();
+            String contentKey = null == cache ? null : getContentKey(key, size);
+            result = null == contentKey ? null : load(contentKey, size, lastModified);
+            if (null == result) {
+                result = create(key, contentKey, size, lastModified);
+            }
+            synchronized (entries) {
+                removeDeleted();
+                entries.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forgets the indexes of jar files which do not exist anymore, e.g., as they were located in a
+     * checkout directory which was deleted after the run. Call only when synchronized on {@link #entries}.
+     */
+    private void removeDeleted() {
+        for (Iterator<File> iter = entries.keySet().iterator(); iter.hasNext();) {
+            if (!iter.next().isFile()) {
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of indexes kept in memory.
+     *
+     * @return the number of indexes
+     */
+    public int size() {
+        int result;
+        synchronized (entries) {
+            removeDeleted();
+            result = entries.size();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the key of the persistent index of the given jar file, i.e., a checksum of the name, the size
+     * and the contents of the jar file.
+     *
+     * @param jar the jar file (absolute)
+     * @param size the size of the jar file
+     * @return the key
+     * @throws IOException if reading the jar file fails
+     */
+    private static String getContentKey(File jar, long size) throws IOException {
+        MessageDigest digest = newDigest();
+        digest.update((jar.getName() + ":" + size + ":").getBytes(StandardCharsets.UTF_8));
+        try (InputStream in = Files.newInputStream(jar.toPath())) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toHex(digest.digest()) + SUFFIX;
+    }
+
+    /**
+     * Maps the persistent index of a jar file.
+     *
+     * @param contentKey the key of the persistent index
+     * @param size the size of the jar file
+     * @param lastModified the modification time of the jar file
+     * @return the index, <b>null</b> if there is no valid persistent index
+     */
+    private Entry load(String contentKey, long size, long lastModified) {
+        Entry result = null;
+        Path file = cache.get(contentKey);
+        if (null != file) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                result = new Entry(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), size,
+                    lastModified);
+            } catch (IOException e) {
+                Logger.INSTANCE.log("Ignoring jar index " + file + ": " + e.getMessage());
+                cache.remove(contentKey);
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the given jar file and stores its index if the persistent index is enabled.
+     *
+     * @param jar the jar file (absolute)
+     * @param contentKey the key of the persistent index, <b>null</b> if the index is kept in memory only
+     * @param size the size of the jar file
+     * @param lastModified the modification time of the jar file
+     * @return the index
+     * @throws IOException if reading the jar file fails
+     */
+    private Entry create(File jar, String contentKey, long size, long lastModified) throws IOException {
+        byte[] data;
+        try (JarFile jarFile = new JarFile(jar, false)) {
+            data = write(jarFile, size);
+        }
+        Entry result = new Entry(ByteBuffer.wrap(data), size, lastModified);
+        if (null != contentKey && result.isValid(jar)) { // do not store if modified while reading
+            Path tmp = null;
+            try {
+                Files.createDirectories(dir.toPath());
+                tmp = Files.createTempFile(dir.toPath(), DIR, TMP_SUFFIX);
+                Files.write(tmp, data);
+                cache.put(contentKey, tmp);
+            } catch (IOException e) {
+                Logger.INSTANCE.log("Cannot store jar index " + contentKey + ": " + e.getMessage());
+            } finally {
+                if (null != tmp) {
+                    Files.deleteIfExists(tmp);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates the index of a jar file, i.e., the magic number, the version, the size of the jar file, the
+     * length and the bytes of the manifest, the number and the names of the
+     * packages and the number of classes, each given by the index of its package and its name within the
+     * package. Strings are stored as length and UTF-8 bytes.
+     *
+     * @param jarFile the jar file
+     * @param size the size of the jar file
+     * @return the index
+     * @throws IOException if reading the jar file fails
+     */
+    private static byte[] write(JarFile jarFile, long size) throws IOException {
+        ByteArrayOutputStream manifest = new ByteArrayOutputStream();
+        if (null != jarFile.getManifest()) {
+            jarFile.getManifest().write(manifest);
+        }
+        Map<String, Integer> packages = new HashMap<String, Integer>();
+        List<String> packageNames = new ArrayList<String>();
+        ByteArrayOutputStream classes = new ByteArrayOutputStream();
+        DataOutputStream classesOut = new DataOutputStream(classes);
+        int classCount = 0;
+        for (Enumeration<JarEntry> iter = jarFile.entries(); iter.hasMoreElements();) {
+            String name = iter.nextElement().getName();
+            if (name.endsWith(CLASS_SUFFIX) && !name.startsWith("META-INF/")) { // see JarSpec, only /, not \
+                int pos = name.lastIndexOf('/');
+                String pkg = pos > 0 ? name.substring(0, pos).replace('/', '.') : "";
+                Integer pkgIndex = packages.get(pkg);
+                if (null == pkgIndex) {
+                    pkgIndex = packageNames.size();
+                    packages.put(pkg, pkgIndex);
+                    packageNames.add(pkg);
+                }
+                classesOut.writeInt(pkgIndex);
+                writeString(classesOut, name.substring(pos + 1, name.length() - CLASS_SUFFIX.length()));
+                classCount++;
+            }
+        }
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(result);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(size);
+        out.writeInt(manifest.size());
+        manifest.writeTo(out);
+        out.writeInt(packageNames.size());
+        for (String pkg : packageNames) {
+            writeString(out, pkg);
+        }
+        out.writeInt(classCount);
+        classesOut.flush();
+        classes.writeTo(out);
+        out.flush();
+        return result.toByteArray();
+    }
+
+    /**
+     * Writes a string as length and UTF-8 bytes.
+     *
+     * @param out the stream to write to
+     * @param text the string
+     * @throws IOException if writing fails
+     */
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param buf the buffer to read from
+     * @return the string
+     */
+    private static String readString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates a SHA-256 digest.
+     *
+     * @return the digest
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // required for every Java platform
+        }
+    }
+
+    /**
+     * Returns the hexadecimal notation of a digest.
+     *
+     * @param digest the digest
+     * @return the hexadecimal notation
+     */
+    private static String toHex(byte[] digest) {
+        StringBuilder result = new StringBuilder();
+        for (byte b : digest) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+
+}
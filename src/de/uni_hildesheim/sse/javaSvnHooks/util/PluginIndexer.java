@@ -0,0 +1,91 @@
+package de.uni_hildesheim.sse.javaSvnHooks.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import de.uni_hildesheim.sse.javaSvnHooks.tests.Test;
+
+/**
+ * Creates the index of the test plugins at build time, i.e., lists all concrete {@link Test} classes found in
+ * the compiled classes of the hook in {@link #INDEX_RESOURCE}. At runtime, only the listed classes are loaded
+ * to register the tests, instead of scanning the class path and initializing all classes of the hook.
+ */
+public class PluginIndexer {
+
+    /**
+     * The resource listing the test plugins, one class name per line.
+     */
+    public static final String INDEX_RESOURCE = "META-INF/services/" + Test.class.getName();
+
+    /**
+     * Determines the test plugins in a directory of compiled classes.
+     *
+     * @param classesDir The directory containing the compiled classes.
+     * @return The names of the concrete {@link Test} classes, sorted.
+     * @throws IOException If walking the directory fails.
+     */
+    static SortedSet<String> findPlugins(File classesDir) throws IOException {
+        final Path root = classesDir.toPath();
+        final String prefix = Test.class.getPackage().getName().replace('.', '/');
+        final List<String> candidates = new ArrayList<String>();
+        Files.walkFileTree(root.resolve(prefix), new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                String name = root.relativize(file).toString().replace(File.separatorChar, '/');
+                if (name.endsWith(".class") && name.indexOf('$') < 0) {
+                    candidates.add(name.substring(0, name.length() - 6).replace('/', '.'));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+        });
+        SortedSet<String> result = new TreeSet<String>();
+        ClassLoader loader = PluginIndexer.class.getClassLoader();
+        for (String name : candidates) {
+            try {
+                // do not initialize, i.e., do not register the tests at build time
+                Class<?> cls = Class.forName(name, false, loader);
+                if (Test.class.isAssignableFrom(cls) && !Modifier.isAbstract(cls.getModifiers())) {
+                    result.add(name);
+                }
+            } catch (ClassNotFoundException | LinkageError e) {
+                System.err.println("Skipping " + name + ": " + e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the plugin index, called by the build after compiling the classes.
+     *
+     * @param args The command line parameters. This needs to be exactly 1 element:
+     * <ul>
+     *  <li>[0] The directory containing the compiled classes, the index is written to this directory</li>
+     * </ul>
+     * @throws IOException If writing the index fails.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: PluginIndexer <classesDir>");
+        }
+        File classesDir = new File(args[0]);
+        SortedSet<String> plugins = findPlugins(classesDir);
+        File index = new File(classesDir, INDEX_RESOURCE);
+        index.getParentFile().mkdirs();
+        Files.write(index.toPath(), plugins, StandardCharsets.UTF_8);
+        System.out.println("Indexed " + plugins.size() + " test plugins in " + index);
+    }
+
+}
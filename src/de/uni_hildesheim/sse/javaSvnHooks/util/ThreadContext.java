@@ -0,0 +1,105 @@
+package de.uni_hildesheim.sse.javaSvnHooks.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The thread-bound context of a hook execution, i.e., the values of the {@link #register(ThreadLocal) registered}
+ * {@link ThreadLocal}s such as the log scope or the output streams of a daemon request. The context is not
+ * inherited by new threads, as pooled or background threads would keep the context of the request which
+ * happened to create them. Instead, a task {@link #wrap(Runnable) captures} the context of the thread creating
+ * it and binds this context while it runs.
+ */
+public class ThreadContext {
+
+    private static final List<ThreadLocal<Object>> LOCALS = new CopyOnWriteArrayList<ThreadLocal<Object>>();
+
+    private List<Object> values = new ArrayList<Object>();
+
+    /**
+     * Captures the context of the calling thread.
+     */
+    private ThreadContext() {
+        for (ThreadLocal<Object> local : LOCALS) {
+            values.add(local.get());
+        }
+    }
+
+    /**
+     * Registers a {@link ThreadLocal} as part of the context.
+     *
+     * @param local the thread local
+     */
+    @SuppressWarnings("unchecked")
+    public static void register(ThreadLocal<?> local) {
+        LOCALS.add((ThreadLocal<Object>) local);
+    }
+
+    /**
+     * Binds this context to the calling thread.
+     *
+     * @return the context bound before, to be passed to {@link #bind()} afterwards
+     */
+    private ThreadContext bind() {
+        ThreadContext previous = new ThreadContext();
+        for (int i = 0; i < values.size(); i++) {
+            Object value = values.get(i);
+            if (null == value) {
+                LOCALS.get(i).remove();
+            } else {
+                LOCALS.get(i).set(value);
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * Returns a task running <code>task</code> in the context of the calling thread.
+     *
+     * @param task the task
+     * @return the wrapped task
+     */
+    public static Runnable wrap(final Runnable task) {
+        final ThreadContext context = new ThreadContext();
+        return new Runnable() {
+
+            @Override
+            public void run() {
+                ThreadContext previous = context.bind();
+                try {
+                    task.run();
+                } finally {
+                    previous.bind();
+                }
+            }
+
+        };
+    }
+
+    /**
+     * Returns a task calling <code>task</code> in the context of the calling thread.
+     *
+     * @param <T> the type of the result
+     * @param task the task
+     * @return the wrapped task
+     */
+    public static <T> Callable<T> wrap(final Callable<T> task) {
+        final ThreadContext context = new ThreadContext();
+        return new Callable<T>() {
+
+            @Override
+            public T call() throws Exception {
+                ThreadContext previous = context.bind();
+                try {
+                    return task.call();
+                } finally {
+                    previous.bind();
+                }
+            }
+
+        };
+    }
+
+}
@@ -10,7 +10,6 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
-import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.ClassRegistry;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.WrappedClass;
 import de.uni_hildesheim.sse.test.suite.AbstractJavaTestSuite;
 
@@ -31,7 +30,6 @@ import de.uni_hildesheim.sse.test.suite.AbstractJavaTestSuite;
 //checkstyle: stop parameter number check
 //checkstyle: stop exception type check
 public class OOAnalyzerUtils {
-    private static final ClassRegistry REGISTRY = AbstractJavaTestSuite.getClassRegistry();
     private static final int ERROR_MODIFIER_VALUE = -1;
     
     /**
@@ -53,7 +51,7 @@ public class OOAnalyzerUtils {
      */
     public static Set<WrappedClass> getClasses(String packageName, String className) {
         Set<WrappedClass> javaClasses = new HashSet<WrappedClass>();
-        for (WrappedClass javaClass : REGISTRY.getAllWrappedClasses()) {
+        for (WrappedClass javaClass : AbstractJavaTestSuite.getClassRegistry().getAllWrappedClasses()) {
             Class<?> clazz = javaClass.getWrappedClass();
             if (null != clazz && clazz.getSimpleName().equals(className)) {
                 // If packaName was specified, check also package name
@@ -6,12 +6,33 @@ import org.junit.runners.Suite.SuiteClasses;
 
 import de.uni_hildesheim.sse.javaSvnHooks.unitTests.configuration.ConfigurationTest;
 import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.CheckstyleTestTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.ClassRegistryTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.ClasspathResolverTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.CommitHookTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.CompilationArtifactsTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.CompilationCacheTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.EncodingScannerTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.IncrementalCompilationTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.CompileSchedulerTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.DiagnosticsOnlyTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.DiskCacheTest;
 import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.EclipseTestTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.ExporterTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.FileIndexTest;
 import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.FileNameTestTest;
 import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.FileSizeTestTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.HookServerTest;
 import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.JUnitTestTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.JarIndexTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.JavaCompilerServiceTest;
 import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.JavacTestTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.JunitWorkerTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.MethodTimeoutTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.PluginIndexerTest;
 import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.ScenarioTests;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.TestSchedulerTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.TestSuiteCacheTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.WorkspaceTest;
 
 /**
  * Test suite for jUnit tests.
@@ -27,7 +48,28 @@ import de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests.ScenarioTests;
     CheckstyleTestTest.class,
     JUnitTestTest.class,
     EclipseTestTest.class,
-    ScenarioTests.class
+    ScenarioTests.class,
+    TestSchedulerTest.class,
+    CommitHookTest.class,
+    ExporterTest.class,
+    DiskCacheTest.class,
+    WorkspaceTest.class,
+    HookServerTest.class,
+    PluginIndexerTest.class,
+    FileIndexTest.class,
+    JavaCompilerServiceTest.class,
+    CompilationArtifactsTest.class,
+    CompilationCacheTest.class,
+    IncrementalCompilationTest.class,
+    EncodingScannerTest.class,
+    DiagnosticsOnlyTest.class,
+    CompileSchedulerTest.class,
+    ClasspathResolverTest.class,
+    JarIndexTest.class,
+    JunitWorkerTest.class,
+    MethodTimeoutTest.class,
+    TestSuiteCacheTest.class,
+    ClassRegistryTest.class
     })
 public class AllTests {
 }
@@ -0,0 +1,177 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.WrongPackageException;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.ClassRegistry;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.WrappedClass;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.AbstractTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestSuiteJar;
+import de.uni_hildesheim.sse.javaSvnHooks.util.JarIndex;
+
+/**
+ * Tests the {@link ClassRegistry}, i.e., assigning the sources to the submitted classes and registering the
+ * library classes on demand.
+ */
+public class ClassRegistryTest extends AbstractTest {
+
+    private static final File TMP = new File("testdata/tmp/classRegistryTest").getAbsoluteFile();
+    private static final File PROJECT = new File(TMP, "project");
+    private static final File LIB = new File(TMP, "lib.jar");
+    private static final String FOO = "package pkg;\n"
+        + "public class Foo {\n"
+        + "    public int answer() { return 42; }\n"
+        + "    public lib.Lib lib() { return null; }\n"
+        + "}\n";
+
+    @Override
+    protected File getBase() {
+        return TMP;
+    }
+
+    /**
+     * Creates the library jar and the compiled submission, the source of the non-public class
+     * <code>Helper</code> with a lower-case file name.
+     *
+     * @throws IOException if creating the files fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        FileUtils.deleteDirectory(TMP);
+        File libClasses = new File(TMP, "libClasses");
+        Map<String, String> lib = new HashMap<String, String>();
+        lib.put("lib/Lib.java", "package lib;\npublic class Lib { }\n");
+        TestSuiteJar.compile(libClasses, null, lib);
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(LIB))) {
+            out.putNextEntry(new JarEntry("lib/Lib.class"));
+            Files.copy(new File(libClasses, "lib/Lib.class").toPath(), out);
+            out.closeEntry();
+        }
+        Map<String, String> sources = new HashMap<String, String>();
+        sources.put("pkg/Foo.java", FOO);
+        sources.put("helper.java", "class Helper { }\n");
+        TestSuiteJar.compile(PROJECT, libClasses.getPath(), sources);
+    }
+
+    /**
+     * Creates a registry for the submission and the library.
+     *
+     * @return the registry
+     * @throws Exception if creating the registry fails
+     */
+    private static ClassRegistry createRegistry() throws Exception {
+        return new ClassRegistry(PROJECT, Arrays.asList(LIB.getPath()),
+            FileUtils.listFiles(PROJECT, new String[] {"java"}, true),
+            FileUtils.listFiles(PROJECT, new String[] {"class"}, true), JarIndex.getInstance(null));
+    }
+
+    /**
+     * Returns the registered submitted class with the given name.
+     *
+     * @param registry the registry
+     * @param name the name of the class
+     * @return the wrapped class, <b>null</b> if not registered
+     */
+    private static WrappedClass find(ClassRegistry registry, String name) {
+        WrappedClass result = null;
+        for (WrappedClass cls : registry.getAllWrappedClasses()) {
+            if (cls.getWrappedClass().getName().equals(name)) {
+                result = cls;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tests assigning the sources, also with a differing case, and reading them on first access.
+     *
+     * @throws Exception shall not occur
+     */
+    @Test
+    public void testSources() throws Exception {
+        try (ClassRegistry registry = createRegistry()) {
+            WrappedClass foo = find(registry, "pkg.Foo");
+            Assert.assertNotNull(foo);
+            Assert.assertEquals("pkg/Foo.java", foo.getFileName());
+            Assert.assertEquals("helper.java", find(registry, "Helper").getFileName());
+
+            String changed = "// read on demand\n" + FOO;
+            FileUtils.write(new File(PROJECT, "pkg/Foo.java"), changed, "UTF-8");
+            Assert.assertEquals(changed, foo.getContent());
+            Method answer = foo.getWrappedClass().getMethod("answer");
+            Assert.assertEquals(4, registry.getLineOfMethod(answer));
+        }
+    }
+
+    /**
+     * Tests the registered library classes. A class of another class loader with the name of a library class
+     * is not registered.
+     *
+     * @throws Exception shall not occur
+     */
+    @Test
+    public void testLibraryClass() throws Exception {
+        try (ClassRegistry registry = createRegistry();
+            URLClassLoader other = new URLClassLoader(new URL[] {LIB.toURI().toURL()})) {
+            Assert.assertNull(registry.getWrappedClass(other.loadClass("lib.Lib")));
+            Assert.assertNull(registry.getWrappedClass(String.class));
+            Class<?> lib = find(registry, "pkg.Foo").getWrappedClass().getMethod("lib").getReturnType();
+            WrappedClass wrapped = registry.getWrappedClass(lib);
+            Assert.assertNotNull(wrapped);
+            Assert.assertSame(lib, wrapped.getWrappedClass());
+            Assert.assertNull(wrapped.getFileName());
+            Assert.assertNull(wrapped.getContent());
+            Assert.assertTrue(registry.getAllClasses().contains(lib));
+        }
+    }
+
+    /**
+     * Tests that the library classes are not loaded when creating the registry, i.e., a library removed
+     * afterwards does not contribute classes.
+     *
+     * @throws Exception shall not occur
+     */
+    @Test
+    public void testLibrariesOnDemand() throws Exception {
+        try (ClassRegistry registry = createRegistry()) {
+            Assert.assertTrue(LIB.delete());
+            Set<String> names = new HashSet<String>();
+            Collection<Class<?>> classes = registry.getAllClasses();
+            for (Class<?> cls : classes) {
+                names.add(cls.getName());
+            }
+            Assert.assertEquals(new HashSet<String>(Arrays.asList("pkg.Foo", "Helper")), names);
+        }
+    }
+
+    /**
+     * Tests that a class file in the directory of another package is rejected.
+     *
+     * @throws Exception shall not occur
+     */
+    @Test(expected = WrongPackageException.class)
+    public void testWrongPackage() throws Exception {
+        FileUtils.moveFile(new File(PROJECT, "pkg/Foo.class"), new File(PROJECT, "Foo.class"));
+        createRegistry().close();
+    }
+
+}
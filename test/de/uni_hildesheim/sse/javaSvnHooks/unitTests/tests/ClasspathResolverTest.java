@@ -0,0 +1,94 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.tests.ClasspathResolver;
+
+/**
+ * Tests the {@link ClasspathResolver}.
+ */
+public class ClasspathResolverTest {
+
+    private static final File TMP = new File("testdata/tmp/classpathResolverTest").getAbsoluteFile();
+
+    /**
+     * Clears the temporary directory.
+     *
+     * @throws IOException if deleting fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        FileUtils.deleteDirectory(TMP);
+    }
+
+    /**
+     * Creates an empty file.
+     *
+     * @param path the path relative to the temporary directory
+     * @throws IOException if creating the file fails
+     */
+    private static void touch(String path) throws IOException {
+        FileUtils.touch(new File(TMP, path));
+    }
+
+    /**
+     * Tests that the jars are resolved once and again after modifying the library directory.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testResolve() throws IOException {
+        touch("lib/a.jar");
+        touch("lib/sub/b.jar");
+        touch("lib/readme.txt");
+        File lib = new File(TMP, "lib");
+        ClasspathResolver.LibraryPath path = ClasspathResolver.INSTANCE.resolve(lib);
+        Assert.assertEquals(2, path.getJars().size());
+        Assert.assertSame(path, ClasspathResolver.INSTANCE.resolve(lib));
+
+        File sub = new File(lib, "sub");
+        long modified = sub.lastModified();
+        touch("lib/sub/c.jar");
+        sub.setLastModified(modified - 10000);
+        path = ClasspathResolver.INSTANCE.resolve(lib);
+        Assert.assertEquals(3, path.getJars().size());
+        Assert.assertEquals(3, path.getClasspath().split(File.pathSeparator).length);
+    }
+
+    /**
+     * Tests that deleted library directories are forgotten.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testDeleted() throws IOException {
+        touch("run1/lib/a.jar");
+        ClasspathResolver.INSTANCE.resolve(new File(TMP, "run1/lib"));
+        int size = ClasspathResolver.INSTANCE.size();
+        FileUtils.deleteDirectory(new File(TMP, "run1"));
+        Assert.assertEquals(size - 1, ClasspathResolver.INSTANCE.size());
+        Assert.assertEquals(0, ClasspathResolver.INSTANCE.resolve(new File(TMP, "run1/lib")).getJars().size());
+        Assert.assertEquals(size - 1, ClasspathResolver.INSTANCE.size());
+    }
+
+    /**
+     * Tests that the number of remembered library directories is bounded.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testBound() throws IOException {
+        for (int i = 0; i < ClasspathResolver.MAX_ENTRIES + 10; i++) {
+            touch("run" + i + "/lib/a.jar");
+            ClasspathResolver.INSTANCE.resolve(new File(TMP, "run" + i + "/lib"));
+        }
+        Assert.assertEquals(ClasspathResolver.MAX_ENTRIES, ClasspathResolver.INSTANCE.size());
+    }
+
+}
@@ -0,0 +1,167 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.CommitHook;
+import de.uni_hildesheim.sse.javaSvnHooks.Configuration;
+import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.AbstractTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.util.ExitCodes;
+
+/**
+ * Tests the testing of the groups of changed path configurations in {@link CommitHook}.
+ */
+public class CommitHookTest extends AbstractTest {
+
+    private static final File BASE = new File("testdata/commitHookTest");
+
+    private static final AtomicInteger RUNNING = new AtomicInteger();
+    private static final AtomicInteger MAX_RUNNING = new AtomicInteger();
+
+    /**
+     * A test printing the name of the tested group. The first group is tested slowest. Must be public with a
+     * public constructor, as the hook creates a new instance per group.
+     */
+    public static class GroupTest extends de.uni_hildesheim.sse.javaSvnHooks.tests.Test {
+
+        static {
+            registerTest(new GroupTest());
+        }
+
+        @Override
+        public String getName() {
+            return "group test";
+        }
+
+        @Override
+        public Class<? extends de.uni_hildesheim.sse.javaSvnHooks.tests.Test> dependsOn(Configuration.Stage stage) {
+            return null;
+        }
+
+        @Override
+        public boolean runInPreCommit(PathConfiguration pathConfiguration) {
+            return false;
+        }
+
+        @Override
+        public boolean runInPostCommit(PathConfiguration pathConfiguration) {
+            return false;
+        }
+
+        @Override
+        public int execute(PathConfiguration pathConfiguration) {
+            String group = pathConfiguration.getWorkingDir().getName();
+            MAX_RUNNING.accumulateAndGet(RUNNING.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep("groupA".equals(group) ? 500 : 100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            RUNNING.decrementAndGet();
+            pathConfiguration.getGlobalConfiguration().getTestOutputStream().print(group + ";");
+            return "groupC".equals(group) ? ExitCodes.EXIT_FAIL : ExitCodes.EXIT_SUCCESS;
+        }
+
+    }
+
+    /**
+     * A hook executing only the {@link GroupTest}.
+     */
+    private static class GroupHook extends CommitHook {
+
+        @Override
+        protected boolean isTestEnabled(PathConfiguration pathConfiguration, 
+            de.uni_hildesheim.sse.javaSvnHooks.tests.Test test) {
+            return test instanceof GroupTest;
+        }
+
+        /**
+         * Runs the tests on the groups of the path configurations changed by the given files.
+         * 
+         * @param config the configuration
+         * @param changedFiles the changed files
+         * @return the exit code
+         */
+        private int run(TestConfiguration config, String... changedFiles) {
+            config.setCheckoutDirectory(BASE);
+            determineChangedPathConfigurations(config, Arrays.asList(changedFiles));
+            return runTests(config);
+        }
+
+    }
+
+    @Override
+    protected File getBase() {
+        return BASE;
+    }
+
+    /**
+     * Returns the output of a hook run without lead in/out.
+     * 
+     * @param config the configuration
+     * @return the output
+     */
+    private static String getOutput(TestConfiguration config) {
+        return config.getTestResults().replaceAll("</?submitResults>\\s*", "");
+    }
+
+    /**
+     * Tests that the groups are tested concurrently and that the output is merged in group order.
+     */
+    @Test
+    public void testConcurrentGroups() {
+        new GroupTest(); // register
+        MAX_RUNNING.set(0);
+        TestConfiguration config = createConfig();
+        int exitCode = new GroupHook().run(config, "/task/groupA/readme.txt");
+        Assert.assertEquals(ExitCodes.EXIT_FAIL, exitCode);
+        Assert.assertEquals("groupA;groupB;groupC;", getOutput(config));
+        Assert.assertTrue("groups were not tested concurrently", MAX_RUNNING.get() > 1);
+    }
+
+    /**
+     * Tests that a single group thread tests the groups one after another.
+     */
+    @Test
+    public void testSequentialGroups() {
+        new GroupTest(); // register
+        MAX_RUNNING.set(0);
+        TestConfiguration config = createConfig();
+        config.setProperty("groupThreads", "1");
+        new GroupHook().run(config, "/task/groupB/readme.txt");
+        Assert.assertEquals("groupA;groupB;groupC;", getOutput(config));
+        Assert.assertEquals(1, MAX_RUNNING.get());
+    }
+
+    /**
+     * Tests that the change-scoped mode tests only the groups containing changed files.
+     */
+    @Test
+    public void testChangeScoped() {
+        new GroupTest(); // register
+        TestConfiguration config = createConfig();
+        config.setProperty("changeScopedGroups", "true");
+        int exitCode = new GroupHook().run(config, "/task/groupB/readme.txt", "/task/groupA/sub/Main.java");
+        Assert.assertEquals(ExitCodes.EXIT_SUCCESS, exitCode);
+        Assert.assertEquals("groupA;groupB;", getOutput(config));
+
+        config = createConfig();
+        config.setProperty("changeScopedGroups", "true");
+        exitCode = new GroupHook().run(config, "/task/groupC/readme.txt");
+        Assert.assertEquals(ExitCodes.EXIT_FAIL, exitCode);
+        Assert.assertEquals("groupC;", getOutput(config));
+
+        config = createConfig();
+        config.setProperty("changeScopedGroups", "true");
+        exitCode = new GroupHook().run(config, "/other/groupA/readme.txt");
+        Assert.assertEquals(ExitCodes.EXIT_SUCCESS, exitCode);
+        Assert.assertEquals("", getOutput(config));
+    }
+
+}
@@ -0,0 +1,78 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.CompilationArtifacts;
+import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.javac.JavacTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.AbstractTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestFiles;
+
+/**
+ * Tests the {@link CompilationArtifacts} registered by the compiling tests.
+ */
+public class CompilationArtifactsTest extends AbstractTest {
+
+    private static final File BASE = new File("testdata/javacTest");
+    private static final File TMP = TestFiles.getTmpDir("compilationArtifactsTest");
+
+    @Override
+    protected File getBase() {
+        return BASE;
+    }
+
+    /**
+     * Tests that the fingerprint depends on the options and the sources, but not on the order of the sources.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testFingerprint() throws IOException {
+        TestFiles.clear(TMP);
+        File a = TestFiles.write(TMP, "A.java", "class A { }");
+        File b = TestFiles.write(TMP, "B.java", "class B { }");
+        List<String> options = Arrays.asList("-g", "-d", "bin");
+        String fingerprint = CompilationArtifacts.fingerprint(options, Arrays.asList(a, b));
+        Assert.assertEquals(fingerprint, CompilationArtifacts.fingerprint(options, Arrays.asList(b, a)));
+        Assert.assertNotEquals(fingerprint, CompilationArtifacts.fingerprint(Arrays.asList("-d", "bin"),
+            Arrays.asList(a, b)));
+        Assert.assertNotEquals(fingerprint, CompilationArtifacts.fingerprint(options, Collections.singletonList(a)));
+        TestFiles.write(TMP, "B.java", "class B { int x; }");
+        Assert.assertNotEquals(fingerprint, CompilationArtifacts.fingerprint(options, Arrays.asList(a, b)));
+    }
+
+    /**
+     * Tests that a successful compilation registers its classes at the path configuration.
+     */
+    @Test
+    public void testRegistration() {
+        TestConfiguration config = createConfig("hook.properties", new JavacTest());
+        executeTest("/completeJava", true, config);
+        PathConfiguration pathConfig = findPathConfiguration("/completeJava", config);
+        CompilationArtifacts artifacts = pathConfig.getCompilationArtifacts();
+        Assert.assertNotNull(artifacts);
+        Assert.assertEquals(new File(BASE, "completeJava").getAbsoluteFile(), artifacts.getOutputDir());
+        Assert.assertEquals(1, artifacts.getClassFiles().size());
+        Assert.assertEquals("MyMain.class", artifacts.getClassFiles().get(0).getName());
+        Assert.assertTrue(artifacts.getClassFiles().get(0).isFile());
+    }
+
+    /**
+     * Tests that a failing compilation does not register classes.
+     */
+    @Test
+    public void testNoRegistrationOnFailure() {
+        TestConfiguration config = createConfig("hook.properties", new JavacTest());
+        executeTest("/incompleteJava", false, config);
+        Assert.assertNull(findPathConfiguration("/incompleteJava", config).getCompilationArtifacts());
+    }
+
+}
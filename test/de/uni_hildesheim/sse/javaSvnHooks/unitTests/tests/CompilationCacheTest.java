@@ -0,0 +1,141 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.javac.CompilationCache;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.AbstractTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestFiles;
+
+/**
+ * Tests the keys and the replay of the {@link CompilationCache}.
+ */
+public class CompilationCacheTest extends AbstractTest {
+
+    private static final File TMP = TestFiles.getTmpDir("compilationCacheTest");
+
+    private PathConfiguration pathConfig;
+
+    @Override
+    protected File getBase() {
+        return TMP;
+    }
+
+    /**
+     * Creates two groups with the same files.
+     *
+     * @throws IOException if writing the files fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        TestFiles.clear(TMP);
+        for (String group : new String[] {"g1", "g2"}) {
+            TestFiles.write(TMP, group + "/Main.java", "public class Main { L l; }");
+            TestFiles.write(TMP, group + "/lib/L.java", "public class L { int a; }");
+        }
+        TestConfiguration config = TestFiles.createSingleGroupConfig(TMP, CompilationCache.PROPERTY, "true");
+        pathConfig = config.pathConfigurations().next();
+    }
+
+    /**
+     * Returns the cache for a group.
+     *
+     * @param group the group
+     * @return the cache
+     */
+    private CompilationCache getCache(String group) {
+        pathConfig.setWorkingDir(new File(TMP, group));
+        CompilationCache result = CompilationCache.getInstance(pathConfig);
+        Assert.assertNotNull(result);
+        return result;
+    }
+
+    /**
+     * Returns the key of compiling the main class of a group with a class path relative to the group.
+     *
+     * @param group the group
+     * @param classpath the class path
+     * @return the key
+     * @throws IOException if calculating the key fails
+     */
+    private String getKey(String group, String classpath) throws IOException {
+        File dir = new File(TMP, group);
+        List<String> options = Arrays.asList("-classpath", classpath, "-d", dir.getPath());
+        Collection<File> sources = Collections.singletonList(new File(dir, "Main.java"));
+        return getCache(group).getKey("javac", options, sources, dir);
+    }
+
+    /**
+     * Tests that keys are independent of the group but consider the contents of relative class path
+     * directories in the working directory.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testWorkingDirClasspath() throws IOException {
+        String key = getKey("g1", "lib");
+        Assert.assertEquals(key, getKey("g2", "lib"));
+
+        // same size and modification time, different content
+        File lib = new File(TMP, "g2/lib/L.java");
+        long modified = lib.lastModified();
+        TestFiles.write(TMP, "g2/lib/L.java", "public class L { int b; }");
+        lib.setLastModified(modified);
+        Assert.assertNotEquals(key, getKey("g2", "lib"));
+    }
+
+    /**
+     * Tests that relative archives on the class path are resolved against the working directory.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testRelativeArchive() throws IOException {
+        TestFiles.write(TMP, "g1/lib.jar", "version 1");
+        TestFiles.write(TMP, "g2/lib.jar", "version 1");
+        String key = getKey("g1", "lib.jar");
+        Assert.assertEquals(key, getKey("g2", "lib.jar"));
+        TestFiles.write(TMP, "g2/lib.jar", "version 2");
+        Assert.assertNotEquals(key, getKey("g2", "lib.jar"));
+    }
+
+    /**
+     * Tests that a compilation stored for one group is replayed for another group.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testReplay() throws IOException {
+        String key = getKey("g1", "lib");
+        File g1 = new File(TMP, "g1");
+        File classFile = TestFiles.write(TMP, "g1/Main.class", "classes");
+        byte[] output = ("Note: " + new File(g1, "Main.java").getAbsolutePath()).getBytes(Charset.defaultCharset());
+        getCache("g1").store(key, 1, output, g1, Collections.singletonList(classFile));
+
+        File g2 = new File(TMP, "g2");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Integer result = getCache("g2").replay(getKey("g2", "lib"), g2, new PrintStream(out));
+        Assert.assertEquals(Integer.valueOf(1), result);
+        Assert.assertEquals("Note: " + new File(g2, "Main.java").getAbsolutePath(),
+            new String(out.toByteArray(), Charset.defaultCharset()));
+        Assert.assertEquals("classes", FileUtils.readFileToString(new File(g2, "Main.class"), StandardCharsets.UTF_8));
+
+        Assert.assertNull(getCache("g2").replay(getKey("g2", "."), g2, new PrintStream(out)));
+    }
+
+}
@@ -0,0 +1,166 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.tests.CompileScheduler;
+
+/**
+ * Tests the {@link CompileScheduler}.
+ */
+public class CompileSchedulerTest {
+
+    private static final File TMP = new File("testdata/tmp/compileSchedulerTest");
+    private static final long WAIT = 300;
+
+    private Collection<File> small;
+    private Collection<File> large;
+    private ExecutorService executor;
+
+    /**
+     * Creates a small source (estimated 32 MB) and a large source (estimated more than 64 MB).
+     *
+     * @throws IOException if writing fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        FileUtils.deleteDirectory(TMP);
+        TMP.mkdirs();
+        File file = new File(TMP, "Small.java");
+        Files.write(file.toPath(), "class Small { }".getBytes());
+        small = Collections.singletonList(file);
+        file = new File(TMP, "Large.java");
+        Files.write(file.toPath(), new byte[1024 * 1024]);
+        large = Collections.singletonList(file);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Stops the waiting threads.
+     */
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Requests a permit on another thread.
+     *
+     * @param scheduler the scheduler
+     * @param javaFiles the sources to be compiled
+     * @return the permit once admitted
+     */
+    private Future<CompileScheduler.Permit> acquire(final CompileScheduler scheduler,
+        final Collection<File> javaFiles) {
+        return executor.submit(new Callable<CompileScheduler.Permit>() {
+
+            @Override
+            public CompileScheduler.Permit call() throws InterruptedException {
+                return scheduler.acquire(null, javaFiles);
+            }
+
+        });
+    }
+
+    /**
+     * Asserts that a permit is not admitted.
+     *
+     * @param permit the requested permit
+     * @throws InterruptedException shall not occur
+     * @throws ExecutionException shall not occur
+     */
+    private static void assertWaiting(Future<CompileScheduler.Permit> permit)
+        throws InterruptedException, ExecutionException {
+        try {
+            permit.get(WAIT, TimeUnit.MILLISECONDS);
+            Assert.fail("Compilation shall wait");
+        } catch (TimeoutException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Asserts that a permit is admitted.
+     *
+     * @param permit the requested permit
+     * @return the permit
+     * @throws Exception shall not occur
+     */
+    private static CompileScheduler.Permit assertAdmitted(Future<CompileScheduler.Permit> permit)
+        throws Exception {
+        return permit.get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Tests that compilations wait for a free slot.
+     *
+     * @throws Exception shall not occur
+     */
+    @Test
+    public void testSlots() throws Exception {
+        CompileScheduler scheduler = new CompileScheduler(2, 1024);
+        CompileScheduler.Permit first = assertAdmitted(acquire(scheduler, small));
+        assertAdmitted(acquire(scheduler, small));
+        Future<CompileScheduler.Permit> third = acquire(scheduler, small);
+        assertWaiting(third);
+        first.release();
+        assertAdmitted(third);
+    }
+
+    /**
+     * Tests that compilations wait for enough free memory and that a compilation exceeding the budget is
+     * admitted alone.
+     *
+     * @throws Exception shall not occur
+     */
+    @Test
+    public void testMemory() throws Exception {
+        CompileScheduler scheduler = new CompileScheduler(4, 64);
+        CompileScheduler.Permit first = assertAdmitted(acquire(scheduler, small));
+        CompileScheduler.Permit second = assertAdmitted(acquire(scheduler, small));
+        Future<CompileScheduler.Permit> third = acquire(scheduler, small);
+        assertWaiting(third);
+        first.release();
+        CompileScheduler.Permit permit = assertAdmitted(third);
+        Future<CompileScheduler.Permit> largePermit = acquire(scheduler, large);
+        assertWaiting(largePermit);
+        second.release();
+        assertWaiting(largePermit);
+        permit.release();
+        assertAdmitted(largePermit);
+    }
+
+    /**
+     * Tests that an interrupted compilation releases its slot.
+     *
+     * @throws Exception shall not occur
+     */
+    @Test
+    public void testInterrupted() throws Exception {
+        CompileScheduler scheduler = new CompileScheduler(2, 64);
+        CompileScheduler.Permit first = assertAdmitted(acquire(scheduler, small));
+        Future<CompileScheduler.Permit> waiting = acquire(scheduler, large); // holds the second slot
+        assertWaiting(waiting);
+        waiting.cancel(true);
+        first.release();
+        assertAdmitted(acquire(scheduler, small));
+        assertAdmitted(acquire(scheduler, small));
+    }
+
+}
@@ -0,0 +1,87 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.tests.javac.JavacTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.AbstractTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestFiles;
+
+/**
+ * Tests the diagnostics-only mode of the {@link JavacTest} (see {@link JavacTest#DIAGNOSTICS_ONLY_PROPERTY}).
+ */
+public class DiagnosticsOnlyTest extends AbstractTest {
+
+    private static final File CONFIG = new File("testdata/diagnosticsOnlyTest/hook.properties");
+    private static final File TMP = TestFiles.getTmpDir("diagnosticsOnlyTest");
+
+    private TestConfiguration config;
+
+    @Override
+    protected File getBase() {
+        return TMP;
+    }
+
+    /**
+     * Creates the submissions.
+     *
+     * @throws IOException if writing fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        TestFiles.clear(TMP);
+        TestFiles.write(TMP, "complete/p/Main.java", "package p; public class Main { Helper helper = new Helper(); }");
+        TestFiles.write(TMP, "complete/p/Helper.java", "package p; class Helper { }");
+        TestFiles.write(TMP, "incomplete/Main.java", "public class Main { int x = \"text\"; }");
+        TestFiles.write(TMP, "junit/Main.java", "public class Main { }");
+        config = createConfig(CONFIG, new JavacTest());
+    }
+
+    /**
+     * Returns the class files below a submission.
+     *
+     * @param name the name of the submission
+     * @return the number of class files
+     */
+    private static int countClassFiles(String name) {
+        return FileUtils.listFiles(new File(TMP, name), new String[] {"class"}, true).size();
+    }
+
+    /**
+     * Tests that a correct submission passes without writing classes or registering a compilation.
+     */
+    @Test
+    public void testComplete() {
+        assertEmpty(executeTest("/complete", true, config));
+        Assert.assertEquals(0, countClassFiles("complete"));
+        Assert.assertNull(findPathConfiguration("/complete", config).getCompilationArtifacts());
+    }
+
+    /**
+     * Tests that errors are reported as in the normal mode.
+     */
+    @Test
+    public void testIncomplete() {
+        String res = executeTest("/incomplete", false, config);
+        for (String expected : new String[] {"file=\"Main.java\"", "line=\"1\"", "error: incompatible types"}) {
+            Assert.assertTrue(res, res.contains(expected));
+        }
+        Assert.assertEquals(0, countClassFiles("incomplete"));
+    }
+
+    /**
+     * Tests that classes are written if the JUnit test is enabled in the same stage.
+     */
+    @Test
+    public void testWithJunit() {
+        executeTest("/junit", true, config);
+        Assert.assertEquals(1, countClassFiles("junit"));
+    }
+
+}
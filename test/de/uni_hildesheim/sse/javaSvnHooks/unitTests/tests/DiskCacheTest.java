@@ -0,0 +1,123 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.FileTime;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.util.DiskCache;
+
+/**
+ * Tests the {@link DiskCache}.
+ */
+public class DiskCacheTest {
+
+    private static final File TMP = new File("testdata/tmp/diskCacheTest");
+
+    /**
+     * Clears the temporary directory.
+     *
+     * @throws IOException if deleting fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        FileUtils.deleteDirectory(TMP);
+        TMP.mkdirs();
+    }
+
+    /**
+     * Creates a file.
+     *
+     * @param name the name of the file
+     * @param size the size of the file in bytes
+     * @return the file
+     * @throws IOException if writing fails
+     */
+    private static Path createFile(String name, int size) throws IOException {
+        Path result = new File(TMP, name).toPath();
+        byte[] data = new byte[size];
+        data[0] = (byte) name.charAt(0);
+        Files.write(result, data);
+        return result;
+    }
+
+    /**
+     * Changes the last access time of a file.
+     *
+     * @param file the file
+     * @param millis the new access time
+     * @throws IOException if changing the time fails
+     */
+    private static void setLastAccess(Path file, long millis) throws IOException {
+        Files.getFileAttributeView(file, BasicFileAttributeView.class).setTimes(null, FileTime.fromMillis(millis),
+            null);
+    }
+
+    /**
+     * Tests that accessing an entry does not change its modification time, as hard links to the entry share it.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testModificationTimeUnchanged() throws IOException {
+        DiskCache cache = new DiskCache(new File(TMP, "cache"), 1024);
+        cache.put("a", createFile("a", 10));
+        Path entry = cache.get("a");
+        FileTime modified = FileTime.fromMillis(System.currentTimeMillis() - 60000);
+        Files.setLastModifiedTime(entry, modified);
+        Path link = new File(TMP, "link").toPath();
+        Files.createLink(link, entry);
+        Assert.assertNotNull(cache.get("a"));
+        Assert.assertEquals(modified, Files.getLastModifiedTime(link));
+    }
+
+    /**
+     * Tests adding, getting and removing entries.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testEntries() throws IOException {
+        DiskCache cache = new DiskCache(new File(TMP, "cache"), 1024);
+        Assert.assertNull(cache.get("sha1-a"));
+        Path file = new File(TMP, "a.txt").toPath();
+        Files.write(file, "content".getBytes(StandardCharsets.UTF_8));
+        cache.put("sha1-a", file);
+        Files.delete(file);
+        Path entry = cache.get("sha1-a");
+        Assert.assertNotNull(entry);
+        Assert.assertEquals("content", new String(Files.readAllBytes(entry), StandardCharsets.UTF_8));
+        Assert.assertEquals(entry, new DiskCache(new File(TMP, "cache"), 1024).get("sha1-a"));
+        cache.remove("sha1-a");
+        Assert.assertNull(cache.get("sha1-a"));
+    }
+
+    /**
+     * Tests that the least recently used entries are evicted if the cache exceeds its size.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testEviction() throws IOException {
+        DiskCache cache = new DiskCache(new File(TMP, "cache"), 250);
+        cache.put("a", createFile("a", 100));
+        cache.put("b", createFile("b", 100));
+        long now = System.currentTimeMillis();
+        setLastAccess(cache.get("a"), now - 20000);
+        setLastAccess(cache.get("b"), now - 10000);
+        Assert.assertNotNull(cache.get("a")); // now the most recently used
+        cache.put("c", createFile("c", 100));
+        Assert.assertNotNull(cache.get("a"));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertNotNull(cache.get("c"));
+    }
+
+}
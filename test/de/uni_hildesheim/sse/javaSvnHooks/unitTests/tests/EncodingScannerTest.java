@@ -0,0 +1,118 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.tests.javac.JavacTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.AbstractTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestFiles;
+import de.uni_hildesheim.sse.javaSvnHooks.util.EncodingScanner;
+
+/**
+ * Tests the {@link EncodingScanner} and the repair of sources by the {@link JavacTest}.
+ */
+public class EncodingScannerTest extends AbstractTest {
+
+    private static final File CONFIG = new File("testdata/encodingScannerTest/hook.properties");
+    private static final File TMP = TestFiles.getTmpDir("encodingScannerTest");
+
+    @Override
+    protected File getBase() {
+        return TMP;
+    }
+
+    /**
+     * Scans the given bytes.
+     *
+     * @param bytes the bytes
+     * @return whether the bytes need to be repaired
+     * @throws IOException shall not occur
+     */
+    private static boolean needsRepair(int... bytes) throws IOException {
+        byte[] data = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            data[i] = (byte) bytes[i];
+        }
+        return EncodingScanner.needsRepair(new ByteArrayInputStream(data));
+    }
+
+    /**
+     * Scans the UTF-8 encoding of the given text.
+     *
+     * @param text the text
+     * @return whether the text needs to be repaired
+     * @throws IOException shall not occur
+     */
+    private static boolean needsRepair(String text) throws IOException {
+        return EncodingScanner.needsRepair(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Tests that valid UTF-8 without umlauts is accepted.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testValid() throws IOException {
+        Assert.assertFalse(needsRepair(""));
+        Assert.assertFalse(needsRepair("class A { String s = \"plain\"; }"));
+        Assert.assertFalse(needsRepair("caf\u00e9 \u20ac \ud83d\ude00"));
+    }
+
+    /**
+     * Tests that umlauts, the replacement character and the byte order mark are detected.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testDetected() throws IOException {
+        for (char c : "\u00c4\u00d6\u00dc\u00df\u00e4\u00f6\u00fc\ufffd\ufeff".toCharArray()) {
+            Assert.assertTrue(Integer.toHexString(c), needsRepair("class A { } // " + c));
+        }
+        Assert.assertTrue(needsRepair(0xEF, 0xBB, 0xBF, 'c'));
+    }
+
+    /**
+     * Tests that invalid UTF-8 is detected.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testInvalid() throws IOException {
+        Assert.assertTrue(needsRepair('a', 0xE4, 'b')); // Latin-1 umlaut
+        Assert.assertTrue(needsRepair(0x80)); // continuation byte without lead byte
+        Assert.assertTrue(needsRepair(0xC0, 0x80)); // overlong
+        Assert.assertTrue(needsRepair(0xE2, 0x82)); // truncated
+        Assert.assertTrue(needsRepair(0xE2, 0x82, 'a')); // interrupted
+        Assert.assertTrue(needsRepair(0xED, 0xA0, 0x80)); // surrogate
+        Assert.assertTrue(needsRepair(0xF4, 0x90, 0x80, 0x80)); // beyond U+10FFFF
+    }
+
+    /**
+     * Tests that the {@link JavacTest} rewrites only sources which need to be repaired.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testRepair() throws IOException {
+        TestFiles.clear(TMP);
+        File ascii = TestFiles.write(TMP, "ascii/A.java", "public class A { }");
+        long modified = ascii.lastModified() - 60000;
+        ascii.setLastModified(modified);
+        File umlauts = TestFiles.write(TMP, "umlauts/B.java", "\ufeffpublic class B { } // \u00e4");
+        umlauts.setLastModified(modified);
+        TestConfiguration config = createConfig(CONFIG, new JavacTest());
+        executeTest("/ascii", true, config);
+        executeTest("/umlauts", true, config);
+        Assert.assertEquals(modified, ascii.lastModified());
+        Assert.assertEquals("public class B { } // ", FileUtils.readFileToString(umlauts, StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,190 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+
+import de.uni_hildesheim.sse.javaSvnHooks.export.Exporter;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.AbstractTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestRepository;
+
+/**
+ * Tests the export strategies of {@link Exporter} against a local repository.
+ */
+public class ExporterTest extends AbstractTest {
+
+    private static final File BASE = new File("testdata/exporterTest");
+    private static final File TMP = new File("testdata/tmp/exporterTest");
+
+    private TestRepository repository;
+    private Map<String, String> files = new LinkedHashMap<String, String>();
+
+    @Override
+    protected File getBase() {
+        return BASE;
+    }
+
+    /**
+     * Creates a repository with a first revision of some files.
+     *
+     * @throws IOException if creating the repository fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        repository = new TestRepository(new File(TMP, "svn"));
+        for (int i = 0; i < 20; i++) {
+            files.put("task/group" + (i % 3) + "/File" + i + ".java", "class File" + i + " { }\n");
+        }
+        repository.commit(files);
+    }
+
+    /**
+     * Disposes the repository.
+     */
+    @After
+    public void tearDown() {
+        repository.dispose();
+    }
+
+    /**
+     * Exports all files of the first revision with the given configuration and asserts their contents.
+     *
+     * @param config the configuration
+     * @param strategy the export strategy
+     * @param target the checkout directory
+     * @throws SVNException if exporting fails
+     * @throws IOException if exporting or reading the exported files fails
+     */
+    protected void assertExport(TestConfiguration config, String strategy, File target)
+        throws SVNException, IOException {
+        try (Exporter exporter = Exporter.create(config, strategy, repository.getRepository(), null,
+            SVNRevision.create(1))) {
+            for (String path : files.keySet()) {
+                exporter.schedule("/" + path, new File(target, path));
+            }
+            exporter.finish();
+        }
+        for (Map.Entry<String, String> entry : files.entrySet()) {
+            File file = new File(target, entry.getKey());
+            Assert.assertTrue("missing " + file, file.isFile());
+            Assert.assertEquals(entry.getValue(), read(file));
+        }
+    }
+
+    /**
+     * Reads a file.
+     *
+     * @param file the file
+     * @return the contents
+     * @throws IOException if reading fails
+     */
+    protected static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tests that the single-pass FSFS strategy and the SVNKit strategy export the same files.
+     *
+     * @throws SVNException shall not occur
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testStrategies() throws SVNException, IOException {
+        TestConfiguration config = createConfig();
+        assertExport(config, Exporter.STRATEGY_FSFS, new File(TMP, "fsfs"));
+        assertExport(config, Exporter.STRATEGY_SVNKIT, new File(TMP, "svnkit"));
+    }
+
+    /**
+     * Tests that multiple export threads export the same files as a single exporter.
+     *
+     * @throws SVNException shall not occur
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testParallel() throws SVNException, IOException {
+        TestConfiguration config = createConfig();
+        config.setProperty(Exporter.THREADS_PROPERTY, "4");
+        assertExport(config, Exporter.STRATEGY_FSFS, new File(TMP, "parallelFsfs"));
+        assertExport(config, Exporter.STRATEGY_SVNKIT, new File(TMP, "parallelSvnkit"));
+    }
+
+    /**
+     * Tests that exports through the blob cache store each content once and materialize cached contents.
+     *
+     * @throws SVNException shall not occur
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testBlobCache() throws SVNException, IOException {
+        TestConfiguration config = createConfig();
+        config.setTempDirectory(new File(TMP, "temp").getAbsoluteFile());
+        config.setProperty(Exporter.CACHE_PROPERTY, "true");
+        assertExport(config, Exporter.STRATEGY_FSFS, new File(TMP, "cached1"));
+        File cache = new File(TMP, "temp/blobCache");
+        Assert.assertEquals(files.size(), FileUtils.listFiles(cache, null, true).size());
+        assertExport(config, Exporter.STRATEGY_FSFS, new File(TMP, "cached2"));
+        config.setProperty(Exporter.CACHE_LINK_MODE_PROPERTY, "link");
+        assertExport(config, Exporter.STRATEGY_SVNKIT, new File(TMP, "cached3"));
+        Assert.assertEquals(files.size(), FileUtils.listFiles(cache, null, true).size());
+    }
+
+    /**
+     * Tests that modifying a file materialized from the blob cache by default does not modify the cache entry.
+     *
+     * @throws SVNException shall not occur
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testBlobCacheIsolation() throws SVNException, IOException {
+        TestConfiguration config = createConfig();
+        config.setTempDirectory(new File(TMP, "temp").getAbsoluteFile());
+        config.setProperty(Exporter.CACHE_PROPERTY, "true");
+        assertExport(config, Exporter.STRATEGY_FSFS, new File(TMP, "isolated1"));
+        File target = new File(TMP, "isolated2");
+        assertExport(config, Exporter.STRATEGY_FSFS, target); // materialized from the cache
+        File file = new File(target, "task/group0/File0.java");
+        Assert.assertTrue(file.canWrite());
+        Files.write(file.toPath(), "changed".getBytes(StandardCharsets.UTF_8));
+        for (File blob : FileUtils.listFiles(new File(TMP, "temp/blobCache"), null, true)) {
+            Assert.assertNotEquals(blob.toString(), "changed", read(blob));
+        }
+        assertExport(config, Exporter.STRATEGY_FSFS, new File(TMP, "isolated3"));
+    }
+
+    /**
+     * Tests that a path scheduled again is not exported a second time, also across calls of
+     * {@link Exporter#finish()}.
+     *
+     * @throws SVNException shall not occur
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testExportOnce() throws SVNException, IOException {
+        File target = new File(TMP, "once");
+        File file = new File(target, "File0.java");
+        try (Exporter exporter = Exporter.create(createConfig(), Exporter.STRATEGY_FSFS,
+            repository.getRepository(), null, SVNRevision.create(1))) {
+            exporter.schedule("/task/group0/File0.java", file);
+            exporter.finish();
+            Assert.assertEquals("class File0 { }\n", read(file));
+            Files.write(file.toPath(), "changed".getBytes(StandardCharsets.UTF_8));
+            exporter.schedule("/task/group0/File0.java", file);
+            exporter.finish();
+        }
+        Assert.assertEquals("changed", read(file));
+    }
+
+}
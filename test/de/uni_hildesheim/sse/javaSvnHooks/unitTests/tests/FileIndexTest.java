@@ -0,0 +1,91 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.FileIndex;
+import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.AbstractTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestFiles;
+
+/**
+ * Tests the {@link FileIndex} and its use by the {@link PathConfiguration}.
+ */
+public class FileIndexTest extends AbstractTest {
+
+    private static final File TMP = TestFiles.getTmpDir("fileIndexTest");
+
+    @Override
+    protected File getBase() {
+        return TMP;
+    }
+
+    /**
+     * Creates a working directory with some files.
+     *
+     * @throws IOException if creating the files fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        TestFiles.clear(TMP);
+        TestFiles.write(TMP, "Main.java", "class Main { }");
+        TestFiles.write(TMP, "pkg/sub/Util.java", "package pkg.sub; class Util { }");
+        TestFiles.write(TMP, "pkg/readme.txt", "read me");
+        TestFiles.write(TMP, "Makefile", "");
+    }
+
+    /**
+     * Tests the indexed files and their properties.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testBuild() throws IOException {
+        FileIndex index = FileIndex.build(TMP);
+        Map<String, FileIndex.Entry> entries = new TreeMap<String, FileIndex.Entry>();
+        for (FileIndex.Entry entry : index.getEntries()) {
+            entries.put(entry.getRelativePath(), entry);
+        }
+        Assert.assertEquals("[Main.java, Makefile, pkg/readme.txt, pkg/sub/Util.java]", entries.keySet().toString());
+        FileIndex.Entry util = entries.get("pkg/sub/Util.java");
+        Assert.assertEquals("pkg.sub", util.getPackageName());
+        Assert.assertEquals("java", util.getExtension());
+        Assert.assertEquals(new File(TMP, "pkg/sub/Util.java"), util.getFile());
+        Assert.assertEquals(31, util.getSize());
+        Assert.assertEquals("", entries.get("Main.java").getPackageName());
+        Assert.assertEquals("", entries.get("Makefile").getExtension());
+        Assert.assertEquals(2, index.getJavaFiles().size());
+        Assert.assertEquals(1, index.getFiles("txt").size());
+        Assert.assertEquals(4, index.getFiles(null).size());
+        Assert.assertTrue(FileIndex.build(new File(TMP, "missing")).getEntries().isEmpty());
+    }
+
+    /**
+     * Tests that a path configuration keeps its index until it is invalidated or the working directory changes.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testSnapshot() throws IOException {
+        PathConfiguration pathConfig = TestFiles.createSingleGroupConfig(TMP).pathConfigurations().next();
+        pathConfig.setWorkingDir(TMP);
+        Assert.assertEquals(2, pathConfig.getJavaFiles().size());
+        Assert.assertSame(pathConfig.getFileIndex(), pathConfig.getFileIndex());
+
+        TestFiles.write(TMP, "pkg/Other.java", "package pkg; class Other { }");
+        Assert.assertEquals(2, pathConfig.getJavaFiles().size());
+        pathConfig.invalidateFileIndex();
+        Assert.assertEquals(3, pathConfig.getJavaFiles().size());
+        Assert.assertEquals(5, pathConfig.getFiles().size());
+
+        pathConfig.setWorkingDir(new File(TMP, "pkg"));
+        Assert.assertEquals(2, pathConfig.getJavaFiles().size());
+    }
+
+}
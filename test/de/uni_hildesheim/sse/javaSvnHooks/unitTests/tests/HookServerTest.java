@@ -0,0 +1,272 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.Configuration;
+import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.daemon.HookClient;
+import de.uni_hildesheim.sse.javaSvnHooks.daemon.HookServer;
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestRepository;
+import de.uni_hildesheim.sse.javaSvnHooks.util.ExitCodes;
+import de.uni_hildesheim.sse.javaSvnHooks.util.ThreadContext;
+
+/**
+ * Tests the {@link HookServer} and the {@link HookClient} forwarding post-commit hooks to it.
+ */
+public class HookServerTest {
+
+    private static final File TMP = new File("testdata/tmp/hookServerTest").getAbsoluteFile();
+
+    private static final Set<Thread> THREADS = Collections.synchronizedSet(new HashSet<Thread>());
+    private static final AtomicInteger RUNNING = new AtomicInteger();
+    private static final AtomicInteger MAX_RUNNING = new AtomicInteger();
+
+    private TestRepository repository;
+    private File hookDir;
+    private PrintStream originalErr;
+    private ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    /**
+     * A post-commit test enabled by <code>config<i>Nr</i>.threadTest_post</code>, recording the thread it is
+     * executed on and reporting the revision. Must be public with a public constructor, as the hook creates a
+     * new instance per group.
+     */
+    public static class ThreadTest extends de.uni_hildesheim.sse.javaSvnHooks.tests.Test {
+
+        static {
+            registerTest(new ThreadTest());
+        }
+
+        @Override
+        public String getName() {
+            return "thread test";
+        }
+
+        @Override
+        public Class<? extends de.uni_hildesheim.sse.javaSvnHooks.tests.Test> dependsOn(Configuration.Stage stage) {
+            return null;
+        }
+
+        @Override
+        public boolean runInPreCommit(PathConfiguration pathConfiguration) {
+            return false;
+        }
+
+        @Override
+        public boolean runInPostCommit(PathConfiguration pathConfiguration) {
+            return pathConfiguration.getBooleanProperty("threadTest_post", false);
+        }
+
+        @Override
+        public int execute(PathConfiguration pathConfiguration) {
+            THREADS.add(Thread.currentThread());
+            MAX_RUNNING.accumulateAndGet(RUNNING.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            RUNNING.decrementAndGet();
+            pathConfiguration.getGlobalConfiguration().getTestOutputStream().print("tested "
+                + pathConfiguration.getGlobalConfiguration().getUniqueIdentifier() + ";");
+            return ExitCodes.EXIT_SUCCESS;
+        }
+
+    }
+
+    /**
+     * Creates the repository and the hook configuration and captures the standard error stream.
+     *
+     * @throws IOException if creating the repository fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        new ThreadTest(); // register
+        THREADS.clear();
+        MAX_RUNNING.set(0);
+        repository = new TestRepository(new File(TMP, "svn"));
+        Map<String, String> files = new HashMap<String, String>();
+        files.put("task/g1/A.txt", "a");
+        repository.commit(files);
+        files.put("task/g1/A.txt", "b");
+        repository.commit(files);
+        hookDir = new File(TMP, "hook");
+        hookDir.mkdirs();
+        String properties = "tempDir = " + new File(TMP, "temp").getPath().replace('\\', '/') + "\n"
+            + "xmlOutput = false\n"
+            + "config0.prefix = /task\n"
+            + "config0.threadTest_post = true\n";
+        Files.write(new File(hookDir, "hook.properties").toPath(), properties.getBytes(StandardCharsets.UTF_8));
+        originalErr = System.err;
+        System.setErr(new PrintStream(err, true));
+    }
+
+    /**
+     * Restores the standard error stream, disposes the repository and silences the logger again.
+     */
+    @After
+    public void tearDown() {
+        System.setErr(originalErr);
+        repository.dispose();
+        Logger.INSTANCE.setOutputStream(new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM));
+    }
+
+    /**
+     * Starts a server on the hook directory and waits until it published its port.
+     *
+     * @param threads the number of requests executed in parallel
+     * @return the server
+     * @throws IOException if starting the server fails
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private HookServer startServer(int threads) throws IOException, InterruptedException {
+        final HookServer server = new HookServer(hookDir, 0, threads);
+        Thread thread = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    server.serve();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+
+        };
+        thread.setDaemon(true);
+        thread.start();
+        File portFile = new File(hookDir, "jSvnHookDaemon.port");
+        for (int i = 0; i < 100 && !portFile.isFile(); i++) {
+            Thread.sleep(100);
+        }
+        Assert.assertTrue("server did not start", portFile.isFile());
+        return server;
+    }
+
+    /**
+     * Executes the post-commit hook through the client.
+     *
+     * @param revision the revision
+     * @return the exit code
+     */
+    private int executeClient(long revision) {
+        return HookClient.execute(new String[] {"post-commit", repository.getRepository().getPath(),
+            String.valueOf(revision), hookDir.getPath()});
+    }
+
+    /**
+     * Tests that a hook is executed by the server and that its output and exit code are passed to the client.
+     *
+     * @throws IOException shall not occur
+     * @throws InterruptedException shall not occur
+     */
+    @Test
+    public void testRequest() throws IOException, InterruptedException {
+        HookServer server = startServer(1);
+        try {
+            Assert.assertEquals(ExitCodes.EXIT_FAIL, executeClient(1)); // output leads to fail
+        } finally {
+            server.stop();
+        }
+        Assert.assertTrue(err.toString().contains("tested rev_1;"));
+        Assert.assertEquals(1, THREADS.size());
+        Assert.assertFalse(THREADS.contains(Thread.currentThread()));
+        for (int i = 0; i < 50 && new File(hookDir, "jSvnHookDaemon.port").exists(); i++) {
+            Thread.sleep(100);
+        }
+        Assert.assertFalse(new File(hookDir, "jSvnHookDaemon.port").exists());
+
+        // without server, the hook is executed by the client
+        Assert.assertEquals(ExitCodes.EXIT_FAIL, executeClient(2));
+        Assert.assertTrue(THREADS.contains(Thread.currentThread()));
+    }
+
+    /**
+     * Tests that a server with multiple threads executes requests concurrently.
+     *
+     * @throws IOException shall not occur
+     * @throws InterruptedException shall not occur
+     */
+    @Test
+    public void testConcurrentRequests() throws IOException, InterruptedException {
+        HookServer server = startServer(2);
+        final int[] exitCodes = new int[2];
+        try {
+            Thread[] clients = new Thread[exitCodes.length];
+            for (int i = 0; i < clients.length; i++) {
+                final int revision = i + 1;
+                clients[i] = new Thread() {
+
+                    @Override
+                    public void run() {
+                        exitCodes[revision - 1] = executeClient(revision);
+                    }
+
+                };
+                clients[i].start();
+            }
+            for (Thread client : clients) {
+                client.join();
+            }
+        } finally {
+            server.stop();
+        }
+        Assert.assertEquals(ExitCodes.EXIT_FAIL, exitCodes[0]);
+        Assert.assertEquals(ExitCodes.EXIT_FAIL, exitCodes[1]);
+        Assert.assertTrue(err.toString().contains("tested rev_1;"));
+        Assert.assertTrue(err.toString().contains("tested rev_2;"));
+        Assert.assertEquals(2, MAX_RUNNING.get());
+    }
+
+    /**
+     * Tests that a pooled thread created within the log scope of a request does not keep logging to this scope,
+     * while a task wrapped within the scope logs to it.
+     *
+     * @throws Exception shall not occur
+     */
+    @Test
+    public void testLogScopeOfPooledThreads() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        Runnable log = new Runnable() {
+
+            @Override
+            public void run() {
+                Logger.INSTANCE.log("pooled");
+            }
+
+        };
+        Logger.INSTANCE.beginScope();
+        try {
+            Logger.INSTANCE.setOutputStream(new PrintStream(request, true));
+            pool.submit(ThreadContext.wrap(log)).get(); // creates the pool thread within the scope
+        } finally {
+            Logger.INSTANCE.endScope();
+        }
+        Assert.assertEquals("pooled", request.toString().trim());
+        pool.submit(log).get();
+        pool.shutdown();
+        Assert.assertEquals("pooled", request.toString().trim());
+    }
+
+}
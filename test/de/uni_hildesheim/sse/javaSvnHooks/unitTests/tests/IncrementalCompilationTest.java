@@ -0,0 +1,268 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.IncrementalCompilation;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.AbstractTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestFiles;
+import de.uni_hildesheim.sse.javaSvnHooks.util.ClassFileInfo;
+
+/**
+ * Tests the {@link IncrementalCompilation} and the {@link ClassFileInfo} it relies on.
+ */
+public class IncrementalCompilationTest extends AbstractTest {
+
+    private static final File TMP = TestFiles.getTmpDir("incrementalCompilationTest");
+    private static final File SRC = new File(TMP, "src");
+    private static final File BIN = new File(TMP, "bin");
+    private static final String OPTIONS = "options";
+    private static final String TEST = "test";
+
+    private TestConfiguration config;
+    private PathConfiguration pathConfig;
+    private IncrementalCompilation incremental;
+
+    @Override
+    protected File getBase() {
+        return TMP;
+    }
+
+    /**
+     * Creates the sources of the previous compilation.
+     *
+     * @throws IOException if writing the sources fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        TestFiles.clear(TMP);
+        TestFiles.write(SRC, "p/Base.java", "package p; public class Base { }");
+        TestFiles.write(SRC, "p/Sub.java", "package p; public class Sub extends Base { }");
+        TestFiles.write(SRC, "p/User.java", "package p; public class User { String name; Helper helper; }");
+        TestFiles.write(SRC, "p/Helper.java", "package p; public class Helper { }");
+        TestFiles.write(SRC, "q/Constants.java",
+            "package q; public class Constants { public static final int MAX = 1; }");
+        TestFiles.write(SRC, "q/Limit.java", "package q; public class Limit { int max = Constants.MAX; }");
+        TestFiles.write(SRC, "r/Other.java", "package r; public class Other { String text; }");
+        config = TestFiles.createSingleGroupConfig(TMP, IncrementalCompilation.PROPERTY, "true");
+        pathConfig = config.pathConfigurations().next();
+        pathConfig.setWorkingDir(SRC);
+        compile();
+        open();
+        incremental.update(OPTIONS, getSources());
+        incremental.close();
+        open();
+    }
+
+    /**
+     * Locks the state for the next compilation.
+     *
+     * @throws IOException if locking fails
+     */
+    private void open() throws IOException {
+        incremental = IncrementalCompilation.getInstance(pathConfig, TEST, BIN);
+        Assert.assertNotNull(incremental);
+    }
+
+    /**
+     * Releases the state.
+     *
+     * @throws IOException shall not occur
+     */
+    @After
+    public void tearDown() throws IOException {
+        incremental.close();
+    }
+
+    /**
+     * Returns all current sources.
+     *
+     * @return the sources
+     */
+    private static List<File> getSources() {
+        return getSources(SRC);
+    }
+
+    /**
+     * Returns all current sources in a directory.
+     *
+     * @param dir the directory
+     * @return the sources
+     */
+    private static List<File> getSources(File dir) {
+        return new ArrayList<File>(FileUtils.listFiles(dir, new String[] {"java"}, true));
+    }
+
+    /**
+     * Locks the state of a group for the next compilation.
+     *
+     * @param workingDir the working directory of the group
+     * @param test the compiling test
+     * @throws IOException if locking fails
+     */
+    private void open(File workingDir, String test) throws IOException {
+        incremental.close();
+        pathConfig.setWorkingDir(workingDir);
+        incremental = IncrementalCompilation.getInstance(pathConfig, test, BIN);
+        Assert.assertNotNull(incremental);
+    }
+
+    /**
+     * Compiles all sources into a fresh output directory.
+     *
+     * @throws IOException if deleting the output directory fails
+     */
+    private static void compile() throws IOException {
+        FileUtils.deleteDirectory(BIN);
+        BIN.mkdirs();
+        List<String> args = new ArrayList<String>(Arrays.asList("-d", BIN.getPath()));
+        for (File source : getSources()) {
+            args.add(source.getPath());
+        }
+        Assert.assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null,
+            args.toArray(new String[args.size()])));
+    }
+
+    /**
+     * Returns the sources to be compiled for the current sources.
+     *
+     * @return the paths relative to the source directory, <code>null</code> for a full compilation
+     * @throws IOException if reading the sources fails
+     */
+    private Set<String> getDirty() throws IOException {
+        Set<String> result = null;
+        List<File> dirty = incremental.reuseClasses(OPTIONS, getSources());
+        if (null != dirty) {
+            result = new TreeSet<String>();
+            for (File file : dirty) {
+                result.add(SRC.toPath().relativize(file.getAbsoluteFile().toPath()).toString()
+                    .replace(File.separatorChar, '/'));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tests reading the name, the source file, the references and the constants from class files.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testClassFileInfo() throws IOException {
+        ClassFileInfo sub = ClassFileInfo.read(new File(BIN, "p/Sub.class"));
+        Assert.assertEquals("p/Sub", sub.getName());
+        Assert.assertEquals("Sub.java", sub.getSourceFile());
+        Assert.assertTrue(sub.getReferencedClasses().contains("p/Base"));
+        Assert.assertFalse(sub.declaresConstants());
+        ClassFileInfo user = ClassFileInfo.read(new File(BIN, "p/User.class"));
+        Assert.assertTrue(user.getReferencedClasses().contains("p/Helper"));
+        Assert.assertTrue(user.getReferencedClasses().contains("java/lang/String"));
+        Assert.assertTrue(ClassFileInfo.read(new File(BIN, "q/Constants.class")).declaresConstants());
+    }
+
+    /**
+     * Tests that unchanged sources are not compiled and their classes are restored.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testUnchanged() throws IOException {
+        FileUtils.deleteDirectory(BIN);
+        Assert.assertEquals(Collections.emptySet(), getDirty());
+        Assert.assertTrue(new File(BIN, "p/Sub.class").isFile());
+        Assert.assertNull(incremental.reuseClasses("other options", getSources()));
+    }
+
+    /**
+     * Tests that a changed supertype leads to compiling its subtypes, but not unrelated sources.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testChangedSupertype() throws IOException {
+        TestFiles.write(SRC, "p/Base.java", "package p; public class Base { protected int x; }");
+        Assert.assertEquals(new TreeSet<String>(Arrays.asList("p/Base.java", "p/Sub.java")), getDirty());
+    }
+
+    /**
+     * Tests that a changed public constant requires a full compilation.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testChangedConstant() throws IOException {
+        TestFiles.write(SRC, "q/Constants.java",
+            "package q; public class Constants { public static final int MAX = 2; }");
+        Assert.assertNull(getDirty());
+    }
+
+    /**
+     * Tests that removing a source leads to compiling its dependents only.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testRemovedSource() throws IOException {
+        Assert.assertTrue(new File(SRC, "p/Helper.java").delete());
+        Assert.assertEquals(Collections.singleton("p/User.java"), getDirty());
+    }
+
+    /**
+     * Tests that a new class possibly shadowing a class referenced by simple name leads to compiling the
+     * sources in its package, but not in other packages.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testShadowingClass() throws IOException {
+        TestFiles.write(SRC, "p/String.java", "package p; public class String { }");
+        Assert.assertEquals(new TreeSet<String>(Arrays.asList("p/Base.java", "p/Helper.java", "p/String.java",
+            "p/Sub.java", "p/User.java")), getDirty());
+    }
+
+    /**
+     * Tests that the groups of a path configuration and the compiling tests have states of their own, while
+     * the state of a group is shared by the checkouts of subsequent transactions.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testStatePerGroupAndTest() throws IOException {
+        File checkout = new File(TMP, "checkout1");
+        File group1 = new File(checkout, "task/group1");
+        File group2 = new File(checkout, "task/group2");
+        FileUtils.copyDirectory(SRC, group1);
+        FileUtils.copyDirectory(SRC, group2);
+        config.setCheckoutDirectory(checkout);
+        open(group1, TEST);
+        incremental.update(OPTIONS, getSources(group1));
+        open(group2, TEST);
+        Assert.assertNull(incremental.reuseClasses(OPTIONS, getSources(group2)));
+        open(group1, "other test");
+        Assert.assertNull(incremental.reuseClasses(OPTIONS, getSources(group1)));
+
+        checkout = new File(TMP, "checkout2");
+        group1 = new File(checkout, "task/group1");
+        FileUtils.copyDirectory(SRC, group1);
+        config.setCheckoutDirectory(checkout);
+        open(group1, TEST);
+        Assert.assertEquals(Collections.emptyList(), incremental.reuseClasses(OPTIONS, getSources(group1)));
+    }
+
+}
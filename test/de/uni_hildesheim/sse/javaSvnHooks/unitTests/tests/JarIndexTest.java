@@ -0,0 +1,131 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.AbstractTest;
+import de.uni_hildesheim.sse.javaSvnHooks.util.JarIndex;
+
+/**
+ * Tests the {@link JarIndex}.
+ */
+public class JarIndexTest extends AbstractTest {
+
+    private static final File BASE = new File("testdata/jarIndexTest");
+    private static final File TMP = new File("testdata/tmp/jarIndexTest").getAbsoluteFile();
+
+    @Override
+    protected File getBase() {
+        return BASE;
+    }
+
+    /**
+     * Clears the temporary directory.
+     *
+     * @throws IOException if deleting fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        FileUtils.deleteDirectory(TMP);
+    }
+
+    /**
+     * Creates a jar file.
+     *
+     * @param path the path relative to the temporary directory
+     * @param classes the classes in the jar in internal form
+     * @return the jar file
+     * @throws IOException if writing fails
+     */
+    private static File createJar(String path, String... classes) throws IOException {
+        File jar = new File(TMP, path);
+        jar.getParentFile().mkdirs();
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Bundle-SymbolicName", "test.lib");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest)) {
+            for (String cls : classes) {
+                out.putNextEntry(new JarEntry(cls + ".class"));
+                out.write(new byte[] {(byte) 0xCA, (byte) 0xFE});
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    /**
+     * Returns the number of stored indexes.
+     *
+     * @return the number of index files
+     */
+    private static int countIndexFiles() {
+        File dir = new File(TMP, "temp/jarIndex");
+        return dir.isDirectory() ? FileUtils.listFiles(dir, new String[] {"idx"}, true).size() : 0;
+    }
+
+    /**
+     * Tests the contents of an index.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testIndex() throws IOException {
+        File jar = createJar("lib.jar", "p/A", "p/A$1", "q/r/B", "C");
+        JarIndex.Entry entry = JarIndex.getInstance(null).get(jar);
+        Assert.assertEquals(Arrays.asList("p", "q.r", ""), entry.getPackages());
+        Assert.assertEquals(Arrays.asList("p.A", "p.A$1", "q.r.B", "C"), entry.getClassNames());
+        Assert.assertEquals("test.lib", entry.getManifest().getMainAttributes().getValue("Bundle-SymbolicName"));
+        Assert.assertSame(entry, JarIndex.getInstance(null).get(jar));
+    }
+
+    /**
+     * Tests that stored indexes are shared by jar files with the same name and contents in different
+     * directories, e.g., the checkout directories of different runs.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testPersistent() throws IOException {
+        JarIndex index = JarIndex.getInstance(createConfig());
+        File jar = createJar("run1/lib.jar", "p/A");
+        Assert.assertEquals(Arrays.asList("p.A"), index.get(jar).getClassNames());
+        Assert.assertEquals(1, countIndexFiles());
+
+        File copy = new File(TMP, "run2/lib.jar");
+        FileUtils.copyFile(jar, copy, false);
+        Assert.assertEquals(Arrays.asList("p.A"), index.get(copy).getClassNames());
+        Assert.assertEquals(1, countIndexFiles());
+
+        File other = createJar("run3/lib.jar", "p/B");
+        Assert.assertEquals(Arrays.asList("p.B"), index.get(other).getClassNames());
+        Assert.assertEquals(2, countIndexFiles());
+    }
+
+    /**
+     * Tests that the indexes in memory are bounded and that indexes of deleted jar files are forgotten.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testBound() throws IOException {
+        JarIndex index = JarIndex.getInstance(null);
+        for (int i = 0; i < JarIndex.MAX_ENTRIES + 10; i++) {
+            index.get(createJar("run" + i + "/lib.jar", "p/A"));
+        }
+        Assert.assertEquals(JarIndex.MAX_ENTRIES, index.size());
+        FileUtils.deleteDirectory(new File(TMP, "run" + (JarIndex.MAX_ENTRIES + 9)));
+        Assert.assertEquals(JarIndex.MAX_ENTRIES - 1, index.size());
+    }
+
+}
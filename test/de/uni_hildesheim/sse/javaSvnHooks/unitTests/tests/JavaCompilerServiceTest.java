@@ -0,0 +1,162 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.tests.JavaCompilerService;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestFiles;
+
+/**
+ * Tests the shared in-process {@link JavaCompilerService}.
+ */
+public class JavaCompilerServiceTest {
+
+    private static final File TMP = TestFiles.getTmpDir("javaCompilerServiceTest");
+
+    /**
+     * Clears the temporary directory.
+     *
+     * @throws IOException if deleting fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        TestFiles.clear(TMP);
+    }
+
+    /**
+     * Compiles a source file.
+     *
+     * @param source the source file
+     * @param outDir the output directory
+     * @param classpath the class path, <code>null</code> for none
+     * @param diagnostics receives the diagnostics
+     * @return whether the compilation succeeded
+     * @throws IOException if compiling fails
+     */
+    private static boolean compile(File source, File outDir, String classpath,
+        DiagnosticCollector<JavaFileObject> diagnostics) throws IOException {
+        outDir.mkdirs();
+        List<String> options = new ArrayList<String>(Arrays.asList("-d", outDir.getPath()));
+        if (null != classpath) {
+            options.add("-classpath");
+            options.add(classpath);
+        }
+        return JavaCompilerService.INSTANCE.compile(Collections.singletonList(source), options, diagnostics);
+    }
+
+    /**
+     * Packs the classes of a directory into a jar.
+     *
+     * @param classesDir the directory
+     * @param jar the jar file
+     * @throws IOException if writing the jar fails
+     */
+    private static void jar(File classesDir, File jar) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            for (File file : FileUtils.listFiles(classesDir, new String[] {"class"}, true)) {
+                out.putNextEntry(new JarEntry(classesDir.toPath().relativize(file.toPath()).toString()
+                    .replace(File.separatorChar, '/')));
+                out.write(Files.readAllBytes(file.toPath()));
+                out.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Tests compiling valid and invalid sources.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testCompile() throws IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        File out = new File(TMP, "out");
+        File ok = TestFiles.write(TMP, "src/p/Ok.java", "package p; public class Ok { }");
+        Assert.assertTrue(compile(ok, out, null, diagnostics));
+        Assert.assertTrue(new File(out, "p/Ok.class").isFile());
+        Assert.assertTrue(diagnostics.getDiagnostics().isEmpty());
+
+        File broken = TestFiles.write(TMP, "src/Broken.java", "public class Broken {\n int x = ; }");
+        Assert.assertFalse(compile(broken, out, null, diagnostics));
+        Assert.assertFalse(new File(out, "Broken.class").exists());
+        Diagnostic<? extends JavaFileObject> error = diagnostics.getDiagnostics().get(0);
+        Assert.assertEquals(Diagnostic.Kind.ERROR, error.getKind());
+        Assert.assertEquals(2, error.getLineNumber());
+    }
+
+    /**
+     * Tests that a reused file manager does not keep the class path of a previous compilation.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testClasspathReset() throws IOException {
+        File lib = new File(TMP, "lib");
+        File source = TestFiles.write(TMP, "libsrc/l/Lib.java", "package l; public class Lib { }");
+        Assert.assertTrue(compile(source, lib, null, null));
+        File user = TestFiles.write(TMP, "src/User.java", "public class User { l.Lib lib; }");
+        Assert.assertTrue(compile(user, new File(TMP, "out1"), lib.getPath(), null));
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        Assert.assertFalse(compile(user, new File(TMP, "out2"), new File(TMP, "empty").getPath(), diagnostics));
+        Assert.assertFalse(diagnostics.getDiagnostics().isEmpty());
+    }
+
+    /**
+     * Tests that a changed jar on the class path is read again.
+     *
+     * @throws IOException shall not occur
+     * @throws InterruptedException shall not occur
+     */
+    @Test
+    public void testChangedArchive() throws IOException, InterruptedException {
+        File jar = new File(TMP, "lib.jar");
+        File lib = new File(TMP, "lib1");
+        File source = TestFiles.write(TMP, "lib1/l/Lib.java", "package l; public class Lib { public void foo() { } }");
+        compile(source, lib, null, null);
+        jar(lib, jar);
+        File user = TestFiles.write(TMP, "src1/User.java", "public class User { void m(l.Lib lib) { lib.foo(); } }");
+        Assert.assertTrue(compile(user, new File(TMP, "out1"), jar.getPath(), null));
+
+        lib = new File(TMP, "lib2");
+        source = TestFiles.write(TMP, "lib2/l/Lib.java", "package l; public class Lib { public void barBaz() { } }");
+        compile(source, lib, null, null);
+        Thread.sleep(10);
+        jar(lib, jar);
+        user = TestFiles.write(TMP, "src2/User.java", "public class User { void m(l.Lib lib) { lib.barBaz(); } }");
+        Assert.assertTrue(compile(user, new File(TMP, "out2"), jar.getPath(), null));
+    }
+
+    /**
+     * Tests that checking sources does not write classes.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testCheck() throws IOException {
+        File out = new File(TMP, "out");
+        out.mkdirs();
+        File source = TestFiles.write(TMP, "src/Ok.java", "public class Ok { }");
+        Assert.assertTrue(JavaCompilerService.INSTANCE.check(Collections.singletonList(source),
+            Arrays.asList("-d", out.getPath()), null));
+        Assert.assertEquals(0, out.list().length);
+        Assert.assertFalse(new File(TMP, "src/Ok.class").exists());
+    }
+
+}
@@ -8,7 +8,9 @@ import org.junit.Test;
 
 import de.uni_hildesheim.sse.javaSvnHooks.tests.checkstyle.CheckstyleTest;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.eclipse_config.EclipseConfigurationTest;
+import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.javac.JavacTest;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.javac.JavacTestFilter;
 import de.uni_hildesheim.sse.javaSvnHooks.tests.javadoc.JavadocTest;
 import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.AbstractTest;
 import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestConfiguration;
@@ -96,6 +98,106 @@ public class JavacTestTest extends AbstractTest {
         assertTextsContain(res);
     }
     
+    /**
+     * Passes the given output of the command line compiler through the {@link JavacTestFilter}.
+     * 
+     * @param xml whether XML or plain text shall be produced
+     * @param lines the lines printed by the compiler
+     * @return the filtered output, one line per produced text
+     */
+    private String filter(boolean xml, String... lines) {
+        TestConfiguration config = createConfig(xml ? "hook.properties" : "hookPlain.properties", new JavacTest());
+        PathConfiguration pathConf = findPathConfiguration("/completeJava", config);
+        pathConf.setWorkingDir(new File(BASE, "completeJava").getAbsoluteFile());
+        JavacTestFilter filter = new JavacTestFilter(pathConf);
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < lines.length; i++) {
+            append(result, filter.filterMessage(i, lines[i]));
+        }
+        append(result, filter.done());
+        return result.toString();
+    }
+
+    /**
+     * Appends a filtered text as a line.
+     * 
+     * @param builder the builder to append to
+     * @param text the text, ignored if <b>null</b>
+     */
+    private static void append(StringBuilder builder, String text) {
+        if (null != text) {
+            builder.append(text);
+            builder.append('\n');
+        }
+    }
+
+    /**
+     * Tests filtering an error with source code, column marker and further lines.
+     */
+    @Test
+    public void testFilterColumnMarker() {
+        String[] output = {
+            "MyMain.java:3: error: cannot find symbol",
+            "        int x = y;",
+            "                ^",
+            "  symbol:   variable y",
+            "  location: class MyMain",
+            "1 error"};
+        Assert.assertEquals("  <message tool=\"javac\" type=\"error\" file=\"MyMain.java\" line=\"3\" "
+            + "message=\"error: cannot find symbol&#10;  symbol:   variable y&#10;  location: class MyMain\">\n"
+            + "    <example position=\"16\">\n"
+            + "        int x = y;\n"
+            + "    </example>\n"
+            + "  </message>\n", filter(true, output));
+        Assert.assertEquals(String.join("\n", output) + "\n", filter(false, output));
+    }
+
+    /**
+     * Tests filtering a message without location.
+     */
+    @Test
+    public void testFilterWithoutLocation() {
+        String[] output = {
+            "error: invalid flag: -foo",
+            "Usage: javac <options> <source files>",
+            "use --help for a list of possible options"};
+        Assert.assertEquals("  <message tool=\"javac\" type=\"error\" message=\"error: invalid flag: -foo&#10;"
+            + "Usage: javac &lt;options&gt; &lt;source files&gt;&#10;use --help for a list of possible options\"/>\n",
+            filter(true, output));
+        Assert.assertEquals(String.join("\n", output) + "\n", filter(false, output));
+    }
+
+    /**
+     * Tests filtering notes, which are not reported in XML.
+     */
+    @Test
+    public void testFilterNotes() {
+        String[] output = {
+            "Note: MyMain.java uses unchecked or unsafe operations.",
+            "Note: Recompile with -Xlint:unchecked for details."};
+        Assert.assertEquals("", filter(true, output));
+        Assert.assertEquals(String.join("\n", output) + "\n", filter(false, output));
+    }
+
+    /**
+     * Tests that a message at the end of an output without counts is flushed by
+     * {@link JavacTestFilter#done()}.
+     */
+    @Test
+    public void testFilterWithoutCount() {
+        String[] output = {
+            "MyMain.java:5: warning: [rawtypes] found raw type: List",
+            "\tList list;",
+            "\t^"};
+        Assert.assertEquals("  <message tool=\"javac\" type=\"warning\" file=\"MyMain.java\" line=\"5\" "
+            + "message=\"warning: [rawtypes] found raw type: List\">\n"
+            + "    <example position=\"1\">\n"
+            + "\tList list;\n"
+            + "    </example>\n"
+            + "  </message>\n", filter(true, output));
+        Assert.assertEquals(String.join("\n", output) + "\n", filter(false, output));
+    }
+
     /**
      * Either asserts that <code>text</code> is empty or contains all given expected substrings.
      * 
@@ -0,0 +1,135 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.tests.javac.JavacTest;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.JunitTest;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.JunitWorker;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.AbstractTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestSuiteJar;
+
+/**
+ * Tests running test suites in worker JVMs of the JUnit test (see {@link JunitTest#FORK_PROPERTY}).
+ */
+public class JunitWorkerTest extends AbstractTest {
+
+    private static final File CONFIG = new File("testdata/junitWorkerTest/hook.properties");
+    private static final File TMP = new File("testdata/tmp/junitWorkerTest").getAbsoluteFile();
+    private static final int MESSAGE_LENGTH = 70000;
+
+    @Override
+    protected File getBase() {
+        return TMP;
+    }
+
+    /**
+     * Creates the test suite, which calls <code>Main.run()</code> of the submission and reports its result as
+     * failure, and the submissions.
+     *
+     * @throws IOException if creating the files fails
+     */
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        FileUtils.deleteDirectory(TMP);
+        Map<String, String> suite = new HashMap<String, String>();
+        suite.put("JavaTestSuite", TestSuiteJar.suite("WorkerTests"));
+        suite.put("WorkerTests", "package " + TestSuiteJar.PACKAGE + ";\n"
+            + "import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.TestFailure;\n"
+            + "public class WorkerTests {\n"
+            + "    @org.junit.Test public void testRun() throws Exception {\n"
+            + "        for (Class<?> cls : JavaTestSuite.getClassRegistry().getAllClasses()) {\n"
+            + "            if (\"Main\".equals(cls.getName())) {\n"
+            + "                Object result = JavaTestSuite.callMethod(cls.getMethod(\"run\"), null);\n"
+            + "                JavaTestSuite.getTestResult().addTestFailure(\n"
+            + "                    new TestFailure(String.valueOf(result), true, \"Main.java\", 1));\n"
+            + "            }\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n");
+        TestSuiteJar.create(new File(TMP, "suite.jar"), suite);
+        String exit = "public class Main { public static String run() { System.exit(3); return null; } }";
+        writeSubmission("sandboxed", exit);
+        writeSubmission("trusted", exit);
+        writeSubmission("longMessage", "public class Main { public static String run() { "
+            + "return \"x\".repeat(" + MESSAGE_LENGTH + "); } }");
+    }
+
+    /**
+     * Writes the source of a submission.
+     *
+     * @param name the name of the submission
+     * @param main the source of <code>Main.java</code>
+     * @throws IOException if writing fails
+     */
+    private static void writeSubmission(String name, String main) throws IOException {
+        File dir = new File(TMP, name);
+        dir.mkdirs();
+        FileUtils.write(new File(dir, "Main.java"), main, "UTF-8");
+    }
+
+    /**
+     * Runs the test suite on a submission.
+     *
+     * @param name the name of the submission
+     * @return the output of the test
+     */
+    private String run(String name) {
+        TestConfiguration config = createConfig(CONFIG, new JavacTest(), new JunitTest());
+        config.setProperty("junitSuitePath", TMP.getPath());
+        return executeTest("/" + name, false, config);
+    }
+
+    /**
+     * Returns the number of running worker JVMs.
+     *
+     * @return the number of workers
+     */
+    private static long countWorkers() {
+        return ProcessHandle.current().children()
+            .filter(p -> p.isAlive() && p.info().commandLine().orElse("").contains(JunitWorker.class.getName()))
+            .count();
+    }
+
+    /**
+     * Tests that the submission is executed in the sandbox by default, i.e., cannot terminate the worker.
+     */
+    @Test
+    public void testSandbox() {
+        String res = run("sandboxed");
+        Assert.assertTrue(res, res.contains("java.lang.RuntimePermission"));
+        Assert.assertFalse(res, res.contains("terminated"));
+        Assert.assertTrue(countWorkers() <= 1);
+    }
+
+    /**
+     * Tests that a submission terminating the worker without sandbox is reported and the pool recovers.
+     */
+    @Test
+    public void testExit() {
+        String res = run("trusted");
+        Assert.assertTrue(res, res.contains("Test execution terminated the JVM with exit code 3"));
+        res = run("longMessage");
+        Assert.assertTrue(res, res.contains("x".repeat(MESSAGE_LENGTH)));
+        Assert.assertTrue(countWorkers() <= 1);
+    }
+
+    /**
+     * Tests that strings exceeding 64 KB are transferred from the worker.
+     */
+    @Test
+    public void testLongMessage() {
+        String res = run("longMessage");
+        Assert.assertTrue(res, res.contains("x".repeat(MESSAGE_LENGTH)));
+        Assert.assertTrue(countWorkers() <= 1);
+    }
+
+}
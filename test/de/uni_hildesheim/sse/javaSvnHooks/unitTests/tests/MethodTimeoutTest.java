@@ -0,0 +1,189 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.tests.javac.JavacTest;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.JunitTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.AbstractTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestSuiteJar;
+
+/**
+ * Tests stopping test methods exceeding {@link JunitTest#METHOD_TIMEOUT_PROPERTY}, their
+ * {@link de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.TimeBudget} or
+ * {@link JunitTest#CPU_BUDGET_PROPERTY} while the security manager of the test suite is installed.
+ */
+public class MethodTimeoutTest extends AbstractTest {
+
+    private static final File CONFIG = new File("testdata/methodTimeoutTest/hook.properties");
+    private static final File TMP = new File("testdata/tmp/methodTimeoutTest").getAbsoluteFile();
+    private static final long STOP_WAIT = 2000;
+
+    @Override
+    protected File getBase() {
+        return TMP;
+    }
+
+    /**
+     * Creates the test suites and the submissions. The first test method calls an endless loop of the
+     * submission, the second one reports the result of another method as failure.
+     *
+     * @throws IOException if creating the files fails
+     */
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        FileUtils.deleteDirectory(TMP);
+        createSuite("suite.jar", "");
+        createSuite("budget.jar", "@de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface."
+            + "TimeBudget(millis = 500)\n");
+        for (String name : new String[] {"inProcess", "forked", "timeBudget", "cpuBudget"}) {
+            File dir = new File(TMP, name);
+            dir.mkdirs();
+            FileUtils.write(new File(dir, "Main.java"), "public class Main {\n"
+                + "    public static void loop() { while (true) { } }\n"
+                + "    public static String ok() { return \"ok\"; }\n"
+                + "}\n", "UTF-8");
+        }
+    }
+
+    /**
+     * Creates a test suite jar.
+     *
+     * @param jar the name of the jar
+     * @param loopAnnotation the annotations of the looping test method
+     * @throws IOException if creating the jar fails
+     */
+    private static void createSuite(String jar, String loopAnnotation) throws IOException {
+        Map<String, String> suite = new HashMap<String, String>();
+        suite.put("JavaTestSuite", TestSuiteJar.suite("TimeoutTests"));
+        suite.put("TimeoutTests", "package " + TestSuiteJar.PACKAGE + ";\n"
+            + "import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.TestFailure;\n"
+            + "@org.junit.FixMethodOrder(org.junit.runners.MethodSorters.NAME_ASCENDING)\n"
+            + "public class TimeoutTests {\n"
+            + "    private static Object call(String name) throws Exception {\n"
+            + "        Object result = null;\n"
+            + "        for (Class<?> cls : JavaTestSuite.getClassRegistry().getAllClasses()) {\n"
+            + "            if (\"Main\".equals(cls.getName())) {\n"
+            + "                result = JavaTestSuite.callMethod(cls.getMethod(name), null);\n"
+            + "            }\n"
+            + "        }\n"
+            + "        return result;\n"
+            + "    }\n"
+            + loopAnnotation
+            + "    @org.junit.Test public void test1Loop() throws Exception {\n"
+            + "        call(\"loop\");\n"
+            + "    }\n"
+            + "    @org.junit.Test public void test2Later() throws Exception {\n"
+            + "        JavaTestSuite.getTestResult().addTestFailure(\n"
+            + "            new TestFailure(\"later: \" + call(\"ok\"), true, \"Main.java\", 1));\n"
+            + "    }\n"
+            + "}\n");
+        TestSuiteJar.create(new File(TMP, jar), suite);
+    }
+
+    /**
+     * Runs the test suite on a submission.
+     *
+     * @param name the name of the submission
+     * @return the output of the test
+     */
+    private String run(String name) {
+        TestConfiguration config = createConfig(CONFIG, new JavacTest(), new JunitTest());
+        config.setProperty("junitSuitePath", TMP.getPath());
+        return executeTest("/" + name, false, config);
+    }
+
+    /**
+     * Returns whether a thread executing a test method in this JVM is still alive.
+     *
+     * @return <code>true</code> if a test method is running, <code>false</code> else
+     */
+    private static boolean isTestMethodRunning() {
+        boolean result = false;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            result |= thread.isAlive() && thread.getName().endsWith(" test");
+        }
+        return result;
+    }
+
+    /**
+     * Asserts the output of a run: the looping method fails with the timeout, the later method is executed.
+     *
+     * @param res the output
+     * @param limit the expected time limit of the looping method in milliseconds
+     */
+    private static void assertStopped(String res, long limit) {
+        Assert.assertTrue(res, res.contains("Zeitlimit von " + limit + " ms ueberschritten"));
+        Assert.assertTrue(res, res.contains("later: ok"));
+        Assert.assertFalse(res, res.contains("verletzt"));
+    }
+
+    /**
+     * Asserts that no test method is running in this JVM any more and the sandbox is not installed.
+     *
+     * @throws InterruptedException if interrupted while waiting for the stopped method
+     */
+    @SuppressWarnings("removal") // the installed sandbox is only visible through the system
+    private static void assertTerminated() throws InterruptedException {
+        long end = System.currentTimeMillis() + STOP_WAIT;
+        while (isTestMethodRunning() && System.currentTimeMillis() < end) {
+            Thread.sleep(50);
+        }
+        Assert.assertFalse(isTestMethodRunning());
+        Assert.assertNull(System.getSecurityManager());
+    }
+
+    /**
+     * Tests the method timeout in the JVM of the hook.
+     *
+     * @throws InterruptedException if interrupted while waiting for the stopped method
+     */
+    @Test
+    public void testInProcess() throws InterruptedException {
+        assertStopped(run("inProcess"), 1000);
+        assertTerminated();
+    }
+
+    /**
+     * Tests the method timeout in a sandboxed worker JVM.
+     */
+    @Test
+    public void testForked() {
+        assertStopped(run("forked"), 1000);
+    }
+
+    /**
+     * Tests the time budget declared by the test suite for the looping method.
+     *
+     * @throws InterruptedException if interrupted while waiting for the stopped method
+     */
+    @Test
+    public void testTimeBudget() throws InterruptedException {
+        assertStopped(run("timeBudget"), 500);
+        assertTerminated();
+    }
+
+    /**
+     * Tests the CPU budget of the test suite. The looping method is stopped when the budget is exhausted,
+     * the later method is reported, either executed or as not executed if the loop consumed the budget.
+     *
+     * @throws InterruptedException if interrupted while waiting for the stopped method
+     */
+    @Test
+    public void testCpuBudget() throws InterruptedException {
+        String res = run("cpuBudget");
+        Assert.assertTrue(res, res.contains("Zeitlimit von 1500 ms ueberschritten"));
+        Assert.assertTrue(res, res.contains("later: ok") || res.contains("Zeitbudget der Tests erschoepft"));
+        Assert.assertFalse(res, res.contains("verletzt"));
+        assertTerminated();
+    }
+
+}
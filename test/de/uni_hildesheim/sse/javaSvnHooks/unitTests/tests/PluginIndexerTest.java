@@ -0,0 +1,54 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.tests.AbstractJavaCompilationTest;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.javac.JavacTest;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.JunitTest;
+import de.uni_hildesheim.sse.javaSvnHooks.util.PluginIndexer;
+
+/**
+ * Tests the build-time index of the test plugins created by {@link PluginIndexer}.
+ */
+public class PluginIndexerTest {
+
+    private static final File TMP = new File("testdata/tmp/pluginIndexerTest");
+
+    /**
+     * Tests that the index lists the concrete test classes only.
+     *
+     * @throws IOException shall not occur
+     * @throws URISyntaxException shall not occur
+     */
+    @Test
+    public void testIndex() throws IOException, URISyntaxException {
+        // index a copy of the compiled tests package, the build output shall not be modified
+        File classes = new File(de.uni_hildesheim.sse.javaSvnHooks.tests.Test.class.getProtectionDomain()
+            .getCodeSource().getLocation().toURI());
+        String testsPackage = de.uni_hildesheim.sse.javaSvnHooks.tests.Test.class.getPackage().getName()
+            .replace('.', '/');
+        FileUtils.deleteDirectory(TMP);
+        FileUtils.copyDirectory(new File(classes, testsPackage), new File(TMP, testsPackage));
+        PluginIndexer.main(new String[] {TMP.getPath()});
+
+        List<String> plugins = Files.readAllLines(new File(TMP, PluginIndexer.INDEX_RESOURCE).toPath(),
+            StandardCharsets.UTF_8);
+        Assert.assertTrue(plugins.contains(JavacTest.class.getName()));
+        Assert.assertTrue(plugins.contains(JunitTest.class.getName()));
+        Assert.assertFalse(plugins.contains(AbstractJavaCompilationTest.class.getName()));
+        Assert.assertFalse(plugins.contains(de.uni_hildesheim.sse.javaSvnHooks.tests.Test.class.getName()));
+        for (String plugin : plugins) {
+            Assert.assertFalse(plugin, plugin.contains("$"));
+        }
+    }
+
+}
@@ -0,0 +1,264 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.Configuration;
+import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.TestScheduler;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.AbstractJavaTest.TestEnvKey;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.AbstractTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.util.ExitCodes;
+
+/**
+ * Tests the {@link TestScheduler}.
+ */
+public class TestSchedulerTest extends AbstractTest {
+
+    private static final File BASE = new File("testdata/schedulerTest");
+
+    /**
+     * A test printing its name after a delay and recording its execution.
+     */
+    private static class RecordingTest extends de.uni_hildesheim.sse.javaSvnHooks.tests.Test {
+
+        private String name;
+        private Class<? extends de.uni_hildesheim.sse.javaSvnHooks.tests.Test> dependency;
+        private long delay;
+        private int result;
+        private List<String> executed;
+
+        /**
+         * Creates a recording test.
+         * 
+         * @param name the name printed by the test
+         * @param dependency the test this test depends on, may be <b>null</b>
+         * @param delay the time to wait before printing in milliseconds
+         * @param result the exit code of the test
+         * @param executed the names of the executed tests, modified as a side effect
+         */
+        private RecordingTest(String name, Class<? extends de.uni_hildesheim.sse.javaSvnHooks.tests.Test> dependency,
+            long delay, int result, List<String> executed) {
+            this.name = name;
+            this.dependency = dependency;
+            this.delay = delay;
+            this.result = result;
+            this.executed = executed;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Class<? extends de.uni_hildesheim.sse.javaSvnHooks.tests.Test> dependsOn(Configuration.Stage stage) {
+            return dependency;
+        }
+
+        @Override
+        public boolean runInPreCommit(PathConfiguration pathConfiguration) {
+            return true;
+        }
+
+        @Override
+        public boolean runInPostCommit(PathConfiguration pathConfiguration) {
+            return true;
+        }
+
+        @Override
+        public int execute(PathConfiguration pathConfiguration) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executed.add(name);
+            pathConfiguration.getGlobalConfiguration().getTestOutputStream().print(name + ";");
+            return result;
+        }
+
+    }
+
+    /**
+     * The root test.
+     */
+    private static class RootTest extends RecordingTest {
+
+        /**
+         * Creates the test.
+         * 
+         * @param result the exit code of the test
+         * @param executed the names of the executed tests
+         */
+        private RootTest(int result, List<String> executed) {
+            super("root", null, 100, result, executed);
+        }
+
+    }
+
+    /**
+     * A slow test depending on {@link RootTest}.
+     */
+    private static class SlowTest extends RecordingTest {
+
+        /**
+         * Creates the test.
+         * 
+         * @param executed the names of the executed tests
+         */
+        private SlowTest(List<String> executed) {
+            super("slow", RootTest.class, 500, 0, executed);
+        }
+
+    }
+
+    /**
+     * A fast test depending on {@link RootTest}.
+     */
+    private static class FastTest extends RecordingTest {
+
+        /**
+         * Creates the test.
+         * 
+         * @param executed the names of the executed tests
+         */
+        private FastTest(List<String> executed) {
+            super("fast", RootTest.class, 0, 0, executed);
+        }
+
+    }
+
+    /**
+     * A test depending on {@link SlowTest}.
+     */
+    private static class LastTest extends RecordingTest {
+
+        /**
+         * Creates the test.
+         * 
+         * @param executed the names of the executed tests
+         */
+        private LastTest(List<String> executed) {
+            super("last", SlowTest.class, 0, 0, executed);
+        }
+
+    }
+
+    /**
+     * A test using the deprecated test environment accessors of {@link Configuration}.
+     */
+    private static class LegacyEnvTest extends RecordingTest {
+
+        /**
+         * Creates the test.
+         * 
+         * @param executed the names of the executed tests
+         */
+        private LegacyEnvTest(List<String> executed) {
+            super("legacy", null, 0, 0, executed);
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public int execute(PathConfiguration pathConfiguration) {
+            Configuration configuration = pathConfiguration.getGlobalConfiguration();
+            configuration.setTestEnvValue(TestEnvKey.CLASSPATH, "legacy.jar");
+            pathConfiguration.getGlobalConfiguration().getTestOutputStream().print(
+                configuration.getTestEnvValue(TestEnvKey.CLASSPATH) + ";");
+            return super.execute(pathConfiguration);
+        }
+
+    }
+
+    @Override
+    protected File getBase() {
+        return BASE;
+    }
+
+    /**
+     * Runs the given tests on a scheduler.
+     * 
+     * @param threads the number of threads of the scheduler
+     * @param config the configuration
+     * @param tests the tests to run
+     * @return the exit code of the scheduler
+     */
+    private static int run(int threads, TestConfiguration config, 
+        de.uni_hildesheim.sse.javaSvnHooks.tests.Test... tests) {
+        PathConfiguration pathConfiguration = findPathConfiguration("/group", config);
+        Assert.assertNotNull(pathConfiguration);
+        TestScheduler scheduler = new TestScheduler(threads);
+        try {
+            return scheduler.runTests(pathConfiguration, Arrays.asList(tests));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * Tests that dependents start after their dependency and that the output is emitted in
+     * topological order although the fast test finishes before the slow one.
+     */
+    @Test
+    public void testDependencyAndOutputOrder() {
+        for (int threads = 1; threads <= 4; threads += 3) {
+            List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+            TestConfiguration config = createConfig();
+            int exitCode = run(threads, config, new LastTest(executed), new SlowTest(executed), 
+                new FastTest(executed), new RootTest(0, executed));
+            Assert.assertEquals(ExitCodes.EXIT_SUCCESS, exitCode);
+            Assert.assertEquals("root", executed.get(0));
+            Assert.assertEquals("last", executed.get(3));
+            Assert.assertTrue(executed.indexOf("slow") < executed.indexOf("last"));
+            if (threads > 1) { // fast and slow run concurrently
+                Assert.assertEquals(Arrays.asList("root", "fast", "slow", "last"), executed);
+            }
+            Assert.assertEquals("root;slow;fast;last;", config.getTestResults());
+        }
+    }
+
+    /**
+     * Tests that the dependents of a failing test are not executed.
+     */
+    @Test
+    public void testFailingDependency() {
+        List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+        TestConfiguration config = createConfig();
+        int exitCode = run(4, config, new SlowTest(executed), new FastTest(executed), 
+            new RootTest(ExitCodes.EXIT_FAIL, executed));
+        Assert.assertEquals(ExitCodes.EXIT_FAIL, exitCode);
+        Assert.assertEquals(Arrays.asList("root"), executed);
+        Assert.assertEquals("root;", config.getTestResults());
+    }
+
+    /**
+     * Tests that the deprecated test environment accessors of {@link Configuration} delegate to the
+     * path configuration tested by the calling thread.
+     */
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedTestEnvAccessors() {
+        List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+        TestConfiguration config = createConfig();
+        PathConfiguration pathConfiguration = findPathConfiguration("/group", config);
+        TestScheduler scheduler = new TestScheduler(2);
+        try {
+            Assert.assertEquals(ExitCodes.EXIT_SUCCESS, scheduler.runTests(pathConfiguration, 
+                Arrays.<de.uni_hildesheim.sse.javaSvnHooks.tests.Test>asList(new LegacyEnvTest(executed))));
+        } finally {
+            scheduler.shutdown();
+        }
+        Assert.assertEquals("legacy.jar;legacy;", config.getTestResults());
+        Assert.assertEquals("legacy.jar", pathConfiguration.getTestEnvValue(TestEnvKey.CLASSPATH));
+        Assert.assertNull(config.getTestEnvValue(TestEnvKey.CLASSPATH)); // not bound outside of a test
+    }
+
+}
@@ -0,0 +1,105 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.tests.javac.JavacTest;
+import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.JunitTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.AbstractTest;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestSuiteJar;
+
+/**
+ * Tests running several submissions through one test suite, reused only with
+ * {@link JunitTest#CACHE_SUITE_PROPERTY}.
+ */
+public class TestSuiteCacheTest extends AbstractTest {
+
+    private static final File CONFIG = new File("testdata/testSuiteCacheTest/hook.properties");
+    private static final File TMP = new File("testdata/tmp/testSuiteCacheTest").getAbsoluteFile();
+
+    @Override
+    protected File getBase() {
+        return TMP;
+    }
+
+    /**
+     * Creates the test suite and the submissions. The test suite counts its runs in a static field and
+     * reports the count with the result of the submission.
+     *
+     * @throws IOException if creating the files fails
+     */
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        FileUtils.deleteDirectory(TMP);
+        Map<String, String> suite = new HashMap<String, String>();
+        suite.put("JavaTestSuite", TestSuiteJar.suite("CacheTests"));
+        suite.put("CacheTests", "package " + TestSuiteJar.PACKAGE + ";\n"
+            + "import de.uni_hildesheim.sse.javaSvnHooks.tests.junit.testSuiteInterface.TestFailure;\n"
+            + "public class CacheTests {\n"
+            + "    private static int runs;\n"
+            + "    @org.junit.Test public void testRun() throws Exception {\n"
+            + "        runs++;\n"
+            + "        Object result = null;\n"
+            + "        for (Class<?> cls : JavaTestSuite.getClassRegistry().getAllClasses()) {\n"
+            + "            if (\"Main\".equals(cls.getName())) {\n"
+            + "                result = JavaTestSuite.callMethod(cls.getMethod(\"run\"), null);\n"
+            + "            }\n"
+            + "        }\n"
+            + "        JavaTestSuite.getTestResult().addTestFailure(\n"
+            + "            new TestFailure(\"result: \" + result + \" runs: \" + runs, true, \"Main.java\", 1));\n"
+            + "    }\n"
+            + "}\n");
+        TestSuiteJar.create(new File(TMP, "suite.jar"), suite);
+        for (String name : new String[] {"cachedA", "cachedB", "freshA", "freshB"}) {
+            File dir = new File(TMP, name);
+            dir.mkdirs();
+            FileUtils.write(new File(dir, "Main.java"), "public class Main {\n"
+                + "    public static String run() { return \"" + name + "\"; }\n"
+                + "}\n", "UTF-8");
+        }
+    }
+
+    /**
+     * Runs the test suite on a submission.
+     *
+     * @param name the name of the submission
+     * @return the output of the test
+     */
+    private String run(String name) {
+        TestConfiguration config = createConfig(CONFIG, new JavacTest(), new JunitTest());
+        config.setProperty("junitSuitePath", TMP.getPath());
+        return executeTest("/" + name, false, config);
+    }
+
+    /**
+     * Tests two submissions through one cached test suite. The static state of the test suite is kept,
+     * the classes of the second submission replace the ones of the first.
+     */
+    @Test
+    public void testCached() {
+        String res = run("cachedA");
+        Assert.assertTrue(res, res.contains("result: cachedA runs: 1"));
+        res = run("cachedB");
+        Assert.assertTrue(res, res.contains("result: cachedB runs: 2"));
+    }
+
+    /**
+     * Tests that the test suite is loaded for each submission by default.
+     */
+    @Test
+    public void testFresh() {
+        String res = run("freshA");
+        Assert.assertTrue(res, res.contains("result: freshA runs: 1"));
+        res = run("freshB");
+        Assert.assertTrue(res, res.contains("result: freshB runs: 1"));
+    }
+
+}
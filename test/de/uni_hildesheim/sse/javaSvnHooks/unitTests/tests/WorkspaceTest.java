@@ -0,0 +1,199 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uni_hildesheim.sse.javaSvnHooks.Configuration;
+import de.uni_hildesheim.sse.javaSvnHooks.PathConfiguration;
+import de.uni_hildesheim.sse.javaSvnHooks.logging.Logger;
+import de.uni_hildesheim.sse.javaSvnHooks.post_commit.PostCommitHook;
+import de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils.TestRepository;
+import de.uni_hildesheim.sse.javaSvnHooks.util.ExitCodes;
+
+/**
+ * Tests the incremental workspace mode of the {@link PostCommitHook} against a local repository.
+ */
+public class WorkspaceTest {
+
+    private static final File TMP = new File("testdata/tmp/workspaceTest").getAbsoluteFile();
+
+    private static final Map<String, Map<String, String>> LISTINGS = 
+        Collections.synchronizedMap(new HashMap<String, Map<String, String>>());
+
+    private TestRepository repository;
+    private File hookDir;
+
+    /**
+     * A test recording the files of the tested group and then modifying the working directory like a careless
+     * test would do. Must be public with a public constructor, as the hook creates a new instance per group.
+     */
+    public static class ListingTest extends de.uni_hildesheim.sse.javaSvnHooks.tests.Test {
+
+        static {
+            registerTest(new ListingTest());
+        }
+
+        @Override
+        public String getName() {
+            return "listing test";
+        }
+
+        @Override
+        public Class<? extends de.uni_hildesheim.sse.javaSvnHooks.tests.Test> dependsOn(Configuration.Stage stage) {
+            return null;
+        }
+
+        @Override
+        public boolean runInPreCommit(PathConfiguration pathConfiguration) {
+            return false;
+        }
+
+        @Override
+        public boolean runInPostCommit(PathConfiguration pathConfiguration) {
+            return false;
+        }
+
+        @Override
+        public int execute(PathConfiguration pathConfiguration) {
+            File dir = pathConfiguration.getWorkingDir();
+            int result = ExitCodes.EXIT_SUCCESS;
+            try {
+                Map<String, String> listing = new TreeMap<String, String>();
+                for (File file : FileUtils.listFiles(dir, null, true)) {
+                    String path = dir.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+                    listing.put(path, read(file));
+                }
+                LISTINGS.put(dir.getName(), listing);
+                Files.write(new File(dir, "junk.txt").toPath(), "junk".getBytes(StandardCharsets.UTF_8));
+                File file = new File(dir, "A.txt");
+                if (file.exists()) {
+                    Files.delete(file.toPath()); // do not write through to a cached blob
+                    Files.write(file.toPath(), "tampered".getBytes(StandardCharsets.UTF_8));
+                }
+            } catch (IOException e) {
+                result = ExitCodes.EXIT_ERROR;
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * A post-commit hook executing only the {@link ListingTest}.
+     */
+    private static class ListingHook extends PostCommitHook {
+
+        @Override
+        protected boolean isTestEnabled(PathConfiguration pathConfiguration,
+            de.uni_hildesheim.sse.javaSvnHooks.tests.Test test) {
+            return test instanceof ListingTest;
+        }
+
+    }
+
+    /**
+     * Creates the repository and the hook configuration.
+     *
+     * @throws IOException if creating the repository fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        new ListingTest(); // register
+        repository = new TestRepository(new File(TMP, "svn"));
+        hookDir = new File(TMP, "hook");
+        hookDir.mkdirs();
+        String properties = "tempDir = " + new File(TMP, "temp").getPath().replace('\\', '/') + "\n"
+            + "incrementalWorkspace = true\n"
+            + "blobCache = true\n"
+            + "config0.prefix = /task\n";
+        Files.write(new File(hookDir, "hook.properties").toPath(), properties.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Disposes the repository and silences the logger again.
+     */
+    @After
+    public void tearDown() {
+        repository.dispose();
+        Logger.INSTANCE.setOutputStream(new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM));
+    }
+
+    /**
+     * Reads a file.
+     *
+     * @param file the file
+     * @return the contents
+     * @throws IOException if reading fails
+     */
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Runs the hook on a revision and returns the files the test saw in a group.
+     *
+     * @param revision the revision
+     * @param group the group
+     * @return the paths of the files mapped to their contents
+     */
+    private Map<String, String> runHook(long revision, String group) {
+        LISTINGS.clear();
+        int exitCode = new ListingHook().execute(new String[] {repository.getRepository().getPath(),
+            String.valueOf(revision), hookDir.getPath()});
+        Assert.assertEquals(ExitCodes.EXIT_SUCCESS, exitCode);
+        return LISTINGS.get(group);
+    }
+
+    /**
+     * Creates a map of files and their contents.
+     *
+     * @param pathsAndContents alternating paths and contents
+     * @return the map
+     */
+    private static Map<String, String> files(String... pathsAndContents) {
+        Map<String, String> result = new TreeMap<String, String>();
+        for (int i = 0; i + 1 < pathsAndContents.length; i += 2) {
+            result.put(pathsAndContents[i], pathsAndContents[i + 1]);
+        }
+        return result;
+    }
+
+    /**
+     * Tests that the workspace of a group reflects each revision, i.e., that changes are applied and that
+     * files modified or left over by the tests of the previous revision are restored or removed.
+     *
+     * @throws IOException shall not occur
+     */
+    @Test
+    public void testIncrementalUpdates() throws IOException {
+        long revision = repository.commit(files("task/g1/A.txt", "a1", "task/g1/B.txt", "b1", "task/g2/X.txt", "x1"));
+        Assert.assertEquals(files("A.txt", "a1", "B.txt", "b1"), runHook(revision, "g1"));
+
+        revision = repository.commit(files("task/g1/B.txt", "b2", "task/g1/sub/C.txt", "c2"));
+        Assert.assertEquals(files("A.txt", "a1", "B.txt", "b2", "sub/C.txt", "c2"), runHook(revision, "g1"));
+        Assert.assertNull(LISTINGS.get("g2"));
+
+        revision = repository.commit(files(), "task/g1/B.txt");
+        Assert.assertEquals(files("A.txt", "a1", "sub/C.txt", "c2"), runHook(revision, "g1"));
+
+        revision = repository.commit(files("task/g2/X.txt", "x2"), "task/g1/sub");
+        Assert.assertEquals(files("X.txt", "x2"), runHook(revision, "g2"));
+        revision = repository.commit(files("task/g1/D.txt", "d5"));
+        Assert.assertEquals(files("A.txt", "a1", "D.txt", "d5"), runHook(revision, "g1"));
+    }
+
+}
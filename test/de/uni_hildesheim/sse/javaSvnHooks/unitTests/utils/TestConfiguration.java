@@ -122,6 +122,15 @@ public class TestConfiguration extends Configuration {
         super.setTempDir(tempDir);
     }
     
+    /**
+     * Overrides the checkout directory, e.g., for testing.
+     * 
+     * @param checkoutDir the new checkout directory
+     */
+    public void setCheckoutDirectory(File checkoutDir) {
+        super.setCheckoutDir(checkoutDir);
+    }
+    
     /**
      * Setter for the installation path of this hook.
      * 
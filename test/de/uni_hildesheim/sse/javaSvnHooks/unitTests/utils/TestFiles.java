@@ -0,0 +1,86 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Utility functions for tests working on files created at runtime in a directory of their own below
+ * {@link #TMP_ROOT}, which is not under version control.
+ */
+public class TestFiles {
+
+    /**
+     * The directory containing the runtime files of all tests.
+     */
+    public static final File TMP_ROOT = new File("testdata/tmp").getAbsoluteFile();
+
+    /**
+     * A configuration defining the single path configuration <code>/task</code> and no further properties.
+     */
+    public static final File SINGLE_GROUP_CONFIG = new File("testdata/singleGroupTest/hook.properties");
+
+    /**
+     * Prevents instantiation.
+     */
+    private TestFiles() {
+    }
+
+    /**
+     * Returns the directory for the runtime files of a test.
+     *
+     * @param name the name of the directory, usually the name of the test
+     * @return the (absolute) directory, may not exist
+     */
+    public static File getTmpDir(String name) {
+        return new File(TMP_ROOT, name);
+    }
+
+    /**
+     * Deletes the runtime files of a test, e.g., before each test method.
+     *
+     * @param dir the directory of the runtime files
+     * @throws IOException if deleting fails
+     */
+    public static void clear(File dir) throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    /**
+     * Creates a configuration from {@link #SINGLE_GROUP_CONFIG} using a temporary directory below the runtime
+     * files of a test.
+     *
+     * @param dir the directory of the runtime files
+     * @param properties further properties as pairs of key and value
+     * @return the configuration
+     */
+    public static TestConfiguration createSingleGroupConfig(File dir, String... properties) {
+        TestConfiguration result = new TestConfiguration(SINGLE_GROUP_CONFIG,
+            (de.uni_hildesheim.sse.javaSvnHooks.tests.Test[]) null);
+        result.setTempDirectory(new File(dir, "temp"));
+        for (int p = 0; p + 1 < properties.length; p += 2) {
+            result.setProperty(properties[p], properties[p + 1]);
+        }
+        return result;
+    }
+
+    /**
+     * Writes a file in UTF-8, creating its parent directories if required.
+     *
+     * @param dir the base directory
+     * @param path the path of the file relative to <code>dir</code>
+     * @param content the content of the file
+     * @return the file
+     * @throws IOException if writing fails
+     */
+    public static File write(File dir, String path, String content) throws IOException {
+        File file = new File(dir, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+}
@@ -0,0 +1,99 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.tmatesoft.svn.core.SVNCommitInfo;
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.io.fs.FSRepositoryFactory;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+
+/**
+ * A local FSFS repository and a working copy of it for testing the hooks against real revisions.
+ */
+public class TestRepository {
+
+    static {
+        FSRepositoryFactory.setup();
+    }
+
+    private File repository;
+    private File workingCopy;
+    private SVNClientManager clients = SVNClientManager.newInstance();
+
+    /**
+     * Creates an empty repository and checks it out. Existing contents of <code>dir</code> are deleted.
+     *
+     * @param dir the directory to create the repository (<code>repo</code>) and the working copy
+     *     (<code>wc</code>) in
+     * @throws IOException if creating the repository fails
+     */
+    public TestRepository(File dir) throws IOException {
+        FileUtils.deleteDirectory(dir);
+        repository = new File(dir, "repo").getAbsoluteFile();
+        workingCopy = new File(dir, "wc").getAbsoluteFile();
+        try {
+            SVNURL url = SVNRepositoryFactory.createLocalRepository(repository, true, true);
+            clients.getUpdateClient().doCheckout(url, workingCopy, SVNRevision.HEAD, SVNRevision.HEAD,
+                SVNDepth.INFINITY, false);
+        } catch (SVNException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Returns the repository directory.
+     *
+     * @return the repository directory
+     */
+    public File getRepository() {
+        return repository;
+    }
+
+    /**
+     * Commits a revision.
+     *
+     * @param files the files to add or modify, paths relative to the repository root mapped to their contents
+     * @param deleted the paths of the files or directories to delete
+     * @return the number of the new revision
+     * @throws IOException if committing fails
+     */
+    public long commit(Map<String, String> files, String... deleted) throws IOException {
+        try {
+            for (Map.Entry<String, String> entry : files.entrySet()) {
+                File file = new File(workingCopy, entry.getKey());
+                boolean exists = file.exists();
+                file.getParentFile().mkdirs();
+                Files.write(file.toPath(), entry.getValue().getBytes(StandardCharsets.UTF_8));
+                if (!exists) {
+                    clients.getWCClient().doAdd(file, true, false, true, SVNDepth.EMPTY, false, true);
+                }
+            }
+            for (String path : deleted) {
+                clients.getWCClient().doDelete(new File(workingCopy, path), true, false);
+            }
+            SVNCommitInfo info = clients.getCommitClient().doCommit(new File[] {workingCopy}, false, "test",
+                null, null, false, false, SVNDepth.INFINITY);
+            clients.getUpdateClient().doUpdate(workingCopy, SVNRevision.HEAD, SVNDepth.INFINITY, false, false);
+            return info.getNewRevision();
+        } catch (SVNException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Releases the client resources.
+     */
+    public void dispose() {
+        clients.dispose();
+    }
+
+}
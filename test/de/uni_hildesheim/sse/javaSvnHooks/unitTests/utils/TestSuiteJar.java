@@ -0,0 +1,115 @@
+package de.uni_hildesheim.sse.javaSvnHooks.unitTests.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Creates test suite jars for the JUnit test from sources given by the tests, compiled against the class
+ * path of the running tests, i.e., the test suite interface and JUnit.
+ */
+public class TestSuiteJar {
+
+    /**
+     * The package of the test suite class loaded by the JUnit test.
+     */
+    public static final String PACKAGE = "de.uni_hildesheim.sse.test";
+
+    /**
+     * Prevents this class from being instantiated from outside.
+     */
+    private TestSuiteJar() {
+    }
+
+    /**
+     * Returns the source of a test suite class running the given test classes of {@link #PACKAGE}.
+     *
+     * @param testClasses the simple names of the test classes
+     * @return the source of <code>JavaTestSuite</code>
+     */
+    public static String suite(String... testClasses) {
+        StringBuilder classes = new StringBuilder();
+        for (String cls : testClasses) {
+            if (classes.length() > 0) {
+                classes.append(", ");
+            }
+            classes.append(cls).append(".class");
+        }
+        return "package " + PACKAGE + ";\n"
+            + "@org.junit.runner.RunWith(org.junit.runners.Suite.class)\n"
+            + "@org.junit.runners.Suite.SuiteClasses({" + classes + "})\n"
+            + "public class JavaTestSuite extends de.uni_hildesheim.sse.test.suite.AbstractJavaTestSuite { }\n";
+    }
+
+    /**
+     * Writes and compiles sources.
+     *
+     * @param dir the directory to write the sources and classes to
+     * @param classpath the class path, may be <b>null</b>
+     * @param sources the sources by their paths relative to <code>dir</code>
+     * @throws IOException if writing or compiling fails
+     */
+    public static void compile(File dir, String classpath, Map<String, String> sources) throws IOException {
+        List<String> args = new ArrayList<String>();
+        args.add("-encoding");
+        args.add("UTF-8");
+        if (null != classpath) {
+            args.add("-cp");
+            args.add(classpath);
+        }
+        args.add("-d");
+        args.add(dir.getAbsolutePath());
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            File file = new File(dir, source.getKey());
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), source.getValue().getBytes(StandardCharsets.UTF_8));
+            args.add(file.getAbsolutePath());
+        }
+        if (0 != ToolProvider.getSystemJavaCompiler().run(null, null, null, args.toArray(new String[args.size()]))) {
+            throw new IOException("Cannot compile " + sources.keySet());
+        }
+    }
+
+    /**
+     * Creates a test suite jar.
+     *
+     * @param jar the jar file to create
+     * @param sources the sources of the test suite by their simple class names in {@link #PACKAGE}
+     * @throws IOException if compiling or writing fails
+     */
+    public static void create(File jar, Map<String, String> sources) throws IOException {
+        File dir = new File(jar.getPath() + ".classes");
+        FileUtils.deleteDirectory(dir);
+        Map<String, String> files = new HashMap<String, String>();
+        String path = PACKAGE.replace('.', '/') + "/";
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            files.put(path + source.getKey() + ".java", source.getValue());
+        }
+        compile(dir, System.getProperty("java.class.path"), files);
+        jar.getParentFile().mkdirs();
+        Collection<File> classes = FileUtils.listFiles(dir, new String[] {"class"}, true);
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            for (File cls : classes) {
+                out.putNextEntry(new JarEntry(dir.toPath().relativize(cls.toPath()).toString()
+                    .replace(File.separatorChar, '/')));
+                Files.copy(cls.toPath(), out);
+                out.closeEntry();
+            }
+        }
+        FileUtils.deleteDirectory(dir);
+    }
+
+}